@@ -0,0 +1,19 @@
+#!/bin/sh
+# Запуск backend из исполняемого JAR с параметрами JVM для виртуальных потоков.
+#
+# В Java 21 блокирующее чтение тела запроса в Tomcat 10.1 закрепляет поток-носитель, а планировщик
+# виртуальных потоков по умолчанию добавляет не более 256 носителей. Системное свойство
+# jdk.virtualThreadScheduler.maxPoolSize читается при создании первого виртуального потока,
+# поэтому задается параметром JVM, а не из приложения.
+#
+# Переменные окружения:
+#   CARPORTAL_MAX_CARRIERS - максимальное число потоков-носителей (по умолчанию 2048)
+#   CARPORTAL_JAR          - путь к исполняемому JAR (по умолчанию target/car-portal-*-exec.jar)
+#   JAVA_OPTS              - дополнительные параметры JVM
+# Аргументы скрипта передаются приложению, например --spring.threads.virtual.enabled=false.
+set -e
+
+BACKEND_DIR=$(cd "$(dirname "$0")/.." && pwd)
+JAR=${CARPORTAL_JAR:-$(ls "$BACKEND_DIR"/target/car-portal-*-exec.jar | head -n 1)}
+
+exec java -Djdk.virtualThreadScheduler.maxPoolSize="${CARPORTAL_MAX_CARRIERS:-2048}" $JAVA_OPTS -jar "$JAR" "$@"
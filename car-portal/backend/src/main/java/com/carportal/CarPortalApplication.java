@@ -2,12 +2,14 @@ package com.carportal;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Основной класс приложения автомобильного портала.
- * Запускает Spring Boot приложение с настройками по умолчанию.
+ * Запускает Spring Boot приложение с настройками по умолчанию и включает планировщик фоновых задач.
  */
 @SpringBootApplication
+@EnableScheduling
 public class CarPortalApplication {
 
     /**
@@ -0,0 +1,464 @@
+package com.carportal.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Шина сброса кешей между экземплярами приложения через LISTEN/NOTIFY PostgreSQL.
+ * Сообщения, опубликованные в транзакции, объединяются (повторяющиеся ключи отбрасываются,
+ * слишком много ключей одной области заменяются сбросом всей области) и отправляются одним NOTIFY
+ * перед фиксацией: PostgreSQL доставляет его только после фиксации и только если она удалась,
+ * поэтому получатель не прочитает из базы данных прежнее состояние. Соединение транзакции только для чтения
+ * может вести на реплику, где NOTIFY недоступен, поэтому сообщения такой транзакции отправляются после
+ * ее фиксации в отдельной транзакции основной базы; вне транзакции сообщение отправляется так же, но сразу.
+ * <p>
+ * Каждый экземпляр слушает канал на отдельном соединении, объединяет все поступившие к моменту чтения
+ * сообщения и передает ключи подписчикам своих областей; собственные сообщения пропускаются,
+ * так как локальные кеши сбрасываются на месте. Если соединение прерывалось, сообщения за время разрыва
+ * потеряны, поэтому после переподключения подписчики всех областей получают сброс области целиком.
+ */
+@Component
+@Slf4j
+public class CacheInvalidationBus {
+
+    /** Допустимый размер сообщения в байтах (ограничение NOTIFY - 8000 байт) */
+    private static final int MAX_PAYLOAD_BYTES = 7900;
+
+    /** Количество ключей области в сообщении, начиная с которого сбрасывается вся область */
+    private static final int MAX_KEYS_PER_REGION = 256;
+
+    private static final String NOTIFY = "SELECT pg_notify(?, ?)";
+
+    private final boolean enabled;
+    private final String channel;
+    private final long keepAliveMillis;
+    private final long reconnectDelayMillis;
+    private final DataSourceProperties dataSourceProperties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate primaryTransaction;
+    private final String nodeId;
+    private final Map<CacheRegion, List<Consumer<String>>> subscribers = new EnumMap<>(CacheRegion.class);
+    private final Counter sentMessages;
+    private final Counter receivedMessages;
+    private final Counter gaps;
+    private final Timer latency;
+
+    private volatile boolean running;
+    private volatile boolean listening;
+    private volatile Connection connection;
+    private Thread listener;
+
+    /**
+     * Создает шину сброса кешей.
+     *
+     * @param enabled включена ли шина
+     * @param channel имя канала NOTIFY
+     * @param keepAlive интервал проверки соединения слушателя при отсутствии сообщений
+     * @param reconnectDelay пауза перед повторным подключением слушателя
+     * @param dataSourceProperties настройки основного источника данных для соединения слушателя
+     * @param jdbcTemplate шаблон JDBC для отправки сообщений
+     * @param transactionManager менеджер транзакций для отправки сообщений вне транзакции с возможностью записи
+     * @param meterRegistry реестр метрик
+     */
+    public CacheInvalidationBus(@Value("${carportal.cache.invalidation.enabled:true}") boolean enabled,
+                                @Value("${carportal.cache.invalidation.channel:carportal_cache_invalidation}") String channel,
+                                @Value("${carportal.cache.invalidation.keep-alive:10s}") Duration keepAlive,
+                                @Value("${carportal.cache.invalidation.reconnect-delay:1s}") Duration reconnectDelay,
+                                DataSourceProperties dataSourceProperties, JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        if (!channel.matches("[a-z_][a-z0-9_]*")) {
+            throw new IllegalArgumentException("Недопустимое имя канала сброса кешей: " + channel);
+        }
+        this.enabled = enabled;
+        this.channel = channel;
+        this.keepAliveMillis = keepAlive.toMillis();
+        this.reconnectDelayMillis = reconnectDelay.toMillis();
+        this.dataSourceProperties = dataSourceProperties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.primaryTransaction = new TransactionTemplate(transactionManager);
+        this.primaryTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        byte[] id = new byte[6];
+        new SecureRandom().nextBytes(id);
+        this.nodeId = HexFormat.of().formatHex(id);
+        for (CacheRegion region : CacheRegion.values()) {
+            subscribers.put(region, new CopyOnWriteArrayList<>());
+        }
+
+        this.sentMessages = messageCounter(meterRegistry, "sent");
+        this.receivedMessages = messageCounter(meterRegistry, "received");
+        this.gaps = Counter.builder("carportal.cache.invalidation.gaps")
+                .description("Разрывы соединения слушателя, после которых кеши сброшены целиком")
+                .register(meterRegistry);
+        this.latency = Timer.builder("carportal.cache.invalidation.latency")
+                .description("Время от отправки сообщения сброса кешей до его получения другим экземпляром")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("carportal.cache.invalidation.connected", this, bus -> bus.listening ? 1 : 0)
+                .description("Подключен ли слушатель шины сброса кешей")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Подписывает обработчик на сообщения области от других экземпляров приложения.
+     * Обработчик вызывается в потоке слушателя и должен выполняться быстро.
+     *
+     * @param region область кеша
+     * @param handler обработчик, получающий ключ или null при сбросе всей области
+     */
+    public void subscribe(CacheRegion region, Consumer<String> handler) {
+        subscribers.get(region).add(handler);
+    }
+
+    /**
+     * Публикует сброс ключа кеша для других экземпляров приложения.
+     * В транзакции с возможностью записи сообщение отправляется вместе с остальными сообщениями
+     * транзакции перед ее фиксацией, в транзакции только для чтения - после ее фиксации на основной базе,
+     * вне транзакции - сразу на основной базе.
+     *
+     * @param region область кеша
+     * @param key ключ или null для сброса всей области
+     */
+    public void publish(CacheRegion region, Object key) {
+        if (!enabled) {
+            return;
+        }
+        String value = key == null ? null : key.toString();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            Batch batch = new Batch();
+            batch.add(region, value);
+            sendOnPrimary(batch);
+            return;
+        }
+
+        Batch batch = (Batch) TransactionSynchronizationManager.getResource(this);
+        if (batch == null) {
+            Batch transactionBatch = new Batch();
+            boolean writable = TransactionSynchronizationManager.isActualTransactionActive()
+                    && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+            TransactionSynchronizationManager.bindResource(this, transactionBatch);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    if (writable) {
+                        send(transactionBatch);
+                    }
+                }
+
+                @Override
+                public void afterCommit() {
+                    if (!writable) {
+                        sendOnPrimary(transactionBatch);
+                    }
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(CacheInvalidationBus.this);
+                }
+            });
+            batch = transactionBatch;
+        }
+        batch.add(region, value);
+    }
+
+    /**
+     * Запускает слушателя после запуска приложения.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        listener = Thread.ofVirtual().name("cache-invalidation-listener").start(this::listen);
+    }
+
+    /**
+     * Останавливает слушателя.
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+        }
+        closeConnection();
+    }
+
+    /**
+     * Отправляет сообщение в отдельной транзакции с возможностью записи, то есть на основной базе:
+     * текущая транзакция, если она есть, приостанавливается вместе со своим соединением.
+     *
+     * @param batch ключи для сброса
+     */
+    private void sendOnPrimary(Batch batch) {
+        if (!batch.isEmpty()) {
+            primaryTransaction.executeWithoutResult(status -> send(batch));
+        }
+    }
+
+    /**
+     * Отправляет сообщение через текущее соединение (в транзакции - соединение транзакции).
+     *
+     * @param batch ключи для сброса
+     */
+    private void send(Batch batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.queryForList(NOTIFY, channel, batch.encode(nodeId, System.currentTimeMillis()));
+        sentMessages.increment();
+    }
+
+    /**
+     * Цикл слушателя: подключение, ожидание сообщений и переподключение после ошибок.
+     */
+    private void listen() {
+        boolean listenedBefore = false;
+        while (running) {
+            try (Connection listenerConnection = connect()) {
+                connection = listenerConnection;
+                PGConnection pgConnection = listenerConnection.unwrap(PGConnection.class);
+                try (Statement statement = listenerConnection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                listening = true;
+                if (listenedBefore) {
+                    gaps.increment();
+                    log.info("Слушатель сброса кешей переподключен, кеши всех областей сбрасываются целиком");
+                    dispatch(Batch.allRegions());
+                }
+                listenedBefore = true;
+
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications((int) keepAliveMillis);
+                    if (notifications != null && notifications.length > 0) {
+                        receive(notifications);
+                    } else if (!listenerConnection.isValid((int) TimeUnit.MILLISECONDS.toSeconds(keepAliveMillis) + 1)) {
+                        throw new SQLException("Соединение слушателя не отвечает");
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (running) {
+                    log.warn("Слушатель сброса кешей отключен: {}", e.getMessage());
+                }
+            } finally {
+                listening = false;
+                connection = null;
+            }
+            pause();
+        }
+    }
+
+    /**
+     * Объединяет поступившие сообщения других экземпляров и передает их подписчикам.
+     *
+     * @param notifications сообщения канала
+     */
+    private void receive(PGNotification[] notifications) {
+        Batch merged = new Batch();
+        long now = System.currentTimeMillis();
+        for (PGNotification notification : notifications) {
+            Long sentAt = merged.decode(notification.getParameter(), nodeId);
+            if (sentAt != null) {
+                receivedMessages.increment();
+                latency.record(Math.max(0, now - sentAt), TimeUnit.MILLISECONDS);
+            }
+        }
+        dispatch(merged);
+    }
+
+    /**
+     * Передает ключи подписчикам областей.
+     *
+     * @param batch ключи для сброса
+     */
+    private void dispatch(Batch batch) {
+        batch.keys.forEach((region, keys) -> {
+            for (Consumer<String> handler : subscribers.get(region)) {
+                try {
+                    if (keys == null) {
+                        handler.accept(null);
+                    } else {
+                        keys.forEach(handler);
+                    }
+                } catch (RuntimeException e) {
+                    log.error("Ошибка сброса кеша области {}: {}", region, e.getMessage());
+                }
+            }
+        });
+    }
+
+    private Connection connect() throws SQLException {
+        Properties properties = new Properties();
+        String username = dataSourceProperties.determineUsername();
+        String password = dataSourceProperties.determinePassword();
+        if (username != null) {
+            properties.setProperty("user", username);
+        }
+        if (password != null) {
+            properties.setProperty("password", password);
+        }
+        properties.setProperty("ApplicationName", "carportal-cache-invalidation");
+        Connection opened = DriverManager.getConnection(dataSourceProperties.determineUrl(), properties);
+        opened.setAutoCommit(true);
+        return opened;
+    }
+
+    private void closeConnection() {
+        Connection current = connection;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (SQLException e) {
+                log.debug("Ошибка закрытия соединения слушателя: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void pause() {
+        if (!running) {
+            return;
+        }
+        try {
+            Thread.sleep(reconnectDelayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    private static Counter messageCounter(MeterRegistry meterRegistry, String direction) {
+        return Counter.builder("carportal.cache.invalidation.messages")
+                .description("Сообщения шины сброса кешей")
+                .tag("direction", direction)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Объединенные ключи для сброса по областям; отсутствие набора ключей (null) означает сброс всей области.
+     * Формат сообщения: первая строка - идентификатор экземпляра-отправителя и время отправки,
+     * далее по строке на ключ ("ОБЛАСТЬ ключ") или на область целиком ("ОБЛАСТЬ").
+     */
+    private static final class Batch {
+
+        private final Map<CacheRegion, Set<String>> keys = new EnumMap<>(CacheRegion.class);
+
+        static Batch allRegions() {
+            Batch batch = new Batch();
+            for (CacheRegion region : CacheRegion.values()) {
+                batch.keys.put(region, null);
+            }
+            return batch;
+        }
+
+        boolean isEmpty() {
+            return keys.isEmpty();
+        }
+
+        void add(CacheRegion region, String key) {
+            if (keys.containsKey(region) && keys.get(region) == null) {
+                return;
+            }
+            if (key == null || key.isEmpty() || key.indexOf('\n') >= 0) {
+                keys.put(region, null);
+                return;
+            }
+            Set<String> regionKeys = keys.computeIfAbsent(region, r -> new LinkedHashSet<>());
+            regionKeys.add(key);
+            if (regionKeys.size() > MAX_KEYS_PER_REGION) {
+                keys.put(region, null);
+            }
+        }
+
+        String encode(String nodeId, long sentAt) {
+            String payload = render(nodeId, sentAt);
+            if (payload.getBytes(StandardCharsets.UTF_8).length > MAX_PAYLOAD_BYTES) {
+                keys.replaceAll((region, regionKeys) -> null);
+                payload = render(nodeId, sentAt);
+            }
+            return payload;
+        }
+
+        /**
+         * Добавляет ключи из сообщения другого экземпляра.
+         *
+         * @param payload текст сообщения
+         * @param ownNodeId идентификатор текущего экземпляра
+         * @return время отправки или null, если сообщение отправлено текущим экземпляром или повреждено
+         */
+        Long decode(String payload, String ownNodeId) {
+            String[] lines = payload.split("\n");
+            String[] header = lines[0].split(" ");
+            if (header.length != 2 || header[0].equals(ownNodeId)) {
+                return null;
+            }
+            long sentAt;
+            try {
+                sentAt = Long.parseLong(header[1]);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            for (int i = 1; i < lines.length; i++) {
+                int space = lines[i].indexOf(' ');
+                String regionName = space < 0 ? lines[i] : lines[i].substring(0, space);
+                CacheRegion region;
+                try {
+                    region = CacheRegion.valueOf(regionName);
+                } catch (IllegalArgumentException e) {
+                    continue;
+                }
+                add(region, space < 0 ? null : lines[i].substring(space + 1));
+            }
+            return sentAt;
+        }
+
+        private String render(String nodeId, long sentAt) {
+            StringBuilder payload = new StringBuilder(64).append(nodeId).append(' ').append(sentAt);
+            keys.forEach((region, regionKeys) -> {
+                if (regionKeys == null) {
+                    payload.append('\n').append(region.name());
+                } else {
+                    regionKeys.forEach(key -> payload.append('\n').append(region.name()).append(' ').append(key));
+                }
+            });
+            return payload.toString();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.carportal.cache;
+
+/**
+ * Перечисление областей кешей, сбрасываемых через шину {@link CacheInvalidationBus}.
+ * Имя области передается в сообщениях между экземплярами приложения, поэтому переименование
+ * области требует одновременного обновления всех экземпляров.
+ */
+public enum CacheRegion {
+    /** Каталог автомобилей: ключ - идентификатор автомобиля */
+    CARS,
+
+    /** Новости: ключ - идентификатор новости */
+    NEWS,
+
+    /** Данные пользователей для аутентификации: ключ - имя пользователя */
+    USERS,
+
+    /** Список отзыва токенов доступа: ключ - идентификатор пользователя */
+    TOKEN_REVOCATIONS
+}
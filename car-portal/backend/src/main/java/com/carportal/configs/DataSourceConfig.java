@@ -0,0 +1,45 @@
+package com.carportal.configs;
+
+import com.carportal.datasource.ReadWriteDataSource;
+import com.carportal.datasource.ReplicaRouter;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+
+/**
+ * Конфигурация источника данных.
+ * Пул соединений основной базы создается по стандартным настройкам spring.datasource.
+ * Если заданы реплики (carportal.datasource.replicas), транзакции только для чтения
+ * ({@code @Transactional(readOnly = true)} и методы чтения репозиториев) выполняются на репликах.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    /**
+     * Создает источник данных.
+     *
+     * @param properties настройки источника данных
+     * @param environment окружение для чтения настроек пула
+     * @param replicaRouter распределение чтений по репликам
+     * @return пул основной базы или источник с распределением чтений по репликам
+     */
+    @Bean
+    public DataSource dataSource(DataSourceProperties properties, Environment environment, ReplicaRouter replicaRouter) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        if (StringUtils.hasText(properties.getName())) {
+            primary.setPoolName(properties.getName());
+        }
+        if (!replicaRouter.hasReplicas()) {
+            return primary;
+        }
+        return new ReadWriteDataSource(primary, replicaRouter.readOnlyDataSource(primary));
+    }
+}
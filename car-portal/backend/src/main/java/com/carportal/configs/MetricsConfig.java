@@ -0,0 +1,46 @@
+package com.carportal.configs;
+
+import com.carportal.metrics.QueryCountingListener;
+import com.carportal.metrics.SlowQueryListener;
+import com.carportal.metrics.SlowQueryLog;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Конфигурация метрик приложения.
+ * Оборачивает источник данных прокси, который учитывает SQL-запросы каждого HTTP-запроса
+ * и передает медленные запросы в журнал.
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Оборачивает источники данных прокси, считающим запросы и измеряющим время их выполнения.
+     * Метод статический, чтобы обработчик регистрировался до создания остальных бинов конфигурации.
+     *
+     * @param slowQueryLogProvider поставщик журнала медленных запросов
+     * @return обработчик бинов источников данных
+     */
+    @Bean
+    public static BeanPostProcessor slowQueryDataSourcePostProcessor(ObjectProvider<SlowQueryLog> slowQueryLogProvider) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+                    return ProxyDataSourceBuilder.create(dataSource)
+                            .name(beanName)
+                            .listener(new QueryCountingListener())
+                            .listener(new SlowQueryListener(slowQueryLogProvider, dataSource))
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -1,7 +1,13 @@
 package com.carportal.configs;
 
+import com.carportal.security.BCryptStrengthPolicy;
+import com.carportal.security.TokenAuthenticationFilter;
+import com.carportal.security.TokenService;
+import com.carportal.security.TtlUserCache;
 import com.carportal.security.UserDetailsServiceImpl;
 import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.CacheControl;
@@ -16,12 +22,14 @@ import org.springframework.security.config.annotation.web.configurers.AbstractHt
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
 
@@ -33,25 +41,33 @@ import java.util.concurrent.TimeUnit;
 @EnableWebSecurity
 @EnableMethodSecurity
 @AllArgsConstructor
+@Slf4j
 public class SecurityConfig implements WebMvcConfigurer {
 
     private final UserDetailsServiceImpl userDetailsService;
 
     /**
      * Конфигурирует цепочку фильтров безопасности.
+     * Пользователь аутентифицируется либо сессией, либо токеном доступа из заголовка Authorization;
+     * запрос с токеном не читает и не создает сессию.
      *
      * @param http объект HttpSecurity для настройки
+     * @param authenticationProvider провайдер аутентификации
+     * @param tokenService сервис токенов
      * @return сконфигурированная цепочка фильтров безопасности
      * @throws Exception если возникает ошибка конфигурации
      */
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http, AuthenticationProvider authenticationProvider,
+                                           TokenService tokenService) throws Exception {
         http
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(auth -> auth
+                        .requestMatchers("/auth/token", "/auth/token/refresh", "/auth/token/revoke").permitAll()
                         .requestMatchers("/user/login", "/user/signup", "/news/**", "/time",
-                                "/cars/catalog", "/cars/**", "/images/**", "/backgrounds/**").permitAll()
-                        .requestMatchers("/admin/**").hasRole("ADMIN")
+                                "/cars/catalog", "/cars/**", "/search/**", "/images/**", "/backgrounds/**").permitAll()
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/admin/**", "/actuator/**").hasRole("ADMIN")
                         .requestMatchers("/moderator/**").hasAnyRole("MODERATOR", "ADMIN")
                         .requestMatchers("/user/**", "/favorites/**", "/user/checklogin").authenticated()
                         .anyRequest().authenticated()
@@ -67,7 +83,8 @@ public class SecurityConfig implements WebMvcConfigurer {
                 .formLogin(AbstractHttpConfigurer::disable)
                 .httpBasic(AbstractHttpConfigurer::disable)
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
-                .authenticationProvider(authenticationProvider());
+                .addFilterBefore(new TokenAuthenticationFilter(tokenService), UsernamePasswordAuthenticationFilter.class)
+                .authenticationProvider(authenticationProvider);
 
         return http.build();
     }
@@ -94,12 +111,20 @@ public class SecurityConfig implements WebMvcConfigurer {
 
     /**
      * Создает кодировщик паролей.
+     * Если стоимость хеширования не задана явно, она выбирается при запуске по измеренному времени хеширования,
+     * чтобы проверка пароля занимала предсказуемое время. Пароли, захешированные с меньшей стоимостью,
+     * перехешируются при следующем успешном входе.
      *
+     * @param strength стоимость хеширования BCrypt (0 - выбрать по целевому времени)
+     * @param targetTime целевое время проверки пароля
      * @return кодировщик паролей BCrypt
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${carportal.security.bcrypt.strength:0}") int strength,
+                                           @Value("${carportal.security.bcrypt.target-time:100ms}") Duration targetTime) {
+        int effectiveStrength = strength > 0 ? strength : BCryptStrengthPolicy.calibrate(targetTime);
+        log.info("Стоимость хеширования паролей BCrypt: {}", effectiveStrength);
+        return new BCryptPasswordEncoder(effectiveStrength);
     }
 
     /**
@@ -116,14 +141,19 @@ public class SecurityConfig implements WebMvcConfigurer {
 
     /**
      * Создает провайдер аутентификации.
+     * Данные пользователей кешируются, а хеши паролей с устаревшей стоимостью обновляются после успешного входа.
      *
+     * @param passwordEncoder кодировщик паролей
+     * @param userCache кеш данных пользователей
      * @return провайдер аутентификации Dao
      */
     @Bean
-    public AuthenticationProvider authenticationProvider() {
+    public AuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder, TtlUserCache userCache) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
-        authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setUserDetailsPasswordService(userDetailsService);
+        authProvider.setPasswordEncoder(passwordEncoder);
+        authProvider.setUserCache(userCache);
         authProvider.setHideUserNotFoundExceptions(false);
         return authProvider;
     }
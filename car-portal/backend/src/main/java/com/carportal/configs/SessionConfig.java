@@ -0,0 +1,14 @@
+package com.carportal.configs;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.session.config.annotation.web.http.EnableSpringHttpSession;
+
+/**
+ * Конфигурация HTTP-сессий.
+ * Подключает Spring Session: сессии хранятся в {@link com.carportal.session.JdbcSessionRepository}
+ * вместо памяти контейнера сервлетов, поэтому запросы пользователя может обслуживать любой экземпляр приложения.
+ */
+@Configuration
+@EnableSpringHttpSession
+public class SessionConfig {
+}
@@ -3,10 +3,14 @@ package com.carportal.controllers;
 import com.carportal.dto.request.AdminUserEditDTO;
 import com.carportal.dto.request.CarRequestDTO;
 import com.carportal.dto.request.NewsRequestDTO;
+import com.carportal.dto.response.AdminStatsDTO;
 import com.carportal.dto.response.CarResponseDTO;
 import com.carportal.dto.response.NewsResponseDTO;
+import com.carportal.dto.response.SlowQueryDTO;
 import com.carportal.dto.response.UserResponseDTO;
+import com.carportal.metrics.SlowQueryLog;
 import com.carportal.services.AdminService;
+import com.carportal.services.AdminStatsService;
 import com.carportal.utils.security.UtilsSecurity;
 import lombok.AllArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -27,6 +31,8 @@ public class AdminController {
 
     private final AdminService adminService;
     private final UtilsSecurity utilsSecurity;
+    private final SlowQueryLog slowQueryLog;
+    private final AdminStatsService adminStatsService;
 
     /**
      * Получает всех пользователей, исключая текущего администратора.
@@ -36,7 +42,7 @@ public class AdminController {
     @GetMapping("/users")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<List<UserResponseDTO>> getAllUsers() {
-        Long currentUserId = utilsSecurity.getCurrentUser().getId();
+        Long currentUserId = utilsSecurity.getCurrentUserId();
         List<UserResponseDTO> users = adminService.getAllUsersExcludingCurrent(currentUserId);
         return ResponseEntity.ok(users);
     }
@@ -235,4 +241,38 @@ public class AdminController {
         adminService.deleteNews(newsId);
         return ResponseEntity.ok("Новость удалена");
     }
-}
\ No newline at end of file
+
+    /**
+     * Получает журнал медленных SQL-запросов, начиная с самого нового.
+     *
+     * @return список медленных запросов
+     */
+    @GetMapping("/slow-queries")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<SlowQueryDTO>> getSlowQueries() {
+        return ResponseEntity.ok(slowQueryLog.getEntries());
+    }
+
+    /**
+     * Очищает журнал медленных SQL-запросов.
+     *
+     * @return сообщение об успешной очистке
+     */
+    @DeleteMapping("/slow-queries")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<String> clearSlowQueries() {
+        slowQueryLog.clear();
+        return ResponseEntity.ok("Журнал медленных запросов очищен");
+    }
+
+    /**
+     * Получает статистику портала: пользователей, автомобили, новости и избранное.
+     *
+     * @return статистика портала
+     */
+    @GetMapping("/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<AdminStatsDTO> getStats() {
+        return ResponseEntity.ok(adminStatsService.getStats());
+    }
+}
@@ -1,10 +1,13 @@
 package com.carportal.controllers;
 
+import com.carportal.dto.request.RefreshTokenDTO;
 import com.carportal.dto.request.UserCreateDTO;
 import com.carportal.dto.request.UserLoginDTO;
+import com.carportal.dto.response.TokenResponseDTO;
 import com.carportal.dto.response.UserResponseDTO;
+import com.carportal.security.ClientAddressResolver;
 import com.carportal.services.UserService;
-import com.carportal.utils.validation.UserParamsValidator;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
 import lombok.AllArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -13,6 +16,7 @@ import org.springframework.web.bind.annotation.*;
 /**
  * Контроллер для операций аутентификации.
  * Обрабатывает запросы, связанные с регистрацией и входом пользователей в систему.
+ * Помимо входа с сессией поддерживается вход без сессии по подписанным токенам (/auth/token).
  */
 @RestController
 @RequestMapping("/auth")
@@ -20,6 +24,7 @@ import org.springframework.web.bind.annotation.*;
 public class AuthController {
 
     private final UserService userService;
+    private final ClientAddressResolver clientAddressResolver;
 
     /**
      * Регистрирует нового пользователя в системе.
@@ -29,8 +34,6 @@ public class AuthController {
      */
     @PostMapping("/register")
     public ResponseEntity<UserResponseDTO> register(@RequestBody UserCreateDTO userCreateDTO) {
-        UserParamsValidator.userParamsValidate(userCreateDTO);
-
         if (userCreateDTO.getPhone() != null && userCreateDTO.getPhone().trim().isEmpty()) {
             userCreateDTO.setPhone(null);
         }
@@ -44,15 +47,48 @@ public class AuthController {
      *
      * @param userLoginDTO данные для входа в систему
      * @param session HTTP сессия для хранения состояния аутентификации
+     * @param request HTTP запрос (для определения адреса клиента)
      * @return аутентифицированный пользователь в формате UserResponseDTO
      */
     @PostMapping("/login")
-    public ResponseEntity<UserResponseDTO> login(@RequestBody UserLoginDTO userLoginDTO, HttpSession session) {
-        try {
-            UserResponseDTO authenticatedUser = userService.login(userLoginDTO, session);
-            return ResponseEntity.ok(authenticatedUser);
-        } catch (Exception e) {
-            throw e;
-        }
+    public ResponseEntity<UserResponseDTO> login(@RequestBody UserLoginDTO userLoginDTO, HttpSession session,
+                                                 HttpServletRequest request) {
+        UserResponseDTO authenticatedUser = userService.login(userLoginDTO, session, clientAddressResolver.resolve(request));
+        return ResponseEntity.ok(authenticatedUser);
+    }
+
+    /**
+     * Аутентифицирует пользователя без создания сессии.
+     *
+     * @param userLoginDTO данные для входа в систему
+     * @param request HTTP запрос (для определения адреса клиента)
+     * @return токены доступа и обновления и данные пользователя
+     */
+    @PostMapping("/token")
+    public ResponseEntity<TokenResponseDTO> token(@RequestBody UserLoginDTO userLoginDTO, HttpServletRequest request) {
+        return ResponseEntity.ok(userService.loginWithToken(userLoginDTO, clientAddressResolver.resolve(request)));
+    }
+
+    /**
+     * Обменивает токен обновления на новую пару токенов.
+     *
+     * @param refreshTokenDTO токен обновления
+     * @return новые токены доступа и обновления и данные пользователя
+     */
+    @PostMapping("/token/refresh")
+    public ResponseEntity<TokenResponseDTO> refreshToken(@RequestBody RefreshTokenDTO refreshTokenDTO) {
+        return ResponseEntity.ok(userService.refreshToken(refreshTokenDTO));
+    }
+
+    /**
+     * Выполняет выход пользователя, вошедшего без сессии.
+     *
+     * @param refreshTokenDTO токен обновления
+     * @return пустой ответ
+     */
+    @PostMapping("/token/revoke")
+    public ResponseEntity<Void> revokeToken(@RequestBody RefreshTokenDTO refreshTokenDTO) {
+        userService.revokeToken(refreshTokenDTO);
+        return ResponseEntity.noContent().build();
     }
-}
\ No newline at end of file
+}
@@ -1,12 +1,28 @@
 package com.carportal.controllers;
 
 import com.carportal.dto.response.CarResponseDTO;
+import com.carportal.dto.response.PricePointDTO;
+import com.carportal.metrics.QueryBudget;
 import com.carportal.services.CarService;
+import com.carportal.services.CatalogEventBroadcaster;
+import com.carportal.services.CatalogSnapshotService;
+import com.carportal.services.CatalogVersionService;
+import com.carportal.services.PriceHistoryService;
+import com.carportal.services.SimilarCarsService;
 import lombok.AllArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Контроллер для операций с автомобилями.
@@ -18,40 +34,88 @@ import java.util.List;
 public class CarController {
 
     private final CarService carService;
+    private final CatalogVersionService catalogVersionService;
+    private final CatalogSnapshotService catalogSnapshotService;
+    private final CatalogEventBroadcaster catalogEventBroadcaster;
+    private final PriceHistoryService priceHistoryService;
+    private final SimilarCarsService similarCarsService;
 
     /**
      * Получает все автомобили в каталоге.
+     * Если каталог не изменился с момента, указанного клиентом, возвращает 304 без обращения к базе данных.
+     * Тело ответа берется из предварительно сериализованного снимка каталога; ETag зависит от кодировки тела.
      *
-     * @return список автомобилей в формате CarResponseDTO
+     * @param request текущий запрос для проверки условных заголовков
+     * @param acceptEncoding поддерживаемые клиентом кодировки сжатия
+     * @return список автомобилей в формате JSON
      */
+    @QueryBudget(2)
     @GetMapping("/catalog")
-    public ResponseEntity<List<CarResponseDTO>> getAllCars() {
-        List<CarResponseDTO> cars = carService.getAllCars();
-        return ResponseEntity.ok(cars);
+    public ResponseEntity<byte[]> getAllCars(WebRequest request,
+                                             @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        CatalogVersionService.Version version = catalogVersionService.getCarsVersion();
+        boolean gzip = acceptsGzip(acceptEncoding);
+        if (request.checkNotModified(snapshotETag(version, gzip), version.getLastModified())) {
+            return notModified();
+        }
+        return snapshotResponse(catalogSnapshotService.getCatalog(), gzip);
+    }
+
+    /**
+     * Открывает поток Server-Sent Events с изменениями каталога.
+     * Заменяет периодический опрос каталога: клиент получает события о добавлении, изменении цены,
+     * статуса и удалении автомобилей. При переподключении пропущенные события досылаются по Last-Event-ID.
+     *
+     * @param lastEventId идентификатор последнего полученного события (необязательно)
+     * @param brand марка для фильтрации событий (необязательно)
+     * @param types типы событий для фильтрации (необязательно)
+     * @return поток событий каталога
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamCatalogEvents(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                          @RequestParam(required = false) String brand,
+                                          @RequestParam(required = false) Set<String> types) {
+        return catalogEventBroadcaster.subscribe(lastEventId, brand, types);
     }
 
     /**
      * Получает автомобиль по идентификатору.
+     * Если каталог не изменился с момента, указанного клиентом, возвращает 304 без обращения к базе данных.
      *
      * @param id идентификатор автомобиля
+     * @param request текущий запрос для проверки условных заголовков
      * @return данные автомобиля в формате CarResponseDTO
      */
+    @QueryBudget(2)
     @GetMapping("/{id}")
-    public ResponseEntity<CarResponseDTO> getCarById(@PathVariable Long id) {
+    public ResponseEntity<CarResponseDTO> getCarById(@PathVariable Long id, WebRequest request) {
+        CatalogVersionService.Version version = catalogVersionService.getCarsVersion();
+        if (request.checkNotModified(version.getETag(), version.getLastModified())) {
+            return null;
+        }
         CarResponseDTO car = carService.getCarById(id);
-        return ResponseEntity.ok(car);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(car);
     }
 
     /**
      * Получает автомобили по марке.
+     * Тело ответа берется из предварительно сериализованного снимка каталога; ETag зависит от кодировки тела.
      *
      * @param brand марка автомобиля
-     * @return список автомобилей указанной марки
+     * @param request текущий запрос для проверки условных заголовков
+     * @param acceptEncoding поддерживаемые клиентом кодировки сжатия
+     * @return список автомобилей указанной марки в формате JSON
      */
+    @QueryBudget(2)
     @GetMapping("/brand/{brand}")
-    public ResponseEntity<List<CarResponseDTO>> getCarsByBrand(@PathVariable String brand) {
-        List<CarResponseDTO> cars = carService.getCarsByBrand(brand);
-        return ResponseEntity.ok(cars);
+    public ResponseEntity<byte[]> getCarsByBrand(@PathVariable String brand, WebRequest request,
+                                                 @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        CatalogVersionService.Version version = catalogVersionService.getCarsVersion();
+        boolean gzip = acceptsGzip(acceptEncoding);
+        if (request.checkNotModified(snapshotETag(version, gzip), version.getLastModified())) {
+            return notModified();
+        }
+        return snapshotResponse(catalogSnapshotService.getBrand(brand), gzip);
     }
 
     /**
@@ -61,9 +125,113 @@ public class CarController {
      * @param maxPrice максимальная цена
      * @return список автомобилей в указанном ценовом диапазоне
      */
+    @QueryBudget(2)
     @GetMapping("/price-range")
     public ResponseEntity<List<CarResponseDTO>> getCarsByPriceRange(@RequestParam double minPrice, @RequestParam double maxPrice) {
         List<CarResponseDTO> cars = carService.getCarsByPriceRange(minPrice, maxPrice);
         return ResponseEntity.ok(cars);
     }
+
+    /**
+     * Получает автомобили, похожие на указанный.
+     * Списки вычисляются заранее, поэтому ответ формируется без обращения к базе данных.
+     *
+     * @param id идентификатор автомобиля
+     * @return похожие продающиеся автомобили, начиная с самого похожего
+     */
+    @QueryBudget(0)
+    @GetMapping("/{id}/similar")
+    public ResponseEntity<List<CarResponseDTO>> getSimilarCars(@PathVariable Long id) {
+        return ResponseEntity.ok(similarCarsService.getSimilarCars(id));
+    }
+
+    /**
+     * Получает автомобили, цена которых снижалась за последние дни.
+     *
+     * @param days количество последних дней
+     * @return список автомобилей, начиная с последних снижений цены
+     */
+    @QueryBudget(2)
+    @GetMapping("/price-drops")
+    public ResponseEntity<List<CarResponseDTO>> getCarsWithRecentPriceDrop(@RequestParam(defaultValue = "7") int days) {
+        return ResponseEntity.ok(carService.getCarsWithRecentPriceDrop(days));
+    }
+
+    /**
+     * Получает историю цены автомобиля за период.
+     *
+     * @param id идентификатор автомобиля
+     * @param from начало периода (необязательно)
+     * @param to конец периода (необязательно)
+     * @return точки истории цены в порядке времени
+     */
+    @QueryBudget(2)
+    @GetMapping("/{id}/price-history")
+    public ResponseEntity<List<PricePointDTO>> getPriceHistory(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return ResponseEntity.ok(priceHistoryService.getHistory(id, from, to));
+    }
+
+    /**
+     * Формирует ответ из готового тела снимка, отдавая сжатую версию клиентам с поддержкой gzip.
+     *
+     * @param payload готовое тело ответа
+     * @param gzip отдавать ли тело, сжатое gzip
+     * @return ответ с телом в формате JSON
+     */
+    private ResponseEntity<byte[]> snapshotResponse(CatalogSnapshotService.Payload payload, boolean gzip) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+
+        if (gzip) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(payload.getGzip());
+        }
+        return builder.body(payload.getJson());
+    }
+
+    /**
+     * Формирует ETag снимка для выбранной кодировки тела.
+     * Сжатое и несжатое тела различаются побайтно, поэтому строгий ETag у них должен быть разным:
+     * иначе общий кеш может отдать клиенту без поддержки gzip сжатое тело, подтвержденное ответом 304.
+     *
+     * @param version версия каталога
+     * @param gzip отдается ли тело, сжатое gzip
+     * @return значение ETag
+     */
+    private static String snapshotETag(CatalogVersionService.Version version, boolean gzip) {
+        return gzip ? version.getETag("gzip") : version.getETag();
+    }
+
+    /**
+     * Формирует ответ 304 для снимка: ETag и Last-Modified уже записаны проверкой условных заголовков,
+     * а Vary сообщает кешам, что ответ зависит от Accept-Encoding, как и ответ с телом.
+     *
+     * @return пустой ответ 304
+     */
+    private static ResponseEntity<byte[]> notModified() {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).varyBy(HttpHeaders.ACCEPT_ENCODING).build();
+    }
+
+    /**
+     * Проверяет, принимает ли клиент ответы, сжатые gzip.
+     *
+     * @param acceptEncoding значение заголовка Accept-Encoding
+     * @return true, если клиент поддерживает gzip
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String token : acceptEncoding.split(",")) {
+            String[] parts = token.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
 }
\ No newline at end of file
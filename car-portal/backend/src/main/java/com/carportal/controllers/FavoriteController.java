@@ -1,6 +1,9 @@
 package com.carportal.controllers;
 
 import com.carportal.dto.response.CarResponseDTO;
+import com.carportal.dto.response.FavoriteNotificationDTO;
+import com.carportal.metrics.QueryBudget;
+import com.carportal.services.FavoriteNotificationService;
 import com.carportal.services.FavoriteService;
 import lombok.AllArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -18,18 +21,31 @@ import java.util.List;
 public class FavoriteController {
 
     private final FavoriteService favoriteService;
+    private final FavoriteNotificationService favoriteNotificationService;
 
     /**
      * Получает все избранные автомобили текущего пользователя.
      *
      * @return список избранных автомобилей в формате CarResponseDTO
      */
+    @QueryBudget(3)
     @GetMapping
     public ResponseEntity<List<CarResponseDTO>> getUserFavorites() {
         List<CarResponseDTO> favorites = favoriteService.getUserFavorites();
         return ResponseEntity.ok(favorites);
     }
 
+    /**
+     * Получает уведомления текущего пользователя о снижении цены и продаже избранных автомобилей.
+     *
+     * @return последние уведомления в порядке от новых к старым
+     */
+    @QueryBudget(2)
+    @GetMapping("/notifications")
+    public ResponseEntity<List<FavoriteNotificationDTO>> getNotifications() {
+        return ResponseEntity.ok(favoriteNotificationService.getNotifications());
+    }
+
     /**
      * Добавляет автомобиль в избранное.
      *
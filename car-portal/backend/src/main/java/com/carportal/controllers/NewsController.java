@@ -1,10 +1,14 @@
 package com.carportal.controllers;
 
 import com.carportal.dto.response.NewsResponseDTO;
+import com.carportal.metrics.QueryBudget;
+import com.carportal.services.CatalogVersionService;
 import com.carportal.services.NewsService;
 import lombok.AllArgsConstructor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -18,28 +22,43 @@ import java.util.List;
 public class NewsController {
 
     private final NewsService newsService;
+    private final CatalogVersionService catalogVersionService;
 
     /**
      * Получает все новости.
+     * Если новости не изменились с момента, указанного клиентом, возвращает 304 без обращения к базе данных.
      *
+     * @param request текущий запрос для проверки условных заголовков
      * @return список новостей в формате NewsResponseDTO
      */
+    @QueryBudget(2)
     @GetMapping
-    public ResponseEntity<List<NewsResponseDTO>> getAllNews() {
+    public ResponseEntity<List<NewsResponseDTO>> getAllNews(WebRequest request) {
+        CatalogVersionService.Version version = catalogVersionService.getNewsVersion();
+        if (request.checkNotModified(version.getETag(), version.getLastModified())) {
+            return null;
+        }
         List<NewsResponseDTO> news = newsService.getAllNews();
-        return ResponseEntity.ok(news);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(news);
     }
 
     /**
      * Получает новость по идентификатору.
+     * Если новости не изменились с момента, указанного клиентом, возвращает 304 без обращения к базе данных.
      *
      * @param id идентификатор новости
+     * @param request текущий запрос для проверки условных заголовков
      * @return данные новости в формате NewsResponseDTO
      */
+    @QueryBudget(2)
     @GetMapping("/{id}")
-    public ResponseEntity<NewsResponseDTO> getNewsById(@PathVariable Long id) {
+    public ResponseEntity<NewsResponseDTO> getNewsById(@PathVariable Long id, WebRequest request) {
+        CatalogVersionService.Version version = catalogVersionService.getNewsVersion();
+        if (request.checkNotModified(version.getETag(), version.getLastModified())) {
+            return null;
+        }
         NewsResponseDTO news = newsService.getNewsById(id);
-        return ResponseEntity.ok(news);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(news);
     }
 
     /**
@@ -48,6 +67,7 @@ public class NewsController {
      * @param keyword ключевое слово для поиска
      * @return список найденных новостей
      */
+    @QueryBudget(2)
     @GetMapping("/search")
     public ResponseEntity<List<NewsResponseDTO>> searchNews(@RequestParam String keyword) {
         List<NewsResponseDTO> news = newsService.searchNews(keyword);
@@ -0,0 +1,40 @@
+package com.carportal.controllers;
+
+import com.carportal.dto.response.SuggestionDTO;
+import com.carportal.metrics.QueryBudget;
+import com.carportal.services.AutocompleteService;
+import lombok.AllArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Контроллер поисковой строки.
+ * Предоставляет подсказки при вводе по маркам, моделям и заголовкам новостей.
+ */
+@RestController
+@RequestMapping("/search")
+@AllArgsConstructor
+public class SearchController {
+
+    private final AutocompleteService autocompleteService;
+
+    /**
+     * Получает подсказки для начала поискового запроса.
+     * Подсказки ищутся в памяти, поэтому ответ формируется без обращения к базе данных.
+     *
+     * @param prefix введенное начало запроса
+     * @param limit максимальное количество подсказок
+     * @return подсказки в порядке убывания количества автомобилей или новостей
+     */
+    @QueryBudget(0)
+    @GetMapping("/autocomplete")
+    public ResponseEntity<List<SuggestionDTO>> autocomplete(@RequestParam("q") String prefix,
+                                                            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(autocompleteService.suggest(prefix, limit));
+    }
+}
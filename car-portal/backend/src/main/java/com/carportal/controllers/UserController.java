@@ -4,7 +4,9 @@ import com.carportal.dto.request.UserCreateDTO;
 import com.carportal.dto.request.UserEditDTO;
 import com.carportal.dto.request.UserLoginDTO;
 import com.carportal.dto.response.UserResponseDTO;
+import com.carportal.security.ClientAddressResolver;
 import com.carportal.services.UserService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
 import lombok.AllArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -22,6 +24,7 @@ import org.springframework.web.multipart.MultipartFile;
 public class UserController {
 
     private final UserService userService;
+    private final ClientAddressResolver clientAddressResolver;
 
     /**
      * Регистрирует нового пользователя.
@@ -40,16 +43,14 @@ public class UserController {
      *
      * @param userLoginDTO данные для входа
      * @param session HTTP сессия
+     * @param request HTTP запрос (для определения адреса клиента)
      * @return авторизованный пользователь в формате UserResponseDTO
      */
     @PostMapping("/login")
-    public ResponseEntity<UserResponseDTO> login(@RequestBody UserLoginDTO userLoginDTO, HttpSession session) {
-        try {
-            UserResponseDTO user = userService.login(userLoginDTO, session);
-            return ResponseEntity.ok(user);
-        } catch (Exception e) {
-            throw e;
-        }
+    public ResponseEntity<UserResponseDTO> login(@RequestBody UserLoginDTO userLoginDTO, HttpSession session,
+                                                 HttpServletRequest request) {
+        UserResponseDTO user = userService.login(userLoginDTO, session, clientAddressResolver.resolve(request));
+        return ResponseEntity.ok(user);
     }
 
     /**
@@ -0,0 +1,43 @@
+package com.carportal.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Утилитный класс для явного выбора основной базы данных при чтении.
+ * Транзакции только для чтения по умолчанию выполняются на репликах, которые могут немного отставать.
+ * Чтение, результат которого помечается версией каталога (ETag, кешированный снимок), выполняется
+ * на основной базе: иначе данные реплики, еще не получившей изменение, были бы закешированы под новой версией.
+ */
+public abstract class DataSourceRouting {
+
+    private static final ThreadLocal<Boolean> PRIMARY_PINNED = new ThreadLocal<>();
+
+    /**
+     * Выполняет действие, направляя все его чтения в основную базу данных.
+     * Действие должно начинать собственные транзакции: соединение уже начатой транзакции не меняется.
+     *
+     * @param action действие
+     * @param <T> тип результата
+     * @return результат действия
+     */
+    public static <T> T onPrimary(Supplier<T> action) {
+        if (PRIMARY_PINNED.get() != null) {
+            return action.get();
+        }
+        PRIMARY_PINNED.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            PRIMARY_PINNED.remove();
+        }
+    }
+
+    /**
+     * Проверяет, должно ли текущее чтение выполняться на основной базе данных.
+     *
+     * @return true внутри {@link #onPrimary(Supplier)}
+     */
+    public static boolean isPrimaryPinned() {
+        return PRIMARY_PINNED.get() != null;
+    }
+}
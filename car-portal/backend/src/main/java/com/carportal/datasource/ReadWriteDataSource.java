@@ -0,0 +1,37 @@
+package com.carportal.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+
+/**
+ * Источник данных, направляющий транзакции только для чтения на реплики, а остальные — в основную базу.
+ * Физическое соединение берется при первом запросе, когда признак «только для чтения» транзакции уже
+ * установлен: транзакция без запросов не занимает соединение ни основной базы, ни реплики.
+ */
+public class ReadWriteDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+
+    private final HikariDataSource primary;
+
+    /**
+     * Создает источник данных.
+     *
+     * @param primary пул соединений основной базы данных
+     * @param readOnlyDataSource источник соединений для транзакций только для чтения
+     */
+    public ReadWriteDataSource(HikariDataSource primary, DataSource readOnlyDataSource) {
+        super(primary);
+        this.primary = primary;
+        setReadOnlyDataSource(readOnlyDataSource);
+    }
+
+    /**
+     * Закрывает пул соединений основной базы данных.
+     */
+    @Override
+    public void close() {
+        primary.close();
+    }
+}
@@ -0,0 +1,98 @@
+package com.carportal.datasource;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+
+/**
+ * Обеспечивает чтение своих записей при чтении с реплик.
+ * После фиксации пишущей транзакции в HTTP-запросе клиенту выставляется короткоживущий cookie:
+ * пока он действует, чтения этого клиента выполняются на основной базе данных, и клиент не увидит
+ * на отстающей реплике состояние до собственного изменения. Признак хранится у клиента,
+ * поэтому действует на любом экземпляре приложения.
+ * Регистрируется в менеджере транзакций автоматически как {@link TransactionExecutionListener}.
+ */
+@Component
+public class ReadYourWritesTracker implements TransactionExecutionListener {
+
+    /** Имя cookie, направляющего чтения клиента в основную базу данных */
+    public static final String COOKIE_NAME = "read-primary";
+
+    private static final String WRITTEN_ATTRIBUTE = ReadYourWritesTracker.class.getName() + ".WRITTEN";
+
+    private final boolean enabled;
+    private final int windowSeconds;
+
+    /**
+     * Создает отслеживание записей.
+     *
+     * @param replicas адреса реплик (без реплик отслеживание не требуется)
+     * @param window время после записи, в течение которого чтения клиента выполняются на основной базе
+     */
+    public ReadYourWritesTracker(@Value("${carportal.datasource.replicas:}") String replicas,
+                                 @Value("${carportal.datasource.read-your-writes-window:5s}") Duration window) {
+        this.enabled = !replicas.isBlank();
+        this.windowSeconds = (int) Math.max(1, window.toSeconds());
+    }
+
+    /**
+     * Отмечает клиента, выполнившего запись.
+     * Вложенные и только читающие транзакции не учитываются.
+     *
+     * @param transaction зафиксированная транзакция
+     * @param commitFailure ошибка фиксации или null
+     */
+    @Override
+    public void afterCommit(TransactionExecution transaction, Throwable commitFailure) {
+        if (!enabled || commitFailure != null || transaction.isReadOnly() || !transaction.isNewTransaction()
+                || !(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return;
+        }
+        HttpServletRequest request = attributes.getRequest();
+        if (request.getAttribute(WRITTEN_ATTRIBUTE) != null) {
+            return;
+        }
+        request.setAttribute(WRITTEN_ATTRIBUTE, Boolean.TRUE);
+
+        HttpServletResponse response = attributes.getResponse();
+        if (response != null && !response.isCommitted()) {
+            Cookie cookie = new Cookie(COOKIE_NAME, "1");
+            cookie.setMaxAge(windowSeconds);
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            response.addCookie(cookie);
+        }
+    }
+
+    /**
+     * Проверяет, выполнял ли клиент текущего HTTP-запроса запись недавно.
+     *
+     * @return true, если запись выполнена в текущем запросе или в пределах окна до него
+     */
+    public boolean isRecentWriter() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return false;
+        }
+        HttpServletRequest request = attributes.getRequest();
+        if (request.getAttribute(WRITTEN_ATTRIBUTE) != null) {
+            return true;
+        }
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (COOKIE_NAME.equals(cookie.getName())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
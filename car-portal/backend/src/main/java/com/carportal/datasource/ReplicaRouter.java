@@ -0,0 +1,225 @@
+package com.carportal.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Распределение чтений по репликам базы данных.
+ * Реплики задаются списком адресов JDBC; пулы соединений реплик используют настройки пула основной базы.
+ * Отставание каждой реплики периодически измеряется; реплика, отстающая больше допустимого или недоступная,
+ * исключается из распределения до следующей успешной проверки. Если доступных реплик нет,
+ * чтения выполняются на основной базе данных.
+ */
+@Component
+@Slf4j
+public class ReplicaRouter {
+
+    /**
+     * Отставание реплики в миллисекундах: 0, если реплика воспроизвела все полученные изменения
+     * (простаивающая основная база не должна выглядеть как растущее отставание) или база не является репликой.
+     */
+    private static final String LAG_QUERY = "SELECT CASE "
+            + "WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+            + "ELSE COALESCE((EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000)::bigint, 0) END";
+
+    private final List<Replica> replicas = new ArrayList<>();
+    private final long maxLagMillis;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final Counter replicaReads;
+    private final Counter pinnedReads;
+    private final Counter fallbackReads;
+
+    /**
+     * Создает распределение чтений.
+     *
+     * @param urls адреса JDBC реплик через запятую (пусто - реплик нет)
+     * @param poolSize размер пула соединений каждой реплики (0 - как у основной базы)
+     * @param maxLag допустимое отставание реплики
+     * @param properties настройки основного источника данных (учетные данные и драйвер)
+     * @param environment окружение для чтения настроек пула
+     * @param readYourWritesTracker отслеживание записей клиентов
+     * @param meterRegistry реестр метрик
+     */
+    public ReplicaRouter(@Value("${carportal.datasource.replicas:}") String urls,
+                         @Value("${carportal.datasource.replica-pool-size:0}") int poolSize,
+                         @Value("${carportal.datasource.replica-max-lag:2s}") Duration maxLag,
+                         DataSourceProperties properties, Environment environment,
+                         ReadYourWritesTracker readYourWritesTracker, MeterRegistry meterRegistry) {
+        this.maxLagMillis = maxLag.toMillis();
+        this.readYourWritesTracker = readYourWritesTracker;
+        this.replicaReads = readCounter(meterRegistry, "replica");
+        this.pinnedReads = readCounter(meterRegistry, "primary");
+        this.fallbackReads = readCounter(meterRegistry, "fallback");
+
+        List<String> replicaUrls = Arrays.stream(urls.split(",")).map(String::trim).filter(url -> !url.isEmpty()).toList();
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            String name = "replica-" + i;
+            HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(replicaUrls.get(i))
+                    .build();
+            Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+            dataSource.setPoolName(name);
+            dataSource.setReadOnly(true);
+            dataSource.addDataSourceProperty("ApplicationName", "carportal-" + name);
+            if (poolSize > 0) {
+                dataSource.setMaximumPoolSize(poolSize);
+            }
+            dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+
+            Replica replica = new Replica(name, dataSource);
+            replicas.add(replica);
+            Gauge.builder("carportal.datasource.replica.lag", replica, r -> r.lagMillis)
+                    .description("Отставание реплики базы данных (-1 - реплика недоступна)")
+                    .baseUnit("milliseconds")
+                    .tag("replica", name)
+                    .register(meterRegistry);
+        }
+        if (!replicas.isEmpty()) {
+            log.info("Чтения распределяются по {} репликам базы данных", replicas.size());
+        }
+    }
+
+    /**
+     * Проверяет, заданы ли реплики.
+     *
+     * @return true, если есть хотя бы одна реплика
+     */
+    public boolean hasReplicas() {
+        return !replicas.isEmpty();
+    }
+
+    /**
+     * Создает источник соединений для транзакций только для чтения.
+     *
+     * @param primary основной источник данных
+     * @return источник, выдающий соединения доступной реплики или основной базы
+     */
+    public DataSource readOnlyDataSource(DataSource primary) {
+        return new AbstractDataSource() {
+            @Override
+            public Connection getConnection() throws SQLException {
+                Replica replica = route();
+                if (replica != null) {
+                    try {
+                        return replica.dataSource.getConnection();
+                    } catch (SQLException e) {
+                        log.warn("Реплика {} недоступна, чтение выполняется на основной базе: {}",
+                                replica.name, e.getMessage());
+                        replica.lagMillis = -1;
+                        fallbackReads.increment();
+                    }
+                }
+                return primary.getConnection();
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                return getConnection();
+            }
+        };
+    }
+
+    /**
+     * Измеряет отставание реплик.
+     */
+    @Scheduled(fixedDelayString = "${carportal.datasource.replica-lag-check-interval-ms:1000}")
+    public void checkReplicaLag() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(LAG_QUERY)) {
+                resultSet.next();
+                long lag = resultSet.getLong(1);
+                if (lag > maxLagMillis && replica.lagMillis <= maxLagMillis) {
+                    log.warn("Реплика {} отстает на {} мс и исключена из распределения чтений", replica.name, lag);
+                }
+                replica.lagMillis = lag;
+            } catch (SQLException e) {
+                if (replica.lagMillis >= 0) {
+                    log.warn("Реплика {} недоступна: {}", replica.name, e.getMessage());
+                }
+                replica.lagMillis = -1;
+            }
+        }
+    }
+
+    /**
+     * Закрывает пулы соединений реплик.
+     */
+    @PreDestroy
+    public void close() {
+        replicas.forEach(replica -> replica.dataSource.close());
+    }
+
+    /**
+     * Выбирает реплику для чтения по кругу среди доступных.
+     *
+     * @return реплика или null, если чтение должно выполняться на основной базе
+     */
+    private Replica route() {
+        if (DataSourceRouting.isPrimaryPinned() || readYourWritesTracker.isRecentWriter()) {
+            pinnedReads.increment();
+            return null;
+        }
+        int start = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            long lag = replica.lagMillis;
+            if (lag >= 0 && lag <= maxLagMillis) {
+                replicaReads.increment();
+                return replica;
+            }
+        }
+        fallbackReads.increment();
+        return null;
+    }
+
+    private static Counter readCounter(MeterRegistry meterRegistry, String target) {
+        return Counter.builder("carportal.datasource.reads")
+                .description("Выбор базы данных для транзакций только для чтения")
+                .tag("target", target)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Реплика и ее последнее измеренное отставание.
+     * До первой проверки реплика считается недоступной.
+     */
+    private static final class Replica {
+
+        private final String name;
+        private final HikariDataSource dataSource;
+        private volatile long lagMillis = -1;
+
+        private Replica(String name, HikariDataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+}
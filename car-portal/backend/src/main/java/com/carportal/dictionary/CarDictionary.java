@@ -0,0 +1,325 @@
+package com.carportal.dictionary;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * Справочник марок и моделей автомобилей.
+ * Автомобили ссылаются на таблицы car_brands и car_models целочисленными идентификаторами; справочник
+ * загружается в память один раз при первом обращении, поэтому названия по идентификаторам и идентификаторы
+ * по названиям находятся без обращения к базе данных. В базу справочник обращается только за записями,
+ * которых еще нет в памяти: новыми марками и моделями или записями, добавленными другими экземплярами.
+ * Названия сравниваются без учета регистра и лишних пробелов (см. {@link #normalize(String)}).
+ * Новые записи фиксируются в отдельном соединении в режиме автофиксации: откат транзакции автомобиля
+ * не должен оставлять в памяти идентификатор несуществующей записи. Справочник вызывается при сохранении
+ * автомобиля, когда поток уже держит соединение основного пула, поэтому он пользуется собственным небольшим
+ * пулом: занятый основной пул не может заблокировать справочник, а справочник - основной пул.
+ * Все обращения выполняются на основной базе данных, так как запись, только что добавленная другим
+ * экземпляром, на реплике может отсутствовать.
+ */
+@Component
+@Slf4j
+public class CarDictionary {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final String SELECT_BRANDS = "SELECT id, name, normalized_name FROM car_brands";
+    private static final String SELECT_MODELS = "SELECT id, brand_id, name, normalized_name FROM car_models";
+    private static final String SELECT_BRAND_BY_ID = SELECT_BRANDS + " WHERE id = ?";
+    private static final String SELECT_MODEL_BY_ID = SELECT_MODELS + " WHERE id = ?";
+    private static final String SELECT_BRAND_BY_NAME = SELECT_BRANDS + " WHERE normalized_name = ?";
+    private static final String SELECT_MODEL_BY_NAME = SELECT_MODELS + " WHERE brand_id = ? AND normalized_name = ?";
+    private static final String INSERT_BRAND = "INSERT INTO car_brands (name, normalized_name) VALUES (?, ?) "
+            + "ON CONFLICT (normalized_name) DO NOTHING";
+    private static final String INSERT_MODEL = "INSERT INTO car_models (brand_id, name, normalized_name) VALUES (?, ?, ?) "
+            + "ON CONFLICT (brand_id, normalized_name) DO NOTHING";
+
+    private final HikariDataSource dataSource;
+
+    private final Map<String, Integer> brandIds = new ConcurrentHashMap<>();
+    private final Map<Integer, String> brandNames = new ConcurrentHashMap<>();
+    private final Map<String, Integer> modelIds = new ConcurrentHashMap<>();
+    private final Map<Integer, String> modelNames = new ConcurrentHashMap<>();
+    private final ReentrantLock loadLock = new ReentrantLock();
+    private volatile boolean loaded;
+
+    /**
+     * Создает справочник марок и моделей.
+     *
+     * @param poolSize размер пула соединений справочника
+     * @param properties настройки основного источника данных (адрес, учетные данные и драйвер)
+     * @param environment окружение для чтения настроек пула
+     */
+    public CarDictionary(@Value("${carportal.dictionary.pool-size:2}") int poolSize,
+                         DataSourceProperties properties, Environment environment) {
+        this.dataSource = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+        dataSource.setPoolName("car-dictionary");
+        dataSource.setMaximumPoolSize(poolSize);
+        dataSource.setMinimumIdle(0);
+        dataSource.setAutoCommit(true);
+        dataSource.addDataSourceProperty("ApplicationName", "carportal-car-dictionary");
+    }
+
+    /**
+     * Закрывает пул соединений справочника.
+     */
+    @PreDestroy
+    public void close() {
+        dataSource.close();
+    }
+
+    /**
+     * Находит идентификатор марки по названию, не создавая новую марку.
+     *
+     * @param brand название марки в любом регистре
+     * @return идентификатор марки или null, если такой марки нет
+     */
+    public Integer findBrandId(String brand) {
+        String normalized = normalize(brand);
+        if (normalized.isEmpty()) {
+            return null;
+        }
+        ensureLoaded();
+        Integer id = brandIds.get(normalized);
+        if (id == null) {
+            id = queryBrand(SELECT_BRAND_BY_NAME, normalized);
+        }
+        return id;
+    }
+
+    /**
+     * Получает идентификатор марки, добавляя ее в справочник при отсутствии.
+     *
+     * @param brand название марки
+     * @return идентификатор марки
+     */
+    public int resolveBrand(String brand) {
+        Integer id = findBrandId(brand);
+        if (id != null) {
+            return id;
+        }
+        String normalized = normalize(brand);
+        if (normalized.isEmpty()) {
+            throw new IllegalArgumentException("Марка автомобиля не указана");
+        }
+        execute(INSERT_BRAND, display(brand), normalized);
+        id = queryBrand(SELECT_BRAND_BY_NAME, normalized);
+        if (id == null) {
+            throw new IllegalStateException("Марка не добавлена в справочник: " + brand);
+        }
+        log.info("Добавлена марка {} ({})", brandNames.get(id), id);
+        return id;
+    }
+
+    /**
+     * Получает идентификатор модели марки, добавляя ее в справочник при отсутствии.
+     *
+     * @param brandId идентификатор марки
+     * @param model название модели
+     * @return идентификатор модели
+     */
+    public int resolveModel(int brandId, String model) {
+        String normalized = normalize(model);
+        if (normalized.isEmpty()) {
+            throw new IllegalArgumentException("Модель автомобиля не указана");
+        }
+        ensureLoaded();
+        Integer id = modelIds.get(modelKey(brandId, normalized));
+        if (id == null) {
+            id = queryModel(SELECT_MODEL_BY_NAME, brandId, normalized);
+        }
+        if (id == null) {
+            execute(INSERT_MODEL, brandId, display(model), normalized);
+            id = queryModel(SELECT_MODEL_BY_NAME, brandId, normalized);
+            if (id == null) {
+                throw new IllegalStateException("Модель не добавлена в справочник: " + model);
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Получает название марки.
+     *
+     * @param brandId идентификатор марки
+     * @return название марки или null, если такой марки нет
+     */
+    public String brandName(Integer brandId) {
+        if (brandId == null) {
+            return null;
+        }
+        ensureLoaded();
+        String name = brandNames.get(brandId);
+        if (name == null && queryBrand(SELECT_BRAND_BY_ID, brandId) != null) {
+            name = brandNames.get(brandId);
+        }
+        return name;
+    }
+
+    /**
+     * Получает название модели.
+     *
+     * @param modelId идентификатор модели
+     * @return название модели или null, если такой модели нет
+     */
+    public String modelName(Integer modelId) {
+        if (modelId == null) {
+            return null;
+        }
+        ensureLoaded();
+        String name = modelNames.get(modelId);
+        if (name == null && queryModel(SELECT_MODEL_BY_ID, modelId) != null) {
+            name = modelNames.get(modelId);
+        }
+        return name;
+    }
+
+    /**
+     * Приводит название к виду, в котором оно сравнивается: без пробелов по краям,
+     * с одиночными пробелами между словами, в нижнем регистре. Единственное место нормализации:
+     * ей пользуются и заполнение идентификаторов существующих автомобилей, и фоновое заполнение
+     * ({@link CarDictionaryBackfill}), поэтому результат не зависит от локали базы данных.
+     *
+     * @param name название
+     * @return нормализованное название (пустая строка для null)
+     */
+    public static String normalize(String name) {
+        return display(name).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Приводит название к виду, в котором оно хранится: без пробелов по краям, с одиночными пробелами между словами.
+     *
+     * @param name название
+     * @return название для отображения (пустая строка для null)
+     */
+    static String display(String name) {
+        return name == null ? "" : WHITESPACE.matcher(name.trim()).replaceAll(" ");
+    }
+
+    private static String modelKey(int brandId, String normalized) {
+        return brandId + ":" + normalized;
+    }
+
+    /**
+     * Загружает справочник целиком при первом обращении.
+     * Используется {@link ReentrantLock}, а не synchronized: ожидание соединения и запроса внутри
+     * synchronized закрепляло бы поток-носитель виртуального потока.
+     */
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        loadLock.lock();
+        try {
+            if (loaded) {
+                return;
+            }
+            queryBrand(SELECT_BRANDS);
+            queryModel(SELECT_MODELS);
+            loaded = true;
+            log.info("Справочник загружен: марок {}, моделей {}", brandNames.size(), modelNames.size());
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    /**
+     * Выполняет выборку марок и запоминает найденные записи.
+     *
+     * @return идентификатор последней найденной марки или null
+     */
+    private Integer queryBrand(String sql, Object... parameters) {
+        return query(sql, parameters, resultSet -> {
+            int id = resultSet.getInt("id");
+            brandNames.put(id, resultSet.getString("name"));
+            brandIds.put(resultSet.getString("normalized_name"), id);
+            return id;
+        });
+    }
+
+    /**
+     * Выполняет выборку моделей и запоминает найденные записи.
+     *
+     * @return идентификатор последней найденной модели или null
+     */
+    private Integer queryModel(String sql, Object... parameters) {
+        return query(sql, parameters, resultSet -> {
+            int id = resultSet.getInt("id");
+            modelNames.put(id, resultSet.getString("name"));
+            modelIds.put(modelKey(resultSet.getInt("brand_id"), resultSet.getString("normalized_name")), id);
+            return id;
+        });
+    }
+
+    private Integer query(String sql, Object[] parameters, RowHandler handler) {
+        return withConnection(connection -> {
+            try (PreparedStatement statement = prepare(connection, sql, parameters);
+                 ResultSet resultSet = statement.executeQuery()) {
+                Integer last = null;
+                while (resultSet.next()) {
+                    last = handler.handle(resultSet);
+                }
+                return last;
+            }
+        });
+    }
+
+    private void execute(String sql, Object... parameters) {
+        withConnection(connection -> {
+            try (PreparedStatement statement = prepare(connection, sql, parameters)) {
+                return statement.executeUpdate();
+            }
+        });
+    }
+
+    private static PreparedStatement prepare(Connection connection, String sql, Object[] parameters) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql);
+        for (int i = 0; i < parameters.length; i++) {
+            statement.setObject(i + 1, parameters[i]);
+        }
+        return statement;
+    }
+
+    /**
+     * Выполняет действие в соединении пула справочника в режиме автофиксации,
+     * независимо от транзакции текущего потока.
+     */
+    private <T> T withConnection(ConnectionAction<T> action) {
+        try (Connection connection = dataSource.getConnection()) {
+            return action.apply(connection);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Ошибка обращения к справочнику марок и моделей: " + e.getMessage(), e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ConnectionAction<T> {
+        T apply(Connection connection) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface RowHandler {
+        Integer handle(ResultSet resultSet) throws SQLException;
+    }
+}
@@ -0,0 +1,91 @@
+package com.carportal.dictionary;
+
+import com.carportal.datasource.DataSourceRouting;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Фоновое заполнение идентификаторов справочника для автомобилей, записанных предыдущей версией.
+ * Во время поэтапного обновления экземпляры без справочника записывают только названия марки и модели,
+ * а триггер сбрасывает идентификаторы измененных ими строк (см. V8__car_dictionary.sql). Такие строки
+ * периодически находятся по частичному индексу и связываются со справочником; названия нормализуются
+ * тем же {@link CarDictionary}, что и при сохранении автомобиля. Строка обновляется, только если ее
+ * названия не изменились после выборки. Удаляется вместе со столбцами названий (V11__car_dictionary_contract.sql).
+ */
+@Component
+@Slf4j
+public class CarDictionaryBackfill {
+
+    private static final String SELECT_PENDING = "SELECT id, brand, model FROM cars "
+            + "WHERE brand_id IS NULL OR model_id IS NULL ORDER BY id LIMIT ?";
+    private static final String UPDATE_CAR = "UPDATE cars SET brand_id = ?, model_id = ? "
+            + "WHERE id = ? AND brand = ? AND model = ? AND (brand_id IS NULL OR model_id IS NULL)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CarDictionary carDictionary;
+    private final int batchSize;
+
+    /**
+     * Создает фоновое заполнение.
+     *
+     * @param jdbcTemplate шаблон JDBC
+     * @param carDictionary справочник марок и моделей
+     * @param batchSize количество автомобилей в одном обновлении
+     */
+    public CarDictionaryBackfill(JdbcTemplate jdbcTemplate, CarDictionary carDictionary,
+                                 @Value("${carportal.dictionary.backfill-batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.carDictionary = carDictionary;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Связывает со справочником все автомобили без идентификаторов марки и модели.
+     *
+     * @return количество обновленных автомобилей
+     */
+    @Scheduled(fixedDelayString = "${carportal.dictionary.backfill-interval-ms:10000}")
+    public int backfill() {
+        return DataSourceRouting.onPrimary(() -> {
+            int updated = 0;
+            List<Map<String, Object>> pending;
+            do {
+                pending = jdbcTemplate.queryForList(SELECT_PENDING, batchSize);
+                List<Object[]> rows = new ArrayList<>(pending.size());
+                for (Map<String, Object> car : pending) {
+                    String brand = (String) car.get("brand");
+                    String model = (String) car.get("model");
+                    try {
+                        int brandId = carDictionary.resolveBrand(brand);
+                        rows.add(new Object[]{brandId, carDictionary.resolveModel(brandId, model), car.get("id"), brand, model});
+                    } catch (IllegalArgumentException e) {
+                        log.warn("Автомобиль {} не связан со справочником: {}", car.get("id"), e.getMessage());
+                    }
+                }
+                int batchUpdated = 0;
+                if (!rows.isEmpty()) {
+                    for (int count : jdbcTemplate.batchUpdate(UPDATE_CAR, rows)) {
+                        batchUpdated += Math.max(count, 0);
+                    }
+                }
+                updated += batchUpdated;
+                // Строки, измененные после выборки или пропущенные, остаются до следующего запуска, а не выбираются повторно
+                if (batchUpdated < pending.size()) {
+                    break;
+                }
+            } while (pending.size() == batchSize);
+
+            if (updated > 0) {
+                log.info("Со справочником связано автомобилей: {}", updated);
+            }
+            return updated;
+        });
+    }
+}
@@ -0,0 +1,63 @@
+package com.carportal.dictionary;
+
+import com.carportal.models.Car;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Слушатель сущности автомобиля, связывающий названия марки и модели с идентификаторами справочника.
+ * При загрузке названия заполняются по идентификаторам из памяти, перед сохранением измененные названия
+ * заменяются идентификаторами (новые марки и модели добавляются в справочник) и каноническими написаниями.
+ * Автомобиль, записанный предыдущей версией и еще не связанный со справочником, получает названия
+ * из столбцов предыдущей версии, а идентификаторы - при следующем сохранении или фоновом заполнении.
+ * Экземпляр создается Hibernate через контейнер бинов Spring. Справочник получается при первом вызове:
+ * при создании фабрики сущностей он еще не может быть создан, так как зависит от источника данных.
+ */
+public class CarDictionaryListener {
+
+    private final ObjectProvider<CarDictionary> dictionaryProvider;
+
+    /**
+     * Создает слушатель сущности автомобиля.
+     *
+     * @param dictionaryProvider поставщик справочника марок и моделей
+     */
+    public CarDictionaryListener(ObjectProvider<CarDictionary> dictionaryProvider) {
+        this.dictionaryProvider = dictionaryProvider;
+    }
+
+    /**
+     * Заполняет названия марки и модели загруженного автомобиля.
+     *
+     * @param car автомобиль
+     */
+    @PostLoad
+    public void fillNames(Car car) {
+        if (car.getBrandId() == null || car.getModelId() == null) {
+            car.assignDictionary(null, car.getLegacyBrand(), null, car.getLegacyModel());
+            return;
+        }
+        CarDictionary dictionary = dictionaryProvider.getObject();
+        car.assignDictionary(car.getBrandId(), dictionary.brandName(car.getBrandId()),
+                car.getModelId(), dictionary.modelName(car.getModelId()));
+    }
+
+    /**
+     * Заменяет измененные названия марки и модели идентификаторами справочника.
+     *
+     * @param car автомобиль
+     */
+    @PrePersist
+    @PreUpdate
+    public void resolveIds(Car car) {
+        if (car.getBrandId() != null && car.getModelId() != null) {
+            return;
+        }
+        CarDictionary dictionary = dictionaryProvider.getObject();
+        int brandId = dictionary.resolveBrand(car.getBrand());
+        int modelId = dictionary.resolveModel(brandId, car.getModel());
+        car.assignDictionary(brandId, dictionary.brandName(brandId), modelId, dictionary.modelName(modelId));
+    }
+}
@@ -0,0 +1,170 @@
+package com.carportal.dictionary;
+
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.migration.Context;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Миграция 8.1: заполнение справочников марок и моделей и идентификаторов существующих автомобилей.
+ * Выполняется в Java после создания справочников (V8__car_dictionary.sql), чтобы названия нормализовались
+ * так же, как в приложении ({@link CarDictionary#normalize(String)}), независимо от локали базы данных.
+ * Написания, различающиеся только регистром и пробелами, объединяются; каноническим становится
+ * самое частое написание. Каждая строка автомобиля перезаписывается один раз.
+ * Миграция регистрируется компонентом Spring и передается Flyway автоконфигурацией.
+ */
+@Component
+@Slf4j
+public class CarDictionaryMigration implements JavaMigration {
+
+    private static final String SELECT_SPELLINGS = "SELECT brand, model, count(*) FROM cars "
+            + "WHERE brand_id IS NULL OR model_id IS NULL GROUP BY brand, model";
+    private static final String INSERT_BRAND = "INSERT INTO car_brands (name, normalized_name) VALUES (?, ?) "
+            + "ON CONFLICT (normalized_name) DO NOTHING";
+    private static final String INSERT_MODEL = "INSERT INTO car_models (brand_id, name, normalized_name) VALUES (?, ?, ?) "
+            + "ON CONFLICT (brand_id, normalized_name) DO NOTHING";
+    private static final String SELECT_BRANDS = "SELECT id, normalized_name FROM car_brands";
+    private static final String SELECT_MODELS = "SELECT id, brand_id, normalized_name FROM car_models";
+    private static final String UPDATE_CARS = "UPDATE cars SET brand_id = ?, model_id = ? "
+            + "WHERE brand = ? AND model = ? AND (brand_id IS NULL OR model_id IS NULL)";
+
+    @Override
+    public MigrationVersion getVersion() {
+        return MigrationVersion.fromVersion("8.1");
+    }
+
+    @Override
+    public String getDescription() {
+        return "car dictionary backfill";
+    }
+
+    @Override
+    public Integer getChecksum() {
+        return null;
+    }
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return true;
+    }
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+
+        List<Spelling> spellings = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(SELECT_SPELLINGS)) {
+            while (resultSet.next()) {
+                spellings.add(new Spelling(resultSet.getString(1), resultSet.getString(2), resultSet.getLong(3)));
+            }
+        }
+        if (spellings.isEmpty()) {
+            return;
+        }
+
+        Map<String, Canonical> brands = new LinkedHashMap<>();
+        Map<String, Canonical> models = new LinkedHashMap<>();
+        for (Spelling spelling : spellings) {
+            String brand = CarDictionary.normalize(spelling.brand);
+            brands.computeIfAbsent(brand, key -> new Canonical()).count(CarDictionary.display(spelling.brand), spelling.uses);
+            models.computeIfAbsent(brand + '\n' + CarDictionary.normalize(spelling.model), key -> new Canonical())
+                    .count(CarDictionary.display(spelling.model), spelling.uses);
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_BRAND)) {
+            for (Map.Entry<String, Canonical> brand : brands.entrySet()) {
+                statement.setString(1, brand.getValue().name);
+                statement.setString(2, brand.getKey());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+        Map<String, Integer> brandIds = new HashMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(SELECT_BRANDS)) {
+            while (resultSet.next()) {
+                brandIds.put(resultSet.getString(2), resultSet.getInt(1));
+            }
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_MODEL)) {
+            for (Map.Entry<String, Canonical> model : models.entrySet()) {
+                String[] key = model.getKey().split("\n", 2);
+                statement.setInt(1, brandIds.get(key[0]));
+                statement.setString(2, model.getValue().name);
+                statement.setString(3, key[1]);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+        Map<String, Integer> modelIds = new HashMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(SELECT_MODELS)) {
+            while (resultSet.next()) {
+                modelIds.put(resultSet.getInt(2) + "\n" + resultSet.getString(3), resultSet.getInt(1));
+            }
+        }
+
+        int updated = 0;
+        try (PreparedStatement statement = connection.prepareStatement(UPDATE_CARS)) {
+            for (Spelling spelling : spellings) {
+                int brandId = brandIds.get(CarDictionary.normalize(spelling.brand));
+                statement.setInt(1, brandId);
+                statement.setInt(2, modelIds.get(brandId + "\n" + CarDictionary.normalize(spelling.model)));
+                statement.setString(3, spelling.brand);
+                statement.setString(4, spelling.model);
+                statement.addBatch();
+            }
+            for (int count : statement.executeBatch()) {
+                updated += Math.max(count, 0);
+            }
+        }
+        log.info("Справочник заполнен: марок {}, моделей {}, автомобилей {}", brands.size(), models.size(), updated);
+    }
+
+    /**
+     * Написание марки и модели в таблице автомобилей и количество его использований.
+     */
+    private static final class Spelling {
+
+        private final String brand;
+        private final String model;
+        private final long uses;
+
+        private Spelling(String brand, String model, long uses) {
+            this.brand = brand;
+            this.model = model;
+            this.uses = uses;
+        }
+    }
+
+    /**
+     * Выбор канонического написания: самое частое, при равенстве - первое по алфавиту.
+     */
+    private static final class Canonical {
+
+        private final Map<String, Long> uses = new HashMap<>();
+        private String name;
+
+        private void count(String spelling, long count) {
+            long total = uses.merge(spelling, count, Long::sum);
+            long best = name == null ? -1 : uses.get(name);
+            if (total > best || (total == best && spelling.compareTo(name) < 0)) {
+                name = spelling;
+            }
+        }
+    }
+}
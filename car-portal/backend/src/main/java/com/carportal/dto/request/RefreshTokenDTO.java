@@ -0,0 +1,17 @@
+package com.carportal.dto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO для обмена или отзыва токена обновления.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RefreshTokenDTO {
+
+    /** Токен обновления */
+    private String refreshToken;
+}
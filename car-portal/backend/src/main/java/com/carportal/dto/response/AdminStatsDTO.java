@@ -0,0 +1,49 @@
+package com.carportal.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * DTO для представления статистики портала на панели администратора.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AdminStatsDTO {
+
+    /** Количество пользователей */
+    private long totalUsers;
+
+    /** Количество пользователей по ролям */
+    private Map<String, Long> usersByRole;
+
+    /** Количество автомобилей */
+    private long totalCars;
+
+    /** Количество автомобилей по статусам */
+    private Map<String, Long> carsByStatus;
+
+    /** Количество автомобилей по маркам */
+    private Map<String, Long> carsByBrand;
+
+    /** Средняя цена автомобиля (0, если автомобилей нет) */
+    private double averageCarPrice;
+
+    /** Количество новостей */
+    private long totalNews;
+
+    /** Количество новостей по месяцам (ГГГГ-ММ) */
+    private Map<String, Long> newsByMonth;
+
+    /** Количество записей избранного */
+    private long totalFavorites;
+
+    /** Количество добавлений в избранное по дням (ГГГГ-ММ-ДД) за последние дни */
+    private Map<String, Long> favoritesByDay;
+
+    /** Время последней сверки с базой данных */
+    private String reconciledAt;
+}
@@ -5,6 +5,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDateTime;
+
 /**
  * DTO для представления данных об автомобиле.
  * Используется для передачи информации об автомобилях клиенту.
@@ -47,4 +49,7 @@ public class CarResponseDTO {
 
     /** Имя продавца */
     private String sellerName;
+
+    /** Время последнего снижения цены (null, если цена не снижалась) */
+    private LocalDateTime priceDroppedAt;
 }
\ No newline at end of file
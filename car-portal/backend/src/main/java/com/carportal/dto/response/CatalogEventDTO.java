@@ -0,0 +1,43 @@
+package com.carportal.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO для представления события изменения каталога.
+ * Передается клиентам через поток Server-Sent Events в компактном виде.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CatalogEventDTO {
+
+    /** Порядковый номер события */
+    private long id;
+
+    /** Тип события */
+    private String type;
+
+    /** Идентификатор автомобиля */
+    private Long carId;
+
+    /** Марка автомобиля */
+    private String brand;
+
+    /** Цена автомобиля */
+    private Double price;
+
+    /** Прежняя цена автомобиля (только для изменения цены) */
+    private Double previousPrice;
+
+    /**
+     * Статус доступности автомобиля.
+     * Явное указание имени поля для JSON.
+     */
+    @JsonProperty("isAvailable")
+    private Boolean isAvailable;
+}
@@ -1,21 +1,18 @@
 package com.carportal.dto.response;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.Value;
 
 /**
  * DTO для представления ошибок.
  * Используется для стандартизированного формата ответов об ошибках.
+ * Неизменяемый: ответы для переиспользуемых исключений кешируются и отдаются всем запросам.
  */
-@Data
-@NoArgsConstructor
-@AllArgsConstructor
+@Value
 public class ErrorResponse {
 
     /** Тип ошибки */
-    private String error;
+    String error;
 
     /** Сообщение об ошибке */
-    private String message;
-}
\ No newline at end of file
+    String message;
+}
@@ -0,0 +1,34 @@
+package com.carportal.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO для представления уведомления об изменении избранного автомобиля.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FavoriteNotificationDTO {
+
+    /** Идентификатор уведомления */
+    private Long id;
+
+    /** Идентификатор автомобиля */
+    private Long carId;
+
+    /** Тип уведомления: PRICE_DROPPED или SOLD */
+    private String type;
+
+    /** Цена до изменения */
+    private Double oldPrice;
+
+    /** Цена после изменения */
+    private Double newPrice;
+
+    /** Время изменения */
+    private LocalDateTime createdAt;
+}
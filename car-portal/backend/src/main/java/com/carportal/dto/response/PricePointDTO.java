@@ -0,0 +1,23 @@
+package com.carportal.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO для представления точки истории цены автомобиля.
+ * Используется для построения графиков изменения цены.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PricePointDTO {
+
+    /** Время установки цены */
+    private LocalDateTime changedAt;
+
+    /** Цена автомобиля */
+    private double price;
+}
@@ -0,0 +1,36 @@
+package com.carportal.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * DTO для представления медленного SQL-запроса.
+ * Используется в журнале медленных запросов, доступном администратору.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SlowQueryDTO {
+
+    /** Время выполнения запроса */
+    private LocalDateTime executedAt;
+
+    /** Длительность выполнения в миллисекундах */
+    private long elapsedMs;
+
+    /** Текст запроса */
+    private String sql;
+
+    /** Место вызова в коде приложения */
+    private String callSite;
+
+    /** Значения параметров (только для попавших в выборку запросов) */
+    private List<String> parameters;
+
+    /** План выполнения EXPLAIN (ANALYZE, BUFFERS) (только для попавших в выборку SELECT-запросов) */
+    private String plan;
+}
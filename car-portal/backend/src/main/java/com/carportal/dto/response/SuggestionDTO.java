@@ -0,0 +1,24 @@
+package com.carportal.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO для представления подсказки при вводе поискового запроса.
+ * Используется в поисковой строке для марок, моделей и заголовков новостей.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SuggestionDTO {
+
+    /** Текст подсказки */
+    private String text;
+
+    /** Тип подсказки: BRAND, MODEL или NEWS */
+    private String type;
+
+    /** Количество автомобилей или новостей, соответствующих подсказке */
+    private long count;
+}
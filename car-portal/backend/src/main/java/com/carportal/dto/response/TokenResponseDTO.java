@@ -0,0 +1,31 @@
+package com.carportal.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO с парой токенов для входа без сессии.
+ * Токен доступа передается в заголовке {@code Authorization: Bearer}, токен обновления —
+ * только для получения новой пары токенов.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TokenResponseDTO {
+
+    /** Токен доступа */
+    private String accessToken;
+
+    /** Тип токена доступа */
+    private String tokenType;
+
+    /** Время жизни токена доступа в секундах */
+    private long expiresIn;
+
+    /** Одноразовый токен обновления */
+    private String refreshToken;
+
+    /** Данные пользователя */
+    private UserResponseDTO user;
+}
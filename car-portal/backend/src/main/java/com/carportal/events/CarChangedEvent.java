@@ -0,0 +1,27 @@
+package com.carportal.events;
+
+import com.carportal.dto.response.CarResponseDTO;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Событие об изменении автомобиля в каталоге.
+ * Публикуется сервисами при добавлении, редактировании и удалении автомобилей.
+ * Содержит состояние автомобиля до и после изменения.
+ */
+@Getter
+@AllArgsConstructor
+public class CarChangedEvent {
+
+    /** Тип изменения */
+    private final ChangeType type;
+
+    /** Идентификатор автомобиля */
+    private final Long carId;
+
+    /** Состояние автомобиля до изменения (отсутствует для добавления) */
+    private final CarResponseDTO previous;
+
+    /** Состояние автомобиля после изменения (отсутствует для удаления) */
+    private final CarResponseDTO current;
+}
@@ -0,0 +1,16 @@
+package com.carportal.events;
+
+/**
+ * Перечисление типов изменений данных каталога.
+ * Используется в событиях об изменении автомобилей и новостей.
+ */
+public enum ChangeType {
+    /** Сущность добавлена */
+    ADDED,
+
+    /** Сущность изменена */
+    UPDATED,
+
+    /** Сущность удалена */
+    DELETED
+}
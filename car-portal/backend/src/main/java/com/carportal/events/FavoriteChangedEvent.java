@@ -0,0 +1,25 @@
+package com.carportal.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+/**
+ * Событие о добавлении или удалении автомобилей из избранного.
+ * Публикуется сервисами при изменении избранного одного пользователя и при удалении всего избранного
+ * пользователя; в последнем случае количество удаленных записей и даты их добавления неизвестны.
+ */
+@Getter
+@AllArgsConstructor
+public class FavoriteChangedEvent {
+
+    /** Тип изменения */
+    private final ChangeType type;
+
+    /** Количество добавленных или удаленных записей (0, если неизвестно) */
+    private final int count;
+
+    /** День добавления записей в избранное (отсутствует, если неизвестен) */
+    private final LocalDate day;
+}
@@ -0,0 +1,39 @@
+package com.carportal.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+/**
+ * Событие об изменении новости.
+ * Публикуется сервисами при добавлении, редактировании и удалении новостей.
+ * Идентификатор может отсутствовать, если изменение затрагивает несколько новостей сразу;
+ * даты новости до и после изменения указываются, если изменение затрагивает одну новость.
+ */
+@Getter
+@AllArgsConstructor
+public class NewsChangedEvent {
+
+    /** Тип изменения */
+    private final ChangeType type;
+
+    /** Идентификатор новости */
+    private final Long newsId;
+
+    /** Дата новости до изменения (отсутствует для добавления) */
+    private final LocalDate previousDate;
+
+    /** Дата новости после изменения (отсутствует для удаления) */
+    private final LocalDate currentDate;
+
+    /**
+     * Создает событие об изменении, не затрагивающем даты новостей, например смене имени автора.
+     *
+     * @param type тип изменения
+     * @param newsId идентификатор новости или null, если изменено несколько новостей
+     */
+    public NewsChangedEvent(ChangeType type, Long newsId) {
+        this(type, newsId, null, null);
+    }
+}
@@ -0,0 +1,26 @@
+package com.carportal.events;
+
+import com.carportal.models.enums.UserRole;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Событие об изменении состава или ролей пользователей.
+ * Публикуется сервисами при регистрации, смене роли и удалении пользователя.
+ */
+@Getter
+@AllArgsConstructor
+public class UserChangedEvent {
+
+    /** Тип изменения */
+    private final ChangeType type;
+
+    /** Идентификатор пользователя */
+    private final Long userId;
+
+    /** Роль пользователя до изменения (отсутствует для добавления) */
+    private final UserRole previousRole;
+
+    /** Роль пользователя после изменения (отсутствует для удаления) */
+    private final UserRole currentRole;
+}
@@ -5,9 +5,13 @@ import org.springframework.http.HttpStatus;
 /**
  * Абстрактный класс для всех прикладных исключений.
  * Содержит HTTP статус для обработки исключений.
+ * Прикладные исключения описывают ожидаемые ошибки (не найдено, конфликт, ошибка валидации),
+ * поэтому не заполняют стек вызовов: это избавляет от дорогого обхода стека на частых путях ошибок.
+ * Исключения с постоянным сообщением создаются один раз и переиспользуются.
  */
 public abstract class AppException extends RuntimeException {
     private final HttpStatus httpStatus;
+    private final boolean shared;
 
     /**
      * Конструктор исключения с сообщением и HTTP статусом.
@@ -16,8 +20,20 @@ public abstract class AppException extends RuntimeException {
      * @param httpStatus HTTP статус для ответа
      */
     public AppException(String message, HttpStatus httpStatus) {
-        super(message);
+        this(message, httpStatus, false);
+    }
+
+    /**
+     * Конструктор исключения без стека вызовов и подавленных исключений.
+     *
+     * @param message сообщение об ошибке
+     * @param httpStatus HTTP статус для ответа
+     * @param shared true для переиспользуемого экземпляра с постоянным сообщением
+     */
+    protected AppException(String message, HttpStatus httpStatus, boolean shared) {
+        super(message, null, false, false);
         this.httpStatus = httpStatus;
+        this.shared = shared;
     }
 
     /**
@@ -28,4 +44,14 @@ public abstract class AppException extends RuntimeException {
     public HttpStatus getHttpStatus() {
         return httpStatus;
     }
-}
\ No newline at end of file
+
+    /**
+     * Проверяет, является ли исключение переиспользуемым экземпляром с постоянным сообщением.
+     * Ответы для таких исключений можно кешировать.
+     *
+     * @return true для переиспользуемого экземпляра
+     */
+    public boolean isShared() {
+        return shared;
+    }
+}
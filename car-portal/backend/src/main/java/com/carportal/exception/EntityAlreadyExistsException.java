@@ -8,6 +8,18 @@ import org.springframework.http.HttpStatus;
  */
 public class EntityAlreadyExistsException extends AppException {
 
+    /** Имя пользователя занято */
+    public static final EntityAlreadyExistsException USERNAME_TAKEN = new EntityAlreadyExistsException("Пользователь с таким именем уже существует!", true);
+
+    /** Email занят */
+    public static final EntityAlreadyExistsException EMAIL_TAKEN = new EntityAlreadyExistsException("Пользователь с таким email уже существует!", true);
+
+    /** Телефон занят */
+    public static final EntityAlreadyExistsException PHONE_TAKEN = new EntityAlreadyExistsException("Пользователь с таким телефоном уже существует!", true);
+
+    /** Автомобиль уже в избранном */
+    public static final EntityAlreadyExistsException CAR_ALREADY_IN_FAVORITES = new EntityAlreadyExistsException("Автомобиль уже находится в избранном", true);
+
     /**
      * Конструктор исключения с информацией о сущности.
      *
@@ -27,4 +39,8 @@ public class EntityAlreadyExistsException extends AppException {
     public EntityAlreadyExistsException(String message) {
         super(message, HttpStatus.CONFLICT);
     }
-}
\ No newline at end of file
+
+    private EntityAlreadyExistsException(String message, boolean shared) {
+        super(message, HttpStatus.CONFLICT, shared);
+    }
+}
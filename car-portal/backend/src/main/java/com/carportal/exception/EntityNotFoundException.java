@@ -8,6 +8,18 @@ import org.springframework.http.HttpStatus;
  */
 public class EntityNotFoundException extends AppException {
 
+    /** Пользователь не найден */
+    public static final EntityNotFoundException USER_NOT_FOUND = new EntityNotFoundException("Пользователь не найден!", true);
+
+    /** Автомобиль не найден */
+    public static final EntityNotFoundException CAR_NOT_FOUND = new EntityNotFoundException("Автомобиль не найден!", true);
+
+    /** Новость не найдена */
+    public static final EntityNotFoundException NEWS_NOT_FOUND = new EntityNotFoundException("Новость не найдена!", true);
+
+    /** Автомобиль отсутствует в избранном */
+    public static final EntityNotFoundException CAR_NOT_IN_FAVORITES = new EntityNotFoundException("Автомобиль не находится в избранном", true);
+
     /**
      * Конструктор исключения с информацией о сущности.
      *
@@ -26,4 +38,8 @@ public class EntityNotFoundException extends AppException {
     public EntityNotFoundException(String message) {
         super(message, HttpStatus.NOT_FOUND);
     }
-}
\ No newline at end of file
+
+    private EntityNotFoundException(String message, boolean shared) {
+        super(message, HttpStatus.NOT_FOUND, shared);
+    }
+}
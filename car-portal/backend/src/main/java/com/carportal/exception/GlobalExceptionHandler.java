@@ -1,23 +1,35 @@
 package com.carportal.exception;
 
 import com.carportal.dto.response.ErrorResponse;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Глобальный обработчик исключений.
  * Перехватывает исключения и преобразует их в стандартизированные ответы.
+ * Ответы для переиспользуемых прикладных исключений с постоянным сообщением создаются один раз
+ * и кешируются. Непредвиденные исключения журналируются с полным стеком вызовов.
  */
 @RestControllerAdvice
 @Order(Ordered.HIGHEST_PRECEDENCE)
+@Slf4j
 public class GlobalExceptionHandler {
 
+    private final Map<AppException, ResponseEntity<ErrorResponse>> sharedResponses = new ConcurrentHashMap<>();
+
     /**
      * Обрабатывает исключения валидации.
      *
@@ -26,8 +38,7 @@ public class GlobalExceptionHandler {
      */
     @ExceptionHandler(ValidateException.class)
     public ResponseEntity<ErrorResponse> handleValidateException(ValidateException ex) {
-        ErrorResponse errorResponse = new ErrorResponse("VALIDATION_ERROR", ex.getMessage());
-        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
+        return appErrorResponse(ex, "VALIDATION_ERROR");
     }
 
     /**
@@ -38,8 +49,7 @@ public class GlobalExceptionHandler {
      */
     @ExceptionHandler(EntityNotFoundException.class)
     public ResponseEntity<ErrorResponse> handleEntityNotFoundException(EntityNotFoundException ex) {
-        ErrorResponse errorResponse = new ErrorResponse("NOT_FOUND", ex.getMessage());
-        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
+        return appErrorResponse(ex, "NOT_FOUND");
     }
 
     /**
@@ -50,8 +60,31 @@ public class GlobalExceptionHandler {
      */
     @ExceptionHandler(EntityAlreadyExistsException.class)
     public ResponseEntity<ErrorResponse> handleEntityAlreadyExistsException(EntityAlreadyExistsException ex) {
-        ErrorResponse errorResponse = new ErrorResponse("CONFLICT", ex.getMessage());
-        return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse);
+        return appErrorResponse(ex, "CONFLICT");
+    }
+
+    /**
+     * Обрабатывает исключения недействительного токена.
+     *
+     * @param ex исключение недействительного токена
+     * @return ответ с ошибкой аутентификации
+     */
+    @ExceptionHandler(InvalidTokenException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidTokenException(InvalidTokenException ex) {
+        return appErrorResponse(ex, "AUTHENTICATION_ERROR");
+    }
+
+    /**
+     * Обрабатывает исключения превышения частоты запросов.
+     *
+     * @param ex исключение превышения частоты запросов
+     * @return ответ с ошибкой "Слишком много запросов" и заголовком Retry-After
+     */
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<ErrorResponse> handleTooManyRequestsException(TooManyRequestsException ex) {
+        return ResponseEntity.status(ex.getHttpStatus())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(new ErrorResponse("TOO_MANY_REQUESTS", ex.getMessage()));
     }
 
     /**
@@ -78,6 +111,22 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(errorResponse);
     }
 
+    /**
+     * Обрабатывает исключения недоступности соединения с базой данных.
+     * Возникают, когда пул соединений исчерпан дольше допустимого времени ожидания:
+     * клиенту возвращается 503 с рекомендацией повторить запрос позже.
+     *
+     * @param ex исключение получения соединения
+     * @return ответ с ошибкой "Сервис недоступен"
+     */
+    @ExceptionHandler({CannotCreateTransactionException.class, DataAccessResourceFailureException.class})
+    public ResponseEntity<ErrorResponse> handleConnectionUnavailableException(Exception ex) {
+        ErrorResponse errorResponse = new ErrorResponse("SERVICE_UNAVAILABLE", "Сервер перегружен, повторите запрос позже");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(errorResponse);
+    }
+
     /**
      * Обрабатывает все остальные исключения.
      *
@@ -86,7 +135,25 @@ public class GlobalExceptionHandler {
      */
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorResponse> handleGeneralException(Exception ex) {
+        log.error("Непредвиденная ошибка при обработке запроса", ex);
         ErrorResponse errorResponse = new ErrorResponse("INTERNAL_SERVER_ERROR", "Произошла внутренняя ошибка сервера");
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
     }
-}
\ No newline at end of file
+
+    /**
+     * Формирует ответ для прикладного исключения.
+     * Для переиспользуемых исключений возвращает ранее созданный ответ; он отдается всем запросам,
+     * поэтому и тело, и заголовки такого ответа неизменяемы.
+     *
+     * @param ex прикладное исключение
+     * @param error тип ошибки
+     * @return ответ с ошибкой и HTTP статусом исключения
+     */
+    private ResponseEntity<ErrorResponse> appErrorResponse(AppException ex, String error) {
+        if (ex.isShared()) {
+            return sharedResponses.computeIfAbsent(ex, shared -> new ResponseEntity<>(new ErrorResponse(error, shared.getMessage()),
+                    HttpHeaders.readOnlyHttpHeaders(new HttpHeaders()), shared.getHttpStatus()));
+        }
+        return ResponseEntity.status(ex.getHttpStatus()).body(new ErrorResponse(error, ex.getMessage()));
+    }
+}
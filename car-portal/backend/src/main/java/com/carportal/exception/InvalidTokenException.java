@@ -0,0 +1,27 @@
+package com.carportal.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Исключение, возникающее при использовании недействительного токена.
+ * Например, при обмене уже использованного или истекшего токена обновления.
+ */
+public class InvalidTokenException extends AppException {
+
+    /** Токен обновления неизвестен, уже использован или истек */
+    public static final InvalidTokenException INVALID_REFRESH_TOKEN =
+            new InvalidTokenException("Токен обновления недействителен, выполните вход заново", true);
+
+    /**
+     * Конструктор исключения с пользовательским сообщением.
+     *
+     * @param message сообщение об ошибке
+     */
+    public InvalidTokenException(String message) {
+        super(message, HttpStatus.UNAUTHORIZED);
+    }
+
+    private InvalidTokenException(String message, boolean shared) {
+        super(message, HttpStatus.UNAUTHORIZED, shared);
+    }
+}
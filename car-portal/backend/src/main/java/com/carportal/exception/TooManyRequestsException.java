@@ -0,0 +1,32 @@
+package com.carportal.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Исключение, возникающее при превышении допустимой частоты запросов.
+ * Например, при слишком частых попытках входа с одного адреса или для одного пользователя.
+ */
+public class TooManyRequestsException extends AppException {
+
+    private final long retryAfterSeconds;
+
+    /**
+     * Конструктор исключения с сообщением и временем до следующей допустимой попытки.
+     *
+     * @param message сообщение об ошибке
+     * @param retryAfterSeconds количество секунд до следующей допустимой попытки
+     */
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(message, HttpStatus.TOO_MANY_REQUESTS);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Получает количество секунд до следующей допустимой попытки.
+     *
+     * @return количество секунд
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -8,6 +8,12 @@ import org.springframework.http.HttpStatus;
  */
 public class ValidateException extends AppException {
 
+    /** Проданный автомобиль нельзя добавить в избранное */
+    public static final ValidateException SOLD_CAR_FAVORITE = new ValidateException("Нельзя добавить проданный автомобиль в избранное", true);
+
+    /** Роль не существует */
+    public static final ValidateException UNKNOWN_ROLE = new ValidateException("Такой роли не существует!", true);
+
     /**
      * Конструктор исключения с сообщением об ошибке валидации.
      *
@@ -16,4 +22,8 @@ public class ValidateException extends AppException {
     public ValidateException(String message) {
         super(message, HttpStatus.BAD_REQUEST);
     }
-}
\ No newline at end of file
+
+    private ValidateException(String message, boolean shared) {
+        super(message, HttpStatus.BAD_REQUEST, shared);
+    }
+}
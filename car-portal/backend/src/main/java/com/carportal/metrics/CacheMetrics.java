@@ -0,0 +1,56 @@
+package com.carportal.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Счетчики попаданий и промахов внутренних кешей приложения.
+ * Записываются в метрику {@code carportal.cache.requests} с тегами кеша и результата,
+ * доля попаданий вычисляется как отношение hit к сумме hit и miss.
+ */
+@Component
+public class CacheMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counter> hits = new ConcurrentHashMap<>();
+    private final Map<String, Counter> misses = new ConcurrentHashMap<>();
+
+    /**
+     * Создает счетчики кешей.
+     *
+     * @param meterRegistry реестр метрик
+     */
+    public CacheMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Учитывает попадание в кеш.
+     *
+     * @param cache имя кеша
+     */
+    public void hit(String cache) {
+        hits.computeIfAbsent(cache, name -> counter(name, "hit")).increment();
+    }
+
+    /**
+     * Учитывает промах кеша.
+     *
+     * @param cache имя кеша
+     */
+    public void miss(String cache) {
+        misses.computeIfAbsent(cache, name -> counter(name, "miss")).increment();
+    }
+
+    private Counter counter(String cache, String result) {
+        return Counter.builder("carportal.cache.requests")
+                .description("Обращения к внутренним кешам приложения")
+                .tag("cache", cache)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
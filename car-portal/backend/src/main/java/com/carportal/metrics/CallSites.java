@@ -0,0 +1,39 @@
+package com.carportal.metrics;
+
+/**
+ * Утилитный класс для описания места вызова SQL-запроса.
+ * Обходит стек только при вызове, поэтому используется лишь для редких событий:
+ * обнаруженных N+1 и медленных запросов.
+ */
+abstract class CallSites {
+
+    /** Количество кадров прикладного кода в описании места вызова */
+    private static final int DEPTH = 3;
+
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+
+    /**
+     * Описывает место вызова: первые кадры прикладного кода вне пакета метрик и прокси-классов.
+     *
+     * @return цепочка кадров вида Class.method:line
+     */
+    static String capture() {
+        return STACK_WALKER.walk(frames -> {
+            StringBuilder callSite = new StringBuilder();
+            frames.filter(frame -> frame.getClassName().startsWith("com.carportal.")
+                            && !frame.getClassName().startsWith("com.carportal.metrics.")
+                            && !frame.getClassName().contains("$$"))
+                    .limit(DEPTH)
+                    .forEach(frame -> {
+                        if (!callSite.isEmpty()) {
+                            callSite.append(" <- ");
+                        }
+                        String className = frame.getClassName();
+                        callSite.append(className.substring(className.lastIndexOf('.') + 1))
+                                .append('.').append(frame.getMethodName())
+                                .append(':').append(frame.getLineNumber());
+                    });
+            return callSite.isEmpty() ? "неизвестно" : callSite.toString();
+        });
+    }
+}
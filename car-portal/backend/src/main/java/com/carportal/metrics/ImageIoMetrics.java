@@ -0,0 +1,83 @@
+package com.carportal.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Метрики операций ввода-вывода с файлами изображений.
+ * Время операций записывается в таймер {@code carportal.image.io} с тегами операции и результата.
+ */
+@Component
+public class ImageIoMetrics {
+
+    /** Операция: запись загруженного файла */
+    public static final String WRITE = "write";
+
+    /** Операция: удаление файла */
+    public static final String DELETE = "delete";
+
+    private final Timer writeSuccess;
+    private final Timer writeFailure;
+    private final Timer deleteSuccess;
+    private final Timer deleteFailure;
+
+    /**
+     * Создает метрики и регистрирует таймеры.
+     *
+     * @param meterRegistry реестр метрик
+     */
+    public ImageIoMetrics(MeterRegistry meterRegistry) {
+        this.writeSuccess = timer(meterRegistry, WRITE, "success");
+        this.writeFailure = timer(meterRegistry, WRITE, "failure");
+        this.deleteSuccess = timer(meterRegistry, DELETE, "success");
+        this.deleteFailure = timer(meterRegistry, DELETE, "failure");
+    }
+
+    /**
+     * Выполняет операцию с файлом и записывает ее длительность.
+     *
+     * @param operation операция ({@link #WRITE} или {@link #DELETE})
+     * @param action действие с файлом
+     * @throws IOException если операция завершилась ошибкой ввода-вывода
+     */
+    public void record(String operation, IoAction action) throws IOException {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            action.run();
+            success = true;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            boolean write = WRITE.equals(operation);
+            Timer timer = write ? (success ? writeSuccess : writeFailure) : (success ? deleteSuccess : deleteFailure);
+            timer.record(elapsed, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static Timer timer(MeterRegistry meterRegistry, String operation, String outcome) {
+        return Timer.builder("carportal.image.io")
+                .description("Длительность операций с файлами изображений")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Действие с файлом, которое может завершиться ошибкой ввода-вывода.
+     */
+    @FunctionalInterface
+    public interface IoAction {
+
+        /**
+         * Выполняет действие.
+         *
+         * @throws IOException при ошибке ввода-вывода
+         */
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,26 @@
+package com.carportal.metrics;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Допустимое количество SQL-запросов на один вызов эндпоинта.
+ * Превышение бюджета журналируется фильтром метрик, а в строгом режиме
+ * ({@code carportal.sql.fail-on-violation=true}) завершает запрос исключением,
+ * что позволяет ловить регрессии в тестах.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface QueryBudget {
+
+    /**
+     * Получает бюджет запросов.
+     *
+     * @return максимальное количество SQL-запросов
+     */
+    int value();
+}
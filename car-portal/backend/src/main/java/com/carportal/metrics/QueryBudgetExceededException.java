@@ -0,0 +1,18 @@
+package com.carportal.metrics;
+
+/**
+ * Исключение строгого режима контроля SQL-запросов.
+ * Выбрасывается, если эндпоинт превысил объявленный бюджет запросов или выполнил
+ * повторяющиеся одинаковые запросы (N+1).
+ */
+public class QueryBudgetExceededException extends RuntimeException {
+
+    /**
+     * Конструктор исключения с описанием нарушения.
+     *
+     * @param message описание нарушения
+     */
+    public QueryBudgetExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,30 @@
+package com.carportal.metrics;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.util.List;
+
+/**
+ * Слушатель выполнения SQL-запросов, учитывающий запросы в контексте текущего HTTP-запроса.
+ * Подключается к прокси источника данных, поэтому видит запросы Hibernate, JdbcTemplate
+ * и прямой работы с соединениями. Пакетный запрос учитывается один раз.
+ */
+public class QueryCountingListener implements QueryExecutionListener {
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        RequestQueryContext context = RequestQueryContext.current();
+        if (context == null) {
+            return;
+        }
+        for (QueryInfo queryInfo : queryInfoList) {
+            context.record(queryInfo.getQuery());
+        }
+    }
+}
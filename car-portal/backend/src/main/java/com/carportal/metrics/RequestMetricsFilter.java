@@ -0,0 +1,225 @@
+package com.carportal.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Фильтр, учитывающий количество SQL-запросов на один HTTP-запрос.
+ * Открывает контекст запросов до цепочки фильтров безопасности, поэтому учитываются
+ * и запросы загрузки пользователя. Распределение записывается в метрику
+ * {@code carportal.http.server.queries} с тегами метода и шаблона URI.
+ * После обработки запроса проверяет бюджет эндпоинта ({@link QueryBudget}) и повторяющиеся
+ * одинаковые запросы (N+1): нарушения журналируются с местом вызова и учитываются в метрике
+ * {@code carportal.sql.violations}, а в строгом режиме завершают запрос исключением.
+ * В строгом режиме тело ответа накапливается в памяти и передается клиенту только после проверки,
+ * поэтому при нарушении клиент получает ошибку, а не уже отправленный ответ. Потоковые ответы
+ * (Server-Sent Events) не накапливаются: нарушения в них только журналируются.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@Slf4j
+public class RequestMetricsFilter extends OncePerRequestFilter {
+
+    /** Верхняя граница гистограммы количества запросов */
+    private static final double MAX_EXPECTED_QUERIES = 500.0;
+
+    private final MeterRegistry meterRegistry;
+    private final int repeatThreshold;
+    private final boolean failOnViolation;
+    private final Map<String, DistributionSummary> querySummaries = new ConcurrentHashMap<>();
+
+    /**
+     * Создает фильтр.
+     *
+     * @param meterRegistry реестр метрик
+     * @param repeatThreshold количество повторений одного запроса, начиная с которого он считается N+1
+     *                        (0 отключает обнаружение)
+     * @param failOnViolation true, чтобы нарушения завершали запрос исключением
+     */
+    public RequestMetricsFilter(MeterRegistry meterRegistry,
+                                @Value("${carportal.sql.n-plus-one-threshold:5}") int repeatThreshold,
+                                @Value("${carportal.sql.fail-on-violation:false}") boolean failOnViolation) {
+        this.meterRegistry = meterRegistry;
+        this.repeatThreshold = repeatThreshold;
+        this.failOnViolation = failOnViolation;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestQueryContext context = RequestQueryContext.begin(repeatThreshold);
+        BufferedResponse bufferedResponse = failOnViolation ? new BufferedResponse(response) : null;
+        String uri;
+        try {
+            filterChain.doFilter(request, bufferedResponse != null ? bufferedResponse : response);
+        } finally {
+            RequestQueryContext.end();
+            uri = uriPattern(request);
+            queriesSummary(request.getMethod(), uri).record(context.getStatementCount());
+        }
+
+        checkViolations(request, uri, context, bufferedResponse != null && !response.isCommitted());
+        if (bufferedResponse != null) {
+            bufferedResponse.copyBodyToResponse();
+        }
+    }
+
+    /**
+     * Запросы потока событий каталога и асинхронная отправка не учитываются:
+     * контекст привязан к потоку, обработавшему исходный запрос.
+     */
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return true;
+    }
+
+    /**
+     * Проверяет бюджет запросов эндпоинта и повторяющиеся запросы.
+     *
+     * @param request HTTP-запрос
+     * @param uri шаблон URI
+     * @param context контекст запросов
+     * @param fail true, чтобы завершить запрос исключением: ответ еще не отправлен клиенту
+     */
+    private void checkViolations(HttpServletRequest request, String uri, RequestQueryContext context, boolean fail) {
+        StringBuilder violations = null;
+
+        QueryBudget budget = queryBudget(request);
+        if (budget != null && context.getStatementCount() > budget.value()) {
+            violations = new StringBuilder();
+            violations.append(String.format("%s %s: выполнено %d SQL-запросов при бюджете %d",
+                    request.getMethod(), uri, context.getStatementCount(), budget.value()));
+            violationCounter("budget", uri).increment();
+        }
+
+        List<RequestQueryContext.Shape> repeated = context.getRepeatedShapes();
+        for (RequestQueryContext.Shape shape : repeated) {
+            if (violations == null) {
+                violations = new StringBuilder();
+            } else {
+                violations.append('\n');
+            }
+            violations.append(String.format("%s %s: запрос выполнен %d раз (N+1) из %s: %s",
+                    request.getMethod(), uri, shape.getCount(), shape.getCallSite(), shape.getSql()));
+            violationCounter("n_plus_one", uri).increment();
+        }
+
+        if (violations == null) {
+            return;
+        }
+        if (fail) {
+            throw new QueryBudgetExceededException(violations.toString());
+        }
+        log.warn("Нарушение бюджета SQL-запросов:\n{}", violations);
+    }
+
+    /**
+     * Получает распределение количества запросов для метода и шаблона URI.
+     * Распределения кэшируются, чтобы не строить и не искать метр в реестре на каждый запрос.
+     *
+     * @param method HTTP-метод
+     * @param uri шаблон URI
+     * @return распределение количества запросов
+     */
+    private DistributionSummary queriesSummary(String method, String uri) {
+        return querySummaries.computeIfAbsent(method + ' ' + uri, key -> DistributionSummary
+                .builder("carportal.http.server.queries")
+                .description("Количество SQL-запросов на один HTTP-запрос")
+                .tag("method", method)
+                .tag("uri", uri)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue(MAX_EXPECTED_QUERIES)
+                .register(meterRegistry));
+    }
+
+    private Counter violationCounter(String type, String uri) {
+        return Counter.builder("carportal.sql.violations")
+                .description("Нарушения бюджета SQL-запросов и обнаруженные N+1")
+                .tag("type", type)
+                .tag("uri", uri)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Получает бюджет запросов обработчика.
+     *
+     * @param request HTTP-запрос
+     * @return аннотация бюджета или null, если бюджет не объявлен
+     */
+    private static QueryBudget queryBudget(HttpServletRequest request) {
+        Object handler = request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+        if (handler instanceof HandlerMethod handlerMethod) {
+            return handlerMethod.getMethodAnnotation(QueryBudget.class);
+        }
+        return null;
+    }
+
+    /**
+     * Получает шаблон URI обработчика, чтобы количество тегов не зависело от идентификаторов в пути.
+     *
+     * @param request HTTP-запрос
+     * @return шаблон URI или UNKNOWN, если обработчик не найден
+     */
+    private static String uriPattern(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : "UNKNOWN";
+    }
+
+    /**
+     * Ответ, тело которого накапливается до проверки нарушений.
+     * Поток событий пишется напрямую: клиент должен получать события сразу.
+     */
+    private static final class BufferedResponse extends ContentCachingResponseWrapper {
+
+        private BufferedResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            return isStreaming() ? getResponse().getOutputStream() : super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            return isStreaming() ? getResponse().getWriter() : super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (isStreaming()) {
+                getResponse().flushBuffer();
+            } else {
+                super.flushBuffer();
+            }
+        }
+
+        private boolean isStreaming() {
+            String contentType = getContentType();
+            return contentType != null && contentType.startsWith(MediaType.TEXT_EVENT_STREAM_VALUE);
+        }
+    }
+}
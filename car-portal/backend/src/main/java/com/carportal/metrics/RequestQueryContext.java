@@ -0,0 +1,144 @@
+package com.carportal.metrics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Контекст SQL-запросов, выполненных в рамках одного HTTP-запроса.
+ * Привязан к потоку обработки запроса: открывается фильтром метрик в начале запроса
+ * и закрывается после формирования ответа. Вне HTTP-запроса контекст отсутствует,
+ * и выполненные запросы не учитываются.
+ * При включенном обнаружении N+1 контекст также считает повторения одинаковых запросов
+ * и запоминает место в коде, из которого запрос повторился заданное количество раз.
+ */
+public final class RequestQueryContext {
+
+    private static final ThreadLocal<RequestQueryContext> CURRENT = new ThreadLocal<>();
+
+    private final int repeatThreshold;
+    private int statementCount;
+    private Map<String, Shape> shapes;
+
+    private RequestQueryContext(int repeatThreshold) {
+        this.repeatThreshold = repeatThreshold;
+    }
+
+    /**
+     * Открывает контекст для текущего потока.
+     *
+     * @param repeatThreshold количество повторений одного запроса, начиная с которого он считается N+1
+     *                        (0 отключает обнаружение)
+     * @return открытый контекст
+     */
+    public static RequestQueryContext begin(int repeatThreshold) {
+        RequestQueryContext context = new RequestQueryContext(repeatThreshold);
+        CURRENT.set(context);
+        return context;
+    }
+
+    /**
+     * Получает контекст текущего потока.
+     *
+     * @return контекст или null, если поток не обрабатывает HTTP-запрос
+     */
+    public static RequestQueryContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Закрывает контекст текущего потока.
+     */
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Учитывает выполненный SQL-запрос.
+     * Запросы передаются с параметрами-заполнителями, поэтому одинаковый текст
+     * означает одинаковую форму запроса.
+     *
+     * @param sql текст запроса
+     */
+    public void record(String sql) {
+        statementCount++;
+        if (repeatThreshold <= 0) {
+            return;
+        }
+        if (shapes == null) {
+            shapes = new HashMap<>();
+        }
+        Shape shape = shapes.computeIfAbsent(sql, Shape::new);
+        if (++shape.count == repeatThreshold) {
+            shape.callSite = CallSites.capture();
+        }
+    }
+
+    /**
+     * Получает количество SQL-запросов, выполненных в рамках HTTP-запроса.
+     *
+     * @return количество запросов
+     */
+    public int getStatementCount() {
+        return statementCount;
+    }
+
+    /**
+     * Получает формы запросов, повторившиеся не менее порога обнаружения N+1.
+     *
+     * @return список повторяющихся запросов
+     */
+    public List<Shape> getRepeatedShapes() {
+        List<Shape> repeated = new ArrayList<>();
+        if (shapes != null) {
+            for (Shape shape : shapes.values()) {
+                if (shape.count >= repeatThreshold) {
+                    repeated.add(shape);
+                }
+            }
+        }
+        return repeated;
+    }
+
+    /**
+     * Форма SQL-запроса и количество ее выполнений.
+     */
+    public static final class Shape {
+
+        private final String sql;
+        private int count;
+        private String callSite;
+
+        private Shape(String sql) {
+            this.sql = sql;
+        }
+
+        /**
+         * Получает текст запроса.
+         *
+         * @return текст запроса
+         */
+        public String getSql() {
+            return sql;
+        }
+
+        /**
+         * Получает количество выполнений запроса.
+         *
+         * @return количество выполнений
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * Получает место вызова, из которого запрос достиг порога повторений.
+         *
+         * @return место вызова
+         */
+        public String getCallSite() {
+            return callSite;
+        }
+    }
+}
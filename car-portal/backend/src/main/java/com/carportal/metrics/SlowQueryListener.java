@@ -0,0 +1,82 @@
+package com.carportal.metrics;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.springframework.beans.factory.ObjectProvider;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Слушатель выполнения SQL-запросов, передающий медленные запросы в журнал.
+ * Для запросов быстрее порога выполняется только сравнение длительности,
+ * поэтому накладные расходы на обычные запросы пренебрежимо малы.
+ */
+public class SlowQueryListener implements QueryExecutionListener {
+
+    private final ObjectProvider<SlowQueryLog> slowQueryLogProvider;
+    private final DataSource dataSource;
+    private volatile SlowQueryLog slowQueryLog;
+
+    /**
+     * Создает слушатель для источника данных.
+     *
+     * @param slowQueryLogProvider поставщик журнала медленных запросов
+     * @param dataSource исходный источник данных без прокси, используемый для EXPLAIN
+     */
+    public SlowQueryListener(ObjectProvider<SlowQueryLog> slowQueryLogProvider, DataSource dataSource) {
+        this.slowQueryLogProvider = slowQueryLogProvider;
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        SlowQueryLog queryLog = slowQueryLog;
+        if (queryLog == null) {
+            queryLog = slowQueryLogProvider.getIfAvailable();
+            if (queryLog == null) {
+                return;
+            }
+            slowQueryLog = queryLog;
+        }
+        if (!queryLog.isSlow(execInfo.getElapsedTime()) || queryInfoList.isEmpty()) {
+            return;
+        }
+
+        String callSite = CallSites.capture();
+        for (QueryInfo queryInfo : queryInfoList) {
+            queryLog.record(queryInfo.getQuery(), firstParameters(queryInfo), execInfo.getElapsedTime(), callSite, dataSource);
+        }
+    }
+
+    /**
+     * Извлекает значения первого набора параметров запроса в порядке их индексов.
+     * Для пакетных запросов сохраняется только первый набор.
+     *
+     * @param queryInfo сведения о запросе
+     * @return значения параметров
+     */
+    private static List<Object> firstParameters(QueryInfo queryInfo) {
+        if (queryInfo.getParametersList().isEmpty()) {
+            return List.of();
+        }
+        List<ParameterSetOperation> operations = new ArrayList<>(queryInfo.getParametersList().get(0));
+        operations.removeIf(operation -> !(operation.getArgs()[0] instanceof Integer));
+        operations.sort(Comparator.comparingInt(operation -> (Integer) operation.getArgs()[0]));
+
+        List<Object> parameters = new ArrayList<>(operations.size());
+        for (ParameterSetOperation operation : operations) {
+            Object[] args = operation.getArgs();
+            parameters.add(ParameterSetOperation.isSetNullParameterOperation(operation) ? null : args[1]);
+        }
+        return parameters;
+    }
+}
@@ -0,0 +1,260 @@
+package com.carportal.metrics;
+
+import com.carportal.dto.response.SlowQueryDTO;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Журнал медленных SQL-запросов.
+ * Хранит последние запросы, выполнявшиеся дольше порога, в кольцевом буфере фиксированного размера.
+ * Для части запросов сохраняются значения параметров, а для части SELECT-запросов в фоне выполняется
+ * EXPLAIN (ANALYZE, BUFFERS) с теми же параметрами. Запросы любого вида к таблицам с секретами
+ * (пользователи, сессии, токены) и запросы, упоминающие пароли или токены, записываются без параметров
+ * и без плана: значения идентификаторов сессий и токенов попали бы в журнал, доступный администраторам.
+ * Одновременно выполняется не более одного EXPLAIN, остальные пропускаются, чтобы не занимать пул соединений.
+ */
+@Component
+@Slf4j
+public class SlowQueryLog {
+
+    /** Размер кольцевого буфера */
+    private static final int CAPACITY = 200;
+
+    /** Максимальная длина значения параметра в журнале */
+    private static final int MAX_PARAMETER_LENGTH = 64;
+
+    /** Ограничение времени выполнения EXPLAIN ANALYZE */
+    private static final String EXPLAIN_TIMEOUT = "5s";
+
+    private final long thresholdMs;
+    private final double parameterSampleRate;
+    private final double explainSampleRate;
+    private final Pattern secretPattern;
+
+    private final Entry[] entries = new Entry[CAPACITY];
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Semaphore explainPermit = new Semaphore(1);
+    private final ExecutorService explainExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private long recorded;
+
+    /**
+     * Создает журнал медленных запросов.
+     *
+     * @param thresholdMs порог длительности запроса в миллисекундах
+     * @param parameterSampleRate доля медленных запросов, для которых сохраняются параметры
+     * @param explainSampleRate доля медленных SELECT-запросов, для которых выполняется EXPLAIN
+     * @param secretTables таблицы, параметры запросов к которым не сохраняются
+     */
+    public SlowQueryLog(@Value("${carportal.sql.slow-threshold-ms:200}") long thresholdMs,
+                        @Value("${carportal.sql.slow-parameter-sample-rate:0.5}") double parameterSampleRate,
+                        @Value("${carportal.sql.slow-explain-sample-rate:0.1}") double explainSampleRate,
+                        @Value("${carportal.sql.slow-secret-tables:users,http_sessions,refresh_tokens,"
+                                + "token_revocations}") String[] secretTables) {
+        this.thresholdMs = thresholdMs;
+        this.parameterSampleRate = parameterSampleRate;
+        this.explainSampleRate = explainSampleRate;
+        this.secretPattern = secretPattern(secretTables);
+    }
+
+    /**
+     * Проверяет, считается ли запрос медленным.
+     *
+     * @param elapsedMs длительность запроса в миллисекундах
+     * @return true, если длительность не меньше порога
+     */
+    public boolean isSlow(long elapsedMs) {
+        return elapsedMs >= thresholdMs;
+    }
+
+    /**
+     * Записывает медленный запрос.
+     *
+     * @param sql текст запроса
+     * @param parameters значения параметров в порядке их индексов
+     * @param elapsedMs длительность запроса в миллисекундах
+     * @param callSite место вызова в коде приложения
+     * @param dataSource источник соединений для выполнения EXPLAIN
+     */
+    public void record(String sql, List<Object> parameters, long elapsedMs, String callSite, DataSource dataSource) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        boolean secret = secretPattern.matcher(sql).find();
+        boolean keepParameters = !secret && random.nextDouble() < parameterSampleRate;
+        boolean explain = !secret && isSelect(sql) && random.nextDouble() < explainSampleRate;
+
+        Entry entry = new Entry(LocalDateTime.now(), elapsedMs, sql, callSite,
+                keepParameters ? describe(parameters) : null);
+
+        lock.lock();
+        try {
+            entries[(int) (recorded++ % CAPACITY)] = entry;
+        } finally {
+            lock.unlock();
+        }
+        log.warn("Медленный SQL-запрос ({} мс) из {}: {}", elapsedMs, callSite, sql);
+
+        if (explain && explainPermit.tryAcquire()) {
+            explainExecutor.execute(() -> {
+                try {
+                    entry.plan = explain(dataSource, sql, parameters);
+                } catch (SQLException e) {
+                    entry.plan = "Не удалось получить план: " + e.getMessage();
+                } finally {
+                    explainPermit.release();
+                }
+            });
+        }
+    }
+
+    /**
+     * Получает записи журнала, начиная с самой новой.
+     *
+     * @return список медленных запросов
+     */
+    public List<SlowQueryDTO> getEntries() {
+        List<SlowQueryDTO> result = new ArrayList<>();
+        lock.lock();
+        try {
+            long first = Math.max(0, recorded - CAPACITY);
+            for (long i = recorded - 1; i >= first; i--) {
+                Entry entry = entries[(int) (i % CAPACITY)];
+                result.add(new SlowQueryDTO(entry.executedAt, entry.elapsedMs, entry.sql,
+                        entry.callSite, entry.parameters, entry.plan));
+            }
+        } finally {
+            lock.unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Очищает журнал.
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            Arrays.fill(entries, null);
+            recorded = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Останавливает фоновое выполнение EXPLAIN при остановке приложения.
+     */
+    @PreDestroy
+    public void shutdown() {
+        explainExecutor.shutdownNow();
+    }
+
+    /**
+     * Выполняет EXPLAIN (ANALYZE, BUFFERS) для запроса в транзакции только для чтения,
+     * которая затем откатывается.
+     *
+     * @param dataSource источник соединений без прокси журнала
+     * @param sql текст запроса
+     * @param parameters значения параметров
+     * @return текст плана
+     * @throws SQLException при ошибке выполнения
+     */
+    private static String explain(DataSource dataSource, String sql, List<Object> parameters) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                connection.setReadOnly(true);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("SET LOCAL statement_timeout = '" + EXPLAIN_TIMEOUT + "'");
+                }
+                StringBuilder plan = new StringBuilder();
+                try (PreparedStatement statement = connection.prepareStatement("EXPLAIN (ANALYZE, BUFFERS) " + sql)) {
+                    for (int i = 0; i < parameters.size(); i++) {
+                        statement.setObject(i + 1, parameters.get(i));
+                    }
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        while (resultSet.next()) {
+                            plan.append(resultSet.getString(1)).append('\n');
+                        }
+                    }
+                }
+                return plan.toString();
+            } finally {
+                connection.rollback();
+                connection.setReadOnly(false);
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    private static boolean isSelect(String sql) {
+        return sql.stripLeading().toLowerCase(Locale.ROOT).startsWith("select");
+    }
+
+    /**
+     * Строит шаблон запросов с секретами: обращение к одной из таблиц как к отдельному слову
+     * или упоминание пароля или токена в любой части имени.
+     *
+     * @param secretTables таблицы с секретами
+     * @return шаблон без учета регистра
+     */
+    private static Pattern secretPattern(String[] secretTables) {
+        String tables = Arrays.stream(secretTables)
+                .map(String::trim)
+                .filter(table -> !table.isEmpty())
+                .map(Pattern::quote)
+                .collect(Collectors.joining("|"));
+        String pattern = "password|token" + (tables.isEmpty() ? "" : "|\\b(?:" + tables + ")\\b");
+        return Pattern.compile(pattern, Pattern.CASE_INSENSITIVE);
+    }
+
+    private static List<String> describe(List<Object> parameters) {
+        List<String> values = new ArrayList<>(parameters.size());
+        for (Object parameter : parameters) {
+            String value = String.valueOf(parameter);
+            values.add(value.length() > MAX_PARAMETER_LENGTH ? value.substring(0, MAX_PARAMETER_LENGTH) + "…" : value);
+        }
+        return values;
+    }
+
+    /**
+     * Запись журнала. План заполняется в фоне после выполнения EXPLAIN.
+     */
+    private static final class Entry {
+
+        private final LocalDateTime executedAt;
+        private final long elapsedMs;
+        private final String sql;
+        private final String callSite;
+        private final List<String> parameters;
+        private volatile String plan;
+
+        private Entry(LocalDateTime executedAt, long elapsedMs, String sql, String callSite, List<String> parameters) {
+            this.executedAt = executedAt;
+            this.elapsedMs = elapsedMs;
+            this.sql = sql;
+            this.callSite = callSite;
+            this.parameters = parameters;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.carportal.models;
 
+import com.carportal.dictionary.CarDictionaryListener;
 import com.carportal.models.enums.CarStatus;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
@@ -7,12 +8,19 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.time.LocalDateTime;
+
 /**
  * Сущность автомобиля.
  * Представляет автомобиль в каталоге портала.
+ * Марка и модель хранятся идентификаторами справочника (см. {@link CarDictionaryListener}),
+ * названия заполняются при загрузке и заменяются идентификаторами при сохранении.
+ * До удаления столбцов brand и model (V11__car_dictionary_contract.sql) они только читаются:
+ * их заполняет триггер базы данных для экземпляров предыдущей версии.
  */
 @Entity
 @Table(name = "cars")
+@EntityListeners(CarDictionaryListener.class)
 @Getter
 @Setter
 @AllArgsConstructor
@@ -25,13 +33,29 @@ public class Car {
     private Long id;
 
     /** Марка автомобиля */
-    @Column(nullable = false)
+    @Transient
     private String brand;
 
     /** Модель автомобиля */
-    @Column(nullable = false)
+    @Transient
     private String model;
 
+    /** Марка в столбце предыдущей версии: используется, пока идентификаторы не определены фоновым заполнением */
+    @Column(name = "brand", insertable = false, updatable = false)
+    private String legacyBrand;
+
+    /** Модель в столбце предыдущей версии: используется, пока идентификаторы не определены фоновым заполнением */
+    @Column(name = "model", insertable = false, updatable = false)
+    private String legacyModel;
+
+    /** Идентификатор марки в справочнике car_brands */
+    @Column(name = "brand_id", nullable = false)
+    private Integer brandId;
+
+    /** Идентификатор модели в справочнике car_models */
+    @Column(name = "model_id", nullable = false)
+    private Integer modelId;
+
     /** Год выпуска */
     @Column(nullable = false)
     private int year;
@@ -56,4 +80,46 @@ public class Car {
     @ManyToOne
     @JoinColumn(name = "seller_id")
     private User seller;
-}
\ No newline at end of file
+
+    /** Время последнего снижения цены; используется фильтром каталога «цена снижена» */
+    @Column(name = "price_dropped_at")
+    private LocalDateTime priceDroppedAt;
+
+    /**
+     * Устанавливает марку автомобиля.
+     * Идентификатор марки и модели сбрасывается и определяется по справочнику при сохранении.
+     *
+     * @param brand марка автомобиля
+     */
+    public void setBrand(String brand) {
+        this.brand = brand;
+        this.brandId = null;
+        this.modelId = null;
+    }
+
+    /**
+     * Устанавливает модель автомобиля.
+     * Идентификатор модели сбрасывается и определяется по справочнику при сохранении.
+     *
+     * @param model модель автомобиля
+     */
+    public void setModel(String model) {
+        this.model = model;
+        this.modelId = null;
+    }
+
+    /**
+     * Устанавливает марку и модель вместе с их идентификаторами в справочнике.
+     *
+     * @param brandId идентификатор марки
+     * @param brand название марки
+     * @param modelId идентификатор модели
+     * @param model название модели
+     */
+    public void assignDictionary(Integer brandId, String brand, Integer modelId, String model) {
+        this.brandId = brandId;
+        this.brand = brand;
+        this.modelId = modelId;
+        this.model = model;
+    }
+}
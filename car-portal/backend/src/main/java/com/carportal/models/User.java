@@ -55,12 +55,12 @@ public class User {
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
-    /** Дата последнего входа */
-    @Column(name = "last_login_at")
+    /** Дата последнего входа (обновляется только пакетной записью статистики входов) */
+    @Column(name = "last_login_at", updatable = false)
     private LocalDateTime lastLoginAt;
 
-    /** Количество посещений пользователя */
-    @Column(name = "visit_count", nullable = false, columnDefinition = "int default 0")
+    /** Количество посещений пользователя (обновляется только пакетной записью статистики входов) */
+    @Column(name = "visit_count", nullable = false, updatable = false, columnDefinition = "int default 0")
     private int visitCount = 0;
 
     /** Список автомобилей в избранном */
@@ -0,0 +1,40 @@
+package com.carportal.outbox;
+
+import java.util.List;
+
+/**
+ * Обработчик исходящих событий. Реализации регистрируются как компоненты Spring
+ * и вызываются ретранслятором {@link OutboxRelay} в фоне, а не в транзакции записи.
+ * Доставка выполняется не менее одного раза: если один из обработчиков завершился ошибкой,
+ * события повторно доставляются всем обработчикам, поэтому обработка должна быть идемпотентной.
+ * Событие, которое не удалось доставить за допустимое количество попыток, больше не доставляется
+ * никому из обработчиков (см. {@link OutboxRelay}).
+ * Обработчик вызывается в транзакции ретранслятора: изменения, сделанные им в базе данных
+ * в этой транзакции, фиксируются вместе с удалением доставленных событий.
+ */
+public interface OutboxConsumer {
+
+    /**
+     * Получает имя обработчика для журнала и метрик.
+     *
+     * @return имя обработчика
+     */
+    String getName();
+
+    /**
+     * Проверяет, нужны ли обработчику события указанного типа.
+     *
+     * @param type тип события
+     * @return true, если события этого типа передаются обработчику
+     */
+    default boolean accepts(OutboxEventType type) {
+        return true;
+    }
+
+    /**
+     * Обрабатывает пакет событий в порядке их идентификаторов.
+     *
+     * @param events события, нужные обработчику
+     */
+    void consume(List<OutboxEvent> events);
+}
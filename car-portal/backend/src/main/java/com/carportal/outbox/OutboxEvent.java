@@ -0,0 +1,30 @@
+package com.carportal.outbox;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Исходящее событие, прочитанное из таблицы outbox_events для доставки обработчикам.
+ */
+@Getter
+@AllArgsConstructor
+public final class OutboxEvent {
+
+    /** Идентификатор события; возрастает в порядке записи */
+    private final long id;
+
+    /** Тип события */
+    private final OutboxEventType type;
+
+    /** Идентификатор измененной сущности (может отсутствовать) */
+    private final Long aggregateId;
+
+    /** Данные события в формате JSON */
+    private final String payload;
+
+    /** Время записи события (миллисекунды эпохи) */
+    private final long createdAt;
+
+    /** Количество предыдущих неудачных попыток доставки */
+    private final int attempts;
+}
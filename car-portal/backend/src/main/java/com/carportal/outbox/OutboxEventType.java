@@ -0,0 +1,32 @@
+package com.carportal.outbox;
+
+/**
+ * Перечисление типов исходящих событий.
+ * Тип хранится в таблице outbox_events по имени, поэтому новые типы добавляются только тогда,
+ * когда их знают все экземпляры приложения, читающие таблицу.
+ */
+public enum OutboxEventType {
+    /** Автомобиль добавлен в каталог */
+    CAR_ADDED,
+
+    /** Изменились данные автомобиля, кроме цены и продажи */
+    CAR_UPDATED,
+
+    /** Изменилась цена автомобиля */
+    CAR_PRICE_CHANGED,
+
+    /** Автомобиль продан */
+    CAR_SOLD,
+
+    /** Автомобиль удален из каталога */
+    CAR_DELETED,
+
+    /** Опубликована новость */
+    NEWS_PUBLISHED,
+
+    /** Изменена новость (без идентификатора - изменены новости нескольких авторов сразу) */
+    NEWS_UPDATED,
+
+    /** Удалена новость */
+    NEWS_DELETED
+}
@@ -0,0 +1,296 @@
+package com.carportal.outbox;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ретранслятор исходящих событий: читает события из таблицы outbox_events пакетами в порядке записи,
+ * передает их обработчикам {@link OutboxConsumer} и удаляет доставленные в той же транзакции.
+ * Пакет выбирается с блокировкой строк FOR UPDATE SKIP LOCKED, поэтому ретрансляторы нескольких экземпляров
+ * приложения разбирают таблицу параллельно, не получая одни и те же события.
+ * Если обработчик завершился ошибкой, транзакция откатывается, и события пакета доставляются по одному:
+ * событие, на котором ошибается обработчик, не задерживает остальные. Доставка такого события откладывается
+ * с экспоненциально растущей паузой, а после {@code max-attempts} неудачных попыток событие помечается
+ * «мертвым» (столбец dead_at): оно больше не доставляется и остается в таблице для разбора.
+ * Порядок гарантируется внутри пакета; отложенные и параллельно доставляемые события могут обогнать
+ * друг друга, поэтому обработчики опираются на идентификатор события.
+ * <p>
+ * Таблица проверяется периодически, а после фиксации транзакции с новыми событиями — сразу:
+ * запросы на разбор, пришедшие во время разбора, объединяются в один повторный проход.
+ */
+@Component
+@Slf4j
+public class OutboxRelay {
+
+    private static final String SELECT_COLUMNS = "SELECT id, event_type, aggregate_id, payload, created_at, attempts "
+            + "FROM outbox_events ";
+    private static final String SELECT_BATCH = SELECT_COLUMNS
+            + "WHERE available_at <= ? AND dead_at IS NULL ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+    private static final String SELECT_EVENT = SELECT_COLUMNS
+            + "WHERE id = ? AND dead_at IS NULL FOR UPDATE SKIP LOCKED";
+    private static final String DELETE_BATCH = "DELETE FROM outbox_events WHERE id = ANY (?)";
+    private static final String POSTPONE_BATCH = "UPDATE outbox_events SET attempts = attempts + 1, "
+            + "available_at = ? + LEAST(?, ? * POWER(2, LEAST(attempts, 20)))::BIGINT, "
+            + "dead_at = CASE WHEN attempts + 1 >= ? THEN ? END WHERE id = ANY (?) RETURNING id, dead_at";
+
+    private final List<OutboxConsumer> consumers;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaction;
+    private final int batchSize;
+    private final long retryDelayMillis;
+    private final long maxRetryDelayMillis;
+    private final int maxAttempts;
+    private final MeterRegistry meterRegistry;
+    private final Counter deliveredEvents;
+    private final Counter deadEvents;
+    private final Timer deliveryLag;
+
+    private final ReentrantLock drainLock = new ReentrantLock();
+    private final AtomicBoolean drainRequested = new AtomicBoolean();
+    private final ExecutorService drainExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Создает ретранслятор.
+     *
+     * @param consumers обработчики событий
+     * @param jdbcTemplate шаблон JDBC
+     * @param transactionManager менеджер транзакций
+     * @param batchSize количество событий в пакете
+     * @param retryDelay пауза перед первой повторной доставкой пакета после ошибки
+     * @param maxRetryDelay максимальная пауза перед повторной доставкой
+     * @param maxAttempts количество попыток доставки события, после которого оно помечается «мертвым»
+     * @param meterRegistry реестр метрик
+     */
+    public OutboxRelay(List<OutboxConsumer> consumers, JdbcTemplate jdbcTemplate,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${carportal.outbox.batch-size:100}") int batchSize,
+                       @Value("${carportal.outbox.retry-delay:1s}") Duration retryDelay,
+                       @Value("${carportal.outbox.max-retry-delay:5m}") Duration maxRetryDelay,
+                       @Value("${carportal.outbox.max-attempts:20}") int maxAttempts,
+                       MeterRegistry meterRegistry) {
+        this.consumers = List.copyOf(consumers);
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.retryDelayMillis = retryDelay.toMillis();
+        this.maxRetryDelayMillis = maxRetryDelay.toMillis();
+        this.maxAttempts = maxAttempts;
+        this.meterRegistry = meterRegistry;
+        this.deliveredEvents = Counter.builder("carportal.outbox.delivered")
+                .description("Исходящие события, доставленные обработчикам")
+                .register(meterRegistry);
+        this.deadEvents = Counter.builder("carportal.outbox.dead")
+                .description("Исходящие события, не доставленные за допустимое количество попыток")
+                .register(meterRegistry);
+        this.deliveryLag = Timer.builder("carportal.outbox.lag")
+                .description("Время от записи исходящего события до его доставки")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Запрашивает разбор таблицы в фоне, не дожидаясь очередной периодической проверки.
+     */
+    public void requestDrain() {
+        if (drainLock.isLocked()) {
+            drainRequested.set(true);
+            return;
+        }
+        drainExecutor.execute(this::drain);
+    }
+
+    /**
+     * Доставляет все готовые события.
+     * Если разбор уже выполняется, запрос объединяется с ним.
+     *
+     * @return количество доставленных событий
+     */
+    @Scheduled(fixedDelayString = "${carportal.outbox.poll-interval-ms:1000}")
+    public int drain() {
+        if (!drainLock.tryLock()) {
+            drainRequested.set(true);
+            return 0;
+        }
+        try {
+            int delivered = 0;
+            do {
+                drainRequested.set(false);
+                int batch;
+                do {
+                    batch = deliverBatch();
+                    delivered += Math.max(batch, 0);
+                } while (batch == batchSize);
+            } while (drainRequested.get());
+            return delivered;
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    /**
+     * Останавливает фоновый разбор.
+     */
+    @PreDestroy
+    public void close() {
+        drainExecutor.shutdownNow();
+    }
+
+    /**
+     * Доставляет один пакет событий. Если доставка пакета не удалась, его события доставляются по одному.
+     *
+     * @return количество доставленных событий или -1, если доставка не удалась
+     */
+    private int deliverBatch() {
+        List<OutboxEvent> events = new ArrayList<>();
+        try {
+            deliverSelected(events, SELECT_BATCH, System.currentTimeMillis(), batchSize);
+        } catch (RuntimeException e) {
+            if (events.size() == 1) {
+                log.error("Ошибка доставки исходящего события {}: {}", events.get(0).getId(), e.getMessage());
+                postpone(events);
+                return -1;
+            }
+            log.warn("Ошибка доставки {} исходящих событий, события доставляются по одному: {}",
+                    events.size(), e.getMessage());
+            int delivered = 0;
+            for (OutboxEvent event : events) {
+                delivered += Math.max(deliverEvent(event.getId()), 0);
+            }
+            return delivered > 0 ? delivered : -1;
+        }
+        return events.size();
+    }
+
+    /**
+     * Доставляет одно событие, если его не доставил или не отложил другой ретранслятор.
+     *
+     * @param eventId идентификатор события
+     * @return 1, если событие доставлено, 0, если оно уже недоступно, или -1, если доставка не удалась
+     */
+    private int deliverEvent(long eventId) {
+        List<OutboxEvent> events = new ArrayList<>(1);
+        try {
+            deliverSelected(events, SELECT_EVENT, eventId);
+        } catch (RuntimeException e) {
+            log.error("Ошибка доставки исходящего события {}: {}", eventId, e.getMessage());
+            postpone(events);
+            return -1;
+        }
+        return events.size();
+    }
+
+    /**
+     * Выбирает события, передает их обработчикам и удаляет доставленные в одной транзакции.
+     * Выбранные события остаются в списке и при ошибке, чтобы их доставку можно было отложить.
+     *
+     * @param events список, в который добавляются выбранные события
+     * @param sql запрос выборки
+     * @param parameters параметры запроса
+     */
+    private void deliverSelected(List<OutboxEvent> events, String sql, Object... parameters) {
+        transaction.executeWithoutResult(status -> {
+            events.addAll(jdbcTemplate.query(sql, OutboxRelay::mapEvent, parameters));
+            if (events.isEmpty()) {
+                return;
+            }
+            for (OutboxConsumer consumer : consumers) {
+                deliver(consumer, events);
+            }
+            jdbcTemplate.update(DELETE_BATCH, ids(events));
+        });
+
+        long now = System.currentTimeMillis();
+        for (OutboxEvent event : events) {
+            deliveryLag.record(Math.max(0, now - event.getCreatedAt()), TimeUnit.MILLISECONDS);
+        }
+        deliveredEvents.increment(events.size());
+    }
+
+    private void deliver(OutboxConsumer consumer, List<OutboxEvent> events) {
+        List<OutboxEvent> accepted = events.stream().filter(event -> consumer.accepts(event.getType())).toList();
+        if (accepted.isEmpty()) {
+            return;
+        }
+        try {
+            consumer.consume(accepted);
+        } catch (RuntimeException e) {
+            Counter.builder("carportal.outbox.failures")
+                    .description("Ошибки обработчиков исходящих событий")
+                    .tag("consumer", consumer.getName())
+                    .register(meterRegistry)
+                    .increment();
+            throw new IllegalStateException("обработчик " + consumer.getName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Откладывает повторную доставку событий, а исчерпавшие попытки помечает «мертвыми».
+     * Если база данных недоступна, события остаются доступными и будут прочитаны при следующей проверке.
+     *
+     * @param events события
+     */
+    private void postpone(List<OutboxEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            List<Long> dead = jdbcTemplate.query(POSTPONE_BATCH, ps -> {
+                ps.setLong(1, now);
+                ps.setLong(2, maxRetryDelayMillis);
+                ps.setLong(3, retryDelayMillis);
+                ps.setInt(4, maxAttempts);
+                ps.setLong(5, now);
+                ps.setArray(6, ps.getConnection().createArrayOf("bigint",
+                        events.stream().map(OutboxEvent::getId).toArray()));
+            }, (resultSet, rowNum) -> {
+                resultSet.getLong(2);
+                return resultSet.wasNull() ? null : resultSet.getLong(1);
+            }).stream().filter(id -> id != null).toList();
+            if (!dead.isEmpty()) {
+                deadEvents.increment(dead.size());
+                log.error("Исходящие события {} не доставлены за {} попыток и больше не доставляются", dead, maxAttempts);
+            }
+        } catch (RuntimeException e) {
+            log.error("Не удалось отложить доставку исходящих событий: {}", e.getMessage());
+        }
+    }
+
+    private static PreparedStatementSetter ids(List<OutboxEvent> events) {
+        return ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint",
+                events.stream().map(OutboxEvent::getId).toArray()));
+    }
+
+    private static OutboxEvent mapEvent(ResultSet resultSet, int rowNum) throws SQLException {
+        long aggregateId = resultSet.getLong("aggregate_id");
+        Long aggregate = resultSet.wasNull() ? null : aggregateId;
+        return new OutboxEvent(
+                resultSet.getLong("id"),
+                OutboxEventType.valueOf(resultSet.getString("event_type")),
+                aggregate,
+                resultSet.getString("payload"),
+                resultSet.getLong("created_at"),
+                resultSet.getInt("attempts"));
+    }
+}
@@ -0,0 +1,157 @@
+package com.carportal.outbox;
+
+import com.carportal.dto.response.CarResponseDTO;
+import com.carportal.events.CarChangedEvent;
+import com.carportal.events.NewsChangedEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Запись исходящих событий об изменении автомобилей и новостей.
+ * События сервисов обрабатываются синхронно при публикации, поэтому строки outbox_events вставляются
+ * в транзакции изменения и фиксируются или откатываются вместе с ним. Путь записи ограничивается
+ * одним INSERT; доставка выполняется ретранслятором в фоне после фиксации.
+ */
+@Component
+public class OutboxWriter {
+
+    private static final String INSERT_EVENT = "INSERT INTO outbox_events "
+            + "(event_type, aggregate_id, payload, created_at, available_at) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final OutboxRelay relay;
+
+    /**
+     * Создает запись исходящих событий.
+     *
+     * @param jdbcTemplate шаблон JDBC
+     * @param objectMapper сериализатор данных событий
+     * @param relay ретранслятор, которому после фиксации передается запрос на доставку
+     */
+    public OutboxWriter(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper, OutboxRelay relay) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.relay = relay;
+    }
+
+    /**
+     * Записывает события об изменении автомобиля.
+     * Данные события содержат состояние автомобиля до и после изменения.
+     *
+     * @param event событие об изменении автомобиля
+     */
+    @EventListener
+    public void onCarChanged(CarChangedEvent event) {
+        List<OutboxEventType> types = carEventTypes(event);
+        if (types.isEmpty()) {
+            return;
+        }
+        Map<String, CarResponseDTO> payload = new LinkedHashMap<>();
+        payload.put("previous", event.getPrevious());
+        payload.put("current", event.getCurrent());
+        append(types, event.getCarId(), toJson(payload));
+    }
+
+    /**
+     * Записывает событие об изменении новости.
+     *
+     * @param event событие об изменении новости
+     */
+    @EventListener
+    public void onNewsChanged(NewsChangedEvent event) {
+        OutboxEventType type = switch (event.getType()) {
+            case ADDED -> OutboxEventType.NEWS_PUBLISHED;
+            case UPDATED -> OutboxEventType.NEWS_UPDATED;
+            case DELETED -> OutboxEventType.NEWS_DELETED;
+        };
+        append(List.of(type), event.getNewsId(), "{}");
+    }
+
+    /**
+     * Определяет типы исходящих событий для изменения автомобиля.
+     * Изменение цены и продажа выделяются в отдельные события; CAR_UPDATED записывается,
+     * только если изменились и другие данные.
+     *
+     * @param event событие об изменении автомобиля
+     * @return типы исходящих событий (пусто, если данные не изменились)
+     */
+    static List<OutboxEventType> carEventTypes(CarChangedEvent event) {
+        CarResponseDTO previous = event.getPrevious();
+        CarResponseDTO current = event.getCurrent();
+        switch (event.getType()) {
+            case ADDED:
+                return List.of(OutboxEventType.CAR_ADDED);
+            case DELETED:
+                return List.of(OutboxEventType.CAR_DELETED);
+            default:
+                if (previous == null || current == null) {
+                    return List.of(OutboxEventType.CAR_UPDATED);
+                }
+        }
+
+        List<OutboxEventType> types = new ArrayList<>(3);
+        if (Double.compare(previous.getPrice(), current.getPrice()) != 0) {
+            types.add(OutboxEventType.CAR_PRICE_CHANGED);
+        }
+        if (previous.isAvailable() && !current.isAvailable()) {
+            types.add(OutboxEventType.CAR_SOLD);
+        }
+        CarResponseDTO previousWithCurrentPriceAndStatus = new CarResponseDTO(previous.getId(), previous.getBrand(),
+                previous.getModel(), previous.getYear(), current.getPrice(), previous.getDescription(),
+                previous.getImageUrl(), current.isAvailable(), previous.getSellerId(), previous.getSellerName(),
+                current.getPriceDroppedAt());
+        if (!previousWithCurrentPriceAndStatus.equals(current)) {
+            types.add(OutboxEventType.CAR_UPDATED);
+        }
+        return types;
+    }
+
+    /**
+     * Вставляет события в текущей транзакции и после ее фиксации запрашивает доставку.
+     *
+     * @param types типы событий
+     * @param aggregateId идентификатор измененной сущности
+     * @param payload данные событий в формате JSON
+     */
+    private void append(List<OutboxEventType> types, Long aggregateId, String payload) {
+        long now = System.currentTimeMillis();
+        List<Object[]> rows = types.stream()
+                .map(type -> new Object[]{type.name(), aggregateId, payload, now, now})
+                .toList();
+        if (rows.size() == 1) {
+            jdbcTemplate.update(INSERT_EVENT, rows.get(0));
+        } else {
+            jdbcTemplate.batchUpdate(INSERT_EVENT, rows);
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    relay.requestDrain();
+                }
+            });
+        } else {
+            relay.requestDrain();
+        }
+    }
+
+    private String toJson(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Ошибка сериализации исходящего события: " + e.getMessage(), e);
+        }
+    }
+}
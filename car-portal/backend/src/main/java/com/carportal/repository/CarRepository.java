@@ -1,11 +1,19 @@
 package com.carportal.repository;
 
 import com.carportal.models.Car;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Репозиторий для работы с автомобилями.
@@ -27,15 +35,17 @@ public interface CarRepository extends JpaRepository<Car, Long> {
      *
      * @return список всех автомобилей
      */
+    @EntityGraph(attributePaths = "seller")
     List<Car> findAll();
 
     /**
      * Находит автомобили по марке.
      *
-     * @param brand марка автомобиля
+     * @param brandId идентификатор марки в справочнике
      * @return список автомобилей указанной марки
      */
-    List<Car> findByBrand(String brand);
+    @EntityGraph(attributePaths = "seller")
+    List<Car> findByBrandId(Integer brandId);
 
     /**
      * Находит автомобили в указанном ценовом диапазоне.
@@ -44,5 +54,34 @@ public interface CarRepository extends JpaRepository<Car, Long> {
      * @param maxPrice максимальная цена
      * @return список автомобилей в указанном ценовом диапазоне
      */
+    @EntityGraph(attributePaths = "seller")
     List<Car> findByPriceBetween(double minPrice, double maxPrice);
-}
\ No newline at end of file
+
+    /**
+     * Находит автомобили, цена которых снижалась после указанного времени.
+     *
+     * @param since начало периода
+     * @return список автомобилей, начиная с последних снижений цены
+     */
+    @EntityGraph(attributePaths = "seller")
+    List<Car> findByPriceDroppedAtAfterOrderByPriceDroppedAtDesc(LocalDateTime since);
+
+    /**
+     * Находит автомобили по идентификаторам вместе с продавцами.
+     *
+     * @param ids идентификаторы автомобилей
+     * @return найденные автомобили
+     */
+    @EntityGraph(attributePaths = "seller")
+    List<Car> findByIdIn(Collection<Long> ids);
+
+    /**
+     * Последовательно читает идентификаторы всех автомобилей без загрузки сущностей.
+     * Поток должен использоваться внутри транзакции и закрываться после чтения.
+     *
+     * @return поток идентификаторов
+     */
+    @Query("SELECT c.id FROM Car c")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<Long> streamAllIds();
+}
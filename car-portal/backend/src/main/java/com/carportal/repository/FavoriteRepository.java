@@ -3,7 +3,11 @@ package com.carportal.repository;
 import com.carportal.models.Car;
 import com.carportal.models.Favorite;
 import com.carportal.models.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -30,8 +34,19 @@ public interface FavoriteRepository extends JpaRepository<Favorite, Long> {
      * @param user пользователь
      * @return список избранных автомобилей
      */
+    @EntityGraph(attributePaths = {"car", "car.seller"})
     List<Favorite> findByUser(User user);
 
+    /**
+     * Удаляет все избранные автомобили пользователя одним запросом.
+     *
+     * @param user пользователь
+     * @return количество удаленных записей
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM Favorite f WHERE f.user = :user")
+    int deleteAllByUser(@Param("user") User user);
+
     /**
      * Проверяет, есть ли автомобиль в избранном у пользователя.
      *
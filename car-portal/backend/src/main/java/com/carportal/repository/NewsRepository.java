@@ -1,13 +1,18 @@
 package com.carportal.repository;
 
 import com.carportal.models.News;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Репозиторий для работы с новостями.
@@ -25,10 +30,12 @@ public interface NewsRepository extends JpaRepository<News, Long> {
     Optional<News> findById(Long id);
 
     /**
-     * Получает все новости.
+     * Получает все новости, начиная с самых свежих.
      *
      * @return список всех новостей
      */
+    @EntityGraph(attributePaths = "user")
+    @Query("SELECT n FROM News n ORDER BY n.date DESC, n.id DESC")
     List<News> findAll();
 
     /**
@@ -45,6 +52,17 @@ public interface NewsRepository extends JpaRepository<News, Long> {
      * @param keyword ключевое слово для поиска
      * @return список найденных новостей
      */
+    @EntityGraph(attributePaths = "user")
     @Query("SELECT n FROM News n WHERE LOWER(n.title) LIKE LOWER(CONCAT('%', :keyword, '%')) OR LOWER(n.content) LIKE LOWER(CONCAT('%', :keyword, '%'))")
     List<News> searchByKeyword(@Param("keyword") String keyword);
-}
\ No newline at end of file
+
+    /**
+     * Последовательно читает идентификаторы всех новостей без загрузки сущностей.
+     * Поток должен использоваться внутри транзакции и закрываться после чтения.
+     *
+     * @return поток идентификаторов
+     */
+    @Query("SELECT n.id FROM News n")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<Long> streamAllIds();
+}
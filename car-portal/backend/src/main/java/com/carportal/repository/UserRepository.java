@@ -2,6 +2,9 @@ package com.carportal.repository;
 
 import com.carportal.models.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -29,6 +32,23 @@ public interface UserRepository extends JpaRepository<User, Long> {
      */
     Optional<User> findByEmail(String email);
 
+    /**
+     * Проверяет, занят ли номер телефона.
+     *
+     * @param phone номер телефона
+     * @return true, если номер указан у какого-либо пользователя
+     */
+    boolean existsByPhone(String phone);
+
+    /**
+     * Проверяет, занят ли номер телефона другим пользователем.
+     *
+     * @param phone номер телефона
+     * @param id идентификатор пользователя, которого нужно исключить из проверки
+     * @return true, если номер указан у другого пользователя
+     */
+    boolean existsByPhoneAndIdNot(String phone, Long id);
+
     /**
      * Находит пользователя по идентификатору.
      *
@@ -36,4 +56,15 @@ public interface UserRepository extends JpaRepository<User, Long> {
      * @return Optional с пользователем или пустой Optional
      */
     Optional<User> findById(Long id);
-}
\ No newline at end of file
+
+    /**
+     * Обновляет хеш пароля пользователя без загрузки сущности.
+     *
+     * @param username имя пользователя
+     * @param password новый хеш пароля
+     * @return количество обновленных записей
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE User u SET u.password = :password WHERE u.username = :username")
+    int updatePassword(@Param("username") String username, @Param("password") String password);
+}
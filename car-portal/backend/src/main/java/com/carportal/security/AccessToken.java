@@ -0,0 +1,27 @@
+package com.carportal.security;
+
+import com.carportal.models.enums.UserRole;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Данные подписанного токена доступа.
+ * Используется как субъект аутентификации при входе по токену: содержит все, что нужно для проверки прав,
+ * поэтому запрос с токеном не обращается ни к базе данных, ни к хранилищу сессий.
+ */
+@Getter
+@AllArgsConstructor
+public final class AccessToken {
+
+    /** Идентификатор пользователя */
+    private final long userId;
+
+    /** Роль пользователя на момент выпуска токена */
+    private final UserRole role;
+
+    /** Время выпуска (миллисекунды эпохи) */
+    private final long issuedAt;
+
+    /** Время истечения (миллисекунды эпохи) */
+    private final long expiresAt;
+}
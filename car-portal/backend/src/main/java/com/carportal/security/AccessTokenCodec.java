@@ -0,0 +1,130 @@
+package com.carportal.security;
+
+import com.carportal.models.enums.UserRole;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Кодирование и проверка токенов доступа, подписанных HMAC-SHA256.
+ * Токен — это 26 байт данных (версия формата, идентификатор пользователя, роль, время выпуска и истечения)
+ * и 32 байта подписи в кодировке Base64url: 78 символов. Проверка занимает единицы микросекунд.
+ * Роль записывается порядковым номером, поэтому новые роли добавляются только в конец {@link UserRole}.
+ */
+public class AccessTokenCodec {
+
+    /** Минимальная длина ключа подписи в байтах */
+    public static final int MIN_KEY_LENGTH = 32;
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final byte VERSION = 1;
+
+    private static final int PAYLOAD_LENGTH = 1 + Long.BYTES + 1 + Long.BYTES + Long.BYTES;
+    private static final int MAC_LENGTH = 32;
+    /** Длина токена в кодировке Base64url без дополнения */
+    private static final int TOKEN_LENGTH = (4 * (PAYLOAD_LENGTH + MAC_LENGTH) + 2) / 3;
+
+    private static final UserRole[] ROLES = UserRole.values();
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+    private final Mac prototype;
+
+    /**
+     * Создает кодировщик токенов.
+     *
+     * @param key ключ подписи (не менее {@value #MIN_KEY_LENGTH} байт)
+     */
+    public AccessTokenCodec(byte[] key) {
+        if (key.length < MIN_KEY_LENGTH) {
+            throw new IllegalArgumentException("Ключ подписи токенов должен быть не короче " + MIN_KEY_LENGTH + " байт");
+        }
+        this.key = new SecretKeySpec(key, ALGORITHM);
+        this.prototype = newMac();
+    }
+
+    /**
+     * Кодирует и подписывает токен.
+     *
+     * @param token данные токена
+     * @return строковое представление токена
+     */
+    public String encode(AccessToken token) {
+        byte[] data = new byte[PAYLOAD_LENGTH + MAC_LENGTH];
+        ByteBuffer.wrap(data)
+                .put(VERSION)
+                .putLong(token.getUserId())
+                .put((byte) token.getRole().ordinal())
+                .putLong(token.getIssuedAt())
+                .putLong(token.getExpiresAt());
+        byte[] signature = mac().doFinal(Arrays.copyOf(data, PAYLOAD_LENGTH));
+        System.arraycopy(signature, 0, data, PAYLOAD_LENGTH, MAC_LENGTH);
+        return ENCODER.encodeToString(data);
+    }
+
+    /**
+     * Проверяет подпись и срок действия токена.
+     *
+     * @param token строковое представление токена
+     * @param now текущее время (миллисекунды эпохи)
+     * @return данные токена или null, если токен поврежден, подделан или истек
+     */
+    public AccessToken decode(String token, long now) {
+        if (token == null || token.length() != TOKEN_LENGTH) {
+            return null;
+        }
+        byte[] data;
+        try {
+            data = DECODER.decode(token);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+
+        Mac mac = mac();
+        mac.update(data, 0, PAYLOAD_LENGTH);
+        byte[] expected = mac.doFinal();
+        if (!MessageDigest.isEqual(expected, Arrays.copyOfRange(data, PAYLOAD_LENGTH, data.length))) {
+            return null;
+        }
+
+        ByteBuffer payload = ByteBuffer.wrap(data, 0, PAYLOAD_LENGTH);
+        int role = payload.get(1 + Long.BYTES);
+        if (payload.get(0) != VERSION || role < 0 || role >= ROLES.length) {
+            return null;
+        }
+        long expiresAt = payload.getLong(2 + 2 * Long.BYTES);
+        if (expiresAt <= now) {
+            return null;
+        }
+        return new AccessToken(payload.getLong(1), ROLES[role], payload.getLong(2 + Long.BYTES), expiresAt);
+    }
+
+    /**
+     * Получает экземпляр HMAC для текущего вызова.
+     * Экземпляры Mac не потокобезопасны, а создание нового с поиском провайдера дороже самой подписи,
+     * поэтому копируется заранее инициализированный прототип.
+     */
+    private Mac mac() {
+        try {
+            return (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            return newMac();
+        }
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Алгоритм подписи токенов недоступен: " + ALGORITHM, e);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.carportal.security;
+
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * Данные пользователя для аутентификации по имени и паролю с идентификатором пользователя.
+ * Идентификатор позволяет после входа получить пользователя по первичному ключу,
+ * не повторяя поиск по имени.
+ */
+@Getter
+public class AuthenticatedUser extends User {
+
+    /** Идентификатор пользователя */
+    private final Long id;
+
+    /**
+     * Создает данные пользователя.
+     *
+     * @param id идентификатор пользователя
+     * @param username имя пользователя
+     * @param password хеш пароля
+     * @param authorities роли пользователя
+     */
+    public AuthenticatedUser(Long id, String username, String password,
+                             Collection<? extends GrantedAuthority> authorities) {
+        super(username, password, authorities);
+        this.id = id;
+    }
+}
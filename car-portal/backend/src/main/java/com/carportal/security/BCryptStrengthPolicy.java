@@ -0,0 +1,46 @@
+package com.carportal.security;
+
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+import java.time.Duration;
+
+/**
+ * Утилитный класс для выбора стоимости хеширования BCrypt по измеренному времени.
+ * Каждое увеличение стоимости на единицу вдвое увеличивает время хеширования, поэтому достаточно
+ * измерить время при минимальной стоимости и выбрать наибольшую стоимость, укладывающуюся в целевое время.
+ */
+public abstract class BCryptStrengthPolicy {
+
+    /** Минимальная допустимая стоимость */
+    public static final int MIN_STRENGTH = 10;
+
+    /** Максимальная выбираемая стоимость */
+    public static final int MAX_STRENGTH = 14;
+
+    /** Количество измерений; используется наименьшее время, так как первые вызовы включают прогрев JIT */
+    private static final int SAMPLES = 3;
+
+    /**
+     * Выбирает стоимость хеширования, при которой проверка пароля занимает не больше целевого времени.
+     *
+     * @param target целевое время проверки пароля
+     * @return стоимость в диапазоне от {@link #MIN_STRENGTH} до {@link #MAX_STRENGTH}
+     */
+    public static int calibrate(Duration target) {
+        String salt = BCrypt.gensalt(MIN_STRENGTH);
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            BCrypt.hashpw("calibration", salt);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        int strength = MIN_STRENGTH;
+        long estimated = best;
+        while (strength < MAX_STRENGTH && estimated * 2 <= target.toNanos()) {
+            strength++;
+            estimated *= 2;
+        }
+        return strength;
+    }
+}
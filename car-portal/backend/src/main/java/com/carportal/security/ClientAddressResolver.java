@@ -0,0 +1,83 @@
+package com.carportal.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Определение IP-адреса клиента для ограничения частоты попыток входа.
+ * За балансировщиком адрес соединения — это адрес балансировщика, поэтому адрес клиента берется
+ * из заголовка X-Forwarded-For. Заголовку доверяется, только если соединение пришло от доверенного прокси:
+ * адреса заголовка просматриваются справа налево, доверенные прокси пропускаются, и первым адресом клиента
+ * считается первый недоверенный. Клиент, подключившийся напрямую, не может подменить адрес заголовком.
+ */
+@Component
+public class ClientAddressResolver {
+
+    private static final String FORWARDED_FOR = "X-Forwarded-For";
+
+    private final List<IpAddressMatcher> trustedProxies;
+
+    /**
+     * Создает определитель адреса клиента.
+     *
+     * @param trustedProxies адреса и подсети (CIDR) доверенных прокси и балансировщиков
+     */
+    public ClientAddressResolver(@Value("${carportal.security.trusted-proxies:127.0.0.0/8,::1,10.0.0.0/8,"
+            + "172.16.0.0/12,192.168.0.0/16}") String[] trustedProxies) {
+        this.trustedProxies = Arrays.stream(trustedProxies)
+                .map(String::trim)
+                .filter(proxy -> !proxy.isEmpty())
+                .map(IpAddressMatcher::new)
+                .toList();
+    }
+
+    /**
+     * Определяет IP-адрес клиента запроса.
+     *
+     * @param request HTTP запрос
+     * @return адрес клиента
+     */
+    public String resolve(HttpServletRequest request) {
+        String address = request.getRemoteAddr();
+        if (!isTrusted(address)) {
+            return address;
+        }
+        String forwardedFor = request.getHeader(FORWARDED_FOR);
+        if (forwardedFor == null || forwardedFor.isBlank()) {
+            return address;
+        }
+        String[] hops = forwardedFor.split(",");
+        for (int i = hops.length - 1; i >= 0; i--) {
+            String hop = hops[i].trim();
+            if (hop.isEmpty()) {
+                continue;
+            }
+            address = hop;
+            if (!isTrusted(hop)) {
+                return hop;
+            }
+        }
+        return address;
+    }
+
+    private boolean isTrusted(String address) {
+        if (address == null || address.isEmpty()) {
+            return false;
+        }
+        for (IpAddressMatcher proxy : trustedProxies) {
+            try {
+                if (proxy.matches(address)) {
+                    return true;
+                }
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+}
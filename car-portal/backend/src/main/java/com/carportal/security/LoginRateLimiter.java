@@ -0,0 +1,110 @@
+package com.carportal.security;
+
+import com.carportal.exception.TooManyRequestsException;
+import com.carportal.utils.ratelimit.TokenBucketRateLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ограничитель частоты попыток входа по имени пользователя и по IP-адресу клиента.
+ * Проверка выполняется до обращения к базе данных и проверки пароля BCrypt,
+ * поэтому перебор паролей не расходует процессорное время на хеширование.
+ * Сначала проверяется адрес клиента, затем имя пользователя: попытка, отклоненная по адресу,
+ * не расходует маркер пользователя, и атакующий не может этим заблокировать вход другим адресам.
+ */
+@Component
+public class LoginRateLimiter {
+
+    private static final String USERNAME = "username";
+    private static final String IP = "ip";
+
+    /** Максимальное количество отслеживаемых ключей каждого типа */
+    private static final int MAX_KEYS = 100_000;
+
+    private final TokenBucketRateLimiter byUsername;
+    private final TokenBucketRateLimiter byIp;
+    private final Counter throttledByUsername;
+    private final Counter throttledByIp;
+
+    /**
+     * Создает ограничитель попыток входа.
+     *
+     * @param usernameCapacity количество попыток подряд для одного имени пользователя
+     * @param usernameRefill время восстановления одной попытки для имени пользователя
+     * @param ipCapacity количество попыток подряд для одного адреса
+     * @param ipRefill время восстановления одной попытки для адреса
+     * @param meterRegistry реестр метрик
+     */
+    public LoginRateLimiter(@Value("${carportal.login.rate-limit.username.capacity:5}") int usernameCapacity,
+                            @Value("${carportal.login.rate-limit.username.refill:12s}") Duration usernameRefill,
+                            @Value("${carportal.login.rate-limit.ip.capacity:20}") int ipCapacity,
+                            @Value("${carportal.login.rate-limit.ip.refill:3s}") Duration ipRefill,
+                            MeterRegistry meterRegistry) {
+        this.byUsername = new TokenBucketRateLimiter(usernameCapacity, usernameRefill.toNanos(), MAX_KEYS);
+        this.byIp = new TokenBucketRateLimiter(ipCapacity, ipRefill.toNanos(), MAX_KEYS);
+        this.throttledByUsername = throttledCounter(meterRegistry, USERNAME);
+        this.throttledByIp = throttledCounter(meterRegistry, IP);
+        trackedKeysGauge(meterRegistry, USERNAME, byUsername);
+        trackedKeysGauge(meterRegistry, IP, byIp);
+    }
+
+    /**
+     * Учитывает попытку входа.
+     *
+     * @param username имя пользователя
+     * @param clientIp IP-адрес клиента
+     * @throws TooManyRequestsException если попыток для адреса или имени пользователя слишком много
+     */
+    public void acquire(String username, String clientIp) {
+        long now = System.nanoTime();
+
+        long wait = byIp.tryAcquire(clientIp == null ? "" : clientIp, now);
+        if (wait > 0) {
+            throttledByIp.increment();
+            throw tooManyAttempts(wait);
+        }
+
+        wait = byUsername.tryAcquire(username == null ? "" : username.trim().toLowerCase(Locale.ROOT), now);
+        if (wait > 0) {
+            throttledByUsername.increment();
+            throw tooManyAttempts(wait);
+        }
+    }
+
+    /**
+     * Периодически удаляет полностью восстановившиеся ведра, чтобы неактивные ключи не занимали память.
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public void evictIdle() {
+        long now = System.nanoTime();
+        byUsername.evictIdle(now);
+        byIp.evictIdle(now);
+    }
+
+    private static TooManyRequestsException tooManyAttempts(long waitNanos) {
+        long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        return new TooManyRequestsException("Слишком много попыток входа. Повторите через " + seconds + " с", seconds);
+    }
+
+    private static Counter throttledCounter(MeterRegistry meterRegistry, String key) {
+        return Counter.builder("carportal.login.throttled")
+                .description("Попытки входа, отклоненные ограничителем частоты")
+                .tag("key", key)
+                .register(meterRegistry);
+    }
+
+    private static void trackedKeysGauge(MeterRegistry meterRegistry, String key, TokenBucketRateLimiter limiter) {
+        Gauge.builder("carportal.login.throttle.keys", limiter, TokenBucketRateLimiter::size)
+                .description("Количество отслеживаемых ключей ограничителя попыток входа")
+                .tag("key", key)
+                .register(meterRegistry);
+    }
+}
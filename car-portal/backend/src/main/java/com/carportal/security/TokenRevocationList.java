@@ -0,0 +1,112 @@
+package com.carportal.security;
+
+import com.carportal.cache.CacheInvalidationBus;
+import com.carportal.cache.CacheRegion;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Список отзыва токенов доступа.
+ * Вместо идентификаторов отдельных токенов хранится одна отметка времени на пользователя: все его токены,
+ * выпущенные не позже отметки, недействительны. Отметка нужна только в течение времени жизни токена доступа,
+ * поэтому список содержит лишь пользователей, токены которых отзывались за последние несколько минут.
+ * Проверка выполняется по копии списка в памяти; отметки записываются в базу данных
+ * и загружаются оттуда по сообщению шины сброса кешей, чтобы отзыв на одном экземпляре приложения
+ * действовал на всех. Периодическая загрузка списка восполняет сообщения, которые могли быть потеряны.
+ */
+@Component
+@Slf4j
+public class TokenRevocationList {
+
+    private static final String UPSERT_REVOCATION = "INSERT INTO token_revocations (user_id, revoked_before) "
+            + "VALUES (?, ?) ON CONFLICT (user_id) DO UPDATE "
+            + "SET revoked_before = GREATEST(token_revocations.revoked_before, EXCLUDED.revoked_before)";
+    private static final String DELETE_OUTDATED = "DELETE FROM token_revocations WHERE revoked_before < ?";
+    private static final String SELECT_REVOCATIONS = "SELECT user_id, revoked_before FROM token_revocations";
+    private static final String SELECT_USER_REVOCATION =
+            "SELECT user_id, revoked_before FROM token_revocations WHERE user_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CacheInvalidationBus invalidationBus;
+    private final long accessTtlMillis;
+    private final Map<Long, Long> revokedBefore = new ConcurrentHashMap<>();
+
+    /**
+     * Создает список отзыва.
+     *
+     * @param jdbcTemplate шаблон JDBC
+     * @param accessTtl время жизни токена доступа
+     * @param invalidationBus шина сброса кешей между экземплярами приложения
+     */
+    public TokenRevocationList(JdbcTemplate jdbcTemplate,
+                               @Value("${carportal.security.token.access-ttl:15m}") Duration accessTtl,
+                               CacheInvalidationBus invalidationBus) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.invalidationBus = invalidationBus;
+        this.accessTtlMillis = accessTtl.toMillis();
+        invalidationBus.subscribe(CacheRegion.TOKEN_REVOCATIONS, this::reload);
+    }
+
+    /**
+     * Проверяет, отозван ли токен.
+     *
+     * @param token данные токена
+     * @return true, если токен выпущен не позже отзыва токенов пользователя
+     */
+    public boolean isRevoked(AccessToken token) {
+        Long cutoff = revokedBefore.get(token.getUserId());
+        return cutoff != null && token.getIssuedAt() <= cutoff;
+    }
+
+    /**
+     * Отзывает все токены доступа пользователя, выпущенные к текущему моменту.
+     * На этом экземпляре приложения отзыв действует сразу, на остальных — после получения сообщения шины.
+     *
+     * @param userId идентификатор пользователя
+     */
+    public void revoke(Long userId) {
+        long now = System.currentTimeMillis();
+        revokedBefore.merge(userId, now, Math::max);
+        jdbcTemplate.update(UPSERT_REVOCATION, userId, now);
+        invalidationBus.publish(CacheRegion.TOKEN_REVOCATIONS, userId);
+    }
+
+    /**
+     * Загружает отметки отзыва из базы данных и удаляет отметки, пережившие все отозванные ими токены.
+     */
+    @Scheduled(fixedDelayString = "${carportal.security.token.revocation-sync-interval-ms:60000}")
+    public void synchronize() {
+        long horizon = System.currentTimeMillis() - accessTtlMillis;
+        try {
+            jdbcTemplate.update(DELETE_OUTDATED, horizon);
+            jdbcTemplate.query(SELECT_REVOCATIONS, resultSet -> {
+                revokedBefore.merge(resultSet.getLong("user_id"), resultSet.getLong("revoked_before"), Math::max);
+            });
+        } catch (RuntimeException e) {
+            log.error("Ошибка загрузки списка отзыва токенов: {}", e.getMessage());
+        }
+        revokedBefore.values().removeIf(cutoff -> cutoff < horizon);
+    }
+
+    /**
+     * Загружает отметку отзыва, записанную другим экземпляром приложения.
+     *
+     * @param userId идентификатор пользователя или null, если нужно загрузить весь список
+     */
+    private void reload(String userId) {
+        if (userId == null) {
+            synchronize();
+            return;
+        }
+        jdbcTemplate.query(SELECT_USER_REVOCATION, resultSet -> {
+            revokedBefore.merge(resultSet.getLong("user_id"), resultSet.getLong("revoked_before"), Math::max);
+        }, Long.parseLong(userId));
+    }
+}
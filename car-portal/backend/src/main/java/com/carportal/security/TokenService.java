@@ -0,0 +1,198 @@
+package com.carportal.security;
+
+import com.carportal.exception.InvalidTokenException;
+import com.carportal.models.enums.UserRole;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Сервис токенов для входа без сессии.
+ * Короткоживущий токен доступа подписан и проверяется без обращения к базе данных и хранилищу сессий.
+ * Долгоживущий токен обновления — случайная строка, хеш которой хранится в базе данных; он одноразовый:
+ * при обмене на новую пару токенов прежний удаляется.
+ */
+@Component
+@Slf4j
+public class TokenService {
+
+    /** Длина токена обновления в байтах */
+    private static final int REFRESH_TOKEN_LENGTH = 32;
+
+    private static final String INSERT_REFRESH_TOKEN =
+            "INSERT INTO refresh_tokens (token_hash, user_id, expires_at) VALUES (?, ?, ?)";
+    private static final String CONSUME_REFRESH_TOKEN =
+            "DELETE FROM refresh_tokens WHERE token_hash = ? RETURNING user_id, expires_at";
+    private static final String DELETE_USER_REFRESH_TOKENS = "DELETE FROM refresh_tokens WHERE user_id = ?";
+    private static final String DELETE_EXPIRED_REFRESH_TOKENS = "DELETE FROM refresh_tokens WHERE expires_at < ?";
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final AccessTokenCodec codec;
+    private final TokenRevocationList revocationList;
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration accessTtl;
+    private final Duration refreshTtl;
+    private final SecureRandom random = new SecureRandom();
+    private final List<List<GrantedAuthority>> roleAuthorities;
+
+    /**
+     * Создает сервис токенов.
+     *
+     * @param secret ключ подписи токенов доступа в кодировке Base64 (пустой - случайный ключ)
+     * @param accessTtl время жизни токена доступа
+     * @param refreshTtl время жизни токена обновления
+     * @param revocationList список отзыва токенов доступа
+     * @param jdbcTemplate шаблон JDBC
+     */
+    public TokenService(@Value("${carportal.security.token.secret:}") String secret,
+                        @Value("${carportal.security.token.access-ttl:15m}") Duration accessTtl,
+                        @Value("${carportal.security.token.refresh-ttl:30d}") Duration refreshTtl,
+                        TokenRevocationList revocationList, JdbcTemplate jdbcTemplate) {
+        this.codec = new AccessTokenCodec(signingKey(secret));
+        this.accessTtl = accessTtl;
+        this.refreshTtl = refreshTtl;
+        this.revocationList = revocationList;
+        this.jdbcTemplate = jdbcTemplate;
+        this.roleAuthorities = Arrays.stream(UserRole.values())
+                .map(role -> List.<GrantedAuthority>of(new SimpleGrantedAuthority("ROLE_" + role.name())))
+                .toList();
+    }
+
+    /**
+     * Выпускает токен доступа.
+     *
+     * @param userId идентификатор пользователя
+     * @param role роль пользователя
+     * @return токен доступа
+     */
+    public String issueAccessToken(Long userId, UserRole role) {
+        long now = System.currentTimeMillis();
+        return codec.encode(new AccessToken(userId, role, now, now + accessTtl.toMillis()));
+    }
+
+    /**
+     * Выпускает токен обновления и сохраняет его хеш.
+     *
+     * @param userId идентификатор пользователя
+     * @return токен обновления
+     */
+    public String issueRefreshToken(Long userId) {
+        byte[] token = new byte[REFRESH_TOKEN_LENGTH];
+        random.nextBytes(token);
+        String encoded = ENCODER.encodeToString(token);
+        jdbcTemplate.update(INSERT_REFRESH_TOKEN, hash(encoded), userId,
+                System.currentTimeMillis() + refreshTtl.toMillis());
+        return encoded;
+    }
+
+    /**
+     * Получает время жизни токена доступа.
+     *
+     * @return время жизни токена доступа
+     */
+    public Duration getAccessTtl() {
+        return accessTtl;
+    }
+
+    /**
+     * Проверяет токен доступа.
+     *
+     * @param accessToken токен доступа
+     * @return аутентификация с данными токена в качестве субъекта или null, если токен недействителен
+     */
+    public Authentication authenticate(String accessToken) {
+        AccessToken token = codec.decode(accessToken, System.currentTimeMillis());
+        if (token == null || revocationList.isRevoked(token)) {
+            return null;
+        }
+        return UsernamePasswordAuthenticationToken.authenticated(token, null,
+                roleAuthorities.get(token.getRole().ordinal()));
+    }
+
+    /**
+     * Погашает токен обновления: удаляет его, чтобы он не мог быть использован повторно.
+     *
+     * @param refreshToken токен обновления
+     * @return идентификатор пользователя, которому выпущен токен
+     * @throws InvalidTokenException если токен неизвестен, уже использован или истек
+     */
+    public Long consumeRefreshToken(String refreshToken) {
+        if (refreshToken == null || refreshToken.isEmpty()) {
+            throw InvalidTokenException.INVALID_REFRESH_TOKEN;
+        }
+        long now = System.currentTimeMillis();
+        List<Long> userIds = jdbcTemplate.query(CONSUME_REFRESH_TOKEN,
+                (resultSet, rowNum) -> resultSet.getLong("expires_at") > now ? resultSet.getLong("user_id") : null,
+                (Object) hash(refreshToken));
+        if (userIds.isEmpty() || userIds.get(0) == null) {
+            throw InvalidTokenException.INVALID_REFRESH_TOKEN;
+        }
+        return userIds.get(0);
+    }
+
+    /**
+     * Отзывает токены доступа пользователя, например после изменения его роли.
+     * Токены обновления остаются действительными: новый токен доступа будет выпущен уже с новой ролью.
+     *
+     * @param userId идентификатор пользователя
+     */
+    public void revokeAccessTokens(Long userId) {
+        revocationList.revoke(userId);
+    }
+
+    /**
+     * Отзывает все токены пользователя, например после смены пароля.
+     *
+     * @param userId идентификатор пользователя
+     */
+    public void revokeAllTokens(Long userId) {
+        jdbcTemplate.update(DELETE_USER_REFRESH_TOKENS, userId);
+        revocationList.revoke(userId);
+    }
+
+    /**
+     * Удаляет истекшие токены обновления.
+     */
+    @Scheduled(fixedDelayString = "${carportal.security.token.cleanup-interval-ms:3600000}")
+    public void cleanUpExpiredRefreshTokens() {
+        int deleted = jdbcTemplate.update(DELETE_EXPIRED_REFRESH_TOKENS, System.currentTimeMillis());
+        if (deleted > 0) {
+            log.debug("Удалено истекших токенов обновления: {}", deleted);
+        }
+    }
+
+    private static byte[] signingKey(String secret) {
+        if (secret == null || secret.isBlank()) {
+            log.warn("Ключ подписи токенов (carportal.security.token.secret) не задан: используется случайный ключ, "
+                    + "токены доступа недействительны после перезапуска и на других экземплярах приложения");
+            byte[] key = new byte[AccessTokenCodec.MIN_KEY_LENGTH];
+            new SecureRandom().nextBytes(key);
+            return key;
+        }
+        return Base64.getDecoder().decode(secret.trim());
+    }
+
+    private static byte[] hash(String token) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.carportal.security;
+
+import com.carportal.cache.CacheInvalidationBus;
+import com.carportal.cache.CacheRegion;
+import com.carportal.metrics.CacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Кеш данных пользователей для аутентификации с ограниченным временем жизни записей.
+ * Позволяет провайдеру аутентификации не загружать пользователя из базы данных при повторных входах.
+ * Хеш пароля по-прежнему проверяется при каждом входе; при несовпадении пароля провайдер
+ * повторно загружает пользователя из базы данных, поэтому устаревшая запись не мешает входу с новым паролем.
+ * Запись удаляется явно при изменении имени, пароля или роли пользователя,
+ * в том числе на других экземплярах приложения через шину сброса кешей.
+ */
+@Component
+public class TtlUserCache implements UserCache {
+
+    /** Максимальное количество записей кеша */
+    private static final int MAX_ENTRIES = 10_000;
+
+    private final long ttlNanos;
+    private final CacheMetrics cacheMetrics;
+    private final CacheInvalidationBus invalidationBus;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Создает кеш данных пользователей.
+     *
+     * @param ttl время жизни записи
+     * @param cacheMetrics счетчики кешей
+     * @param invalidationBus шина сброса кешей между экземплярами приложения
+     */
+    public TtlUserCache(@Value("${carportal.security.user-cache-ttl:60s}") Duration ttl, CacheMetrics cacheMetrics,
+                        CacheInvalidationBus invalidationBus) {
+        this.ttlNanos = ttl.toNanos();
+        this.cacheMetrics = cacheMetrics;
+        this.invalidationBus = invalidationBus;
+        invalidationBus.subscribe(CacheRegion.USERS, username -> {
+            if (username == null) {
+                entries.clear();
+            } else {
+                removeUserFromCache(username);
+            }
+        });
+    }
+
+    /**
+     * Получает данные пользователя из кеша.
+     * Возвращается новый экземпляр: менеджер аутентификации стирает пароль в возвращенном объекте после входа.
+     * Идентификатор пользователя сохраняется, если он был в сохраненных данных.
+     *
+     * @param username имя пользователя
+     * @return данные пользователя или null, если записи нет или она устарела
+     */
+    @Override
+    public UserDetails getUserFromCache(String username) {
+        Entry entry = entries.get(username);
+        if (entry == null || entry.expiresAt - System.nanoTime() <= 0) {
+            cacheMetrics.miss("user-details");
+            return null;
+        }
+        cacheMetrics.hit("user-details");
+        if (entry.id != null) {
+            return new AuthenticatedUser(entry.id, entry.username, entry.password, entry.authorities);
+        }
+        return User.withUsername(entry.username)
+                .password(entry.password)
+                .authorities(entry.authorities)
+                .build();
+    }
+
+    /**
+     * Сохраняет данные пользователя в кеше.
+     * При заполнении кеша сначала удаляются устаревшие записи; если места все равно нет, запись не сохраняется.
+     *
+     * @param user данные пользователя
+     */
+    @Override
+    public void putUserInCache(UserDetails user) {
+        long now = System.nanoTime();
+        if (entries.size() >= MAX_ENTRIES) {
+            entries.values().removeIf(entry -> entry.expiresAt - now <= 0);
+            if (entries.size() >= MAX_ENTRIES) {
+                return;
+            }
+        }
+        Long id = user instanceof AuthenticatedUser authenticated ? authenticated.getId() : null;
+        entries.put(user.getUsername(), new Entry(id, user.getUsername(), user.getPassword(),
+                List.copyOf(user.getAuthorities()), now + ttlNanos));
+    }
+
+    /**
+     * Удаляет данные пользователя из кеша.
+     *
+     * @param username имя пользователя
+     */
+    @Override
+    public void removeUserFromCache(String username) {
+        entries.remove(username);
+    }
+
+    /**
+     * Удаляет данные пользователя из кеша сразу и повторно после фиксации текущей транзакции:
+     * вход, выполненный до фиксации, мог снова поместить в кеш прежние данные.
+     * Другие экземпляры приложения удаляют запись после фиксации транзакции.
+     *
+     * @param username имя пользователя
+     */
+    public void evict(String username) {
+        removeUserFromCache(username);
+        invalidationBus.publish(CacheRegion.USERS, username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    removeUserFromCache(username);
+                }
+            });
+        }
+    }
+
+    /**
+     * Запись кеша. Хранит копию данных, а не переданный объект, так как его пароль может быть стерт.
+     */
+    private static final class Entry {
+
+        private final Long id;
+        private final String username;
+        private final String password;
+        private final Collection<? extends GrantedAuthority> authorities;
+        private final long expiresAt;
+
+        private Entry(Long id, String username, String password, Collection<? extends GrantedAuthority> authorities,
+                      long expiresAt) {
+            this.id = id;
+            this.username = username;
+            this.password = password;
+            this.authorities = authorities;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -5,27 +5,32 @@ import com.carportal.repository.UserRepository;
 import lombok.AllArgsConstructor;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
 /**
  * Реализация сервиса для загрузки данных пользователя для аутентификации.
- * Используется Spring Security для аутентификации пользователей.
+ * Используется Spring Security для аутентификации пользователей,
+ * а также для замены хеша пароля, созданного с устаревшей стоимостью BCrypt, после успешного входа.
+ * Данные пользователя содержат его идентификатор ({@link AuthenticatedUser}).
  */
 @Service
 @AllArgsConstructor
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
+    private final TtlUserCache userCache;
 
     /**
      * Загружает данные пользователя по имени пользователя.
      *
      * @param username имя пользователя
-     * @return детали пользователя для аутентификации
+     * @return детали пользователя для аутентификации с идентификатором пользователя
      * @throws UsernameNotFoundException если пользователь не найден
      */
     @Override
@@ -33,10 +38,29 @@ public class UserDetailsServiceImpl implements UserDetailsService {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("Пользователь не найден: " + username));
 
-        return org.springframework.security.core.userdetails.User.builder()
-                .username(user.getUsername())
-                .password(user.getPassword())
-                .authorities(List.of(new SimpleGrantedAuthority("ROLE_" + user.getRole().name())))
+        return new AuthenticatedUser(user.getId(), user.getUsername(), user.getPassword(),
+                List.of(new SimpleGrantedAuthority("ROLE_" + user.getRole().name())));
+    }
+
+    /**
+     * Сохраняет новый хеш пароля пользователя.
+     * Вызывается провайдером аутентификации после успешного входа, если хеш создан с меньшей стоимостью,
+     * чем текущая. Запись кеша удаляется, иначе каждый вход до ее устаревания повторял бы перехеширование.
+     *
+     * @param user данные пользователя
+     * @param newPassword новый хеш пароля
+     * @return данные пользователя с новым хешем пароля
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.updatePassword(user.getUsername(), newPassword);
+        userCache.evict(user.getUsername());
+        if (user instanceof AuthenticatedUser authenticated) {
+            return new AuthenticatedUser(authenticated.getId(), user.getUsername(), newPassword, user.getAuthorities());
+        }
+        return org.springframework.security.core.userdetails.User.withUserDetails(user)
+                .password(newPassword)
                 .build();
     }
-}
\ No newline at end of file
+}
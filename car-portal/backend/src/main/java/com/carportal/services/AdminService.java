@@ -6,9 +6,15 @@ import com.carportal.dto.request.NewsRequestDTO;
 import com.carportal.dto.response.CarResponseDTO;
 import com.carportal.dto.response.NewsResponseDTO;
 import com.carportal.dto.response.UserResponseDTO;
+import com.carportal.events.CarChangedEvent;
+import com.carportal.events.ChangeType;
+import com.carportal.events.FavoriteChangedEvent;
+import com.carportal.events.NewsChangedEvent;
+import com.carportal.events.UserChangedEvent;
 import com.carportal.exception.EntityAlreadyExistsException;
 import com.carportal.exception.EntityNotFoundException;
 import com.carportal.exception.ValidateException;
+import com.carportal.metrics.ImageIoMetrics;
 import com.carportal.models.Car;
 import com.carportal.models.News;
 import com.carportal.models.User;
@@ -18,6 +24,8 @@ import com.carportal.repository.CarRepository;
 import com.carportal.repository.FavoriteRepository;
 import com.carportal.repository.NewsRepository;
 import com.carportal.repository.UserRepository;
+import com.carportal.security.TokenService;
+import com.carportal.security.TtlUserCache;
 import com.carportal.utils.mapper.CarMapper;
 import com.carportal.utils.mapper.NewsMapper;
 import com.carportal.utils.mapper.UserMapper;
@@ -26,6 +34,7 @@ import com.carportal.utils.validation.UserParamsValidator;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.EnumUtils;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -35,6 +44,8 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
@@ -55,12 +66,17 @@ public class AdminService {
     private final NewsRepository newsRepository;
     private final PasswordEncoder passwordEncoder;
     private final UtilsSecurity utilsSecurity;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ImageIoMetrics imageIoMetrics;
+    private final TtlUserCache userCache;
+    private final TokenService tokenService;
 
     /**
      * Получает всех пользователей системы.
      *
      * @return список пользователей в формате UserResponseDTO
      */
+    @Transactional(readOnly = true)
     public List<UserResponseDTO> getAllUsers() {
         List<User> users = userRepository.findAll();
         return users.stream()
@@ -74,6 +90,7 @@ public class AdminService {
      * @param currentUserId ID текущего пользователя (администратора)
      * @return список пользователей без текущего
      */
+    @Transactional(readOnly = true)
     public List<UserResponseDTO> getAllUsersExcludingCurrent(Long currentUserId) {
         List<User> users = userRepository.findAll();
         return users.stream()
@@ -91,24 +108,28 @@ public class AdminService {
      */
     public UserResponseDTO editUser(Long userId, AdminUserEditDTO userEditDTO) {
         User user = userRepository.findById(userId)
-                .orElseThrow(() -> new EntityNotFoundException("Пользователь не найден!"));
+                .orElseThrow(() -> EntityNotFoundException.USER_NOT_FOUND);
 
         if (!Objects.equals(userId, user.getId())) {
             throw new EntityNotFoundException("Ошибка поиска пользователя...");
         }
+        userCache.evict(user.getUsername());
 
         if (!user.getUsername().equals(userEditDTO.getUsername())) {
             if (userRepository.findByUsername(userEditDTO.getUsername()).isPresent()) {
                 throw new EntityAlreadyExistsException("Пользователь", "имя", userEditDTO.getUsername());
             }
             UserParamsValidator.usernameValidate(userEditDTO.getUsername());
+            String oldUsername = user.getUsername();
             user.setUsername(userEditDTO.getUsername());
+            publishAuthorRenamed(user, oldUsername);
         }
 
         if (userEditDTO.getPassword() != null && !userEditDTO.getPassword().isEmpty() &&
                 !passwordEncoder.matches(userEditDTO.getPassword(), user.getPassword())) {
             UserParamsValidator.passwordValidate(userEditDTO.getPassword());
             user.setPassword(passwordEncoder.encode(userEditDTO.getPassword()));
+            tokenService.revokeAllTokens(user.getId());
         }
 
         if (!user.getEmail().equals(userEditDTO.getEmail())) {
@@ -120,22 +141,24 @@ public class AdminService {
         }
 
         if (!EnumUtils.isValidEnum(UserRole.class, userEditDTO.getRole())) {
-            throw new ValidateException("Такой роли не существует!");
+            throw ValidateException.UNKNOWN_ROLE;
+        }
+        UserRole role = UserRole.valueOf(userEditDTO.getRole());
+        if (role != user.getRole()) {
+            tokenService.revokeAccessTokens(user.getId());
+            eventPublisher.publishEvent(new UserChangedEvent(ChangeType.UPDATED, user.getId(), user.getRole(), role));
+            user.setRole(role);
         }
-        user.setRole(UserRole.valueOf(userEditDTO.getRole()));
 
         String newPhone = userEditDTO.getPhone();
         if (newPhone != null && newPhone.trim().isEmpty()) {
             newPhone = null;
         }
 
-        final String finalPhone = newPhone;
-
         if (newPhone != null ? !newPhone.equals(user.getPhone()) : user.getPhone() != null) {
             if (newPhone != null) {
-                if (userRepository.findAll().stream()
-                        .anyMatch(u -> finalPhone.equals(u.getPhone()) && !u.getId().equals(user.getId()))) {
-                    throw new EntityAlreadyExistsException("Пользователь с таким телефоном уже существует!");
+                if (userRepository.existsByPhoneAndIdNot(newPhone, user.getId())) {
+                    throw EntityAlreadyExistsException.PHONE_TAKEN;
                 }
                 UserParamsValidator.phoneValidate(newPhone);
             }
@@ -153,13 +176,22 @@ public class AdminService {
      */
     public void deleteUser(Long userId) {
         User user = userRepository.findById(userId)
-                .orElseThrow(() -> new EntityNotFoundException("Пользователь не найден!"));
+                .orElseThrow(() -> EntityNotFoundException.USER_NOT_FOUND);
 
-        favoriteRepository.findByUser(user).forEach(favorite ->
-                favoriteRepository.delete(favorite)
+        userCache.evict(user.getUsername());
+        tokenService.revokeAccessTokens(user.getId());
+        int removedFavorites = favoriteRepository.deleteAllByUser(user);
+        if (removedFavorites > 0) {
+            eventPublisher.publishEvent(new FavoriteChangedEvent(ChangeType.DELETED, removedFavorites, null));
+        }
+
+        user.getCars().forEach(car ->
+                eventPublisher.publishEvent(new CarChangedEvent(ChangeType.DELETED, car.getId(),
+                        CarMapper.carToCarResponseDTO(car), null))
         );
 
         userRepository.delete(user);
+        eventPublisher.publishEvent(new UserChangedEvent(ChangeType.DELETED, userId, user.getRole(), null));
     }
 
     /**
@@ -172,7 +204,7 @@ public class AdminService {
     @Transactional
     public String changeUserAvatar(Long userId, MultipartFile file) {
         User user = userRepository.findById(userId)
-                .orElseThrow(() -> new EntityNotFoundException("Пользователь не найден!"));
+                .orElseThrow(() -> EntityNotFoundException.USER_NOT_FOUND);
 
         log.info("Администратор {} меняет аватар пользователя: {}",
                 utilsSecurity.getCurrentUser().getUsername(), user.getUsername());
@@ -190,7 +222,7 @@ public class AdminService {
                     String oldFileName = oldAvatar.substring(oldAvatar.lastIndexOf("/") + 1);
                     Path oldFilePath = uploadPath.resolve(oldFileName);
                     if (Files.exists(oldFilePath)) {
-                        Files.delete(oldFilePath);
+                        imageIoMetrics.record(ImageIoMetrics.DELETE, () -> Files.delete(oldFilePath));
                         log.info("Старый аватар удален: {}", oldFileName);
                     }
                 } catch (Exception e) {
@@ -208,7 +240,7 @@ public class AdminService {
             String fileName = user.getUsername() + "_admin_" + timestamp + fileExtension;
             Path filePath = uploadPath.resolve(fileName);
 
-            file.transferTo(filePath.toFile());
+            imageIoMetrics.record(ImageIoMetrics.WRITE, () -> file.transferTo(filePath.toFile()));
 
             String avatarUrl = "http://localhost:8080/images/userImages/" + fileName;
             user.setAvatar(avatarUrl);
@@ -232,7 +264,7 @@ public class AdminService {
     @Transactional
     public String deleteUserAvatar(Long userId) {
         User user = userRepository.findById(userId)
-                .orElseThrow(() -> new EntityNotFoundException("Пользователь не найден!"));
+                .orElseThrow(() -> EntityNotFoundException.USER_NOT_FOUND);
 
         log.info("Администратор {} удаляет аватар пользователя: {}",
                 utilsSecurity.getCurrentUser().getUsername(), user.getUsername());
@@ -247,7 +279,7 @@ public class AdminService {
                     Path filePath = Paths.get(uploadDir, fileName);
 
                     if (Files.exists(filePath)) {
-                        Files.delete(filePath);
+                        imageIoMetrics.record(ImageIoMetrics.DELETE, () -> Files.delete(filePath));
                         log.info("Файл аватара удален: {}", fileName);
                     }
                 } catch (Exception e) {
@@ -273,6 +305,7 @@ public class AdminService {
      *
      * @return список автомобилей в формате CarResponseDTO
      */
+    @Transactional(readOnly = true)
     public List<CarResponseDTO> getAllCars() {
         List<Car> cars = carRepository.findAll();
         return cars.stream()
@@ -289,7 +322,9 @@ public class AdminService {
     public CarResponseDTO addCar(CarRequestDTO carRequestDTO) {
         Car car = CarMapper.carRequestDTOtoCar(carRequestDTO);
         Car savedCar = carRepository.save(car);
-        return CarMapper.carToCarResponseDTO(savedCar);
+        CarResponseDTO savedCarDTO = CarMapper.carToCarResponseDTO(savedCar);
+        eventPublisher.publishEvent(new CarChangedEvent(ChangeType.ADDED, savedCar.getId(), null, savedCarDTO));
+        return savedCarDTO;
     }
 
     /**
@@ -301,15 +336,23 @@ public class AdminService {
      */
     public CarResponseDTO editCar(Long carId, CarRequestDTO carRequestDTO) {
         Car car = carRepository.findById(carId)
-                .orElseThrow(() -> new EntityNotFoundException("Автомобиль не найден!"));
+                .orElseThrow(() -> EntityNotFoundException.CAR_NOT_FOUND);
 
         if (!Objects.equals(carId, car.getId())) {
             throw new EntityNotFoundException("Ошибка поиска автомобиля...");
         }
 
+        CarResponseDTO previous = CarMapper.carToCarResponseDTO(car);
         CarMapper.updateCarFromDTO(carRequestDTO, car);
-        Car updatedCar = carRepository.save(car);
-        return CarMapper.carToCarResponseDTO(updatedCar);
+        if (car.getPrice() < previous.getPrice()) {
+            // С точностью столбца timestamp: событие и снимки каталога совпадают с сохраненным значением
+            car.setPriceDroppedAt(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+        }
+        // Сброс выполняет привязку марки и модели к справочнику: событие получает их канонические написания
+        Car updatedCar = carRepository.saveAndFlush(car);
+        CarResponseDTO updatedCarDTO = CarMapper.carToCarResponseDTO(updatedCar);
+        eventPublisher.publishEvent(new CarChangedEvent(ChangeType.UPDATED, updatedCar.getId(), previous, updatedCarDTO));
+        return updatedCarDTO;
     }
 
     /**
@@ -319,9 +362,11 @@ public class AdminService {
      */
     public void deleteCar(Long carId) {
         Car car = carRepository.findById(carId)
-                .orElseThrow(() -> new EntityNotFoundException("Автомобиль не найден!"));
+                .orElseThrow(() -> EntityNotFoundException.CAR_NOT_FOUND);
 
+        CarResponseDTO previous = CarMapper.carToCarResponseDTO(car);
         carRepository.delete(car);
+        eventPublisher.publishEvent(new CarChangedEvent(ChangeType.DELETED, carId, previous, null));
     }
 
     /**
@@ -334,7 +379,7 @@ public class AdminService {
     @Transactional
     public String uploadCarImage(Long carId, MultipartFile file) {
         Car car = carRepository.findById(carId)
-                .orElseThrow(() -> new EntityNotFoundException("Автомобиль не найден!"));
+                .orElseThrow(() -> EntityNotFoundException.CAR_NOT_FOUND);
 
         log.info("Загрузка изображения для автомобиля {}: {}", carId, car.getBrand() + " " + car.getModel());
 
@@ -351,7 +396,7 @@ public class AdminService {
                     String oldFileName = oldImage.substring(oldImage.lastIndexOf("/") + 1);
                     Path oldFilePath = uploadPath.resolve(oldFileName);
                     if (Files.exists(oldFilePath)) {
-                        Files.delete(oldFilePath);
+                        imageIoMetrics.record(ImageIoMetrics.DELETE, () -> Files.delete(oldFilePath));
                         log.info("Старое изображение автомобиля удалено: {}", oldFileName);
                     }
                 } catch (Exception e) {
@@ -369,11 +414,14 @@ public class AdminService {
             String fileName = car.getBrand() + "_" + car.getModel() + "_" + carId + "_" + timestamp + fileExtension;
             Path filePath = uploadPath.resolve(fileName);
 
-            file.transferTo(filePath.toFile());
+            imageIoMetrics.record(ImageIoMetrics.WRITE, () -> file.transferTo(filePath.toFile()));
 
             String imageUrl = "http://localhost:8080/images/carImages/" + fileName;
+            CarResponseDTO previous = CarMapper.carToCarResponseDTO(car);
             car.setImageUrl(imageUrl);
             carRepository.save(car);
+            eventPublisher.publishEvent(new CarChangedEvent(ChangeType.UPDATED, carId,
+                    previous, CarMapper.carToCarResponseDTO(car)));
 
             log.info("Изображение автомобиля успешно загружено: {}", fileName);
             return imageUrl;
@@ -411,7 +459,7 @@ public class AdminService {
             String fileName = "new_car_" + timestamp + fileExtension;
             Path filePath = uploadPath.resolve(fileName);
 
-            file.transferTo(filePath.toFile());
+            imageIoMetrics.record(ImageIoMetrics.WRITE, () -> file.transferTo(filePath.toFile()));
 
             String imageUrl = "http://localhost:8080/images/carImages/" + fileName;
             log.info("Изображение для нового автомобиля успешно загружено: {}", fileName);
@@ -432,7 +480,7 @@ public class AdminService {
     @Transactional
     public String deleteCarImage(Long carId) {
         Car car = carRepository.findById(carId)
-                .orElseThrow(() -> new EntityNotFoundException("Автомобиль не найден!"));
+                .orElseThrow(() -> EntityNotFoundException.CAR_NOT_FOUND);
 
         log.info("Удаление изображения автомобиля {}: {}", carId, car.getBrand() + " " + car.getModel());
 
@@ -446,7 +494,7 @@ public class AdminService {
                     Path filePath = Paths.get(uploadDir, fileName);
 
                     if (Files.exists(filePath)) {
-                        Files.delete(filePath);
+                        imageIoMetrics.record(ImageIoMetrics.DELETE, () -> Files.delete(filePath));
                         log.info("Файл изображения автомобиля удален: {}", fileName);
                     }
                 } catch (Exception e) {
@@ -455,8 +503,11 @@ public class AdminService {
             }
 
             String defaultImageUrl = "http://localhost:8080/images/carImages/default-car.jpg";
+            CarResponseDTO previous = CarMapper.carToCarResponseDTO(car);
             car.setImageUrl(defaultImageUrl);
             carRepository.save(car);
+            eventPublisher.publishEvent(new CarChangedEvent(ChangeType.UPDATED, carId,
+                    previous, CarMapper.carToCarResponseDTO(car)));
 
             log.info("Изображение автомобиля успешно сброшено к дефолтному");
             return defaultImageUrl;
@@ -472,6 +523,7 @@ public class AdminService {
      *
      * @return список новостей в формате NewsResponseDTO
      */
+    @Transactional(readOnly = true)
     public List<NewsResponseDTO> getAllNews() {
         try {
             log.info("Загрузка всех новостей для администратора");
@@ -515,6 +567,8 @@ public class AdminService {
         User user = utilsSecurity.getCurrentUser();
         News news = NewsMapper.newsRequestDTOtoNews(newsRequestDTO, user);
         News savedNews = newsRepository.save(news);
+        eventPublisher.publishEvent(new NewsChangedEvent(ChangeType.ADDED, savedNews.getId(),
+                null, savedNews.getDate()));
         return NewsMapper.newsToNewsResponseDTO(savedNews);
     }
 
@@ -527,13 +581,16 @@ public class AdminService {
      */
     public NewsResponseDTO editNews(Long newsId, NewsRequestDTO newsRequestDTO) {
         News news = newsRepository.findById(newsId)
-                .orElseThrow(() -> new EntityNotFoundException("Новость не найдена!"));
+                .orElseThrow(() -> EntityNotFoundException.NEWS_NOT_FOUND);
 
+        LocalDate previousDate = news.getDate();
         news.setTitle(newsRequestDTO.getTitle());
         news.setContent(newsRequestDTO.getContent());
         news.setDate(LocalDate.now());
 
         News updatedNews = newsRepository.save(news);
+        eventPublisher.publishEvent(new NewsChangedEvent(ChangeType.UPDATED, updatedNews.getId(),
+                previousDate, updatedNews.getDate()));
         return NewsMapper.newsToNewsResponseDTO(updatedNews);
     }
 
@@ -544,8 +601,26 @@ public class AdminService {
      */
     public void deleteNews(Long newsId) {
         News news = newsRepository.findById(newsId)
-                .orElseThrow(() -> new EntityNotFoundException("Новость не найдена!"));
+                .orElseThrow(() -> EntityNotFoundException.NEWS_NOT_FOUND);
 
         newsRepository.delete(news);
+        eventPublisher.publishEvent(new NewsChangedEvent(ChangeType.DELETED, newsId, news.getDate(), null));
+    }
+
+    /**
+     * Публикует события об изменении данных, в которых отображается имя пользователя:
+     * автомобилей, где он указан продавцом, и новостей, где он указан автором.
+     *
+     * @param user пользователь, сменивший имя
+     * @param oldUsername прежнее имя пользователя
+     */
+    private void publishAuthorRenamed(User user, String oldUsername) {
+        user.getCars().forEach(car -> {
+            CarResponseDTO previous = CarMapper.carToCarResponseDTO(car);
+            previous.setSellerName(oldUsername);
+            eventPublisher.publishEvent(new CarChangedEvent(ChangeType.UPDATED, car.getId(),
+                    previous, CarMapper.carToCarResponseDTO(car)));
+        });
+        eventPublisher.publishEvent(new NewsChangedEvent(ChangeType.UPDATED, null));
     }
 }
\ No newline at end of file
@@ -0,0 +1,417 @@
+package com.carportal.services;
+
+import com.carportal.cache.CacheInvalidationBus;
+import com.carportal.cache.CacheRegion;
+import com.carportal.datasource.DataSourceRouting;
+import com.carportal.dictionary.CarDictionary;
+import com.carportal.dto.response.AdminStatsDTO;
+import com.carportal.dto.response.CarResponseDTO;
+import com.carportal.events.CarChangedEvent;
+import com.carportal.events.ChangeType;
+import com.carportal.events.FavoriteChangedEvent;
+import com.carportal.events.NewsChangedEvent;
+import com.carportal.events.UserChangedEvent;
+import com.carportal.models.enums.CarStatus;
+import com.carportal.models.enums.UserRole;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Сервис статистики портала для панели администратора.
+ * Счетчики хранятся в памяти и обновляются приращениями после фиксации каждого изменения,
+ * поэтому запрос статистики не обращается к базе данных: готовый ответ строится один раз после изменения.
+ * Периодическая сверка с агрегатами SQL исправляет расхождения: изменения других экземпляров приложения,
+ * изменения в обход сервисов и приращения, неизвестные точно (например, удаление всего избранного пользователя).
+ * Сообщения шины сброса кешей о чужих изменениях и неточные приращения запрашивают внеочередную сверку.
+ */
+@Service
+@Slf4j
+public class AdminStatsService {
+
+    private static final String USERS_BY_ROLE = "SELECT role, count(*) FROM users GROUP BY role";
+    private static final String CARS_BY_STATUS_AND_BRAND =
+            "SELECT status, brand_id, count(*), sum(price) FROM cars GROUP BY status, brand_id";
+    private static final String NEWS_BY_MONTH =
+            "SELECT CAST(date_trunc('month', date) AS date), count(*) FROM news GROUP BY 1";
+    private static final String FAVORITES_BY_DAY = "SELECT CAST(created_at AS date), count(*) FROM favorites "
+            + "WHERE created_at >= ? GROUP BY 1";
+    private static final String FAVORITES_TOTAL = "SELECT count(*) FROM favorites";
+
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm:ss");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate snapshotTransaction;
+    private final CarDictionary carDictionary;
+    private final int favoriteDays;
+    private final Counter corrections;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicBoolean reconcileRequested = new AtomicBoolean();
+    private Totals totals = new Totals();
+    private long modifications;
+    private volatile LocalDateTime reconciledAt;
+    private volatile AdminStatsDTO snapshot;
+
+    /**
+     * Создает сервис статистики.
+     *
+     * @param jdbcTemplate шаблон JDBC для агрегатов сверки
+     * @param transactionManager менеджер транзакций
+     * @param carDictionary справочник марок: названия марок по идентификаторам сверки
+     * @param favoriteDays количество последних дней в статистике избранного
+     * @param invalidationBus шина сброса кешей: изменения других экземпляров приложения
+     * @param meterRegistry реестр метрик
+     */
+    public AdminStatsService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                             CarDictionary carDictionary, @Value("${carportal.stats.favorite-days:30}") int favoriteDays,
+                             CacheInvalidationBus invalidationBus, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setReadOnly(true);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.carDictionary = carDictionary;
+        this.favoriteDays = favoriteDays;
+        this.corrections = Counter.builder("carportal.stats.corrections")
+                .description("Сверки статистики, исправившие расхождение счетчиков с базой данных")
+                .register(meterRegistry);
+        invalidationBus.subscribe(CacheRegion.CARS, key -> reconcileRequested.set(true));
+        invalidationBus.subscribe(CacheRegion.NEWS, key -> reconcileRequested.set(true));
+        invalidationBus.subscribe(CacheRegion.USERS, key -> reconcileRequested.set(true));
+    }
+
+    /**
+     * Получает статистику портала.
+     * До первой сверки статистика загружается из базы данных.
+     *
+     * @return статистика портала
+     */
+    public AdminStatsDTO getStats() {
+        AdminStatsDTO current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        if (reconciledAt == null) {
+            reconcile();
+        }
+        lock.lock();
+        try {
+            if (snapshot == null) {
+                snapshot = render();
+            }
+            return snapshot;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Загружает статистику после запуска приложения.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reconcile();
+    }
+
+    /**
+     * Выполняет внеочередную сверку, если она была запрошена.
+     */
+    @Scheduled(fixedDelayString = "${carportal.stats.reconcile-check-interval-ms:5000}")
+    public void reconcileIfRequested() {
+        if (reconcileRequested.getAndSet(false)) {
+            reconcile();
+        }
+    }
+
+    /**
+     * Заменяет счетчики агрегатами SQL, прочитанными из одного снимка основной базы данных.
+     * Если во время чтения были применены приращения, неизвестно, учтены ли их изменения в снимке,
+     * поэтому запрашивается повторная сверка.
+     */
+    @Scheduled(initialDelayString = "${carportal.stats.reconcile-interval-ms:300000}",
+            fixedDelayString = "${carportal.stats.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        long modificationsBefore;
+        lock.lock();
+        try {
+            modificationsBefore = modifications;
+        } finally {
+            lock.unlock();
+        }
+
+        LocalDate firstDay = LocalDate.now().minusDays(favoriteDays - 1L);
+        Totals fresh;
+        try {
+            fresh = DataSourceRouting.onPrimary(() -> snapshotTransaction.execute(status -> load(firstDay)));
+        } catch (RuntimeException e) {
+            log.error("Ошибка сверки статистики: {}", e.getMessage());
+            return;
+        }
+
+        lock.lock();
+        try {
+            if (reconciledAt != null && !fresh.equals(totals.withFavoritesFrom(firstDay))) {
+                corrections.increment();
+                log.debug("Сверка исправила расхождение статистики с базой данных");
+            }
+            totals = fresh;
+            reconciledAt = LocalDateTime.now();
+            snapshot = null;
+            if (modifications != modificationsBefore) {
+                reconcileRequested.set(true);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Учитывает изменение автомобиля: вычитает прежнее состояние и добавляет новое.
+     *
+     * @param event событие об изменении автомобиля
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarChanged(CarChangedEvent event) {
+        if (event.getType() == ChangeType.UPDATED && event.getPrevious() == null) {
+            reconcileRequested.set(true);
+            return;
+        }
+        update(t -> {
+            t.addCar(event.getPrevious(), -1);
+            t.addCar(event.getCurrent(), 1);
+        });
+    }
+
+    /**
+     * Учитывает изменение новости по ее датам до и после изменения.
+     * Изменения без дат (например, смена имени автора) не влияют на статистику.
+     *
+     * @param event событие об изменении новости
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNewsChanged(NewsChangedEvent event) {
+        boolean datesUnknown = event.getType() == ChangeType.ADDED && event.getCurrentDate() == null
+                || event.getType() == ChangeType.DELETED && event.getPreviousDate() == null;
+        if (datesUnknown) {
+            reconcileRequested.set(true);
+            return;
+        }
+        update(t -> {
+            t.addNews(event.getPreviousDate(), -1);
+            t.addNews(event.getCurrentDate(), 1);
+        });
+    }
+
+    /**
+     * Учитывает изменение состава или роли пользователей.
+     *
+     * @param event событие об изменении пользователя
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        update(t -> {
+            t.addUser(event.getPreviousRole(), -1);
+            t.addUser(event.getCurrentRole(), 1);
+        });
+    }
+
+    /**
+     * Учитывает изменение избранного.
+     * Если количество или день добавления удаленных записей неизвестны, запрашивается сверка.
+     *
+     * @param event событие об изменении избранного
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFavoriteChanged(FavoriteChangedEvent event) {
+        int sign = event.getType() == ChangeType.DELETED ? -1 : 1;
+        if (event.getDay() == null) {
+            reconcileRequested.set(true);
+        }
+        update(t -> t.addFavorites(event.getDay(), sign * event.getCount()));
+    }
+
+    /**
+     * Применяет приращение к счетчикам и сбрасывает готовый ответ.
+     *
+     * @param delta приращение
+     */
+    private void update(Consumer<Totals> delta) {
+        lock.lock();
+        try {
+            delta.accept(totals);
+            modifications++;
+            snapshot = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Читает агрегаты из базы данных.
+     *
+     * @param firstDay первый день статистики избранного
+     * @return счетчики, соответствующие базе данных
+     */
+    private Totals load(LocalDate firstDay) {
+        Totals loaded = new Totals();
+        jdbcTemplate.query(USERS_BY_ROLE, resultSet -> {
+            loaded.usersByRole[UserRole.valueOf(resultSet.getString(1)).ordinal()] = resultSet.getLong(2);
+        });
+        jdbcTemplate.query(CARS_BY_STATUS_AND_BRAND, resultSet -> {
+            long count = resultSet.getLong(3);
+            loaded.carsByStatus[CarStatus.valueOf(resultSet.getString(1)).ordinal()] += count;
+            // Автомобили, еще не связанные со справочником, учитываются по марке после фонового связывания
+            String brand = carDictionary.brandName(resultSet.getObject(2, Integer.class));
+            if (brand != null) {
+                loaded.carsByBrand.merge(brand, count, Long::sum);
+            }
+            loaded.priceSum += resultSet.getDouble(4);
+        });
+        jdbcTemplate.query(NEWS_BY_MONTH, resultSet -> {
+            loaded.newsByMonth.put(YearMonth.from(resultSet.getDate(1).toLocalDate()), resultSet.getLong(2));
+        });
+        jdbcTemplate.query(FAVORITES_BY_DAY, resultSet -> {
+            loaded.favoritesByDay.put(resultSet.getDate(1).toLocalDate(), resultSet.getLong(2));
+        }, Timestamp.valueOf(firstDay.atStartOfDay()));
+        Long favoritesTotal = jdbcTemplate.queryForObject(FAVORITES_TOTAL, Long.class);
+        loaded.favoritesTotal = favoritesTotal != null ? favoritesTotal : 0;
+        return loaded;
+    }
+
+    /**
+     * Строит ответ по текущим счетчикам. Вызывается под блокировкой.
+     *
+     * @return статистика портала
+     */
+    private AdminStatsDTO render() {
+        Map<String, Long> usersByRole = new LinkedHashMap<>();
+        long totalUsers = 0;
+        for (UserRole role : UserRole.values()) {
+            usersByRole.put(role.name(), totals.usersByRole[role.ordinal()]);
+            totalUsers += totals.usersByRole[role.ordinal()];
+        }
+        Map<String, Long> carsByStatus = new LinkedHashMap<>();
+        long totalCars = 0;
+        for (CarStatus status : CarStatus.values()) {
+            carsByStatus.put(status.name(), totals.carsByStatus[status.ordinal()]);
+            totalCars += totals.carsByStatus[status.ordinal()];
+        }
+        Map<String, Long> newsByMonth = new LinkedHashMap<>();
+        long totalNews = 0;
+        for (Map.Entry<YearMonth, Long> entry : totals.newsByMonth.entrySet()) {
+            newsByMonth.put(entry.getKey().toString(), entry.getValue());
+            totalNews += entry.getValue();
+        }
+        Map<String, Long> favoritesByDay = new LinkedHashMap<>();
+        totals.favoritesByDay.tailMap(LocalDate.now().minusDays(favoriteDays - 1L))
+                .forEach((day, count) -> favoritesByDay.put(day.toString(), count));
+
+        return new AdminStatsDTO(totalUsers, usersByRole, totalCars, carsByStatus,
+                new LinkedHashMap<>(totals.carsByBrand), totalCars > 0 ? totals.priceSum / totalCars : 0,
+                totalNews, newsByMonth, totals.favoritesTotal, favoritesByDay,
+                reconciledAt != null ? reconciledAt.format(TIME_FORMATTER) : null);
+    }
+
+    /**
+     * Изменяемые счетчики статистики. Доступ выполняется под блокировкой сервиса.
+     */
+    private static final class Totals {
+
+        private final long[] usersByRole = new long[UserRole.values().length];
+        private final long[] carsByStatus = new long[CarStatus.values().length];
+        private final TreeMap<String, Long> carsByBrand = new TreeMap<>();
+        private final TreeMap<YearMonth, Long> newsByMonth = new TreeMap<>();
+        private final TreeMap<LocalDate, Long> favoritesByDay = new TreeMap<>();
+        private double priceSum;
+        private long favoritesTotal;
+
+        void addUser(UserRole role, int sign) {
+            if (role != null) {
+                usersByRole[role.ordinal()] += sign;
+            }
+        }
+
+        void addCar(CarResponseDTO car, int sign) {
+            if (car == null) {
+                return;
+            }
+            carsByStatus[(car.isAvailable() ? CarStatus.AVAILABLE : CarStatus.SOLD).ordinal()] += sign;
+            merge(carsByBrand, car.getBrand(), sign);
+            priceSum += sign * car.getPrice();
+        }
+
+        void addNews(LocalDate date, int sign) {
+            if (date != null) {
+                merge(newsByMonth, YearMonth.from(date), sign);
+            }
+        }
+
+        void addFavorites(LocalDate day, int delta) {
+            favoritesTotal += delta;
+            if (day != null) {
+                merge(favoritesByDay, day, delta);
+            }
+        }
+
+        /**
+         * Копия счетчиков без дней избранного, предшествующих указанному: такие дни не загружаются при сверке.
+         */
+        Totals withFavoritesFrom(LocalDate firstDay) {
+            Totals copy = new Totals();
+            System.arraycopy(usersByRole, 0, copy.usersByRole, 0, usersByRole.length);
+            System.arraycopy(carsByStatus, 0, copy.carsByStatus, 0, carsByStatus.length);
+            copy.carsByBrand.putAll(carsByBrand);
+            copy.newsByMonth.putAll(newsByMonth);
+            copy.favoritesByDay.putAll(favoritesByDay.tailMap(firstDay));
+            copy.priceSum = priceSum;
+            copy.favoritesTotal = favoritesTotal;
+            return copy;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Totals that)) {
+                return false;
+            }
+            return Arrays.equals(usersByRole, that.usersByRole)
+                    && Arrays.equals(carsByStatus, that.carsByStatus)
+                    && carsByBrand.equals(that.carsByBrand)
+                    && newsByMonth.equals(that.newsByMonth)
+                    && favoritesByDay.equals(that.favoritesByDay)
+                    && favoritesTotal == that.favoritesTotal
+                    && Math.abs(priceSum - that.priceSum) < 0.01;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(favoritesTotal);
+        }
+
+        private static <K> void merge(Map<K, Long> counters, K key, long delta) {
+            counters.merge(key, delta, (current, added) -> current + added == 0 ? null : current + added);
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package com.carportal.services;
+
+import com.carportal.cache.CacheInvalidationBus;
+import com.carportal.cache.CacheRegion;
+import com.carportal.dictionary.CarDictionary;
+import com.carportal.dto.response.SuggestionDTO;
+import com.carportal.events.CarChangedEvent;
+import com.carportal.events.NewsChangedEvent;
+import com.carportal.exception.ValidateException;
+import com.carportal.utils.concurrent.CoalescingUpdater;
+import com.carportal.utils.trie.RadixTrie;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Сервис подсказок при вводе поискового запроса: марки, модели и заголовки новостей.
+ * Подсказки ищутся в префиксных деревьях {@link RadixTrie} в памяти и упорядочиваются по количеству
+ * автомобилей или новостей, поэтому ввод не порождает запросов к базе данных.
+ * Строки нормализуются одинаково для ключей и префиксов: регистр латиницы и кириллицы не учитывается,
+ * «ё» приравнивается к «е», пробелы схлопываются. Модели ищутся как по названию модели, так и по марке
+ * с моделью; заголовки новостей — с начала любого слова.
+ * <p>
+ * Изменения автомобилей и новостей этого и других экземпляров приложения применяются в фоне после фиксации:
+ * измененные строки перечитываются по идентификаторам, и вклад каждой строки в деревья заменяется новым.
+ * Обновления объединяются и выполняются по одному через {@link CoalescingUpdater}.
+ */
+@Service
+@Slf4j
+public class AutocompleteService {
+
+    /** Автомобили, записанные предыдущей версией и еще не связанные со справочником, подсказываются после связывания */
+    private static final String SELECT_CARS = "SELECT id, brand_id, model_id FROM cars "
+            + "WHERE brand_id IS NOT NULL AND model_id IS NOT NULL";
+    private static final String SELECT_NEWS = "SELECT id, title FROM news";
+    private static final String SELECT_CARS_BY_IDS = SELECT_CARS + " AND id = ANY (?)";
+    private static final String SELECT_NEWS_BY_IDS = SELECT_NEWS + " WHERE id = ANY (?)";
+
+    /** Максимальная длина префикса */
+    private static final int MAX_PREFIX_LENGTH = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CarDictionary carDictionary;
+    private final int maxSuggestions;
+
+    private final ReentrantReadWriteLock indexLock = new ReentrantReadWriteLock();
+    private final Set<Long> pendingCars = ConcurrentHashMap.newKeySet();
+    private final Set<Long> pendingNews = ConcurrentHashMap.newKeySet();
+    private final CoalescingUpdater updater = new CoalescingUpdater("Ошибка обновления подсказок поиска", this::update);
+    private Index index;
+
+    /**
+     * Создает сервис подсказок.
+     *
+     * @param jdbcTemplate шаблон JDBC
+     * @param carDictionary справочник марок и моделей: названия по идентификаторам автомобилей
+     * @param maxSuggestions максимальное количество подсказок в ответе
+     * @param invalidationBus шина сброса кешей: изменения других экземпляров приложения
+     */
+    public AutocompleteService(JdbcTemplate jdbcTemplate, CarDictionary carDictionary,
+                               @Value("${carportal.autocomplete.max-suggestions:10}") int maxSuggestions,
+                               CacheInvalidationBus invalidationBus) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.carDictionary = carDictionary;
+        this.maxSuggestions = maxSuggestions;
+        invalidationBus.subscribe(CacheRegion.CARS, key -> enqueue(pendingCars, key));
+        invalidationBus.subscribe(CacheRegion.NEWS, key -> enqueue(pendingNews, key));
+    }
+
+    /**
+     * Находит подсказки для начала поискового запроса.
+     *
+     * @param prefix введенное начало запроса
+     * @param limit максимальное количество подсказок
+     * @return подсказки в порядке убывания количества автомобилей или новостей
+     */
+    public List<SuggestionDTO> suggest(String prefix, int limit) {
+        if (prefix.length() > MAX_PREFIX_LENGTH) {
+            throw new ValidateException("Поисковый запрос не должен быть длиннее " + MAX_PREFIX_LENGTH + " символов");
+        }
+        String key = normalize(prefix);
+        int count = Math.min(Math.max(limit, 1), maxSuggestions);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+
+        List<SuggestionDTO> suggestions = new ArrayList<>();
+        indexLock.readLock().lock();
+        try {
+            if (index == null) {
+                return List.of();
+            }
+            collect(suggestions, index.brands, "BRAND", key, count);
+            collect(suggestions, index.models, "MODEL", key, count);
+            collect(suggestions, index.news, "NEWS", key, count);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+
+        Set<String> seen = new HashSet<>();
+        return suggestions.stream()
+                .sorted(Comparator.comparingLong(SuggestionDTO::getCount).reversed())
+                .filter(suggestion -> seen.add(suggestion.getType() + ':' + suggestion.getText()))
+                .limit(count)
+                .toList();
+    }
+
+    /**
+     * Запрашивает построение подсказок после запуска приложения.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        updater.requestRebuild();
+    }
+
+    /**
+     * Запоминает измененный автомобиль после фиксации изменения.
+     *
+     * @param event событие об изменении автомобиля
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarChanged(CarChangedEvent event) {
+        enqueue(pendingCars, String.valueOf(event.getCarId()));
+    }
+
+    /**
+     * Запоминает измененную новость после фиксации изменения.
+     * Изменения без идентификатора новости (смена имени автора) заголовков не затрагивают.
+     *
+     * @param event событие об изменении новости
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNewsChanged(NewsChangedEvent event) {
+        if (event.getNewsId() != null) {
+            enqueue(pendingNews, String.valueOf(event.getNewsId()));
+        }
+    }
+
+    /**
+     * Применяет накопленные изменения.
+     * Выполняется периодически и по запросу; если обновление уже выполняется, вызов пропускается.
+     */
+    @Scheduled(fixedDelayString = "${carportal.autocomplete.update-interval-ms:1000}")
+    public void update() {
+        updater.run();
+    }
+
+    /**
+     * Останавливает фоновое обновление.
+     */
+    @PreDestroy
+    public void close() {
+        updater.close();
+    }
+
+    /**
+     * Нормализует строку для сравнения: нижний регистр, «ё» как «е», одиночные пробелы между словами.
+     *
+     * @param text исходная строка
+     * @return нормализованная строка
+     */
+    static String normalize(String text) {
+        StringBuilder normalized = new StringBuilder(text.length());
+        boolean space = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if (Character.isWhitespace(c) || Character.isISOControl(c)) {
+                space = normalized.length() > 0;
+                continue;
+            }
+            if (space) {
+                normalized.append(' ');
+                space = false;
+            }
+            normalized.append(c == 'ё' ? 'е' : c);
+        }
+        return normalized.toString();
+    }
+
+    private void enqueue(Set<Long> pending, String key) {
+        if (key == null) {
+            updater.requestRebuild();
+        } else {
+            pending.add(Long.valueOf(key));
+            updater.request();
+        }
+    }
+
+    /**
+     * Строит деревья заново, если требуется, и применяет накопленные изменения.
+     * Вызывается под блокировкой обновления; при ошибке непримененные изменения возвращаются в очередь.
+     *
+     * @param rebuild true, если деревья нужно построить заново
+     */
+    private void update(boolean rebuild) {
+        if (rebuild) {
+            rebuild();
+        }
+        while (!pendingCars.isEmpty() || !pendingNews.isEmpty()) {
+            Set<Long> cars = CoalescingUpdater.drain(pendingCars, Integer.MAX_VALUE);
+            Set<Long> news = CoalescingUpdater.drain(pendingNews, Integer.MAX_VALUE);
+            try {
+                apply(cars, news);
+            } catch (RuntimeException e) {
+                pendingCars.addAll(cars);
+                pendingNews.addAll(news);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Строит деревья заново по данным базы. Вызывается под блокировкой обновления.
+     */
+    private void rebuild() {
+        Index rebuilt = new Index();
+        jdbcTemplate.query(SELECT_CARS, resultSet -> {
+            rebuilt.putCar(resultSet.getLong(1), carDictionary.brandName(resultSet.getInt(2)),
+                    carDictionary.modelName(resultSet.getInt(3)));
+        });
+        jdbcTemplate.query(SELECT_NEWS, resultSet -> {
+            rebuilt.putNews(resultSet.getLong(1), resultSet.getString(2));
+        });
+        indexLock.writeLock().lock();
+        try {
+            index = rebuilt;
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+        log.debug("Подсказки поиска построены: {} марок, {} моделей, {} новостей",
+                rebuilt.brands.size(), rebuilt.carTerms.size(), rebuilt.newsTitles.size());
+    }
+
+    /**
+     * Перечитывает измененные строки и заменяет их вклад в деревья. Вызывается под блокировкой обновления.
+     *
+     * @param carIds идентификаторы измененных автомобилей
+     * @param newsIds идентификаторы измененных новостей
+     */
+    private void apply(Set<Long> carIds, Set<Long> newsIds) {
+        Map<Long, String[]> cars = new HashMap<>();
+        if (!carIds.isEmpty()) {
+            jdbcTemplate.query(SELECT_CARS_BY_IDS, ids(carIds), resultSet -> {
+                cars.put(resultSet.getLong(1), new String[]{carDictionary.brandName(resultSet.getInt(2)),
+                        carDictionary.modelName(resultSet.getInt(3))});
+            });
+        }
+        Map<Long, String> news = new HashMap<>();
+        if (!newsIds.isEmpty()) {
+            jdbcTemplate.query(SELECT_NEWS_BY_IDS, ids(newsIds), resultSet -> {
+                news.put(resultSet.getLong(1), resultSet.getString(2));
+            });
+        }
+
+        indexLock.writeLock().lock();
+        try {
+            for (Long carId : carIds) {
+                index.removeCar(carId);
+                String[] car = cars.get(carId);
+                if (car != null) {
+                    index.putCar(carId, car[0], car[1]);
+                }
+            }
+            for (Long newsId : newsIds) {
+                index.removeNews(newsId);
+                String title = news.get(newsId);
+                if (title != null) {
+                    index.putNews(newsId, title);
+                }
+            }
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    private static void collect(List<SuggestionDTO> suggestions, RadixTrie trie, String type, String key, int limit) {
+        for (RadixTrie.Completion completion : trie.complete(key, limit)) {
+            suggestions.add(new SuggestionDTO(completion.getDisplay(), type, completion.getWeight()));
+        }
+    }
+
+    private static PreparedStatementSetter ids(Set<Long> ids) {
+        return ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids.toArray()));
+    }
+
+    /**
+     * Префиксные деревья и вклад каждой строки в них, необходимый для замены при изменении.
+     */
+    private static final class Index {
+
+        private final RadixTrie brands = new RadixTrie();
+        private final RadixTrie models = new RadixTrie();
+        private final RadixTrie news = new RadixTrie();
+        private final Map<Long, String[]> carTerms = new HashMap<>();
+        private final Map<Long, String> newsTitles = new HashMap<>();
+
+        void putCar(long carId, String brand, String model) {
+            carTerms.put(carId, new String[]{brand, model});
+            addCar(brand, model, 1);
+        }
+
+        void removeCar(long carId) {
+            String[] terms = carTerms.remove(carId);
+            if (terms != null) {
+                addCar(terms[0], terms[1], -1);
+            }
+        }
+
+        void putNews(long newsId, String title) {
+            newsTitles.put(newsId, title);
+            addNews(title, 1);
+        }
+
+        void removeNews(long newsId) {
+            String title = newsTitles.remove(newsId);
+            if (title != null) {
+                addNews(title, -1);
+            }
+        }
+
+        private void addCar(String brand, String model, int delta) {
+            String brandKey = normalize(brand);
+            String modelKey = normalize(model);
+            String display = brand.trim() + ' ' + model.trim();
+            brands.add(brandKey, brand.trim(), delta);
+            models.add(modelKey + '\u0000' + brandKey, display, delta);
+            models.add(brandKey + ' ' + modelKey, display, delta);
+        }
+
+        private void addNews(String title, int delta) {
+            String key = normalize(title);
+            String display = title.trim();
+            for (int start = 0; start < key.length(); start = key.indexOf(' ', start) + 1) {
+                news.add(key.substring(start) + '\u0000' + key, display, delta);
+                if (key.indexOf(' ', start) < 0) {
+                    break;
+                }
+            }
+        }
+    }
+}
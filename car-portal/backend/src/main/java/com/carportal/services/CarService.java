@@ -1,25 +1,34 @@
 package com.carportal.services;
 
+import com.carportal.datasource.DataSourceRouting;
+import com.carportal.dictionary.CarDictionary;
 import com.carportal.dto.response.CarResponseDTO;
 import com.carportal.exception.EntityNotFoundException;
+import com.carportal.exception.ValidateException;
 import com.carportal.models.Car;
 import com.carportal.repository.CarRepository;
 import com.carportal.utils.mapper.CarMapper;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
 /**
  * Сервис для операций с автомобилями.
  * Обрабатывает логику работы с каталогом автомобилей.
+ * Чтения, результат которых помечается версией каталога, выполняются на основной базе данных,
+ * остальные — на репликах.
  */
 @Service
 @AllArgsConstructor
 public class CarService {
 
     private final CarRepository carRepository;
+    private final IdBloomFilterService idBloomFilterService;
+    private final CarDictionary carDictionary;
 
     /**
      * Получает все автомобили в каталоге.
@@ -27,7 +36,7 @@ public class CarService {
      * @return список автомобилей в формате CarResponseDTO
      */
     public List<CarResponseDTO> getAllCars() {
-        List<Car> cars = carRepository.findAll();
+        List<Car> cars = DataSourceRouting.onPrimary(carRepository::findAll);
         return cars.stream()
                 .map(CarMapper::carToCarResponseDTO)
                 .collect(Collectors.toList());
@@ -40,19 +49,27 @@ public class CarService {
      * @return данные автомобиля в формате CarResponseDTO
      */
     public CarResponseDTO getCarById(Long id) {
-        Car car = carRepository.findById(id)
+        if (!idBloomFilterService.mightContainCar(id)) {
+            throw new EntityNotFoundException("Автомобиль с ID " + id + " не найден");
+        }
+        Car car = DataSourceRouting.onPrimary(() -> carRepository.findById(id))
                 .orElseThrow(() -> new EntityNotFoundException("Автомобиль с ID " + id + " не найден"));
         return CarMapper.carToCarResponseDTO(car);
     }
 
     /**
      * Получает автомобили по марке.
+     * Марка ищется в справочнике без учета регистра и лишних пробелов, автомобили выбираются по ее идентификатору.
      *
      * @param brand марка автомобиля
-     * @return список автомобилей указанной марки
+     * @return список автомобилей указанной марки (пустой, если марки нет в справочнике)
      */
     public List<CarResponseDTO> getCarsByBrand(String brand) {
-        List<Car> cars = carRepository.findByBrand(brand);
+        Integer brandId = carDictionary.findBrandId(brand);
+        if (brandId == null) {
+            return List.of();
+        }
+        List<Car> cars = DataSourceRouting.onPrimary(() -> carRepository.findByBrandId(brandId));
         return cars.stream()
                 .map(CarMapper::carToCarResponseDTO)
                 .collect(Collectors.toList());
@@ -65,10 +82,29 @@ public class CarService {
      * @param maxPrice максимальная цена
      * @return список автомобилей в указанном ценовом диапазоне
      */
+    @Transactional(readOnly = true)
     public List<CarResponseDTO> getCarsByPriceRange(double minPrice, double maxPrice) {
         List<Car> cars = carRepository.findByPriceBetween(minPrice, maxPrice);
         return cars.stream()
                 .map(CarMapper::carToCarResponseDTO)
                 .collect(Collectors.toList());
     }
-}
\ No newline at end of file
+
+    /**
+     * Получает автомобили, цена которых снижалась за последние дни.
+     * Используется время последнего снижения цены, хранящееся в самом автомобиле.
+     *
+     * @param days количество последних дней
+     * @return список автомобилей, начиная с последних снижений цены
+     */
+    @Transactional(readOnly = true)
+    public List<CarResponseDTO> getCarsWithRecentPriceDrop(int days) {
+        if (days <= 0) {
+            throw new ValidateException("Количество дней должно быть положительным");
+        }
+        List<Car> cars = carRepository.findByPriceDroppedAtAfterOrderByPriceDroppedAtDesc(LocalDateTime.now().minusDays(days));
+        return cars.stream()
+                .map(CarMapper::carToCarResponseDTO)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,391 @@
+package com.carportal.services;
+
+import com.carportal.cache.CacheInvalidationBus;
+import com.carportal.cache.CacheRegion;
+import com.carportal.dto.response.CarResponseDTO;
+import com.carportal.dto.response.CatalogEventDTO;
+import com.carportal.events.CarChangedEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Сервис рассылки событий изменения каталога через Server-Sent Events.
+ * Преобразует события об изменении автомобилей в компактные сообщения, хранит последние из них
+ * в кольцевом буфере для возобновления потока по Last-Event-ID и рассылает их подписчикам.
+ * Отправка выполняется на виртуальных потоках с отдельной очередью для каждого клиента,
+ * поэтому медленный клиент не задерживает остальных и операцию записи администратора.
+ * <p>
+ * Каждый экземпляр приложения нумерует события сам, поэтому номер события содержит идентификатор потока
+ * экземпляра: Last-Event-ID, выданный другим экземпляром или до перезапуска, приводит к RESYNC.
+ * Изменения, выполненные на других экземплярах, приходят через шину сброса кешей только ключами,
+ * без прежнего и нового состояния автомобиля, поэтому подписчики получают по ним событие RESYNC.
+ */
+@Service
+@Slf4j
+public class CatalogEventBroadcaster {
+
+    /** Тип события: автомобиль добавлен */
+    public static final String CAR_ADDED = "CAR_ADDED";
+
+    /** Тип события: изменилась цена автомобиля */
+    public static final String PRICE_CHANGED = "PRICE_CHANGED";
+
+    /** Тип события: изменился статус доступности автомобиля */
+    public static final String STATUS_CHANGED = "STATUS_CHANGED";
+
+    /** Тип события: изменились прочие данные автомобиля */
+    public static final String CAR_UPDATED = "CAR_UPDATED";
+
+    /** Тип события: автомобиль удален */
+    public static final String CAR_DELETED = "CAR_DELETED";
+
+    /** Тип события: история событий утеряна, клиенту нужно перезагрузить каталог */
+    public static final String RESYNC = "RESYNC";
+
+    /** Размер кольцевого буфера событий для возобновления потока */
+    private static final int REPLAY_CAPACITY = 1024;
+
+    /** Максимальное количество неотправленных событий одного клиента */
+    private static final int MAX_PENDING_PER_CLIENT = 256;
+
+    /** Время жизни соединения, после которого клиент переподключается */
+    private static final long EMITTER_TIMEOUT_MS = 30 * 60 * 1000L;
+
+    private final CatalogEventDTO[] replayBuffer = new CatalogEventDTO[REPLAY_CAPACITY];
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicBoolean remoteChangePending = new AtomicBoolean();
+
+    /** Идентификатор потока событий экземпляра, новый при каждом запуске */
+    private final String streamId;
+    private long lastEventId;
+
+    /**
+     * Создает сервис и подписывает его на изменения каталога, выполненные другими экземплярами приложения.
+     *
+     * @param invalidationBus шина сброса кешей между экземплярами приложения
+     */
+    public CatalogEventBroadcaster(CacheInvalidationBus invalidationBus) {
+        byte[] id = new byte[6];
+        new SecureRandom().nextBytes(id);
+        this.streamId = HexFormat.of().formatHex(id);
+        invalidationBus.subscribe(CacheRegion.CARS, carId -> onRemoteChange());
+    }
+
+    /**
+     * Подписывает клиента на поток событий каталога.
+     *
+     * @param lastEventIdHeader значение заголовка Last-Event-ID при переподключении
+     * @param brand марка для фильтрации событий (необязательно)
+     * @param types типы событий для фильтрации (необязательно)
+     * @return эмиттер потока событий
+     */
+    public SseEmitter subscribe(String lastEventIdHeader, String brand, Set<String> types) {
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+        Subscriber subscriber = new Subscriber(emitter, brand, types);
+
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+
+        Long resumeFrom = parseEventId(lastEventIdHeader);
+
+        lock.lock();
+        try {
+            if (resumeFrom != null) {
+                long oldestAvailable = Math.max(1, lastEventId - REPLAY_CAPACITY + 1);
+                if (resumeFrom + 1 < oldestAvailable || resumeFrom > lastEventId) {
+                    subscriber.enqueue(new CatalogEventDTO(lastEventId, RESYNC, null, null, null, null, null));
+                } else {
+                    for (long id = resumeFrom + 1; id <= lastEventId; id++) {
+                        CatalogEventDTO event = replayBuffer[(int) (id % REPLAY_CAPACITY)];
+                        if (subscriber.accepts(event)) {
+                            subscriber.enqueue(event);
+                        }
+                    }
+                }
+            }
+            subscribers.add(subscriber);
+        } finally {
+            lock.unlock();
+        }
+
+        subscriber.scheduleDrain();
+        return emitter;
+    }
+
+    /**
+     * Преобразует изменение автомобиля в события каталога и рассылает их после фиксации транзакции.
+     *
+     * @param event событие об изменении автомобиля
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarChanged(CarChangedEvent event) {
+        broadcast(toCatalogEvents(event));
+    }
+
+    /**
+     * Рассылает RESYNC после изменения каталога на другом экземпляре приложения.
+     * Вызывается в потоке слушателя шины для каждого ключа, поэтому ключи, поступившие до начала рассылки,
+     * объединяются в одно событие.
+     */
+    private void onRemoteChange() {
+        if (remoteChangePending.compareAndSet(false, true)) {
+            senders.execute(() -> {
+                remoteChangePending.set(false);
+                broadcast(List.of(new CatalogEventDTO(0, RESYNC, null, null, null, null, null)));
+            });
+        }
+    }
+
+    /**
+     * Нумерует события, сохраняет их в кольцевом буфере и передает подходящим подписчикам.
+     *
+     * @param events события каталога
+     */
+    private void broadcast(List<CatalogEventDTO> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        List<Subscriber> touched = new ArrayList<>();
+        lock.lock();
+        try {
+            for (CatalogEventDTO catalogEvent : events) {
+                catalogEvent.setId(++lastEventId);
+                replayBuffer[(int) (lastEventId % REPLAY_CAPACITY)] = catalogEvent;
+                for (Subscriber subscriber : subscribers) {
+                    if (subscriber.accepts(catalogEvent)) {
+                        subscriber.enqueue(catalogEvent);
+                        touched.add(subscriber);
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        touched.forEach(Subscriber::scheduleDrain);
+    }
+
+    /**
+     * Периодически отправляет комментарий-пульс, чтобы прокси не закрывали простаивающие соединения
+     * и отключенные клиенты обнаруживались без ожидания следующего события.
+     */
+    @Scheduled(fixedRate = 25_000)
+    public void sendHeartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.enqueueHeartbeat();
+            subscriber.scheduleDrain();
+        }
+    }
+
+    /**
+     * Получает количество подключенных клиентов.
+     *
+     * @return количество подписчиков
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Закрывает соединения и останавливает отправку при остановке приложения.
+     */
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        senders.shutdownNow();
+    }
+
+    /**
+     * Преобразует событие изменения автомобиля в список событий каталога.
+     *
+     * @param event событие об изменении автомобиля
+     * @return список событий каталога
+     */
+    private static List<CatalogEventDTO> toCatalogEvents(CarChangedEvent event) {
+        CarResponseDTO previous = event.getPrevious();
+        CarResponseDTO current = event.getCurrent();
+        List<CatalogEventDTO> events = new ArrayList<>(2);
+
+        switch (event.getType()) {
+            case ADDED -> events.add(carEvent(CAR_ADDED, event.getCarId(), current, null));
+            case DELETED -> events.add(carEvent(CAR_DELETED, event.getCarId(), previous, null));
+            case UPDATED -> {
+                if (previous == null || current == null) {
+                    events.add(carEvent(CAR_UPDATED, event.getCarId(), current, null));
+                    break;
+                }
+                if (Double.compare(previous.getPrice(), current.getPrice()) != 0) {
+                    events.add(carEvent(PRICE_CHANGED, event.getCarId(), current, previous.getPrice()));
+                }
+                if (previous.isAvailable() != current.isAvailable()) {
+                    events.add(carEvent(STATUS_CHANGED, event.getCarId(), current, null));
+                }
+                if (events.isEmpty()) {
+                    events.add(carEvent(CAR_UPDATED, event.getCarId(), current, null));
+                }
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Создает событие каталога для автомобиля.
+     *
+     * @param type тип события
+     * @param carId идентификатор автомобиля
+     * @param car состояние автомобиля (может отсутствовать)
+     * @param previousPrice прежняя цена (только для изменения цены)
+     * @return событие каталога
+     */
+    private static CatalogEventDTO carEvent(String type, Long carId, CarResponseDTO car, Double previousPrice) {
+        if (car == null) {
+            return new CatalogEventDTO(0, type, carId, null, null, null, null);
+        }
+        return new CatalogEventDTO(0, type, carId, car.getBrand(), car.getPrice(), previousPrice, car.isAvailable());
+    }
+
+    /**
+     * Разбирает значение заголовка Last-Event-ID.
+     * Номер события другого потока или нераспознанное значение означают, что место клиента в потоке
+     * неизвестно: возвращается номер, которого заведомо нет в буфере, чтобы клиент получил RESYNC.
+     *
+     * @param header значение заголовка
+     * @return номер последнего полученного события или null, если заголовка нет
+     */
+    private Long parseEventId(String header) {
+        if (header == null || header.isBlank()) {
+            return null;
+        }
+        String value = header.trim();
+        int separator = value.lastIndexOf('-');
+        if (separator < 0 || !value.substring(0, separator).equals(streamId)) {
+            return Long.MIN_VALUE;
+        }
+        try {
+            return Long.parseLong(value.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Подписчик потока событий с собственной очередью отправки.
+     */
+    private class Subscriber {
+
+        private final SseEmitter emitter;
+        private final String brand;
+        private final Set<String> types;
+        private final Queue<Object> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingCount = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        Subscriber(SseEmitter emitter, String brand, Set<String> types) {
+            this.emitter = emitter;
+            this.brand = brand == null || brand.isBlank() ? null : brand.trim();
+            this.types = types == null || types.isEmpty() ? null : types;
+        }
+
+        /**
+         * Проверяет, соответствует ли событие фильтрам подписчика.
+         * Событие RESYNC доставляется всегда.
+         */
+        boolean accepts(CatalogEventDTO event) {
+            if (RESYNC.equals(event.getType())) {
+                return true;
+            }
+            if (types != null && !types.contains(event.getType())) {
+                return false;
+            }
+            return brand == null || brand.equalsIgnoreCase(Objects.toString(event.getBrand(), ""));
+        }
+
+        /**
+         * Добавляет событие в очередь клиента.
+         * Переполнение очереди означает, что клиент не успевает читать поток: соединение закрывается,
+         * и клиент возобновит поток по Last-Event-ID. Эмиттер закрывается на потоке отправки: закрытие ждет
+         * завершения текущей записи клиенту, а вызывающий поток удерживает общую блокировку рассылки.
+         */
+        void enqueue(CatalogEventDTO event) {
+            if (pendingCount.incrementAndGet() > MAX_PENDING_PER_CLIENT) {
+                close();
+                return;
+            }
+            pending.add(event);
+        }
+
+        private void close() {
+            if (closed.compareAndSet(false, true)) {
+                subscribers.remove(this);
+                pending.clear();
+                senders.execute(emitter::complete);
+            }
+        }
+
+        void enqueueHeartbeat() {
+            if (pendingCount.get() == 0) {
+                pendingCount.incrementAndGet();
+                pending.add(SseEmitter.event().comment("ping"));
+            }
+        }
+
+        /**
+         * Запускает отправку очереди на виртуальном потоке, если она еще не запущена.
+         */
+        void scheduleDrain() {
+            if (!closed.get() && !pending.isEmpty() && draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                Object item;
+                while (!closed.get() && (item = pending.poll()) != null) {
+                    pendingCount.decrementAndGet();
+                    if (item instanceof CatalogEventDTO event) {
+                        emitter.send(SseEmitter.event()
+                                .id(streamId + '-' + event.getId())
+                                .name(event.getType())
+                                .data(event, MediaType.APPLICATION_JSON));
+                    } else {
+                        emitter.send((SseEmitter.SseEventBuilder) item);
+                    }
+                }
+            } catch (Exception e) {
+                log.debug("Клиент потока событий каталога отключился: {}", e.getMessage());
+                subscribers.remove(this);
+                emitter.completeWithError(e);
+                return;
+            } finally {
+                draining.set(false);
+            }
+            scheduleDrain();
+        }
+    }
+}
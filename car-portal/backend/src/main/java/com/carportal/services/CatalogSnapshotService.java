@@ -0,0 +1,278 @@
+package com.carportal.services;
+
+import com.carportal.dictionary.CarDictionary;
+import com.carportal.dto.response.CarResponseDTO;
+import com.carportal.events.CarChangedEvent;
+import com.carportal.metrics.CacheMetrics;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Сервис предварительно сериализованных снимков каталога.
+ * Хранит каталог автомобилей и популярные выборки по марке в виде готовых JSON и gzip массивов байт,
+ * чтобы повторные запросы обслуживались без сериализации Jackson и без обращения к базе данных.
+ * Снимок привязан к версии каталога и атомарно заменяется после изменения автомобилей.
+ * Если все изменения между версиями сделаны в этом экземпляре приложения, новый снимок строится
+ * из предыдущего: пересериализуются только измененные автомобили и сбрасываются выборки их марок.
+ * Иначе (изменение пришло от другого экземпляра) каталог загружается из базы данных заново.
+ */
+@Service
+@AllArgsConstructor
+public class CatalogSnapshotService {
+
+    /** Максимальное количество марок, выборки по которым хранятся в снимке */
+    private static final int MAX_CACHED_BRANDS = 64;
+
+    private final CarService carService;
+    private final CarDictionary carDictionary;
+    private final CatalogVersionService catalogVersionService;
+    private final ObjectMapper objectMapper;
+    private final CacheMetrics cacheMetrics;
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    /**
+     * Получает сериализованный каталог всех автомобилей.
+     *
+     * @return готовое тело ответа каталога
+     */
+    public Payload getCatalog() {
+        return currentSnapshot().getCatalog();
+    }
+
+    /**
+     * Получает сериализованный список автомобилей указанной марки.
+     * Выборки по первым запрошенным маркам справочника сохраняются в снимке, остальные сериализуются
+     * при каждом запросе. Написания марки, различающиеся регистром и пробелами, разделяют одну выборку;
+     * марки, отсутствующие в справочнике, не занимают места в снимке.
+     *
+     * @param brand марка автомобиля
+     * @return готовое тело ответа со списком автомобилей марки
+     */
+    public Payload getBrand(String brand) {
+        Snapshot snapshot = currentSnapshot();
+        String key = CarDictionary.normalize(brand);
+
+        Payload cached = snapshot.getBrands().get(key);
+        if (cached != null) {
+            cacheMetrics.hit("brand-snapshot");
+            return cached;
+        }
+        cacheMetrics.miss("brand-snapshot");
+        if (carDictionary.findBrandId(brand) == null) {
+            return render(snapshot.getCounter(), List.of());
+        }
+
+        Payload payload = render(snapshot.getCounter(), carService.getCarsByBrand(brand));
+        if (snapshot.getBrands().size() < MAX_CACHED_BRANDS) {
+            snapshot.getBrands().putIfAbsent(key, payload);
+        }
+        return payload;
+    }
+
+    /**
+     * Возвращает снимок, соответствующий текущей версии каталога, перестраивая его при необходимости.
+     * Перестроение выполняется одним потоком, остальные ожидают готовый снимок.
+     *
+     * @return актуальный снимок каталога
+     */
+    private Snapshot currentSnapshot() {
+        long counter = catalogVersionService.getCarsVersion().getCounter();
+        Snapshot snapshot = current.get();
+        if (snapshot != null && snapshot.getCounter() >= counter) {
+            cacheMetrics.hit("catalog-snapshot");
+            return snapshot;
+        }
+
+        cacheMetrics.miss("catalog-snapshot");
+        rebuildLock.lock();
+        try {
+            snapshot = current.get();
+            if (snapshot != null && snapshot.getCounter() >= counter) {
+                return snapshot;
+            }
+            List<CarChangedEvent> changes = snapshot == null
+                    ? null : catalogVersionService.getCarChanges(snapshot.getCounter(), counter);
+            Snapshot fresh;
+            if (changes != null) {
+                cacheMetrics.hit("catalog-snapshot-delta");
+                fresh = apply(snapshot, counter, changes);
+            } else {
+                cacheMetrics.miss("catalog-snapshot-delta");
+                fresh = load(counter);
+            }
+            current.set(fresh);
+            return fresh;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Строит снимок из всех автомобилей в базе данных.
+     *
+     * @param counter версия каталога
+     * @return новый снимок
+     */
+    private Snapshot load(long counter) {
+        NavigableMap<Long, byte[]> cars = new TreeMap<>();
+        for (CarResponseDTO car : carService.getAllCars()) {
+            cars.put(car.getId(), serialize(car));
+        }
+        return new Snapshot(counter, cars, render(counter, cars), new ConcurrentHashMap<>());
+    }
+
+    /**
+     * Строит снимок из предыдущего, применяя изменения автомобилей.
+     * Выборки марок, которых не касались изменения, переносятся в новый снимок.
+     *
+     * @param snapshot предыдущий снимок
+     * @param counter версия каталога
+     * @param changes изменения между версиями в порядке их применения
+     * @return новый снимок
+     */
+    private Snapshot apply(Snapshot snapshot, long counter, List<CarChangedEvent> changes) {
+        NavigableMap<Long, byte[]> cars = new TreeMap<>(snapshot.getCars());
+        Set<String> changedBrands = new HashSet<>();
+        for (CarChangedEvent change : changes) {
+            if (change.getPrevious() != null) {
+                changedBrands.add(CarDictionary.normalize(change.getPrevious().getBrand()));
+            }
+            if (change.getCurrent() != null) {
+                changedBrands.add(CarDictionary.normalize(change.getCurrent().getBrand()));
+                cars.put(change.getCarId(), serialize(change.getCurrent()));
+            } else {
+                cars.remove(change.getCarId());
+            }
+        }
+        Map<String, Payload> brands = new ConcurrentHashMap<>(snapshot.getBrands());
+        brands.keySet().removeAll(changedBrands);
+        return new Snapshot(counter, cars, render(counter, cars), brands);
+    }
+
+    /**
+     * Собирает тело каталога из сериализованных автомобилей.
+     *
+     * @param counter версия каталога
+     * @param cars сериализованные автомобили
+     * @return готовое тело ответа
+     */
+    private static Payload render(long counter, NavigableMap<Long, byte[]> cars) {
+        int length = 2 + Math.max(cars.size() - 1, 0);
+        for (byte[] car : cars.values()) {
+            length += car.length;
+        }
+        ByteArrayOutputStream json = new ByteArrayOutputStream(length);
+        json.write('[');
+        for (byte[] car : cars.values()) {
+            if (json.size() > 1) {
+                json.write(',');
+            }
+            json.writeBytes(car);
+        }
+        json.write(']');
+        byte[] bytes = json.toByteArray();
+        return new Payload(counter, bytes, gzip(bytes));
+    }
+
+    /**
+     * Сериализует автомобиль в JSON.
+     *
+     * @param car автомобиль
+     * @return JSON автомобиля
+     */
+    private byte[] serialize(CarResponseDTO car) {
+        try {
+            return objectMapper.writeValueAsBytes(car);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Ошибка сериализации каталога: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Сериализует список автомобилей в JSON и сжимает его.
+     *
+     * @param counter версия каталога, для которой построено тело
+     * @param cars список автомобилей
+     * @return готовое тело ответа
+     */
+    private Payload render(long counter, List<CarResponseDTO> cars) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(cars);
+            return new Payload(counter, json, gzip(json));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Ошибка сериализации каталога: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Сжимает массив байт алгоритмом gzip.
+     *
+     * @param data исходные данные
+     * @return сжатые данные
+     */
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Неизменяемый снимок каталога для одной версии.
+     */
+    @Getter
+    @AllArgsConstructor
+    private static class Snapshot {
+
+        /** Версия каталога */
+        private final long counter;
+
+        /** Автомобили в формате JSON по идентификаторам */
+        private final NavigableMap<Long, byte[]> cars;
+
+        /** Сериализованный каталог */
+        private final Payload catalog;
+
+        /** Сериализованные выборки по нормализованным названиям марок */
+        private final Map<String, Payload> brands;
+    }
+
+    /**
+     * Готовое тело ответа в несжатом и сжатом виде.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Payload {
+
+        /** Версия каталога, из которой построено тело */
+        private final long counter;
+
+        /** Тело ответа в формате JSON */
+        private final byte[] json;
+
+        /** Тело ответа, сжатое gzip */
+        private final byte[] gzip;
+    }
+}
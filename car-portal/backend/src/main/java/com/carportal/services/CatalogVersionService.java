@@ -0,0 +1,184 @@
+package com.carportal.services;
+
+import com.carportal.cache.CacheInvalidationBus;
+import com.carportal.cache.CacheRegion;
+import com.carportal.events.CarChangedEvent;
+import com.carportal.events.NewsChangedEvent;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Сервис версий каталога автомобилей и новостей.
+ * Хранит счетчики изменений, на основе которых формируются заголовки ETag и Last-Modified,
+ * что позволяет отвечать 304 Not Modified без обращения к базе данных.
+ * Версии увеличиваются только после фиксации транзакции, изменившей данные, в том числе
+ * при получении сообщения об изменении от другого экземпляра приложения через шину сброса кешей.
+ * Для последних версий каталога, созданных изменениями в этом экземпляре, хранятся сами изменения,
+ * чтобы производные данные (снимки каталога) обновлялись без полной перезагрузки.
+ */
+@Service
+public class CatalogVersionService {
+
+    /** Количество последних изменений автомобилей, хранимых по номерам версий */
+    private static final int MAX_TRACKED_CAR_CHANGES = 256;
+
+    private final AtomicReference<Version> carsVersion;
+    private final AtomicReference<Version> newsVersion;
+    private final CacheInvalidationBus invalidationBus;
+    private final ConcurrentSkipListMap<Long, CarChangedEvent> carChanges = new ConcurrentSkipListMap<>();
+
+    /**
+     * Создает сервис с начальными версиями, привязанными ко времени запуска,
+     * чтобы после перезапуска приложения клиенты получили новые ETag.
+     *
+     * @param invalidationBus шина сброса кешей между экземплярами приложения
+     */
+    public CatalogVersionService(CacheInvalidationBus invalidationBus) {
+        long now = System.currentTimeMillis();
+        this.carsVersion = new AtomicReference<>(new Version("cars", now, now));
+        this.newsVersion = new AtomicReference<>(new Version("news", now, now));
+        this.invalidationBus = invalidationBus;
+        invalidationBus.subscribe(CacheRegion.CARS, carId -> carsVersion.updateAndGet(Version::next));
+        invalidationBus.subscribe(CacheRegion.NEWS, newsId -> newsVersion.updateAndGet(Version::next));
+    }
+
+    /**
+     * Получает текущую версию каталога автомобилей.
+     *
+     * @return версия каталога автомобилей
+     */
+    public Version getCarsVersion() {
+        return carsVersion.get();
+    }
+
+    /**
+     * Получает текущую версию новостей.
+     *
+     * @return версия новостей
+     */
+    public Version getNewsVersion() {
+        return newsVersion.get();
+    }
+
+    /**
+     * Увеличивает версию каталога после изменения автомобиля.
+     *
+     * @param event событие об изменении автомобиля
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarChanged(CarChangedEvent event) {
+        long counter = carsVersion.updateAndGet(Version::next).getCounter();
+        carChanges.put(counter, event);
+        carChanges.headMap(counter - MAX_TRACKED_CAR_CHANGES, true).clear();
+    }
+
+    /**
+     * Получает изменения автомобилей, переводящие каталог из одной версии в другую.
+     * Изменения известны только для последних версий, созданных в этом экземпляре приложения:
+     * версии, увеличенные сообщением другого экземпляра, не содержат изменения.
+     *
+     * @param fromCounter счетчик исходной версии
+     * @param toCounter счетчик целевой версии
+     * @return изменения в порядке версий или null, если хотя бы одно из них неизвестно
+     */
+    public List<CarChangedEvent> getCarChanges(long fromCounter, long toCounter) {
+        if (toCounter - fromCounter > MAX_TRACKED_CAR_CHANGES) {
+            return null;
+        }
+        List<CarChangedEvent> changes = new ArrayList<>((int) Math.max(toCounter - fromCounter, 0));
+        for (long counter = fromCounter + 1; counter <= toCounter; counter++) {
+            CarChangedEvent change = carChanges.get(counter);
+            if (change == null) {
+                return null;
+            }
+            changes.add(change);
+        }
+        return changes;
+    }
+
+    /**
+     * Увеличивает версию новостей после изменения новости.
+     *
+     * @param event событие об изменении новости
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNewsChanged(NewsChangedEvent event) {
+        newsVersion.updateAndGet(Version::next);
+    }
+
+    /**
+     * Сообщает другим экземплярам приложения об изменении автомобиля.
+     * Вызывается синхронно при публикации события, чтобы сообщение было отправлено в транзакции изменения.
+     *
+     * @param event событие об изменении автомобиля
+     */
+    @EventListener
+    public void publishCarChange(CarChangedEvent event) {
+        invalidationBus.publish(CacheRegion.CARS, event.getCarId());
+    }
+
+    /**
+     * Сообщает другим экземплярам приложения об изменении новости.
+     *
+     * @param event событие об изменении новости
+     */
+    @EventListener
+    public void publishNewsChange(NewsChangedEvent event) {
+        invalidationBus.publish(CacheRegion.NEWS, event.getNewsId());
+    }
+
+    /**
+     * Неизменяемая версия ресурса.
+     * Содержит счетчик изменений и время последнего изменения.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Version {
+
+        /** Префикс ресурса для формирования ETag */
+        private final String resource;
+
+        /** Счетчик изменений */
+        private final long counter;
+
+        /** Время последнего изменения в миллисекундах */
+        private final long lastModified;
+
+        /**
+         * Формирует строгий ETag для версии ресурса.
+         *
+         * @return значение ETag в кавычках
+         */
+        public String getETag() {
+            return "\"" + resource + "-" + counter + "\"";
+        }
+
+        /**
+         * Формирует строгий ETag для одного из представлений версии ресурса,
+         * например для тела, сжатого gzip: байты представлений различаются, поэтому различаются и ETag.
+         *
+         * @param variant название представления
+         * @return значение ETag в кавычках
+         */
+        public String getETag(String variant) {
+            return "\"" + resource + "-" + counter + "-" + variant + "\"";
+        }
+
+        /**
+         * Создает следующую версию ресурса.
+         *
+         * @return новая версия с увеличенным счетчиком
+         */
+        private Version next() {
+            return new Version(resource, counter + 1, System.currentTimeMillis());
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.carportal.services;
+
+import com.carportal.dto.response.FavoriteNotificationDTO;
+import com.carportal.outbox.OutboxConsumer;
+import com.carportal.outbox.OutboxEvent;
+import com.carportal.outbox.OutboxEventType;
+import com.carportal.utils.security.UtilsSecurity;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Сервис уведомлений пользователей об изменениях избранных автомобилей.
+ * Уведомления строятся обработчиком исходящих событий: снижение цены и продажа автомобиля записываются
+ * каждому пользователю, у которого автомобиль в избранном, в транзакции ретранслятора. Повторная доставка
+ * события не создает дубликатов благодаря уникальности пары (пользователь, событие).
+ * Уведомления старше срока хранения периодически удаляются.
+ */
+@Service
+@Slf4j
+public class FavoriteNotificationService implements OutboxConsumer {
+
+    private static final String PRICE_DROPPED = "PRICE_DROPPED";
+    private static final String SOLD = "SOLD";
+
+    private static final String INSERT_NOTIFICATIONS = "INSERT INTO favorite_notifications "
+            + "(user_id, car_id, event_id, type, old_price, new_price, created_at) "
+            + "SELECT DISTINCT f.user_id, f.car_id, ?::BIGINT, ?::VARCHAR, ?::DOUBLE PRECISION, ?::DOUBLE PRECISION, "
+            + "?::TIMESTAMP FROM favorites f WHERE f.car_id = ? "
+            + "ON CONFLICT (user_id, event_id) DO NOTHING";
+    private static final String SELECT_NOTIFICATIONS = "SELECT id, car_id, type, old_price, new_price, created_at "
+            + "FROM favorite_notifications WHERE user_id = ? ORDER BY id DESC LIMIT ?";
+    private static final String DELETE_OUTDATED = "DELETE FROM favorite_notifications WHERE created_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final UtilsSecurity utilsSecurity;
+    private final int maxNotifications;
+    private final Duration retention;
+
+    /**
+     * Создает сервис уведомлений.
+     *
+     * @param jdbcTemplate шаблон JDBC
+     * @param objectMapper десериализатор данных событий
+     * @param utilsSecurity утилиты безопасности для определения текущего пользователя
+     * @param maxNotifications максимальное количество уведомлений в ответе
+     * @param retention срок хранения уведомлений
+     */
+    public FavoriteNotificationService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper, UtilsSecurity utilsSecurity,
+                                       @Value("${carportal.notifications.max-results:50}") int maxNotifications,
+                                       @Value("${carportal.notifications.retention:30d}") Duration retention) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.utilsSecurity = utilsSecurity;
+        this.maxNotifications = maxNotifications;
+        this.retention = retention;
+    }
+
+    @Override
+    public String getName() {
+        return "favorite-notifications";
+    }
+
+    @Override
+    public boolean accepts(OutboxEventType type) {
+        return type == OutboxEventType.CAR_PRICE_CHANGED || type == OutboxEventType.CAR_SOLD;
+    }
+
+    /**
+     * Записывает уведомления о снижении цены и продаже автомобилей.
+     *
+     * @param events события изменения цены и продажи
+     */
+    @Override
+    public void consume(List<OutboxEvent> events) {
+        List<Object[]> rows = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            JsonNode payload = readPayload(event);
+            JsonNode previous = payload.path("previous");
+            JsonNode current = payload.path("current");
+            if (event.getAggregateId() == null || current.isMissingNode() || current.isNull()) {
+                continue;
+            }
+            Double oldPrice = previous.hasNonNull("price") ? previous.get("price").asDouble() : null;
+            double newPrice = current.path("price").asDouble();
+            String type;
+            if (event.getType() == OutboxEventType.CAR_SOLD) {
+                type = SOLD;
+            } else if (oldPrice != null && newPrice < oldPrice) {
+                type = PRICE_DROPPED;
+            } else {
+                continue;
+            }
+            LocalDateTime createdAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(event.getCreatedAt()), ZoneId.systemDefault());
+            rows.add(new Object[]{event.getId(), type, oldPrice, newPrice, Timestamp.valueOf(createdAt), event.getAggregateId()});
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_NOTIFICATIONS, rows);
+        }
+    }
+
+    /**
+     * Получает последние уведомления текущего пользователя.
+     *
+     * @return уведомления в порядке от новых к старым
+     */
+    @Transactional(readOnly = true)
+    public List<FavoriteNotificationDTO> getNotifications() {
+        Long userId = utilsSecurity.getCurrentUserReference().getId();
+        return jdbcTemplate.query(SELECT_NOTIFICATIONS, (resultSet, rowNum) -> new FavoriteNotificationDTO(
+                resultSet.getLong("id"),
+                resultSet.getLong("car_id"),
+                resultSet.getString("type"),
+                resultSet.getObject("old_price", Double.class),
+                resultSet.getObject("new_price", Double.class),
+                resultSet.getTimestamp("created_at").toLocalDateTime()), userId, maxNotifications);
+    }
+
+    /**
+     * Удаляет уведомления старше срока хранения.
+     */
+    @Scheduled(fixedDelayString = "${carportal.notifications.cleanup-interval-ms:3600000}")
+    public void deleteOutdated() {
+        int deleted = jdbcTemplate.update(DELETE_OUTDATED, Timestamp.valueOf(LocalDateTime.now().minus(retention)));
+        if (deleted > 0) {
+            log.debug("Удалено устаревших уведомлений: {}", deleted);
+        }
+    }
+
+    private JsonNode readPayload(OutboxEvent event) {
+        try {
+            return objectMapper.readTree(event.getPayload());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Некорректные данные события " + event.getId() + ": " + e.getMessage(), e);
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.carportal.services;
 
 import com.carportal.dto.response.CarResponseDTO;
+import com.carportal.events.ChangeType;
+import com.carportal.events.FavoriteChangedEvent;
 import com.carportal.exception.EntityAlreadyExistsException;
 import com.carportal.exception.EntityNotFoundException;
 import com.carportal.exception.ValidateException;
@@ -15,6 +17,7 @@ import com.carportal.utils.mapper.CarMapper;
 import com.carportal.utils.security.UtilsSecurity;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -36,14 +39,16 @@ public class FavoriteService {
     private final CarRepository carRepository;
     private final UserRepository userRepository;
     private final UtilsSecurity utilsSecurity;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Получает все избранные автомобили текущего пользователя.
      *
      * @return список избранных автомобилей в формате CarResponseDTO
      */
+    @Transactional(readOnly = true)
     public List<CarResponseDTO> getUserFavorites() {
-        User user = utilsSecurity.getCurrentUser();
+        User user = utilsSecurity.getCurrentUserReference();
         List<Favorite> favorites = favoriteRepository.findByUser(user);
 
         return favorites.stream()
@@ -57,22 +62,24 @@ public class FavoriteService {
      * @param carId идентификатор автомобиля
      */
     public void addFavorite(Long carId) {
-        User user = utilsSecurity.getCurrentUser();
+        User user = utilsSecurity.getCurrentUserReference();
         Car car = carRepository.findById(carId)
-                .orElseThrow(() -> new EntityNotFoundException("Автомобиль не найден!"));
+                .orElseThrow(() -> EntityNotFoundException.CAR_NOT_FOUND);
 
         if (car.getStatus() == CarStatus.SOLD) {
-            throw new ValidateException("Нельзя добавить проданный автомобиль в избранное");
+            throw ValidateException.SOLD_CAR_FAVORITE;
         }
 
         if (favoriteRepository.existsByUserAndCar(user, car)) {
-            throw new EntityAlreadyExistsException("Автомобиль уже находится в избранном");
+            throw EntityAlreadyExistsException.CAR_ALREADY_IN_FAVORITES;
         }
 
         Favorite favorite = new Favorite();
         favorite.setUser(user);
         favorite.setCar(car);
-        favoriteRepository.save(favorite);
+        Favorite savedFavorite = favoriteRepository.save(favorite);
+        eventPublisher.publishEvent(new FavoriteChangedEvent(ChangeType.ADDED, 1,
+                savedFavorite.getCreatedAt().toLocalDate()));
         log.info("Автомобиль {} добавлен в избранное пользователя {}", carId, user.getId());
     }
 
@@ -82,16 +89,18 @@ public class FavoriteService {
      * @param carId идентификатор автомобиля
      */
     public void removeFavorite(Long carId) {
-        User user = utilsSecurity.getCurrentUser();
+        User user = utilsSecurity.getCurrentUserReference();
         Car car = carRepository.findById(carId)
-                .orElseThrow(() -> new EntityNotFoundException("Автомобиль не найден!"));
+                .orElseThrow(() -> EntityNotFoundException.CAR_NOT_FOUND);
 
         Optional<Favorite> favorite = favoriteRepository.findByUserAndCar(user, car);
         if (favorite.isEmpty()) {
-            throw new EntityNotFoundException("Автомобиль не находится в избранном");
+            throw EntityNotFoundException.CAR_NOT_IN_FAVORITES;
         }
 
         favoriteRepository.delete(favorite.get());
+        eventPublisher.publishEvent(new FavoriteChangedEvent(ChangeType.DELETED, 1,
+                favorite.get().getCreatedAt().toLocalDate()));
         log.info("Автомобиль {} удален из избранного пользователя {}", carId, user.getId());
     }
 
@@ -101,10 +110,11 @@ public class FavoriteService {
      * @param carId идентификатор автомобиля
      * @return true, если автомобиль в избранном, иначе false
      */
+    @Transactional(readOnly = true)
     public boolean isFavorite(Long carId) {
-        User user = utilsSecurity.getCurrentUser();
+        User user = utilsSecurity.getCurrentUserReference();
         Car car = carRepository.findById(carId)
-                .orElseThrow(() -> new EntityNotFoundException("Автомобиль не найден!"));
+                .orElseThrow(() -> EntityNotFoundException.CAR_NOT_FOUND);
 
         return favoriteRepository.existsByUserAndCar(user, car);
     }
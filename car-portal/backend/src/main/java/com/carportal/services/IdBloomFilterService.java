@@ -0,0 +1,274 @@
+package com.carportal.services;
+
+import com.carportal.cache.CacheInvalidationBus;
+import com.carportal.cache.CacheRegion;
+import com.carportal.events.CarChangedEvent;
+import com.carportal.events.ChangeType;
+import com.carportal.events.NewsChangedEvent;
+import com.carportal.metrics.CacheMetrics;
+import com.carportal.repository.CarRepository;
+import com.carportal.repository.NewsRepository;
+import com.carportal.utils.bloom.LongBloomFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Сервис фильтров Блума для существующих идентификаторов автомобилей и новостей.
+ * Позволяет отвечать 404 на запросы несуществующих идентификаторов без обращения к базе данных.
+ * Фильтры строятся при запуске потоковым чтением идентификаторов, пополняются при добавлении
+ * записей (в том числе на других экземплярах приложения) и периодически перестраиваются,
+ * чтобы удаленные идентификаторы перестали считаться существующими.
+ * До первого построения фильтры считают существующим любой идентификатор.
+ * Идентификатор больше максимального, прочитанного при построении фильтра, также считается возможно
+ * существующим и проверяется по базе данных: запись, добавленная другим экземпляром приложения, попадает
+ * в фильтр только после доставки уведомления шины, и запрос, пришедший на этот экземпляр сразу после
+ * фиксации, не должен получить ложный ответ 404. Идентификаторы выдаются по возрастанию, поэтому окно
+ * остается лишь для вставки, зафиксированной другим экземпляром позже вставки с большим идентификатором.
+ */
+@Service
+@Slf4j
+public class IdBloomFilterService {
+
+    /** Допустимая вероятность ложного срабатывания */
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    /** Минимальная емкость фильтра */
+    private static final long MIN_CAPACITY = 1024;
+
+    /** Интервал перестроения фильтров */
+    private static final long REBUILD_INTERVAL_MS = 10 * 60 * 1000L;
+
+    private final IdFilter cars;
+    private final IdFilter news;
+    private final TransactionTemplate readOnlyTransaction;
+    private final CacheMetrics cacheMetrics;
+
+    /**
+     * Создает сервис фильтров.
+     *
+     * @param carRepository репозиторий автомобилей
+     * @param newsRepository репозиторий новостей
+     * @param transactionManager менеджер транзакций для потокового чтения идентификаторов
+     * @param cacheMetrics счетчики кешей: попадание означает ответ без обращения к базе данных
+     * @param invalidationBus шина сброса кешей: идентификаторы, добавленные другими экземплярами приложения
+     */
+    public IdBloomFilterService(CarRepository carRepository, NewsRepository newsRepository,
+                                PlatformTransactionManager transactionManager, CacheMetrics cacheMetrics,
+                                CacheInvalidationBus invalidationBus) {
+        this.cars = new IdFilter("автомобилей", carRepository::count, carRepository::streamAllIds);
+        this.news = new IdFilter("новостей", newsRepository::count, newsRepository::streamAllIds);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.cacheMetrics = cacheMetrics;
+        invalidationBus.subscribe(CacheRegion.CARS, cars::addRemote);
+        invalidationBus.subscribe(CacheRegion.NEWS, news::addRemote);
+    }
+
+    /**
+     * Проверяет, может ли существовать автомобиль с указанным идентификатором.
+     *
+     * @param id идентификатор автомобиля
+     * @return false, если автомобиля точно нет
+     */
+    public boolean mightContainCar(Long id) {
+        return record("car-id-filter", cars.mightContain(id));
+    }
+
+    /**
+     * Проверяет, может ли существовать новость с указанным идентификатором.
+     *
+     * @param id идентификатор новости
+     * @return false, если новости точно нет
+     */
+    public boolean mightContainNews(Long id) {
+        return record("news-id-filter", news.mightContain(id));
+    }
+
+    /**
+     * Строит фильтры после запуска приложения.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Периодически перестраивает фильтры, исключая удаленные идентификаторы.
+     */
+    @Scheduled(initialDelay = REBUILD_INTERVAL_MS, fixedDelay = REBUILD_INTERVAL_MS)
+    public void rebuild() {
+        cars.rebuild();
+        news.rebuild();
+    }
+
+    /**
+     * Добавляет идентификатор нового автомобиля.
+     * Вызывается синхронно при публикации события, то есть до фиксации транзакции:
+     * запрос, пришедший на этот экземпляр сразу после фиксации, не получит ложный ответ 404.
+     * Другие экземпляры узнают идентификатор из уведомления шины, а до его доставки проверяют
+     * идентификатор по базе данных, так как он больше максимального в их фильтре.
+     *
+     * @param event событие об изменении автомобиля
+     */
+    @EventListener
+    public void onCarChanged(CarChangedEvent event) {
+        if (event.getType() == ChangeType.ADDED && event.getCarId() != null) {
+            cars.add(event.getCarId());
+        }
+    }
+
+    /**
+     * Добавляет идентификатор новой новости.
+     *
+     * @param event событие об изменении новости
+     */
+    @EventListener
+    public void onNewsChanged(NewsChangedEvent event) {
+        if (event.getType() == ChangeType.ADDED && event.getNewsId() != null) {
+            news.add(event.getNewsId());
+        }
+    }
+
+    /**
+     * Учитывает результат проверки фильтра.
+     *
+     * @param cache имя фильтра в метриках
+     * @param mightContain результат проверки
+     * @return результат проверки
+     */
+    private boolean record(String cache, boolean mightContain) {
+        if (mightContain) {
+            cacheMetrics.miss(cache);
+        } else {
+            cacheMetrics.hit(cache);
+        }
+        return mightContain;
+    }
+
+    /**
+     * Фильтр идентификаторов одного типа сущностей.
+     * Идентификаторы, добавленные с начала предыдущего перестроения, переносятся в новый фильтр:
+     * их транзакции могли быть не зафиксированы к моменту чтения идентификаторов из базы данных.
+     * Отрицательный ответ дается только для идентификаторов не больше максимального прочитанного.
+     */
+    private class IdFilter {
+
+        private final String name;
+        private final Supplier<Long> counter;
+        private final Supplier<Stream<Long>> idScanner;
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private volatile BuiltFilter filter;
+        private List<Long> recentIds = new ArrayList<>();
+
+        IdFilter(String name, Supplier<Long> counter, Supplier<Stream<Long>> idScanner) {
+            this.name = name;
+            this.counter = counter;
+            this.idScanner = idScanner;
+        }
+
+        boolean mightContain(Long id) {
+            BuiltFilter current = filter;
+            return current == null || id == null || id > current.maxId || current.bloom.mightContain(id);
+        }
+
+        void add(long id) {
+            lock.lock();
+            try {
+                recentIds.add(id);
+                BuiltFilter current = filter;
+                if (current != null) {
+                    current.bloom.put(id);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Учитывает изменение, сделанное другим экземпляром приложения. Ключ может относиться и к измененной
+         * или удаленной записи: лишний идентификатор в фильтре дает лишь обращение к базе данных.
+         * Без ключа изменения неизвестны, и фильтр перестраивается.
+         */
+        void addRemote(String key) {
+            if (key == null) {
+                rebuild();
+            } else {
+                add(Long.parseLong(key));
+            }
+        }
+
+        void rebuild() {
+            List<Long> carriedIds;
+            lock.lock();
+            try {
+                carriedIds = recentIds;
+                recentIds = new ArrayList<>();
+            } finally {
+                lock.unlock();
+            }
+
+            BuiltFilter fresh;
+            try {
+                fresh = readOnlyTransaction.execute(status -> {
+                    BuiltFilter built = new BuiltFilter(new LongBloomFilter(
+                            Math.max(MIN_CAPACITY, counter.get() * 2), FALSE_POSITIVE_RATE));
+                    try (Stream<Long> ids = idScanner.get()) {
+                        ids.forEach(built::scanned);
+                    }
+                    return built;
+                });
+            } catch (RuntimeException e) {
+                log.warn("Не удалось перестроить фильтр идентификаторов {}: {}", name, e.getMessage());
+                lock.lock();
+                try {
+                    carriedIds.addAll(recentIds);
+                    recentIds = carriedIds;
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+
+            lock.lock();
+            try {
+                carriedIds.forEach(fresh.bloom::put);
+                recentIds.forEach(fresh.bloom::put);
+                filter = fresh;
+            } finally {
+                lock.unlock();
+            }
+            log.debug("Фильтр идентификаторов {} перестроен: {} бит, {} хеш-функций, максимальный идентификатор {}",
+                    name, fresh.bloom.getBitCount(), fresh.bloom.getHashCount(), fresh.maxId);
+        }
+    }
+
+    /**
+     * Построенный фильтр и максимальный идентификатор, прочитанный из базы данных при построении.
+     */
+    private static final class BuiltFilter {
+
+        private final LongBloomFilter bloom;
+        private long maxId = Long.MIN_VALUE;
+
+        private BuiltFilter(LongBloomFilter bloom) {
+            this.bloom = bloom;
+        }
+
+        private void scanned(Long id) {
+            bloom.put(id);
+            maxId = Math.max(maxId, id);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.carportal.services;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Сервис отложенной записи статистики входов пользователей (время последнего входа и количество посещений).
+ * Входы накапливаются в памяти с объединением по идентификатору пользователя и периодически
+ * записываются пакетными запросами UPDATE ... FROM (VALUES ...), поэтому вход не ожидает
+ * обновления строки пользователя и частые входы одного пользователя не конкурируют за нее.
+ * При аварийном завершении теряются входы не более чем за один интервал записи.
+ */
+@Service
+@Slf4j
+public class LoginActivityService {
+
+    /** Максимальное количество пользователей в одном запросе UPDATE */
+    private static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<Long, Pending> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Создает сервис статистики входов.
+     *
+     * @param jdbcTemplate шаблон JDBC для пакетных обновлений
+     */
+    public LoginActivityService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Учитывает вход пользователя.
+     *
+     * @param userId идентификатор пользователя
+     * @param loginAt время входа
+     * @return количество входов пользователя, еще не записанных в базу данных, включая текущий
+     */
+    public int recordLogin(Long userId, LocalDateTime loginAt) {
+        return pending.merge(userId, new Pending(loginAt, 1), Pending::merge).visits;
+    }
+
+    /**
+     * Записывает накопленные входы в базу данных.
+     * Входы, которые не удалось записать, возвращаются в буфер и будут записаны при следующем вызове.
+     */
+    @Scheduled(fixedDelayString = "${carportal.login.flush-interval-ms:5000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> rows = new ArrayList<>();
+        for (Long userId : pending.keySet()) {
+            Pending drained = pending.remove(userId);
+            if (drained != null) {
+                rows.add(new Object[]{userId, Timestamp.valueOf(drained.lastLoginAt), drained.visits});
+            }
+        }
+
+        int written = 0;
+        for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+            List<Object[]> batch = rows.subList(from, Math.min(rows.size(), from + BATCH_SIZE));
+            try {
+                jdbcTemplate.update(updateSql(batch.size()), flatten(batch));
+                written += batch.size();
+            } catch (RuntimeException e) {
+                log.error("Ошибка записи статистики входов для {} пользователей: {}", batch.size(), e.getMessage());
+                batch.forEach(row -> pending.merge((Long) row[0],
+                        new Pending(((Timestamp) row[1]).toLocalDateTime(), (Integer) row[2]), Pending::merge));
+            }
+        }
+        log.debug("Записана статистика входов для {} пользователей", written);
+    }
+
+    /**
+     * Записывает накопленные входы при остановке приложения.
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * Формирует запрос обновления для указанного количества пользователей.
+     * Время входа не уменьшается, если в базе данных уже записано более позднее.
+     *
+     * @param rows количество пользователей
+     * @return текст запроса
+     */
+    private static String updateSql(int rows) {
+        return "UPDATE users u SET last_login_at = GREATEST(u.last_login_at, v.last_login_at), "
+                + "visit_count = u.visit_count + v.visits "
+                + "FROM (VALUES " + String.join(", ", Collections.nCopies(rows, "(?::bigint, ?::timestamp, ?::integer)"))
+                + ") AS v(id, last_login_at, visits) WHERE u.id = v.id";
+    }
+
+    private static Object[] flatten(List<Object[]> rows) {
+        Object[] args = new Object[rows.size() * 3];
+        for (int i = 0; i < rows.size(); i++) {
+            System.arraycopy(rows.get(i), 0, args, i * 3, 3);
+        }
+        return args;
+    }
+
+    /**
+     * Накопленные входы одного пользователя.
+     */
+    private static final class Pending {
+
+        private final LocalDateTime lastLoginAt;
+        private final int visits;
+
+        private Pending(LocalDateTime lastLoginAt, int visits) {
+            this.lastLoginAt = lastLoginAt;
+            this.visits = visits;
+        }
+
+        private Pending merge(Pending other) {
+            LocalDateTime latest = lastLoginAt.isAfter(other.lastLoginAt) ? lastLoginAt : other.lastLoginAt;
+            return new Pending(latest, visits + other.visits);
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.carportal.services;
 
 import com.carportal.dto.request.NewsRequestDTO;
 import com.carportal.dto.response.NewsResponseDTO;
+import com.carportal.events.ChangeType;
+import com.carportal.events.NewsChangedEvent;
 import com.carportal.exception.EntityNotFoundException;
 import com.carportal.models.News;
 import com.carportal.models.User;
@@ -10,7 +12,9 @@ import com.carportal.utils.mapper.NewsMapper;
 import com.carportal.utils.security.UtilsSecurity;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -28,12 +32,14 @@ public class ModeratorService {
 
     private final NewsRepository newsRepository;
     private final UtilsSecurity utilsSecurity;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Получает все новости.
      *
      * @return список новостей в формате NewsResponseDTO
      */
+    @Transactional(readOnly = true)
     public List<NewsResponseDTO> getAllNews() {
         try {
             log.info("Загрузка всех новостей для модератора");
@@ -73,6 +79,7 @@ public class ModeratorService {
      * @param newsRequestDTO данные новой новости
      * @return добавленная новость в формате NewsResponseDTO
      */
+    @Transactional
     public NewsResponseDTO addNews(NewsRequestDTO newsRequestDTO) {
         try {
             User user = utilsSecurity.getCurrentUser();
@@ -81,6 +88,8 @@ public class ModeratorService {
             News news = NewsMapper.newsRequestDTOtoNews(newsRequestDTO, user);
             News savedNews = newsRepository.save(news);
             log.info("Новость успешно добавлена с ID {}", savedNews.getId());
+            eventPublisher.publishEvent(new NewsChangedEvent(ChangeType.ADDED, savedNews.getId(),
+                    null, savedNews.getDate()));
 
             return NewsMapper.newsToNewsResponseDTO(savedNews);
         } catch (Exception e) {
@@ -96,6 +105,7 @@ public class ModeratorService {
      * @param newsRequestDTO обновленные данные новости
      * @return обновленная новость в формате NewsResponseDTO
      */
+    @Transactional
     public NewsResponseDTO editNews(Long newsId, NewsRequestDTO newsRequestDTO) {
         try {
             log.info("Редактирование новости с ID {}", newsId);
@@ -103,7 +113,7 @@ public class ModeratorService {
             News news = newsRepository.findById(newsId)
                     .orElseThrow(() -> {
                         log.error("Новость с ID {} не найдена", newsId);
-                        return new EntityNotFoundException("Новость не найдена!");
+                        return EntityNotFoundException.NEWS_NOT_FOUND;
                     });
 
             if (!Objects.equals(newsId, news.getId())) {
@@ -111,12 +121,15 @@ public class ModeratorService {
                 throw new EntityNotFoundException("Ошибка поиска новости...");
             }
 
+            LocalDate previousDate = news.getDate();
             news.setTitle(newsRequestDTO.getTitle());
             news.setContent(newsRequestDTO.getContent());
             news.setDate(LocalDate.now());
 
             News updatedNews = newsRepository.save(news);
             log.info("Новость с ID {} успешно обновлена", updatedNews.getId());
+            eventPublisher.publishEvent(new NewsChangedEvent(ChangeType.UPDATED, updatedNews.getId(),
+                    previousDate, updatedNews.getDate()));
 
             return NewsMapper.newsToNewsResponseDTO(updatedNews);
         } catch (Exception e) {
@@ -130,6 +143,7 @@ public class ModeratorService {
      *
      * @param newsId идентификатор новости
      */
+    @Transactional
     public void deleteNews(Long newsId) {
         try {
             log.info("Удаление новости с ID {}", newsId);
@@ -137,11 +151,12 @@ public class ModeratorService {
             News news = newsRepository.findById(newsId)
                     .orElseThrow(() -> {
                         log.error("Новость с ID {} не найдена для удаления", newsId);
-                        return new EntityNotFoundException("Новость не найдена!");
+                        return EntityNotFoundException.NEWS_NOT_FOUND;
                     });
 
             newsRepository.delete(news);
             log.info("Новость с ID {} успешно удалена", newsId);
+            eventPublisher.publishEvent(new NewsChangedEvent(ChangeType.DELETED, newsId, news.getDate(), null));
         } catch (Exception e) {
             log.error("Ошибка при удалении новости с ID {}: {}", newsId, e.getMessage(), e);
             throw new RuntimeException("Ошибка при удалении новости: " + e.getMessage());
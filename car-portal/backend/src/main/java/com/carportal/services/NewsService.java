@@ -1,5 +1,6 @@
 package com.carportal.services;
 
+import com.carportal.datasource.DataSourceRouting;
 import com.carportal.dto.response.NewsResponseDTO;
 import com.carportal.exception.EntityNotFoundException;
 import com.carportal.models.News;
@@ -7,6 +8,7 @@ import com.carportal.repository.NewsRepository;
 import com.carportal.utils.mapper.NewsMapper;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -14,12 +16,15 @@ import java.util.stream.Collectors;
 /**
  * Сервис для операций с новостями.
  * Обрабатывает логику получения новостей для всех пользователей.
+ * Чтения, результат которых помечается версией новостей, выполняются на основной базе данных,
+ * остальные — на репликах.
  */
 @Service
 @AllArgsConstructor
 public class NewsService {
 
     private final NewsRepository newsRepository;
+    private final IdBloomFilterService idBloomFilterService;
 
     /**
      * Получает все новости.
@@ -27,7 +32,7 @@ public class NewsService {
      * @return список новостей в формате NewsResponseDTO
      */
     public List<NewsResponseDTO> getAllNews() {
-        List<News> newsList = newsRepository.findAll();
+        List<News> newsList = DataSourceRouting.onPrimary(newsRepository::findAll);
         return newsList.stream()
                 .map(NewsMapper::newsToNewsResponseDTO)
                 .collect(Collectors.toList());
@@ -40,7 +45,10 @@ public class NewsService {
      * @return данные новости в формате NewsResponseDTO
      */
     public NewsResponseDTO getNewsById(Long id) {
-        News news = newsRepository.findById(id)
+        if (!idBloomFilterService.mightContainNews(id)) {
+            throw new EntityNotFoundException("Новость с ID " + id + " не найдена");
+        }
+        News news = DataSourceRouting.onPrimary(() -> newsRepository.findById(id))
                 .orElseThrow(() -> new EntityNotFoundException("Новость с ID " + id + " не найдена"));
         return NewsMapper.newsToNewsResponseDTO(news);
     }
@@ -51,6 +59,7 @@ public class NewsService {
      * @param keyword ключевое слово для поиска
      * @return список найденных новостей
      */
+    @Transactional(readOnly = true)
     public List<NewsResponseDTO> searchNews(String keyword) {
         List<News> newsList = newsRepository.searchByKeyword(keyword);
         return newsList.stream()
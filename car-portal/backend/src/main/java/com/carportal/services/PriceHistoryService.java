@@ -0,0 +1,153 @@
+package com.carportal.services;
+
+import com.carportal.dto.response.CarResponseDTO;
+import com.carportal.dto.response.PricePointDTO;
+import com.carportal.events.CarChangedEvent;
+import com.carportal.events.ChangeType;
+import com.carportal.exception.EntityNotFoundException;
+import com.carportal.exception.ValidateException;
+import com.carportal.repository.CarRepository;
+import com.carportal.utils.timeseries.DeltaCodec;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Сервис истории цен автомобилей.
+ * История хранится в таблице car_price_history одной строкой на автомобиль: точки упакованы приращениями
+ * (см. {@link DeltaCodec}), время хранится в секундах, цена — в копейках. Точка добавляется синхронно
+ * при публикации события изменения цены, поэтому история фиксируется или откатывается вместе с изменением.
+ * Строка автомобиля к этому моменту уже заблокирована изменением, так что добавления точек одного
+ * автомобиля выполняются по очереди.
+ */
+@Service
+public class PriceHistoryService {
+
+    private static final String SELECT_LAST = "SELECT last_at, last_price FROM car_price_history WHERE car_id = ?";
+    private static final String SELECT_HISTORY = "SELECT first_at, first_price, deltas FROM car_price_history WHERE car_id = ?";
+    private static final String INSERT_HISTORY = "INSERT INTO car_price_history "
+            + "(car_id, first_at, first_price, last_at, last_price, points, deltas) VALUES (?, ?, ?, ?, ?, 1, ''::BYTEA) "
+            + "ON CONFLICT (car_id) DO NOTHING";
+    private static final String APPEND_POINT = "UPDATE car_price_history "
+            + "SET deltas = deltas || ?, last_at = ?, last_price = ?, points = points + 1 WHERE car_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CarRepository carRepository;
+
+    /**
+     * Создает сервис истории цен.
+     *
+     * @param jdbcTemplate шаблон JDBC
+     * @param carRepository репозиторий автомобилей
+     */
+    public PriceHistoryService(JdbcTemplate jdbcTemplate, CarRepository carRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.carRepository = carRepository;
+    }
+
+    /**
+     * Записывает начальную цену добавленного автомобиля и каждое изменение цены.
+     * История удаленного автомобиля удаляется вместе с ним внешним ключом.
+     *
+     * @param event событие об изменении автомобиля
+     */
+    @EventListener
+    public void onCarChanged(CarChangedEvent event) {
+        CarResponseDTO previous = event.getPrevious();
+        CarResponseDTO current = event.getCurrent();
+        if (event.getType() == ChangeType.DELETED || current == null) {
+            return;
+        }
+        if (event.getType() == ChangeType.UPDATED && previous != null
+                && toCents(previous.getPrice()) == toCents(current.getPrice())) {
+            return;
+        }
+        append(event.getCarId(), Instant.now().getEpochSecond(), toCents(current.getPrice()));
+    }
+
+    /**
+     * Получает историю цены автомобиля за период.
+     * Первой возвращается цена, действовавшая на начало периода, если она была установлена раньше.
+     *
+     * @param carId идентификатор автомобиля
+     * @param from начало периода (null — с первой записи)
+     * @param to конец периода (null — до последней записи)
+     * @return точки истории цены в порядке времени
+     */
+    @Transactional(readOnly = true)
+    public List<PricePointDTO> getHistory(Long carId, LocalDateTime from, LocalDateTime to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new ValidateException("Начало периода должно быть не позже его конца");
+        }
+        long fromSecond = from != null ? toEpochSecond(from) : Long.MIN_VALUE;
+        long toSecond = to != null ? toEpochSecond(to) : Long.MAX_VALUE;
+
+        List<long[]> stored = jdbcTemplate.query(SELECT_HISTORY, (resultSet, rowNum) -> {
+            List<long[]> decoded = new ArrayList<>();
+            DeltaCodec.decode(resultSet.getLong("first_at"), resultSet.getLong("first_price"),
+                    resultSet.getBytes("deltas"), (time, value) -> decoded.add(new long[]{time, value}));
+            return decoded;
+        }, carId).stream().findFirst().orElse(null);
+        if (stored == null) {
+            if (!carRepository.existsById(carId)) {
+                throw EntityNotFoundException.CAR_NOT_FOUND;
+            }
+            return List.of();
+        }
+
+        List<PricePointDTO> points = new ArrayList<>();
+        long[] inEffect = null;
+        for (long[] point : stored) {
+            if (point[0] < fromSecond) {
+                inEffect = point;
+            } else if (point[0] <= toSecond) {
+                points.add(toDTO(point));
+            }
+        }
+        if (inEffect != null) {
+            points.add(0, toDTO(inEffect));
+        }
+        return points;
+    }
+
+    /**
+     * Добавляет точку в историю автомобиля, создавая историю при первой записи.
+     * Время точки не может быть меньше времени последней записанной точки.
+     *
+     * @param carId идентификатор автомобиля
+     * @param epochSecond время изменения цены
+     * @param cents цена в копейках
+     */
+    private void append(Long carId, long epochSecond, long cents) {
+        List<long[]> last = jdbcTemplate.query(SELECT_LAST,
+                (resultSet, rowNum) -> new long[]{resultSet.getLong(1), resultSet.getLong(2)}, carId);
+        if (last.isEmpty()) {
+            jdbcTemplate.update(INSERT_HISTORY, carId, epochSecond, cents, epochSecond, cents);
+            return;
+        }
+        long lastAt = last.get(0)[0];
+        long lastPrice = last.get(0)[1];
+        long at = Math.max(epochSecond, lastAt);
+        jdbcTemplate.update(APPEND_POINT, DeltaCodec.encode(lastAt, lastPrice, at, cents), at, cents, carId);
+    }
+
+    private static PricePointDTO toDTO(long[] point) {
+        LocalDateTime changedAt = LocalDateTime.ofInstant(Instant.ofEpochSecond(point[0]), ZoneId.systemDefault());
+        return new PricePointDTO(changedAt, point[1] / 100.0);
+    }
+
+    private static long toEpochSecond(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+
+    private static long toCents(double price) {
+        return Math.round(price * 100);
+    }
+}
@@ -0,0 +1,547 @@
+package com.carportal.services;
+
+import com.carportal.cache.CacheInvalidationBus;
+import com.carportal.cache.CacheRegion;
+import com.carportal.datasource.DataSourceRouting;
+import com.carportal.dto.response.CarResponseDTO;
+import com.carportal.events.CarChangedEvent;
+import com.carportal.repository.CarRepository;
+import com.carportal.utils.concurrent.CoalescingUpdater;
+import com.carportal.utils.mapper.CarMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Сервис похожих автомобилей.
+ * Сходство складывается из совпадения марки и модели, близости года выпуска и цены
+ * и совместного добавления в избранное одними пользователями (косинусная мера).
+ * Для каждого автомобиля заранее вычисляется список наиболее похожих продающихся автомобилей,
+ * поэтому запрос списка — поиск в хеш-таблице без обращения к базе данных.
+ * <p>
+ * Признаки хранятся по столбцам в массивах примитивов, а списки пересчитываются параллельно
+ * в пуле fork-join. Полный пересчет выполняется после запуска и периодически (он же обновляет
+ * данные избранного); изменения каталога этого и других экземпляров приложения применяются
+ * приращениями: пересчитываются списки измененных автомобилей и списки, в которые они входили,
+ * а в остальные списки измененный автомобиль добавляется, если он ближе последнего соседа.
+ * Пересчеты объединяются и выполняются по одному через {@link CoalescingUpdater}.
+ */
+@Service
+@Slf4j
+public class SimilarCarsService {
+
+    private static final String CO_FAVORITES = "SELECT a.car_id, b.car_id, count(*) FROM favorites a "
+            + "JOIN favorites b ON b.user_id = a.user_id AND b.car_id <> a.car_id GROUP BY a.car_id, b.car_id";
+    private static final String FAVORITE_COUNTS = "SELECT car_id, count(*) FROM favorites GROUP BY car_id";
+
+    private static final double BRAND_WEIGHT = 3.0;
+    private static final double MODEL_WEIGHT = 2.0;
+    private static final double YEAR_WEIGHT = 1.0;
+    private static final double PRICE_WEIGHT = 2.0;
+    private static final double CO_FAVORITE_WEIGHT = 3.0;
+    /** Разница годов выпуска, при которой вклад года обнуляется */
+    private static final double YEAR_RANGE = 10;
+    /** Разница логарифмов цен, при которой вклад цены обнуляется (цены отличаются вдвое) */
+    private static final double PRICE_RANGE = Math.log(2);
+    /** Количество изменений, начиная с которого выгоднее полный пересчет */
+    private static final int MAX_INCREMENTAL_BATCH = 64;
+    /** Количество строк, пересчитываемых одной задачей fork-join без дальнейшего деления */
+    private static final int ROWS_PER_TASK = 64;
+
+    private final CarRepository carRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final int neighbors;
+    private final ForkJoinPool pool;
+    private final Timer rebuildTimer;
+
+    private final Set<Long> pendingIds = ConcurrentHashMap.newKeySet();
+    private final CoalescingUpdater updater = new CoalescingUpdater("Ошибка пересчета похожих автомобилей", this::update);
+    private final Map<Long, List<CarResponseDTO>> similar = new ConcurrentHashMap<>();
+    private Index index;
+
+    /**
+     * Создает сервис похожих автомобилей.
+     *
+     * @param carRepository репозиторий автомобилей
+     * @param jdbcTemplate шаблон JDBC для чтения избранного
+     * @param neighbors количество похожих автомобилей в списке
+     * @param parallelism количество потоков пересчета (0 — по числу процессоров)
+     * @param invalidationBus шина сброса кешей: изменения каталога других экземпляров приложения
+     * @param meterRegistry реестр метрик
+     */
+    public SimilarCarsService(CarRepository carRepository, JdbcTemplate jdbcTemplate,
+                              @Value("${carportal.similar.neighbors:10}") int neighbors,
+                              @Value("${carportal.similar.parallelism:0}") int parallelism,
+                              CacheInvalidationBus invalidationBus, MeterRegistry meterRegistry) {
+        this.carRepository = carRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.neighbors = neighbors;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.rebuildTimer = Timer.builder("carportal.similar.rebuild")
+                .description("Длительность полного пересчета похожих автомобилей")
+                .register(meterRegistry);
+        invalidationBus.subscribe(CacheRegion.CARS, key -> {
+            if (key == null) {
+                updater.requestRebuild();
+            } else {
+                enqueue(Long.valueOf(key));
+            }
+        });
+    }
+
+    /**
+     * Получает автомобили, похожие на указанный.
+     *
+     * @param carId идентификатор автомобиля
+     * @return похожие продающиеся автомобили, начиная с самого похожего (пусто, если список еще не вычислен)
+     */
+    public List<CarResponseDTO> getSimilarCars(Long carId) {
+        return similar.getOrDefault(carId, List.of());
+    }
+
+    /**
+     * Запрашивает полный пересчет после запуска приложения.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        requestRebuild();
+    }
+
+    /**
+     * Запрашивает периодический полный пересчет, учитывающий изменения избранного.
+     */
+    @Scheduled(initialDelayString = "${carportal.similar.rebuild-interval-ms:600000}",
+            fixedDelayString = "${carportal.similar.rebuild-interval-ms:600000}")
+    public void requestRebuild() {
+        updater.requestRebuild();
+    }
+
+    /**
+     * Запоминает измененный автомобиль после фиксации изменения и запрашивает пересчет в фоне.
+     *
+     * @param event событие об изменении автомобиля
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarChanged(CarChangedEvent event) {
+        enqueue(event.getCarId());
+    }
+
+    /**
+     * Применяет запрошенные пересчеты.
+     * Выполняется периодически и по запросу; если пересчет уже выполняется, вызов пропускается.
+     */
+    @Scheduled(fixedDelayString = "${carportal.similar.update-interval-ms:1000}")
+    public void update() {
+        updater.run();
+    }
+
+    /**
+     * Останавливает фоновый пересчет.
+     */
+    @PreDestroy
+    public void close() {
+        updater.close();
+        pool.shutdownNow();
+    }
+
+    private void enqueue(Long carId) {
+        pendingIds.add(carId);
+        if (pendingIds.size() > MAX_INCREMENTAL_BATCH) {
+            updater.requestRebuild();
+        } else {
+            updater.request();
+        }
+    }
+
+    /**
+     * Выполняет полный пересчет, если он запрошен, и применяет накопленные изменения пакетами.
+     * Вызывается под блокировкой пересчета; при ошибке непримененные изменения возвращаются в очередь.
+     *
+     * @param rebuild true, если нужен полный пересчет
+     */
+    private void update(boolean rebuild) {
+        if (rebuild) {
+            pendingIds.clear();
+            rebuild();
+        }
+        while (!pendingIds.isEmpty()) {
+            Set<Long> batch = CoalescingUpdater.drain(pendingIds, MAX_INCREMENTAL_BATCH);
+            try {
+                apply(batch);
+            } catch (RuntimeException e) {
+                pendingIds.addAll(batch);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Перестраивает признаки и списки всех автомобилей по данным базы. Вызывается под блокировкой.
+     */
+    private void rebuild() {
+        long started = System.nanoTime();
+        List<CarResponseDTO> cars = DataSourceRouting.onPrimary(carRepository::findAll).stream()
+                .map(CarMapper::carToCarResponseDTO)
+                .toList();
+        Index rebuilt = new Index(cars.size());
+        cars.forEach(rebuilt::upsert);
+        loadCoFavorites(rebuilt);
+
+        int[] rows = new int[rebuilt.size];
+        Arrays.setAll(rows, row -> row);
+        pool.invoke(new RowsTask(rebuilt, neighbors, rows, 0, rows.length));
+
+        index = rebuilt;
+        Set<Long> stale = new HashSet<>(similar.keySet());
+        for (int row = 0; row < rebuilt.size; row++) {
+            publish(row);
+            stale.remove(rebuilt.ids[row]);
+        }
+        stale.forEach(similar::remove);
+        rebuildTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        log.debug("Похожие автомобили пересчитаны для {} автомобилей", rebuilt.size);
+    }
+
+    /**
+     * Применяет изменения автомобилей приращениями. Вызывается под блокировкой.
+     *
+     * @param carIds идентификаторы измененных автомобилей
+     */
+    private void apply(Set<Long> carIds) {
+        List<CarResponseDTO> cars = DataSourceRouting.onPrimary(() -> carRepository.findByIdIn(carIds)).stream()
+                .map(CarMapper::carToCarResponseDTO)
+                .toList();
+        Index current = index;
+        boolean[] changed = new boolean[current.size + cars.size()];
+        List<Integer> changedRows = new ArrayList<>();
+        Set<Long> removed = new HashSet<>(carIds);
+        for (CarResponseDTO car : cars) {
+            removed.remove(car.getId());
+            int row = current.upsert(car);
+            changed[row] = true;
+            changedRows.add(row);
+        }
+        for (Long carId : removed) {
+            Integer row = current.slots.get(carId);
+            if (row != null && current.active[row]) {
+                current.remove(row);
+                changed[row] = true;
+            }
+            similar.remove(carId);
+        }
+
+        boolean[] dirty = new boolean[current.size];
+        for (int row = 0; row < current.size; row++) {
+            if (!current.active[row] || changed[row]) {
+                continue;
+            }
+            for (int neighbor : current.topCars[row]) {
+                if (changed[neighbor]) {
+                    dirty[row] = true;
+                    break;
+                }
+            }
+        }
+
+        boolean[] touched = new boolean[current.size];
+        double[] scores = new double[current.size];
+        for (int changedRow : changedRows) {
+            current.score(changedRow, scores);
+            current.selectTop(changedRow, scores, neighbors);
+            touched[changedRow] = true;
+            if (!current.candidates[changedRow]) {
+                continue;
+            }
+            for (int row = 0; row < current.size; row++) {
+                if (current.active[row] && !dirty[row] && !changed[row]
+                        && current.offer(row, changedRow, scores[row], neighbors)) {
+                    touched[row] = true;
+                }
+            }
+        }
+
+        int[] dirtyRows = IntStream.range(0, current.size).filter(row -> dirty[row]).toArray();
+        pool.invoke(new RowsTask(current, neighbors, dirtyRows, 0, dirtyRows.length));
+        for (int row = 0; row < current.size; row++) {
+            if (dirty[row] || touched[row]) {
+                publish(row);
+            }
+        }
+    }
+
+    /**
+     * Загружает совместное добавление автомобилей в избранное как косинусную меру:
+     * количество пользователей, добавивших оба автомобиля, деленное на корень из произведения
+     * количеств добавлений каждого.
+     *
+     * @param target признаки, в которые загружаются данные избранного
+     */
+    private void loadCoFavorites(Index target) {
+        Map<Long, Long> counts = new HashMap<>();
+        jdbcTemplate.query(FAVORITE_COUNTS, resultSet -> {
+            counts.put(resultSet.getLong(1), resultSet.getLong(2));
+        });
+        Map<Integer, List<double[]>> rows = new HashMap<>();
+        jdbcTemplate.query(CO_FAVORITES, resultSet -> {
+            Integer row = target.slots.get(resultSet.getLong(1));
+            Integer other = target.slots.get(resultSet.getLong(2));
+            if (row == null || other == null) {
+                return;
+            }
+            double weight = resultSet.getLong(3)
+                    / Math.sqrt((double) counts.get(resultSet.getLong(1)) * counts.get(resultSet.getLong(2)));
+            rows.computeIfAbsent(row, key -> new ArrayList<>()).add(new double[]{other, weight});
+        });
+        rows.forEach((row, entries) -> {
+            target.coFavoriteCars[row] = entries.stream().mapToInt(entry -> (int) entry[0]).toArray();
+            target.coFavoriteWeights[row] = entries.stream().mapToDouble(entry -> entry[1]).toArray();
+        });
+    }
+
+    /**
+     * Публикует список похожих автомобилей строки. Вызывается под блокировкой.
+     *
+     * @param row строка признаков
+     */
+    private void publish(int row) {
+        int[] top = index.topCars[row];
+        List<CarResponseDTO> cars = new ArrayList<>(top.length);
+        for (int neighbor : top) {
+            cars.add(index.cars[neighbor]);
+        }
+        similar.put(index.ids[row], List.copyOf(cars));
+    }
+
+    /**
+     * Признаки автомобилей по столбцам и вычисленные списки похожих.
+     * Строки удаленных автомобилей не переиспользуются до полного пересчета,
+     * поэтому номера строк в списках и данных избранного остаются действительными.
+     */
+    private static final class Index {
+
+        private int size;
+        private long[] ids;
+        private int[] brands;
+        private int[] models;
+        private int[] years;
+        private double[] logPrices;
+        private boolean[] active;
+        private boolean[] candidates;
+        private CarResponseDTO[] cars;
+        private int[][] coFavoriteCars;
+        private double[][] coFavoriteWeights;
+        private int[][] topCars;
+        private double[][] topScores;
+        private final Map<Long, Integer> slots = new HashMap<>();
+        private final Map<String, Integer> brandCodes = new HashMap<>();
+        private final Map<String, Integer> modelCodes = new HashMap<>();
+
+        private Index(int capacity) {
+            resize(Math.max(16, capacity));
+        }
+
+        /**
+         * Добавляет или обновляет признаки автомобиля.
+         *
+         * @param car данные автомобиля
+         * @return строка автомобиля
+         */
+        int upsert(CarResponseDTO car) {
+            Integer slot = slots.get(car.getId());
+            int row;
+            if (slot != null) {
+                row = slot;
+            } else {
+                if (size == ids.length) {
+                    resize(size * 2);
+                }
+                row = size++;
+                slots.put(car.getId(), row);
+                topCars[row] = new int[0];
+                topScores[row] = new double[0];
+            }
+            String brand = car.getBrand() != null ? car.getBrand().toLowerCase(Locale.ROOT) : "";
+            String model = car.getModel() != null ? car.getModel().toLowerCase(Locale.ROOT) : "";
+            ids[row] = car.getId();
+            brands[row] = brandCodes.computeIfAbsent(brand, key -> brandCodes.size());
+            models[row] = modelCodes.computeIfAbsent(brand + '\u0000' + model, key -> modelCodes.size());
+            years[row] = car.getYear();
+            logPrices[row] = Math.log(Math.max(car.getPrice(), 1));
+            active[row] = true;
+            candidates[row] = car.isAvailable();
+            cars[row] = car;
+            return row;
+        }
+
+        void remove(int row) {
+            active[row] = false;
+            candidates[row] = false;
+            cars[row] = null;
+            topCars[row] = new int[0];
+            topScores[row] = new double[0];
+        }
+
+        /**
+         * Вычисляет сходство строки со всеми строками.
+         * Основной цикл работает только с массивами примитивов без ветвлений по данным.
+         *
+         * @param row строка
+         * @param scores массив для результатов (не короче количества строк)
+         */
+        void score(int row, double[] scores) {
+            int brand = brands[row];
+            int model = models[row];
+            int year = years[row];
+            double logPrice = logPrices[row];
+            for (int other = 0; other < size; other++) {
+                scores[other] = (brands[other] == brand ? BRAND_WEIGHT : 0)
+                        + (models[other] == model ? MODEL_WEIGHT : 0)
+                        + YEAR_WEIGHT * Math.max(0, 1 - Math.abs(years[other] - year) / YEAR_RANGE)
+                        + PRICE_WEIGHT * Math.max(0, 1 - Math.abs(logPrices[other] - logPrice) / PRICE_RANGE);
+            }
+            int[] coFavorites = coFavoriteCars[row];
+            if (coFavorites != null) {
+                for (int i = 0; i < coFavorites.length; i++) {
+                    scores[coFavorites[i]] += CO_FAVORITE_WEIGHT * coFavoriteWeights[row][i];
+                }
+            }
+        }
+
+        /**
+         * Выбирает наиболее похожие продающиеся автомобили для строки.
+         *
+         * @param row строка
+         * @param scores сходство строки со всеми строками
+         * @param limit количество похожих автомобилей
+         */
+        void selectTop(int row, double[] scores, int limit) {
+            int[] top = new int[limit];
+            double[] best = new double[limit];
+            int count = 0;
+            for (int other = 0; other < size; other++) {
+                if (other == row || !candidates[other]) {
+                    continue;
+                }
+                double score = scores[other];
+                if (count < limit) {
+                    insert(top, best, count++, other, score);
+                } else if (score > best[limit - 1]) {
+                    insert(top, best, limit - 1, other, score);
+                }
+            }
+            topCars[row] = Arrays.copyOf(top, count);
+            topScores[row] = Arrays.copyOf(best, count);
+        }
+
+        /**
+         * Добавляет автомобиль в список строки, если он ближе последнего соседа или список не заполнен.
+         *
+         * @param row строка
+         * @param candidate строка добавляемого автомобиля
+         * @param score сходство
+         * @param limit количество похожих автомобилей
+         * @return true, если список изменился
+         */
+        boolean offer(int row, int candidate, double score, int limit) {
+            if (row == candidate) {
+                return false;
+            }
+            int[] top = topCars[row];
+            double[] best = topScores[row];
+            int count = top.length;
+            if (count == limit && score <= best[limit - 1]) {
+                return false;
+            }
+            int[] newTop = Arrays.copyOf(top, Math.min(count + 1, limit));
+            double[] newBest = Arrays.copyOf(best, newTop.length);
+            insert(newTop, newBest, Math.min(count, limit - 1), candidate, score);
+            topCars[row] = newTop;
+            topScores[row] = newBest;
+            return true;
+        }
+
+        private static void insert(int[] top, double[] best, int position, int candidate, double score) {
+            while (position > 0 && best[position - 1] < score) {
+                top[position] = top[position - 1];
+                best[position] = best[position - 1];
+                position--;
+            }
+            top[position] = candidate;
+            best[position] = score;
+        }
+
+        private void resize(int capacity) {
+            ids = ids == null ? new long[capacity] : Arrays.copyOf(ids, capacity);
+            brands = brands == null ? new int[capacity] : Arrays.copyOf(brands, capacity);
+            models = models == null ? new int[capacity] : Arrays.copyOf(models, capacity);
+            years = years == null ? new int[capacity] : Arrays.copyOf(years, capacity);
+            logPrices = logPrices == null ? new double[capacity] : Arrays.copyOf(logPrices, capacity);
+            active = active == null ? new boolean[capacity] : Arrays.copyOf(active, capacity);
+            candidates = candidates == null ? new boolean[capacity] : Arrays.copyOf(candidates, capacity);
+            cars = cars == null ? new CarResponseDTO[capacity] : Arrays.copyOf(cars, capacity);
+            coFavoriteCars = coFavoriteCars == null ? new int[capacity][] : Arrays.copyOf(coFavoriteCars, capacity);
+            coFavoriteWeights = coFavoriteWeights == null ? new double[capacity][] : Arrays.copyOf(coFavoriteWeights, capacity);
+            topCars = topCars == null ? new int[capacity][] : Arrays.copyOf(topCars, capacity);
+            topScores = topScores == null ? new double[capacity][] : Arrays.copyOf(topScores, capacity);
+        }
+    }
+
+    /**
+     * Задача fork-join, пересчитывающая списки похожих для диапазона строк.
+     * Диапазон делится пополам, пока не станет меньше {@link #ROWS_PER_TASK} строк.
+     */
+    private static final class RowsTask extends RecursiveAction {
+
+        private final Index index;
+        private final int limit;
+        private final int[] rows;
+        private final int from;
+        private final int to;
+
+        private RowsTask(Index index, int limit, int[] rows, int from, int to) {
+            this.index = index;
+            this.limit = limit;
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > ROWS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RowsTask(index, limit, rows, from, middle), new RowsTask(index, limit, rows, middle, to));
+                return;
+            }
+            double[] scores = new double[index.size];
+            for (int i = from; i < to; i++) {
+                if (index.active[rows[i]]) {
+                    index.score(rows[i], scores);
+                    index.selectTop(rows[i], scores, limit);
+                }
+            }
+        }
+    }
+}
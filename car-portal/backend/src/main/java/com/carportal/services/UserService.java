@@ -1,27 +1,45 @@
 package com.carportal.services;
 
+import com.carportal.dto.request.RefreshTokenDTO;
 import com.carportal.dto.request.UserCreateDTO;
 import com.carportal.dto.request.UserEditDTO;
 import com.carportal.dto.request.UserLoginDTO;
+import com.carportal.dto.response.CarResponseDTO;
+import com.carportal.dto.response.TokenResponseDTO;
 import com.carportal.dto.response.UserResponseDTO;
+import com.carportal.events.CarChangedEvent;
+import com.carportal.events.ChangeType;
+import com.carportal.events.NewsChangedEvent;
+import com.carportal.events.UserChangedEvent;
 import com.carportal.exception.EntityAlreadyExistsException;
 import com.carportal.exception.EntityNotFoundException;
+import com.carportal.exception.InvalidTokenException;
+import com.carportal.metrics.ImageIoMetrics;
 import com.carportal.models.User;
 import com.carportal.repository.UserRepository;
+import com.carportal.security.AuthenticatedUser;
+import com.carportal.security.LoginRateLimiter;
+import com.carportal.security.TokenService;
+import com.carportal.security.TtlUserCache;
+import com.carportal.utils.mapper.CarMapper;
 import com.carportal.utils.mapper.UserMapper;
 import com.carportal.utils.security.UtilsSecurity;
 import com.carportal.utils.validation.UserParamsValidator;
 import jakarta.servlet.http.HttpSession;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.nio.file.Files;
@@ -44,6 +62,12 @@ public class UserService {
     private final AuthenticationManager authenticationManager;
     private final PasswordEncoder passwordEncoder;
     private final UtilsSecurity utilsSecurity;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ImageIoMetrics imageIoMetrics;
+    private final LoginActivityService loginActivityService;
+    private final LoginRateLimiter loginRateLimiter;
+    private final TtlUserCache userCache;
+    private final TokenService tokenService;
 
     /**
      * Регистрирует нового пользователя.
@@ -55,18 +79,17 @@ public class UserService {
         UserParamsValidator.userParamsValidate(userCreateDTO);
 
         if (userRepository.findByUsername(userCreateDTO.getUsername()).isPresent()) {
-            throw new EntityAlreadyExistsException("Пользователь с таким именем уже существует!");
+            throw EntityAlreadyExistsException.USERNAME_TAKEN;
         }
 
         if (userRepository.findByEmail(userCreateDTO.getEmail()).isPresent()) {
-            throw new EntityAlreadyExistsException("Пользователь с таким email уже существует!");
+            throw EntityAlreadyExistsException.EMAIL_TAKEN;
         }
 
         if (userCreateDTO.getPhone() != null &&
                 !userCreateDTO.getPhone().trim().isEmpty() &&
-                userRepository.findAll().stream()
-                        .anyMatch(u -> userCreateDTO.getPhone().equals(u.getPhone()))) {
-            throw new EntityAlreadyExistsException("Пользователь с таким телефоном уже существует!");
+                userRepository.existsByPhone(userCreateDTO.getPhone())) {
+            throw EntityAlreadyExistsException.PHONE_TAKEN;
         }
 
         User user = UserMapper.userCreateDtoToUser(userCreateDTO);
@@ -75,43 +98,66 @@ public class UserService {
         user.setAvatar("http://localhost:8080/images/userImages/defaultUserImage.jpg");
 
         User savedUser = userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(ChangeType.ADDED, savedUser.getId(), null, savedUser.getRole()));
         return UserMapper.userToUserResponseDTO(savedUser);
     }
 
     /**
      * Выполняет вход пользователя в систему.
+     * Частота попыток ограничивается до обращения к базе данных и проверки пароля.
+     * Неизвестное имя пользователя и неверный пароль завершаются исключениями
+     * UsernameNotFoundException и BadCredentialsException провайдера аутентификации.
+     * Данные для ответа берутся по идентификатору пользователя из аутентификации без повторного поиска по имени.
      *
      * @param userLoginDTO данные для входа
      * @param session HTTP сессия
+     * @param clientIp IP-адрес клиента
      * @return авторизованный пользователь в формате UserResponseDTO
      */
-    public UserResponseDTO login(UserLoginDTO userLoginDTO, HttpSession session) {
-        try {
-            Authentication authentication = authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(
-                            userLoginDTO.getUsername(),
-                            userLoginDTO.getPassword()
-                    )
-            );
+    public UserResponseDTO login(UserLoginDTO userLoginDTO, HttpSession session, String clientIp) {
+        Authentication authentication = authenticate(userLoginDTO, clientIp);
 
-            SecurityContextHolder.getContext().setAuthentication(authentication);
-            session.setAttribute("SPRING_SECURITY_CONTEXT", SecurityContextHolder.getContext());
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+        session.setAttribute("SPRING_SECURITY_CONTEXT", SecurityContextHolder.getContext());
 
-            User user = userRepository.findByUsername(userLoginDTO.getUsername())
-                    .orElseThrow(() -> new EntityNotFoundException("Пользователь не найден!"));
+        return recordLogin(authenticatedUser(authentication));
+    }
 
-            user.setLastLoginAt(LocalDateTime.now());
-            userRepository.save(user);
+    /**
+     * Выполняет вход пользователя без создания сессии.
+     * Проверки те же, что при входе с сессией; вместо сессии выдается пара токенов.
+     *
+     * @param userLoginDTO данные для входа
+     * @param clientIp IP-адрес клиента
+     * @return токены доступа и обновления и данные пользователя
+     */
+    public TokenResponseDTO loginWithToken(UserLoginDTO userLoginDTO, String clientIp) {
+        User user = authenticatedUser(authenticate(userLoginDTO, clientIp));
+        return issueTokens(user, recordLogin(user));
+    }
 
-            return UserMapper.userToUserResponseDTO(user);
+    /**
+     * Обменивает токен обновления на новую пару токенов.
+     * Роль пользователя в новом токене доступа берется из базы данных.
+     *
+     * @param refreshTokenDTO токен обновления
+     * @return новые токены доступа и обновления и данные пользователя
+     */
+    public TokenResponseDTO refreshToken(RefreshTokenDTO refreshTokenDTO) {
+        Long userId = tokenService.consumeRefreshToken(refreshTokenDTO.getRefreshToken());
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> InvalidTokenException.INVALID_REFRESH_TOKEN);
+        return issueTokens(user, UserMapper.userToUserResponseDTO(user));
+    }
 
-        } catch (BadCredentialsException e) {
-            if (!userRepository.findByUsername(userLoginDTO.getUsername()).isPresent()) {
-                throw new EntityNotFoundException("Пользователь с именем '" + userLoginDTO.getUsername() + "' не найден");
-            } else {
-                throw new BadCredentialsException("Неверный пароль");
-            }
-        }
+    /**
+     * Выполняет выход пользователя, вошедшего без сессии: токен обновления погашается,
+     * а выпущенные пользователю токены доступа отзываются.
+     *
+     * @param refreshTokenDTO токен обновления
+     */
+    public void revokeToken(RefreshTokenDTO refreshTokenDTO) {
+        tokenService.revokeAccessTokens(tokenService.consumeRefreshToken(refreshTokenDTO.getRefreshToken()));
     }
 
     /**
@@ -119,6 +165,7 @@ public class UserService {
      *
      * @return данные текущего пользователя, если авторизован
      */
+    @Transactional(readOnly = true)
     public UserResponseDTO checkLogin() {
         return UserMapper.userToUserResponseDTO(utilsSecurity.getCurrentUser());
     }
@@ -146,15 +193,24 @@ public class UserService {
         if (!Objects.equals(user.getId(), userEditDTO.getId())) {
             throw new EntityNotFoundException("Ошибка поиска пользователя");
         }
+        userCache.evict(user.getUsername());
         boolean isUpdated = false;
 
         if (userEditDTO.getUsername() != null && !userEditDTO.getUsername().isEmpty() &&
                 !user.getUsername().equals(userEditDTO.getUsername())) {
             if (userRepository.findByUsername(userEditDTO.getUsername()).isPresent()) {
-                throw new EntityAlreadyExistsException("Пользователь с таким именем уже существует!");
+                throw EntityAlreadyExistsException.USERNAME_TAKEN;
             }
             UserParamsValidator.usernameValidate(userEditDTO.getUsername());
+            String oldUsername = user.getUsername();
             user.setUsername(userEditDTO.getUsername());
+            user.getCars().forEach(car -> {
+                CarResponseDTO previous = CarMapper.carToCarResponseDTO(car);
+                previous.setSellerName(oldUsername);
+                eventPublisher.publishEvent(new CarChangedEvent(ChangeType.UPDATED, car.getId(),
+                        previous, CarMapper.carToCarResponseDTO(car)));
+            });
+            eventPublisher.publishEvent(new NewsChangedEvent(ChangeType.UPDATED, null));
             isUpdated = true;
         }
 
@@ -162,13 +218,14 @@ public class UserService {
                 !passwordEncoder.matches(userEditDTO.getPassword(), user.getPassword())) {
             UserParamsValidator.passwordValidate(userEditDTO.getPassword());
             user.setPassword(passwordEncoder.encode(userEditDTO.getPassword()));
+            tokenService.revokeAllTokens(user.getId());
             isUpdated = true;
         }
 
         if (userEditDTO.getEmail() != null && !userEditDTO.getEmail().isEmpty() &&
                 !user.getEmail().equals(userEditDTO.getEmail())) {
             if (userRepository.findByEmail(userEditDTO.getEmail()).isPresent()) {
-                throw new EntityAlreadyExistsException("Пользователь с таким email уже существует!");
+                throw EntityAlreadyExistsException.EMAIL_TAKEN;
             }
             UserParamsValidator.emailValidate(userEditDTO.getEmail());
             user.setEmail(userEditDTO.getEmail());
@@ -177,9 +234,8 @@ public class UserService {
 
         if (userEditDTO.getPhone() != null && !userEditDTO.getPhone().equals(user.getPhone())) {
             if (userEditDTO.getPhone() != null && !userEditDTO.getPhone().trim().isEmpty()) {
-                if (userRepository.findAll().stream()
-                        .anyMatch(u -> userEditDTO.getPhone().equals(u.getPhone()) && !u.getId().equals(user.getId()))) {
-                    throw new EntityAlreadyExistsException("Пользователь с таким телефоном уже существует!");
+                if (userRepository.existsByPhoneAndIdNot(userEditDTO.getPhone(), user.getId())) {
+                    throw EntityAlreadyExistsException.PHONE_TAKEN;
                 }
                 UserParamsValidator.phoneValidate(userEditDTO.getPhone());
                 user.setPhone(userEditDTO.getPhone());
@@ -222,7 +278,7 @@ public class UserService {
                     String oldFileName = oldAvatar.substring(oldAvatar.lastIndexOf("/") + 1);
                     Path oldFilePath = uploadPath.resolve(oldFileName);
                     if (Files.exists(oldFilePath)) {
-                        Files.delete(oldFilePath);
+                        imageIoMetrics.record(ImageIoMetrics.DELETE, () -> Files.delete(oldFilePath));
                         log.info("Старый аватар удален: {}", oldFileName);
                     }
                 } catch (Exception e) {
@@ -240,7 +296,7 @@ public class UserService {
             String fileName = user.getUsername() + "_" + timestamp + fileExtension;
             Path filePath = uploadPath.resolve(fileName);
 
-            file.transferTo(filePath.toFile());
+            imageIoMetrics.record(ImageIoMetrics.WRITE, () -> file.transferTo(filePath.toFile()));
 
             String avatarUrl = "http://localhost:8080/images/userImages/" + fileName;
             user.setAvatar(avatarUrl);
@@ -275,7 +331,7 @@ public class UserService {
                     Path filePath = Paths.get(uploadDir, fileName);
 
                     if (Files.exists(filePath)) {
-                        Files.delete(filePath);
+                        imageIoMetrics.record(ImageIoMetrics.DELETE, () -> Files.delete(filePath));
                         log.info("Файл аватара удален: {}", fileName);
                     }
                 } catch (Exception e) {
@@ -296,8 +352,75 @@ public class UserService {
         }
     }
 
+    /**
+     * Проверяет учетные данные с ограничением частоты попыток.
+     *
+     * @param userLoginDTO данные для входа
+     * @param clientIp IP-адрес клиента
+     * @return результат аутентификации
+     */
+    private Authentication authenticate(UserLoginDTO userLoginDTO, String clientIp) {
+        loginRateLimiter.acquire(userLoginDTO.getUsername(), clientIp);
+
+        return authenticationManager.authenticate(
+                new UsernamePasswordAuthenticationToken(
+                        userLoginDTO.getUsername(),
+                        userLoginDTO.getPassword()
+                )
+        );
+    }
+
+    /**
+     * Получает вошедшего пользователя по идентификатору из аутентификации.
+     * Если данные пользователя загружены из базы данных при проверке пароля, сущность уже находится
+     * в контексте персистентности текущей транзакции и повторного запроса нет; если они взяты из кеша,
+     * выполняется поиск по первичному ключу. Поиск по имени остается для аутентификации без идентификатора.
+     *
+     * @param authentication результат аутентификации
+     * @return сущность пользователя
+     */
+    private User authenticatedUser(Authentication authentication) {
+        if (authentication.getPrincipal() instanceof AuthenticatedUser principal) {
+            return userRepository.findById(principal.getId())
+                    .orElseThrow(() -> EntityNotFoundException.USER_NOT_FOUND);
+        }
+        return userRepository.findByUsername(authentication.getName())
+                .orElseThrow(() -> EntityNotFoundException.USER_NOT_FOUND);
+    }
+
+    /**
+     * Учитывает вход пользователя в статистике посещений.
+     *
+     * @param user пользователь
+     * @return данные пользователя с учетом еще не записанных входов
+     */
+    private UserResponseDTO recordLogin(User user) {
+        LocalDateTime loginAt = LocalDateTime.now();
+        int pendingVisits = loginActivityService.recordLogin(user.getId(), loginAt);
+        return UserMapper.userToUserResponseDTO(user, loginAt, user.getVisitCount() + pendingVisits);
+    }
+
+    /**
+     * Выпускает пару токенов для пользователя.
+     *
+     * @param user пользователь
+     * @param userResponse данные пользователя для ответа
+     * @return токены доступа и обновления и данные пользователя
+     */
+    private TokenResponseDTO issueTokens(User user, UserResponseDTO userResponse) {
+        return new TokenResponseDTO(
+                tokenService.issueAccessToken(user.getId(), user.getRole()),
+                "Bearer",
+                tokenService.getAccessTtl().toSeconds(),
+                tokenService.issueRefreshToken(user.getId()),
+                userResponse
+        );
+    }
+
     /**
      * Обновляет контекст аутентификации.
+     * Контекст заново записывается в сессию: хранилище сессий сохраняет только измененные атрибуты,
+     * и без этого следующий запрос с той же сессией получил бы контекст с прежним именем пользователя.
      *
      * @param updatedUser обновленный пользователь
      */
@@ -317,7 +440,16 @@ public class UserService {
                             userDetails.getAuthorities()
                     );
             newAuth.setDetails(auth.getDetails());
-            SecurityContextHolder.getContext().setAuthentication(newAuth);
+            SecurityContext context = SecurityContextHolder.getContext();
+            context.setAuthentication(newAuth);
+
+            if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+                HttpSession session = attributes.getRequest().getSession(false);
+                if (session != null
+                        && session.getAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY) != null) {
+                    session.setAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY, context);
+                }
+            }
         }
     }
 }
\ No newline at end of file
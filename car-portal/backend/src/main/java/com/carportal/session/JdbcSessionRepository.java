@@ -0,0 +1,256 @@
+package com.carportal.session;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.session.MapSession;
+import org.springframework.session.SessionRepository;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Хранилище HTTP-сессий в базе данных, общее для всех экземпляров приложения.
+ * Подключается к Spring Session как реализация {@link SessionRepository}, поэтому может быть заменено
+ * другим хранилищем без изменения остального кода.
+ * Строка сессии записывается только при создании сессии и изменении ее атрибутов, идентификатора
+ * или времени жизни. Время последнего обращения, меняющееся при каждом запросе, накапливается в памяти
+ * и записывается пакетно; истекшие сессии удаляются периодически по индексу времени истечения.
+ */
+@Component
+@Slf4j
+public class JdbcSessionRepository implements SessionRepository<StoredSession> {
+
+    /** Максимальное количество сессий в одном запросе обновления времени обращения */
+    private static final int TOUCH_BATCH_SIZE = 500;
+
+    /** Максимальное количество сессий, удаляемых одним запросом */
+    private static final int CLEANUP_BATCH_SIZE = 1000;
+
+    private static final String SELECT_SESSION = "SELECT creation_time, last_access_time, max_inactive_interval, "
+            + "attributes FROM http_sessions WHERE id = ?";
+    private static final String INSERT_SESSION = "INSERT INTO http_sessions (id, principal_name, creation_time, "
+            + "last_access_time, max_inactive_interval, expiry_time, attributes) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_SESSION = "UPDATE http_sessions SET id = ?, principal_name = ?, "
+            + "last_access_time = ?, max_inactive_interval = ?, expiry_time = ?, attributes = ? WHERE id = ?";
+    private static final String DELETE_SESSION = "DELETE FROM http_sessions WHERE id = ?";
+    private static final String DELETE_EXPIRED = "DELETE FROM http_sessions WHERE id IN "
+            + "(SELECT id FROM http_sessions WHERE expiry_time < ? LIMIT " + CLEANUP_BATCH_SIZE + ")";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration defaultMaxInactiveInterval;
+    private final Map<String, Long> pendingTouches = new ConcurrentHashMap<>();
+    private final Counter inserts;
+    private final Counter updates;
+    private final Counter touchBatches;
+
+    /**
+     * Создает хранилище сессий.
+     *
+     * @param jdbcTemplate шаблон JDBC
+     * @param defaultMaxInactiveInterval время жизни неактивной сессии
+     * @param meterRegistry реестр метрик
+     */
+    public JdbcSessionRepository(JdbcTemplate jdbcTemplate,
+                                 @Value("${server.servlet.session.timeout:30m}") Duration defaultMaxInactiveInterval,
+                                 MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.defaultMaxInactiveInterval = defaultMaxInactiveInterval;
+        this.inserts = writeCounter(meterRegistry, "insert");
+        this.updates = writeCounter(meterRegistry, "update");
+        this.touchBatches = writeCounter(meterRegistry, "touch-batch");
+    }
+
+    @Override
+    public StoredSession createSession() {
+        MapSession session = new MapSession();
+        session.setMaxInactiveInterval(defaultMaxInactiveInterval);
+        return new StoredSession(session, true);
+    }
+
+    /**
+     * Сохраняет сессию.
+     * Новая или измененная сессия записывается одним запросом; если изменилось только время последнего
+     * обращения, оно откладывается до пакетной записи.
+     *
+     * @param session сессия
+     */
+    @Override
+    public void save(StoredSession session) {
+        if (session.isNew()) {
+            MapSession data = session.getDelegate();
+            jdbcTemplate.update(INSERT_SESSION, data.getId(), principalName(data),
+                    data.getCreationTime().toEpochMilli(), data.getLastAccessedTime().toEpochMilli(),
+                    (int) data.getMaxInactiveInterval().toSeconds(), expiryTime(data),
+                    SessionAttributeCodec.encode(attributes(data)));
+            inserts.increment();
+        } else if (session.isChanged()) {
+            MapSession data = session.getDelegate();
+            pendingTouches.remove(session.getPersistedId());
+            jdbcTemplate.update(UPDATE_SESSION, data.getId(), principalName(data),
+                    data.getLastAccessedTime().toEpochMilli(), (int) data.getMaxInactiveInterval().toSeconds(),
+                    expiryTime(data), SessionAttributeCodec.encode(attributes(data)), session.getPersistedId());
+            updates.increment();
+        } else if (session.isTouched()) {
+            pendingTouches.merge(session.getId(), session.getLastAccessedTime().toEpochMilli(), Math::max);
+        }
+        session.markSaved();
+    }
+
+    /**
+     * Находит сессию по идентификатору.
+     * Истекшая сессия удаляется и не возвращается.
+     *
+     * @param id идентификатор сессии
+     * @return сессия или null
+     */
+    @Override
+    public StoredSession findById(String id) {
+        List<MapSession> found = jdbcTemplate.query(SELECT_SESSION, (resultSet, rowNum) -> {
+            MapSession session = new MapSession(id);
+            session.setCreationTime(Instant.ofEpochMilli(resultSet.getLong("creation_time")));
+            session.setLastAccessedTime(Instant.ofEpochMilli(resultSet.getLong("last_access_time")));
+            session.setMaxInactiveInterval(Duration.ofSeconds(resultSet.getInt("max_inactive_interval")));
+            SessionAttributeCodec.decode(resultSet.getBytes("attributes")).forEach(session::setAttribute);
+            return session;
+        }, id);
+        if (found.isEmpty()) {
+            return null;
+        }
+
+        MapSession session = found.get(0);
+        Long touchedAt = pendingTouches.get(id);
+        if (touchedAt != null && touchedAt > session.getLastAccessedTime().toEpochMilli()) {
+            session.setLastAccessedTime(Instant.ofEpochMilli(touchedAt));
+        }
+        if (session.isExpired()) {
+            deleteById(id);
+            return null;
+        }
+        return new StoredSession(session, false);
+    }
+
+    @Override
+    public void deleteById(String id) {
+        pendingTouches.remove(id);
+        jdbcTemplate.update(DELETE_SESSION, id);
+    }
+
+    /**
+     * Записывает накопленное время последнего обращения к сессиям.
+     * При аварийном завершении теряются обращения не более чем за один интервал записи:
+     * сессия в худшем случае истечет на этот интервал раньше.
+     */
+    @Scheduled(fixedDelayString = "${carportal.session.touch-flush-interval-ms:10000}")
+    public void flushTouches() {
+        if (pendingTouches.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> rows = new ArrayList<>();
+        for (String id : pendingTouches.keySet()) {
+            Long touchedAt = pendingTouches.remove(id);
+            if (touchedAt != null) {
+                rows.add(new Object[]{id, touchedAt});
+            }
+        }
+
+        for (int from = 0; from < rows.size(); from += TOUCH_BATCH_SIZE) {
+            List<Object[]> batch = rows.subList(from, Math.min(rows.size(), from + TOUCH_BATCH_SIZE));
+            Object[] args = new Object[batch.size() * 2];
+            for (int i = 0; i < batch.size(); i++) {
+                args[i * 2] = batch.get(i)[0];
+                args[i * 2 + 1] = batch.get(i)[1];
+            }
+            try {
+                jdbcTemplate.update(touchSql(batch.size()), args);
+                touchBatches.increment();
+            } catch (RuntimeException e) {
+                log.error("Ошибка записи времени обращения для {} сессий: {}", batch.size(), e.getMessage());
+                batch.forEach(row -> pendingTouches.merge((String) row[0], (Long) row[1], Math::max));
+            }
+        }
+    }
+
+    /**
+     * Удаляет истекшие сессии порциями, чтобы не удерживать долгие блокировки.
+     * Перед удалением записывается накопленное время обращения, чтобы не удалить активные сессии.
+     */
+    @Scheduled(fixedDelayString = "${carportal.session.cleanup-interval-ms:60000}")
+    public void cleanUpExpiredSessions() {
+        flushTouches();
+        long now = System.currentTimeMillis();
+        int deleted;
+        int total = 0;
+        do {
+            deleted = jdbcTemplate.update(DELETE_EXPIRED, now);
+            total += deleted;
+        } while (deleted == CLEANUP_BATCH_SIZE);
+        if (total > 0) {
+            log.debug("Удалено истекших сессий: {}", total);
+        }
+    }
+
+    /**
+     * Записывает накопленное время обращения при остановке приложения.
+     */
+    @PreDestroy
+    public void shutdown() {
+        flushTouches();
+    }
+
+    /**
+     * Формирует запрос обновления времени обращения для указанного количества сессий.
+     * Время обращения не уменьшается, если другой экземпляр приложения уже записал более позднее.
+     */
+    private static String touchSql(int rows) {
+        return "UPDATE http_sessions s SET last_access_time = GREATEST(s.last_access_time, v.touched_at), "
+                + "expiry_time = CASE WHEN s.max_inactive_interval < 0 THEN s.expiry_time "
+                + "ELSE GREATEST(s.last_access_time, v.touched_at) + s.max_inactive_interval * 1000::bigint END "
+                + "FROM (VALUES " + String.join(", ", Collections.nCopies(rows, "(?, ?::bigint)"))
+                + ") AS v(id, touched_at) WHERE s.id = v.id";
+    }
+
+    private static long expiryTime(MapSession session) {
+        if (session.getMaxInactiveInterval().isNegative()) {
+            return Long.MAX_VALUE;
+        }
+        return session.getLastAccessedTime().plus(session.getMaxInactiveInterval()).toEpochMilli();
+    }
+
+    private static Map<String, Object> attributes(MapSession session) {
+        Map<String, Object> attributes = new HashMap<>();
+        for (String name : session.getAttributeNames()) {
+            attributes.put(name, session.getAttribute(name));
+        }
+        return attributes;
+    }
+
+    private static String principalName(MapSession session) {
+        Object context = session.getAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY);
+        if (context instanceof SecurityContext securityContext && securityContext.getAuthentication() != null) {
+            return securityContext.getAuthentication().getName();
+        }
+        return null;
+    }
+
+    private static Counter writeCounter(MeterRegistry meterRegistry, String kind) {
+        return Counter.builder("carportal.session.writes")
+                .description("Запросы записи в хранилище HTTP-сессий")
+                .tag("kind", kind)
+                .register(meterRegistry);
+    }
+}
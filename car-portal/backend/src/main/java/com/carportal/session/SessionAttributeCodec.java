@@ -0,0 +1,145 @@
+package com.carportal.session;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Утилитный класс для компактной двоичной сериализации атрибутов сессии.
+ * Контекст безопасности после входа записывается как имя пользователя и список ролей (несколько десятков байт
+ * вместо нескольких килобайт стандартной сериализации Java). Остальные атрибуты сериализуются стандартно.
+ */
+public abstract class SessionAttributeCodec {
+
+    private static final byte VERSION = 1;
+
+    private static final byte JAVA_SERIALIZED = 0;
+    private static final byte SECURITY_CONTEXT = 1;
+
+    /**
+     * Сериализует атрибуты сессии.
+     *
+     * @param attributes атрибуты сессии
+     * @return двоичное представление
+     */
+    public static byte[] encode(Map<String, Object> attributes) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeShort(attributes.size());
+            for (Map.Entry<String, Object> attribute : attributes.entrySet()) {
+                out.writeUTF(attribute.getKey());
+                UserDetails principal = compactPrincipal(attribute.getValue());
+                if (principal != null) {
+                    out.writeByte(SECURITY_CONTEXT);
+                    out.writeUTF(principal.getUsername());
+                    out.writeShort(principal.getAuthorities().size());
+                    for (GrantedAuthority authority : principal.getAuthorities()) {
+                        out.writeUTF(authority.getAuthority());
+                    }
+                } else {
+                    byte[] serialized = javaSerialize(attribute.getValue());
+                    out.writeByte(JAVA_SERIALIZED);
+                    out.writeInt(serialized.length);
+                    out.write(serialized);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Восстанавливает атрибуты сессии.
+     *
+     * @param data двоичное представление
+     * @return атрибуты сессии
+     */
+    public static Map<String, Object> decode(byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new IllegalStateException("Неизвестная версия формата атрибутов сессии: " + version);
+            }
+            int count = in.readUnsignedShort();
+            Map<String, Object> attributes = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                byte type = in.readByte();
+                if (type == SECURITY_CONTEXT) {
+                    attributes.put(name, readSecurityContext(in));
+                } else {
+                    byte[] serialized = new byte[in.readInt()];
+                    in.readFully(serialized);
+                    attributes.put(name, javaDeserialize(serialized));
+                }
+            }
+            return attributes;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Получает пользователя из контекста безопасности, если контекст можно записать компактно:
+     * это стандартный контекст с выполненной аутентификацией по имени и паролю.
+     */
+    private static UserDetails compactPrincipal(Object value) {
+        if (value == null || value.getClass() != SecurityContextImpl.class) {
+            return null;
+        }
+        Authentication authentication = ((SecurityContext) value).getAuthentication();
+        if (authentication == null || authentication.getClass() != UsernamePasswordAuthenticationToken.class
+                || !authentication.isAuthenticated()
+                || !(authentication.getPrincipal() instanceof UserDetails principal)) {
+            return null;
+        }
+        return principal;
+    }
+
+    private static SecurityContext readSecurityContext(DataInputStream in) throws IOException {
+        String username = in.readUTF();
+        int count = in.readUnsignedShort();
+        List<GrantedAuthority> authorities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            authorities.add(new SimpleGrantedAuthority(in.readUTF()));
+        }
+        User principal = new User(username, "", authorities);
+        return new SecurityContextImpl(UsernamePasswordAuthenticationToken.authenticated(principal, null, authorities));
+    }
+
+    private static byte[] javaSerialize(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object javaDeserialize(byte[] data) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            return in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Неизвестный класс атрибута сессии: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.carportal.session;
+
+import org.springframework.session.MapSession;
+import org.springframework.session.Session;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * HTTP-сессия, хранимая в {@link JdbcSessionRepository}.
+ * Отслеживает изменения, чтобы при сохранении записывать строку сессии только после изменения атрибутов,
+ * идентификатора или времени жизни, а обновление времени последнего обращения откладывать.
+ */
+public class StoredSession implements Session {
+
+    private final MapSession delegate;
+    private String persistedId;
+    private boolean isNew;
+    private boolean changed;
+    private Instant persistedLastAccessedTime;
+
+    /**
+     * Создает сессию.
+     *
+     * @param delegate данные сессии
+     * @param isNew true для сессии, которой еще нет в хранилище
+     */
+    StoredSession(MapSession delegate, boolean isNew) {
+        this.delegate = delegate;
+        this.persistedId = delegate.getId();
+        this.isNew = isNew;
+        this.changed = isNew;
+        this.persistedLastAccessedTime = delegate.getLastAccessedTime();
+    }
+
+    @Override
+    public String getId() {
+        return delegate.getId();
+    }
+
+    @Override
+    public String changeSessionId() {
+        changed = true;
+        return delegate.changeSessionId();
+    }
+
+    @Override
+    public <T> T getAttribute(String attributeName) {
+        return delegate.getAttribute(attributeName);
+    }
+
+    @Override
+    public Set<String> getAttributeNames() {
+        return delegate.getAttributeNames();
+    }
+
+    @Override
+    public void setAttribute(String attributeName, Object attributeValue) {
+        changed = true;
+        delegate.setAttribute(attributeName, attributeValue);
+    }
+
+    @Override
+    public void removeAttribute(String attributeName) {
+        if (delegate.getAttribute(attributeName) != null) {
+            changed = true;
+        }
+        delegate.removeAttribute(attributeName);
+    }
+
+    @Override
+    public Instant getCreationTime() {
+        return delegate.getCreationTime();
+    }
+
+    @Override
+    public void setLastAccessedTime(Instant lastAccessedTime) {
+        delegate.setLastAccessedTime(lastAccessedTime);
+    }
+
+    @Override
+    public Instant getLastAccessedTime() {
+        return delegate.getLastAccessedTime();
+    }
+
+    @Override
+    public void setMaxInactiveInterval(Duration interval) {
+        if (!interval.equals(delegate.getMaxInactiveInterval())) {
+            changed = true;
+        }
+        delegate.setMaxInactiveInterval(interval);
+    }
+
+    @Override
+    public Duration getMaxInactiveInterval() {
+        return delegate.getMaxInactiveInterval();
+    }
+
+    @Override
+    public boolean isExpired() {
+        return delegate.isExpired();
+    }
+
+    MapSession getDelegate() {
+        return delegate;
+    }
+
+    String getPersistedId() {
+        return persistedId;
+    }
+
+    boolean isNew() {
+        return isNew;
+    }
+
+    boolean isChanged() {
+        return changed;
+    }
+
+    boolean isTouched() {
+        return !delegate.getLastAccessedTime().equals(persistedLastAccessedTime);
+    }
+
+    /**
+     * Отмечает сессию сохраненной.
+     */
+    void markSaved() {
+        persistedId = delegate.getId();
+        isNew = false;
+        changed = false;
+        persistedLastAccessedTime = delegate.getLastAccessedTime();
+    }
+}
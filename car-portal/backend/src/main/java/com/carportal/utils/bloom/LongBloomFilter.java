@@ -0,0 +1,106 @@
+package com.carportal.utils.bloom;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Фильтр Блума для идентификаторов типа long.
+ * Отвечает на вопрос «может ли идентификатор существовать»: отрицательный ответ точен,
+ * положительный допускает ложные срабатывания с заданной вероятностью.
+ * Добавление и проверка потокобезопасны и не используют блокировок.
+ */
+public class LongBloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * Создает фильтр, рассчитанный на указанное количество элементов.
+     *
+     * @param expectedInsertions ожидаемое количество элементов
+     * @param falsePositiveRate допустимая вероятность ложного срабатывания
+     */
+    public LongBloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(1, expectedInsertions);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.max(1, (m + 63) / 64);
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+    }
+
+    /**
+     * Добавляет идентификатор в фильтр.
+     *
+     * @param value идентификатор
+     */
+    public void put(long value) {
+        long hash = mix(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long index = indexOf(h1 + i * h2);
+            int word = (int) (index >>> 6);
+            long mask = 1L << index;
+            long current = bits.get(word);
+            while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+                current = bits.get(word);
+            }
+        }
+    }
+
+    /**
+     * Проверяет, может ли идентификатор присутствовать в фильтре.
+     *
+     * @param value идентификатор
+     * @return false, если идентификатор точно не добавлялся
+     */
+    public boolean mightContain(long value) {
+        long hash = mix(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long index = indexOf(h1 + i * h2);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Получает размер битового массива.
+     *
+     * @return количество бит
+     */
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    /**
+     * Получает количество хеш-функций.
+     *
+     * @return количество хеш-функций
+     */
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    private long indexOf(int combinedHash) {
+        return (combinedHash & 0x7fffffffL) % bitCount;
+    }
+
+    /**
+     * Перемешивает биты значения (финализатор MurmurHash3), чтобы последовательные
+     * идентификаторы равномерно распределялись по битовому массиву.
+     */
+    private static long mix(long value) {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,135 @@
+package com.carportal.utils.concurrent;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Фоновое обновление структуры в памяти, объединяющее запросы.
+ * Запросы, поступившие во время обновления, не запускают параллельных обновлений: их применяет
+ * выполняющееся обновление повторным проходом после завершения текущего. Запрос проверяется
+ * после снятия блокировки, поэтому изменение, запрошенное в момент завершения обновления,
+ * не ждет следующего периодического вызова {@link #run()}.
+ * <p>
+ * Первое успешное обновление и обновление после {@link #requestRebuild()} выполняются с признаком
+ * полной перестройки; если оно завершилось ошибкой, перестройка повторяется при следующем обновлении.
+ * Ошибки обновления журналируются, а повторный проход после ошибки выполняется только при следующем
+ * запросе или периодическом вызове, чтобы недоступная база данных не вызывала обновления в цикле.
+ */
+@Slf4j
+public class CoalescingUpdater implements AutoCloseable {
+
+    /**
+     * Обновление структуры. Вызывается не более чем в одном потоке одновременно.
+     */
+    @FunctionalInterface
+    public interface Task {
+
+        /**
+         * Применяет накопленные изменения.
+         *
+         * @param rebuild true, если структуру нужно построить заново
+         */
+        void update(boolean rebuild);
+    }
+
+    private final String failureMessage;
+    private final Task task;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicBoolean requested = new AtomicBoolean();
+    private final AtomicBoolean rebuildRequested = new AtomicBoolean();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private boolean built;
+
+    /**
+     * Создает обновление.
+     *
+     * @param failureMessage сообщение журнала при ошибке обновления
+     * @param task обновление структуры
+     */
+    public CoalescingUpdater(String failureMessage, Task task) {
+        this.failureMessage = failureMessage;
+        this.task = task;
+    }
+
+    /**
+     * Запрашивает обновление на виртуальном потоке.
+     */
+    public void request() {
+        requested.set(true);
+        if (!lock.isLocked()) {
+            executor.execute(this::run);
+        }
+    }
+
+    /**
+     * Запрашивает полную перестройку на виртуальном потоке.
+     */
+    public void requestRebuild() {
+        rebuildRequested.set(true);
+        request();
+    }
+
+    /**
+     * Выполняет обновление в текущем потоке и повторяет его, пока поступают запросы.
+     * Если обновление уже выполняется в другом потоке, вызов пропускается: запрос применит тот поток.
+     */
+    public void run() {
+        while (lock.tryLock()) {
+            try {
+                requested.set(false);
+                boolean rebuild = rebuildRequested.getAndSet(false) || !built;
+                try {
+                    task.update(rebuild);
+                    built = true;
+                } catch (RuntimeException e) {
+                    if (rebuild) {
+                        rebuildRequested.set(true);
+                    }
+                    log.error("{}: {}", failureMessage, e.getMessage());
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (!requested.get()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Останавливает фоновые обновления.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Забирает из набора ожидающих ключей не больше указанного количества.
+     * Ключ, добавленный повторно во время обработки, останется в наборе и будет обработан снова.
+     *
+     * @param pending набор ожидающих ключей, изменяемый конкурентно
+     * @param limit максимальное количество ключей
+     * @param <K> тип ключа
+     * @return забранные ключи
+     */
+    public static <K> Set<K> drain(Set<K> pending, int limit) {
+        Set<K> drained = new HashSet<>();
+        Iterator<K> iterator = pending.iterator();
+        while (iterator.hasNext() && drained.size() < limit) {
+            K key = iterator.next();
+            if (pending.remove(key)) {
+                drained.add(key);
+            }
+        }
+        return drained;
+    }
+}
@@ -54,7 +54,8 @@ public abstract class CarMapper {
                 car.getImageUrl(),
                 car.getStatus() == CarStatus.AVAILABLE,
                 car.getSeller() != null ? car.getSeller().getId() : null,
-                car.getSeller() != null ? car.getSeller().getUsername() : null
+                car.getSeller() != null ? car.getSeller().getUsername() : null,
+                car.getPriceDroppedAt()
         );
     }
 
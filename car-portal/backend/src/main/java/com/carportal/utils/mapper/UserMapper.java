@@ -7,6 +7,7 @@ import com.carportal.models.User;
 import com.carportal.models.enums.UserRole;
 import org.springframework.stereotype.Component;
 
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -42,6 +43,18 @@ public abstract class UserMapper {
      * @return DTO с данными пользователя
      */
     public static UserResponseDTO userToUserResponseDTO(User user) {
+        return userToUserResponseDTO(user, user.getLastLoginAt(), user.getVisitCount());
+    }
+
+    /**
+     * Преобразует сущность User в UserResponseDTO со статистикой входов, еще не записанной в сущность.
+     *
+     * @param user сущность пользователя
+     * @param lastLoginAt время последнего входа
+     * @param visitCount количество посещений
+     * @return DTO с данными пользователя
+     */
+    public static UserResponseDTO userToUserResponseDTO(User user, LocalDateTime lastLoginAt, int visitCount) {
         UserResponseDTO dto = new UserResponseDTO();
         dto.setId(user.getId());
         dto.setUsername(user.getUsername());
@@ -49,7 +62,7 @@ public abstract class UserMapper {
         dto.setRole(user.getRole().name());
         dto.setAvatar(user.getAvatar());
         dto.setPhone(user.getPhone());
-        dto.setVisitCount(user.getVisitCount());
+        dto.setVisitCount(visitCount);
 
         if (user.getCreatedAt() != null) {
             dto.setCreatedAt(user.getCreatedAt().format(DATE_FORMATTER));
@@ -57,8 +70,8 @@ public abstract class UserMapper {
             dto.setCreatedAt("Неизвестно");
         }
 
-        if (user.getLastLoginAt() != null) {
-            dto.setLastLoginAt(user.getLastLoginAt().format(DATE_FORMATTER));
+        if (lastLoginAt != null) {
+            dto.setLastLoginAt(lastLoginAt.format(DATE_FORMATTER));
         } else {
             dto.setLastLoginAt("Никогда");
         }
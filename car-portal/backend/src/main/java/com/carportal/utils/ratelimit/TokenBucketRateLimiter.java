@@ -0,0 +1,171 @@
+package com.carportal.utils.ratelimit;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Ограничитель частоты запросов с отдельным маркерным ведром для каждого ключа.
+ * Ведро хранится одним числом — теоретическим временем прибытия следующего запроса (алгоритм GCRA):
+ * это эквивалентно ведру емкостью {@code capacity}, пополняемому на один маркер каждые {@code refillNanos},
+ * но не требует отдельного хранения количества маркеров и времени пополнения.
+ * Окно скользящее: маркеры восстанавливаются непрерывно, а не сбрасываются на границе интервала.
+ * Получение маркера выполняется без блокировок (CAS по значению ведра).
+ * Количество точно отслеживаемых ключей ограничено, а ведра, которые полностью восстановились,
+ * удаляются методом {@link #evictIdle(long)}. При заполнении новые ключи учитываются приближенно
+ * в скетче Count-Min: ведро ключа — наименее занятая из {@value #SKETCH_DEPTH} ячеек, выбранных независимыми
+ * хешами, а попытка продвигает до нового значения все эти ячейки. Коллизии могут только завысить учет,
+ * поэтому ключ не получает больше попыток, чем положено, а ограничен посторонними ключами он будет
+ * только при совпадении во всех строках скетча. Хеш ключа зависит от случайного значения экземпляра, чтобы нельзя было заранее
+ * подобрать имена, совпадающие с чужим ключом. Так поток уникальных имен или адресов не блокирует вход остальным
+ * клиентам, как блокировало бы одно общее ведро.
+ */
+public class TokenBucketRateLimiter {
+
+    /** Количество строк скетча для ключей сверх лимита */
+    private static final int SKETCH_DEPTH = 4;
+
+    private final long refillNanos;
+    private final long burstNanos;
+    private final int maxKeys;
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final int sketchWidth;
+    private final long createdAt = System.nanoTime();
+    private final long hashSeed = ThreadLocalRandom.current().nextLong();
+    private volatile AtomicLongArray sketch;
+
+    /**
+     * Создает ограничитель.
+     *
+     * @param capacity емкость ведра (максимальное количество запросов подряд)
+     * @param refillNanos время восстановления одного маркера в наносекундах
+     * @param maxKeys максимальное количество отслеживаемых ключей
+     */
+    public TokenBucketRateLimiter(int capacity, long refillNanos, int maxKeys) {
+        if (capacity < 1 || refillNanos < 1 || maxKeys < 1) {
+            throw new IllegalArgumentException("Параметры ограничителя должны быть положительными");
+        }
+        this.refillNanos = refillNanos;
+        this.burstNanos = refillNanos * capacity;
+        this.maxKeys = maxKeys;
+        this.sketchWidth = Integer.highestOneBit(Math.max(maxKeys, 1024) - 1) << 1;
+    }
+
+    /**
+     * Пытается получить маркер для ключа.
+     *
+     * @param key ключ ведра
+     * @param now текущее время в наносекундах ({@link System#nanoTime()})
+     * @return 0, если маркер получен, иначе время в наносекундах до появления следующего маркера
+     */
+    public long tryAcquire(String key, long now) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxKeys) {
+                return tryAcquireApproximate(key, now);
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+        while (true) {
+            long arrival = bucket.get();
+            long next = (arrival - now > 0 ? arrival : now) + refillNanos;
+            long excess = next - now - burstNanos;
+            if (excess > 0) {
+                return excess;
+            }
+            if (bucket.compareAndSet(arrival, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Удаляет ведра, которые полностью восстановились: их удаление не меняет поведение ограничителя.
+     * Попытка, выполняемая одновременно с удалением ведра, может остаться неучтенной.
+     *
+     * @param now текущее время в наносекундах ({@link System#nanoTime()})
+     * @return количество удаленных ведер
+     */
+    public int evictIdle(long now) {
+        int before = buckets.size();
+        buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+        return before - buckets.size();
+    }
+
+    /**
+     * Получает количество отслеживаемых ключей.
+     *
+     * @return количество ведер
+     */
+    public int size() {
+        return buckets.size();
+    }
+
+    /**
+     * Получает маркер для ключа, не поместившегося в таблицу ведер, по скетчу.
+     * Проверка и продвижение ячеек не атомарны в целом: одновременные попытки одного ключа
+     * могут немного превысить емкость ведра.
+     */
+    private long tryAcquireApproximate(String key, long now) {
+        AtomicLongArray cells = sketch();
+        int[] indexes = new int[SKETCH_DEPTH];
+        long arrival = 0;
+        long hash = hash(key);
+        for (int row = 0; row < SKETCH_DEPTH; row++) {
+            indexes[row] = row * sketchWidth + (int) (mix(hash + row * 0x9E3779B97F4A7C15L) & (sketchWidth - 1));
+            long cell = cells.get(indexes[row]);
+            if (row == 0 || cell - arrival < 0) {
+                arrival = cell;
+            }
+        }
+        long next = (arrival - now > 0 ? arrival : now) + refillNanos;
+        long excess = next - now - burstNanos;
+        if (excess > 0) {
+            return excess;
+        }
+        for (int index : indexes) {
+            cells.accumulateAndGet(index, next, (current, candidate) -> candidate - current > 0 ? candidate : current);
+        }
+        return 0;
+    }
+
+    private AtomicLongArray sketch() {
+        AtomicLongArray cells = sketch;
+        if (cells == null) {
+            synchronized (this) {
+                cells = sketch;
+                if (cells == null) {
+                    cells = new AtomicLongArray(SKETCH_DEPTH * sketchWidth);
+                    for (int i = 0; i < cells.length(); i++) {
+                        cells.set(i, createdAt);
+                    }
+                    sketch = cells;
+                }
+            }
+        }
+        return cells;
+    }
+
+    private long hash(String key) {
+        long h = hashSeed;
+        for (int i = 0; i < key.length(); i++) {
+            h = mix(h ^ key.charAt(i));
+        }
+        return mix(h ^ key.length());
+    }
+
+    /**
+     * Перемешивает биты значения (финализатор MurmurHash3).
+     */
+    private static long mix(long value) {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -3,6 +3,7 @@ package com.carportal.utils.security;
 import com.carportal.exception.EntityNotFoundException;
 import com.carportal.models.User;
 import com.carportal.repository.UserRepository;
+import com.carportal.security.AccessToken;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -11,6 +12,8 @@ import org.springframework.stereotype.Component;
 /**
  * Утилитный класс для работы с безопасностью.
  * Предоставляет методы для получения текущего пользователя и имени пользователя.
+ * При входе по токену идентификатор пользователя известен из токена, поэтому методы, которым достаточно
+ * идентификатора, не обращаются к базе данных.
  */
 @Component
 public class UtilsSecurity {
@@ -32,21 +35,61 @@ public class UtilsSecurity {
      * @return имя пользователя
      */
     public String getCurrentUsername() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !authentication.isAuthenticated()) {
-            throw new EntityNotFoundException("Пользователь не найден!");
+        Authentication authentication = getAuthentication();
+        if (authentication.getPrincipal() instanceof AccessToken) {
+            return getCurrentUser().getUsername();
         }
         return authentication.getName();
     }
 
+    /**
+     * Получает идентификатор текущего аутентифицированного пользователя.
+     * При входе по токену не обращается к базе данных.
+     *
+     * @return идентификатор пользователя
+     */
+    public Long getCurrentUserId() {
+        if (getAuthentication().getPrincipal() instanceof AccessToken token) {
+            return token.getUserId();
+        }
+        return getCurrentUser().getId();
+    }
+
     /**
      * Получает текущего аутентифицированного пользователя.
      *
      * @return сущность пользователя
      */
     public User getCurrentUser() {
-        String username = getCurrentUsername();
+        Authentication authentication = getAuthentication();
+        if (authentication.getPrincipal() instanceof AccessToken token) {
+            return userRepository.findById(token.getUserId())
+                    .orElseThrow(() -> EntityNotFoundException.USER_NOT_FOUND);
+        }
+        String username = authentication.getName();
         return userRepository.findByUsername(username)
                 .orElseThrow(() -> new EntityNotFoundException("Пользователь не найден: " + username));
     }
+
+    /**
+     * Получает текущего пользователя для использования в запросах и связях сущностей.
+     * При входе по токену возвращается ссылка на пользователя без загрузки из базы данных,
+     * поэтому из нее можно получить только идентификатор.
+     *
+     * @return сущность или ссылка на сущность пользователя
+     */
+    public User getCurrentUserReference() {
+        if (getAuthentication().getPrincipal() instanceof AccessToken token) {
+            return userRepository.getReferenceById(token.getUserId());
+        }
+        return getCurrentUser();
+    }
+
+    private static Authentication getAuthentication() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            throw EntityNotFoundException.USER_NOT_FOUND;
+        }
+        return authentication;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,91 @@
+package com.carportal.utils.timeseries;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Упаковка временного ряда целых значений приращениями.
+ * Каждая точка записывается как приращение времени (беззнаковый varint) и приращение значения
+ * (zigzag varint) относительно предыдущей точки, поэтому близкие по времени и значению точки
+ * занимают по несколько байт. Ряд должен быть упорядочен по времени.
+ */
+public abstract class DeltaCodec {
+
+    /**
+     * Обработчик распакованной точки ряда.
+     */
+    @FunctionalInterface
+    public interface PointConsumer {
+
+        /**
+         * Принимает точку ряда.
+         *
+         * @param time время точки
+         * @param value значение точки
+         */
+        void accept(long time, long value);
+    }
+
+    /**
+     * Упаковывает точку относительно предыдущей.
+     *
+     * @param previousTime время предыдущей точки
+     * @param previousValue значение предыдущей точки
+     * @param time время точки (не меньше предыдущего)
+     * @param value значение точки
+     * @return упакованные байты точки
+     */
+    public static byte[] encode(long previousTime, long previousValue, long time, long value) {
+        if (time < previousTime) {
+            throw new IllegalArgumentException("Время точки " + time + " меньше времени предыдущей точки " + previousTime);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(6);
+        writeVarint(out, time - previousTime);
+        long delta = value - previousValue;
+        writeVarint(out, (delta << 1) ^ (delta >> 63));
+        return out.toByteArray();
+    }
+
+    /**
+     * Распаковывает ряд, передавая обработчику начальную и все упакованные точки по порядку.
+     *
+     * @param firstTime время начальной точки
+     * @param firstValue значение начальной точки
+     * @param deltas упакованные приращения последующих точек
+     * @param consumer обработчик точек
+     */
+    public static void decode(long firstTime, long firstValue, byte[] deltas, PointConsumer consumer) {
+        long time = firstTime;
+        long value = firstValue;
+        consumer.accept(time, value);
+        int[] position = {0};
+        while (position[0] < deltas.length) {
+            time += readVarint(deltas, position);
+            long zigzag = readVarint(deltas, position);
+            value += (zigzag >>> 1) ^ -(zigzag & 1);
+            consumer.accept(time, value);
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(byte[] bytes, int[] position) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position[0] >= bytes.length) {
+                throw new IllegalArgumentException("Упакованный ряд обрывается внутри числа");
+            }
+            byte b = bytes[position[0]++];
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("Слишком длинное число в упакованном ряду");
+    }
+}
@@ -0,0 +1,313 @@
+package com.carportal.utils.trie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Сжатое префиксное дерево (radix trie) строк с весами для подсказок при вводе.
+ * Цепочки узлов с единственным потомком хранятся одной дугой со строковой меткой, а каждый узел
+ * помнит наибольший вес в своем поддереве, поэтому самые тяжелые продолжения префикса находятся
+ * обходом «сначала лучший» без просмотра всего поддерева: время поиска зависит от длины префикса
+ * и количества подсказок, а не от количества строк.
+ * Дерево не потокобезопасно.
+ */
+public class RadixTrie {
+
+    private final Node root = new Node("");
+    private int size;
+
+    /**
+     * Изменяет вес строки. Строка с нулевым весом удаляется из дерева.
+     *
+     * @param key ключ (нормализованная строка)
+     * @param display строка для показа; сохраняется при добавлении ключа
+     * @param delta изменение веса
+     */
+    public void add(String key, String display, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        String rest = key;
+        path.add(node);
+        while (!rest.isEmpty()) {
+            int index = node.indexOf(rest.charAt(0));
+            if (index < 0) {
+                if (delta < 0) {
+                    return;
+                }
+                Node leaf = new Node(rest);
+                node.insertChild(leaf);
+                node = leaf;
+                path.add(node);
+                break;
+            }
+            Node child = node.children[index];
+            int common = commonPrefix(child.label, rest);
+            if (common < child.label.length()) {
+                if (delta < 0) {
+                    return;
+                }
+                node.children[index] = child.split(common);
+                child = node.children[index];
+            }
+            node = child;
+            path.add(node);
+            rest = rest.substring(common);
+        }
+
+        if (node.weight == 0) {
+            if (delta < 0) {
+                return;
+            }
+            node.display = display;
+            size++;
+        }
+        node.weight = Math.max(0, node.weight + delta);
+        if (node.weight == 0) {
+            node.display = null;
+            size--;
+            prune(path);
+        }
+        for (int i = path.size() - 1; i >= 0; i--) {
+            path.get(i).updateBest();
+        }
+    }
+
+    /**
+     * Находит строки с указанным префиксом в порядке убывания веса.
+     *
+     * @param prefix префикс (нормализованный так же, как ключи)
+     * @param limit максимальное количество строк
+     * @return найденные строки
+     */
+    public List<Completion> complete(String prefix, int limit) {
+        Node node = find(prefix);
+        List<Completion> result = new ArrayList<>(Math.min(limit, 16));
+        if (node == null || limit <= 0) {
+            return result;
+        }
+        PriorityQueue<Candidate> queue = new PriorityQueue<>();
+        queue.add(new Candidate(node, false, node.best));
+        while (!queue.isEmpty() && result.size() < limit) {
+            Candidate candidate = queue.poll();
+            Node current = candidate.node;
+            if (candidate.terminal) {
+                result.add(new Completion(current.display, current.weight));
+                continue;
+            }
+            if (current.weight > 0) {
+                queue.add(new Candidate(current, true, current.weight));
+            }
+            for (int i = 0; i < current.childCount; i++) {
+                queue.add(new Candidate(current.children[i], false, current.children[i].best));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Получает количество строк в дереве.
+     *
+     * @return количество строк с ненулевым весом
+     */
+    public int size() {
+        return size;
+    }
+
+    private Node find(String prefix) {
+        Node node = root;
+        String rest = prefix;
+        while (!rest.isEmpty()) {
+            int index = node.indexOf(rest.charAt(0));
+            if (index < 0) {
+                return null;
+            }
+            Node child = node.children[index];
+            if (child.label.startsWith(rest)) {
+                return child;
+            }
+            if (!rest.startsWith(child.label)) {
+                return null;
+            }
+            rest = rest.substring(child.label.length());
+            node = child;
+        }
+        return node;
+    }
+
+    /**
+     * Удаляет опустевший узел и склеивает родителя с единственным потомком.
+     *
+     * @param path путь от корня к опустевшему узлу
+     */
+    private static void prune(List<Node> path) {
+        Node node = path.get(path.size() - 1);
+        if (path.size() == 1) {
+            return;
+        }
+        Node parent = path.get(path.size() - 2);
+        if (node.childCount == 0) {
+            parent.removeChild(node);
+            path.remove(path.size() - 1);
+            if (path.size() > 1 && parent.weight == 0 && parent.childCount == 1) {
+                Node grandParent = path.get(path.size() - 2);
+                grandParent.replaceChild(parent, parent.mergeWithChild());
+                path.set(path.size() - 1, grandParent.children[grandParent.indexOf(parent.label.charAt(0))]);
+            }
+        } else if (node.childCount == 1) {
+            Node merged = node.mergeWithChild();
+            parent.replaceChild(node, merged);
+            path.set(path.size() - 1, merged);
+        }
+    }
+
+    private static int commonPrefix(String a, String b) {
+        int length = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < length && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Найденная строка и ее вес.
+     */
+    public static final class Completion {
+
+        private final String display;
+        private final long weight;
+
+        private Completion(String display, long weight) {
+            this.display = display;
+            this.weight = weight;
+        }
+
+        /**
+         * Получает строку для показа.
+         *
+         * @return строка для показа
+         */
+        public String getDisplay() {
+            return display;
+        }
+
+        /**
+         * Получает вес строки.
+         *
+         * @return вес строки
+         */
+        public long getWeight() {
+            return weight;
+        }
+    }
+
+    /**
+     * Узел дерева. Потомки упорядочены по первому символу метки, что позволяет искать их двоичным поиском.
+     */
+    private static final class Node {
+
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        private String label;
+        private char[] firsts = new char[0];
+        private Node[] children = NO_CHILDREN;
+        private int childCount;
+        private long weight;
+        private String display;
+        private long best;
+
+        private Node(String label) {
+            this.label = label;
+        }
+
+        int indexOf(char first) {
+            int index = Arrays.binarySearch(firsts, 0, childCount, first);
+            return index >= 0 ? index : -1;
+        }
+
+        void insertChild(Node child) {
+            int position = -Arrays.binarySearch(firsts, 0, childCount, child.label.charAt(0)) - 1;
+            if (childCount == children.length) {
+                int capacity = Math.max(2, childCount * 2);
+                firsts = Arrays.copyOf(firsts, capacity);
+                children = Arrays.copyOf(children, capacity);
+            }
+            System.arraycopy(firsts, position, firsts, position + 1, childCount - position);
+            System.arraycopy(children, position, children, position + 1, childCount - position);
+            firsts[position] = child.label.charAt(0);
+            children[position] = child;
+            childCount++;
+        }
+
+        void removeChild(Node child) {
+            int index = indexOf(child.label.charAt(0));
+            System.arraycopy(firsts, index + 1, firsts, index, childCount - index - 1);
+            System.arraycopy(children, index + 1, children, index, childCount - index - 1);
+            childCount--;
+            children[childCount] = null;
+        }
+
+        void replaceChild(Node child, Node replacement) {
+            children[indexOf(child.label.charAt(0))] = replacement;
+        }
+
+        /**
+         * Разделяет дугу узла: возвращает новый промежуточный узел с первыми символами метки,
+         * потомком которого становится этот узел с оставшимися символами.
+         */
+        Node split(int length) {
+            Node head = new Node(label.substring(0, length));
+            label = label.substring(length);
+            head.insertChild(this);
+            head.best = best;
+            return head;
+        }
+
+        /**
+         * Склеивает узел без строки с его единственным потомком.
+         */
+        Node mergeWithChild() {
+            Node child = children[0];
+            child.label = label + child.label;
+            return child;
+        }
+
+        void updateBest() {
+            long max = weight;
+            for (int i = 0; i < childCount; i++) {
+                max = Math.max(max, children[i].best);
+            }
+            best = max;
+        }
+    }
+
+    /**
+     * Элемент очереди обхода: поддерево (приоритет — наибольший вес в нем) или строка узла.
+     */
+    private static final class Candidate implements Comparable<Candidate> {
+
+        private final Node node;
+        private final boolean terminal;
+        private final long priority;
+
+        private Candidate(Node node, boolean terminal, long priority) {
+            this.node = node;
+            this.terminal = terminal;
+            this.priority = priority;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            int byPriority = Long.compare(other.priority, priority);
+            if (byPriority != 0) {
+                return byPriority;
+            }
+            return Boolean.compare(other.terminal, terminal);
+        }
+    }
+}
@@ -6,11 +6,12 @@ import com.carportal.exception.ValidateException;
 /**
  * Утилитный класс для валидации параметров автомобиля.
  * Содержит методы для проверки корректности данных автомобиля.
+ * Форматы марки и модели проверяются посимвольно через {@link FieldMatchers}.
  */
 public abstract class CarParamsValidator {
 
-    private static final String BRAND_REGEX = "^[a-zA-Zа-яА-Я0-9\\s]+$";
-    private static final String MODEL_REGEX = "^[a-zA-Zа-яА-Я0-9\\s-]+$";
+    public static final String BRAND_REGEX = "^[a-zA-Zа-яА-Я0-9\\s]+$";
+    public static final String MODEL_REGEX = "^[a-zA-Zа-яА-Я0-9\\s-]+$";
 
     /**
      * Валидирует марку автомобиля.
@@ -18,73 +19,131 @@ public abstract class CarParamsValidator {
      * @param brand марка автомобиля
      */
     public static void validateBrand(String brand) {
+        throwIfPresent(brandError(brand));
+    }
+
+    /**
+     * Валидирует модель автомобиля.
+     *
+     * @param model модель автомобиля
+     */
+    public static void validateModel(String model) {
+        throwIfPresent(modelError(model));
+    }
+
+    /**
+     * Валидирует год выпуска автомобиля.
+     *
+     * @param year год выпуска
+     */
+    public static void validateYear(int year) {
+        throwIfPresent(yearError(year));
+    }
+
+    /**
+     * Валидирует цену автомобиля.
+     *
+     * @param price цена автомобиля
+     */
+    public static void validatePrice(double price) {
+        throwIfPresent(priceError(price));
+    }
+
+    /**
+     * Проверяет марку автомобиля.
+     *
+     * @param brand марка автомобиля
+     * @return сообщение об ошибке или null, если марка корректна
+     */
+    public static String brandError(String brand) {
         if (brand == null || brand.trim().isEmpty()) {
-            throw new ValidateException("Марка автомобиля не может быть пустой");
+            return "Марка автомобиля не может быть пустой";
         }
-        if (!brand.matches(BRAND_REGEX)) {
-            throw new ValidateException("Марка автомобиля содержит недопустимые символы");
+        if (!FieldMatchers.isBrand(brand)) {
+            return "Марка автомобиля содержит недопустимые символы";
         }
         if (brand.length() < 2 || brand.length() > 50) {
-            throw new ValidateException("Марка автомобиля должна содержать от 2 до 50 символов");
+            return "Марка автомобиля должна содержать от 2 до 50 символов";
         }
+        return null;
     }
 
     /**
-     * Валидирует модель автомобиля.
+     * Проверяет модель автомобиля.
      *
      * @param model модель автомобиля
+     * @return сообщение об ошибке или null, если модель корректна
      */
-    public static void validateModel(String model) {
+    public static String modelError(String model) {
         if (model == null || model.trim().isEmpty()) {
-            throw new ValidateException("Модель автомобиля не может быть пустой");
+            return "Модель автомобиля не может быть пустой";
         }
-        if (!model.matches(MODEL_REGEX)) {
-            throw new ValidateException("Модель автомобиля содержит недопустимые символы");
+        if (!FieldMatchers.isModel(model)) {
+            return "Модель автомобиля содержит недопустимые символы";
         }
         if (model.length() < 2 || model.length() > 50) {
-            throw new ValidateException("Модель автомобиля должна содержать от 2 до 50 символов");
+            return "Модель автомобиля должна содержать от 2 до 50 символов";
         }
+        return null;
     }
 
     /**
-     * Валидирует год выпуска автомобиля.
+     * Проверяет год выпуска автомобиля.
      *
      * @param year год выпуска
+     * @return сообщение об ошибке или null, если год корректен
      */
-    public static void validateYear(int year) {
+    public static String yearError(int year) {
         int currentYear = java.time.Year.now().getValue();
         if (year < 1886 || year > currentYear + 1) {
-            throw new ValidateException("Год выпуска должен быть в диапазоне от 1886 до " + (currentYear + 1));
+            return "Год выпуска должен быть в диапазоне от 1886 до " + (currentYear + 1);
         }
+        return null;
     }
 
     /**
-     * Валидирует цену автомобиля.
+     * Проверяет цену автомобиля.
      *
      * @param price цена автомобиля
+     * @return сообщение об ошибке или null, если цена корректна
      */
-    public static void validatePrice(double price) {
+    public static String priceError(double price) {
         if (price < 0) {
-            throw new ValidateException("Цена автомобиля не может быть отрицательной");
+            return "Цена автомобиля не может быть отрицательной";
         }
         if (price > 1_000_000_000) {
-            throw new ValidateException("Цена автомобиля не может превышать 1 миллиард");
+            return "Цена автомобиля не может превышать 1 миллиард";
         }
+        return null;
     }
 
     /**
      * Валидирует все параметры автомобиля из CarRequestDTO.
+     * Проверяет все поля за один проход и сообщает обо всех найденных ошибках.
      *
      * @param carRequestDTO DTO с данными автомобиля
      */
     public static void validateCarParams(CarRequestDTO carRequestDTO) {
-        validateBrand(carRequestDTO.getBrand());
-        validateModel(carRequestDTO.getModel());
-        validateYear(carRequestDTO.getYear());
-        validatePrice(carRequestDTO.getPrice());
+        ValidationErrors errors = new ValidationErrors()
+                .add(brandError(carRequestDTO.getBrand()))
+                .add(modelError(carRequestDTO.getModel()))
+                .add(yearError(carRequestDTO.getYear()))
+                .add(priceError(carRequestDTO.getPrice()));
 
         if (carRequestDTO.getDescription() != null && carRequestDTO.getDescription().length() > 1000) {
-            throw new ValidateException("Описание автомобиля не может превышать 1000 символов");
+            errors.add("Описание автомобиля не может превышать 1000 символов");
+        }
+        errors.throwIfInvalid();
+    }
+
+    /**
+     * Выбрасывает исключение валидации, если сообщение об ошибке задано.
+     *
+     * @param message сообщение об ошибке или null
+     */
+    private static void throwIfPresent(String message) {
+        if (message != null) {
+            throw new ValidateException(message);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,212 @@
+package com.carportal.utils.validation;
+
+/**
+ * Утилитный класс с посимвольными проверками формата полей.
+ * Каждый метод эквивалентен соответствующему регулярному выражению валидаторов,
+ * но работает за один проход по строке без компиляции шаблонов и без выделения памяти.
+ */
+public abstract class FieldMatchers {
+
+    /**
+     * Проверяет имя пользователя: {@code ^[a-zA-Z0-9_]{3,20}$}.
+     *
+     * @param value проверяемая строка
+     * @return true, если строка соответствует формату
+     */
+    public static boolean isUsername(String value) {
+        int length = value.length();
+        if (length < 3 || length > 20) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (!isAsciiLetterOrDigit(c) && c != '_') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Проверяет email:
+     * {@code ^[a-zA-Z0-9_+&*-]+(?:\.[a-zA-Z0-9_+&*-]+)*@(?:[a-zA-Z0-9-]+\.)+[a-zA-Z]{2,7}$}.
+     * Локальная часть состоит из непустых сегментов, разделенных точками; домен содержит
+     * хотя бы одну метку перед зоной, а зона состоит из 2-7 латинских букв.
+     *
+     * @param value проверяемая строка
+     * @return true, если строка соответствует формату
+     */
+    public static boolean isEmail(String value) {
+        int length = value.length();
+        int i = 0;
+
+        int segmentLength = 0;
+        for (; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '@') {
+                break;
+            }
+            if (c == '.') {
+                if (segmentLength == 0) {
+                    return false;
+                }
+                segmentLength = 0;
+            } else if (isAsciiLetterOrDigit(c) || c == '_' || c == '+' || c == '&' || c == '*' || c == '-') {
+                segmentLength++;
+            } else {
+                return false;
+            }
+        }
+        if (i == length || segmentLength == 0) {
+            return false;
+        }
+
+        int labels = 0;
+        int labelLength = 0;
+        boolean lettersOnly = true;
+        for (i++; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '.') {
+                if (labelLength == 0) {
+                    return false;
+                }
+                labels++;
+                labelLength = 0;
+                lettersOnly = true;
+            } else if (isAsciiLetterOrDigit(c) || c == '-') {
+                labelLength++;
+                lettersOnly &= isAsciiLetter(c);
+            } else {
+                return false;
+            }
+        }
+        return labels > 0 && lettersOnly && labelLength >= 2 && labelLength <= 7;
+    }
+
+    /**
+     * Проверяет допустимые символы телефона: {@code ^\+?[0-9\s\-()]{7,20}$}.
+     *
+     * @param value проверяемая строка
+     * @return true, если строка соответствует формату
+     */
+    public static boolean isPhone(String value) {
+        int start = !value.isEmpty() && value.charAt(0) == '+' ? 1 : 0;
+        int length = value.length() - start;
+        if (length < 7 || length > 20) {
+            return false;
+        }
+        for (int i = start; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!isDigit(c) && !isRegexWhitespace(c) && c != '-' && c != '(' && c != ')') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Подсчитывает символы телефона без пробелов, дефисов и скобок.
+     *
+     * @param value телефон
+     * @return количество значащих символов
+     */
+    public static int significantPhoneLength(String value) {
+        int count = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!isRegexWhitespace(c) && c != '-' && c != '(' && c != ')') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Находит первый значащий символ телефона (не пробел, дефис или скобку).
+     *
+     * @param value телефон
+     * @param skip количество значащих символов, которые нужно пропустить
+     * @return символ или 0, если значащих символов недостаточно
+     */
+    public static char significantPhoneChar(String value, int skip) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!isRegexWhitespace(c) && c != '-' && c != '(' && c != ')') {
+                if (skip-- == 0) {
+                    return c;
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Проверяет марку автомобиля: {@code ^[a-zA-Zа-яА-Я0-9\s]+$}.
+     *
+     * @param value проверяемая строка
+     * @return true, если строка соответствует формату
+     */
+    public static boolean isBrand(String value) {
+        if (value.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!isAsciiLetterOrDigit(c) && !isBasicCyrillic(c) && !isRegexWhitespace(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Проверяет модель автомобиля: {@code ^[a-zA-Zа-яА-Я0-9\s-]+$}.
+     *
+     * @param value проверяемая строка
+     * @return true, если строка соответствует формату
+     */
+    public static boolean isModel(String value) {
+        if (value.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!isAsciiLetterOrDigit(c) && !isBasicCyrillic(c) && !isRegexWhitespace(c) && c != '-') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Проверяет, является ли символ кириллической буквой диапазонов а-я и А-Я (без ё и Ё).
+     *
+     * @param c символ
+     * @return true для букв основного кириллического диапазона
+     */
+    public static boolean isBasicCyrillic(char c) {
+        return c >= 'А' && c <= 'я';
+    }
+
+    /**
+     * Проверяет, является ли символ пробельным в смысле класса {@code \s} регулярных выражений Java.
+     *
+     * @param c символ
+     * @return true для пробела, табуляции, перевода строки, вертикальной табуляции, перевода страницы и возврата каретки
+     */
+    public static boolean isRegexWhitespace(char c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isAsciiLetterOrDigit(char c) {
+        return isAsciiLetter(c) || isDigit(c);
+    }
+}
@@ -6,13 +6,14 @@ import com.carportal.exception.ValidateException;
 /**
  * Утилитный класс для валидации параметров пользователя.
  * Содержит методы для проверки корректности данных пользователя.
+ * Форматы полей проверяются посимвольно через {@link FieldMatchers}, регулярные выражения
+ * оставлены как описание допустимого формата.
  */
 public abstract class UserParamsValidator {
 
-    private static final String USERNAME_REGEX = "^[a-zA-Z0-9_]{3,20}$";
-    private static final String EMAIL_REGEX = "^[a-zA-Z0-9_+&*-]+(?:\\.[a-zA-Z0-9_+&*-]+)*@(?:[a-zA-Z0-9-]+\\.)+[a-zA-Z]{2,7}$";
-    private static final String PHONE_REGEX = "^\\+?[0-9\\s\\-()]{7,20}$";
-    private static final String RUSSIAN_PHONE_REGEX = "^\\+7\\s?\\(?\\d{3}\\)?\\s?\\d{3}\\s?\\d{2}\\s?\\d{2}$";
+    public static final String USERNAME_REGEX = "^[a-zA-Z0-9_]{3,20}$";
+    public static final String EMAIL_REGEX = "^[a-zA-Z0-9_+&*-]+(?:\\.[a-zA-Z0-9_+&*-]+)*@(?:[a-zA-Z0-9-]+\\.)+[a-zA-Z]{2,7}$";
+    public static final String PHONE_REGEX = "^\\+?[0-9\\s\\-()]{7,20}$";
 
     /**
      * Валидирует имя пользователя.
@@ -20,111 +21,171 @@ public abstract class UserParamsValidator {
      * @param username имя пользователя
      */
     public static void usernameValidate(String username) {
+        throwIfPresent(usernameError(username));
+    }
+
+    /**
+     * Валидирует email пользователя.
+     *
+     * @param email email пользователя
+     */
+    public static void emailValidate(String email) {
+        throwIfPresent(emailError(email));
+    }
+
+    /**
+     * Валидирует пароль пользователя.
+     *
+     * @param password пароль пользователя
+     */
+    public static void passwordValidate(String password) {
+        throwIfPresent(passwordError(password));
+    }
+
+    /**
+     * Валидирует телефон пользователя.
+     * Разрешает null и пустые строки, так как поле необязательное.
+     *
+     * @param phone телефон пользователя
+     */
+    public static void phoneValidate(String phone) {
+        throwIfPresent(phoneError(phone));
+    }
+
+    /**
+     * Проверяет имя пользователя.
+     *
+     * @param username имя пользователя
+     * @return сообщение об ошибке или null, если имя корректно
+     */
+    public static String usernameError(String username) {
         if (username == null || username.trim().isEmpty()) {
-            throw new ValidateException("Имя пользователя не может быть пустым");
+            return "Имя пользователя не может быть пустым";
         }
-        if (!username.matches(USERNAME_REGEX)) {
-            throw new ValidateException("Имя пользователя должно содержать только буквы, цифры и символ подчеркивания, и быть длиной от 3 до 20 символов");
+        if (!FieldMatchers.isUsername(username)) {
+            return "Имя пользователя должно содержать только буквы, цифры и символ подчеркивания, и быть длиной от 3 до 20 символов";
         }
+        return null;
     }
 
     /**
-     * Валидирует email пользователя.
+     * Проверяет email пользователя.
      *
      * @param email email пользователя
+     * @return сообщение об ошибке или null, если email корректен
      */
-    public static void emailValidate(String email) {
+    public static String emailError(String email) {
         if (email == null || email.trim().isEmpty()) {
-            throw new ValidateException("Email не может быть пустым");
+            return "Email не может быть пустым";
         }
-        if (!email.matches(EMAIL_REGEX)) {
-            throw new ValidateException("Неправильный формат email адреса");
+        if (!FieldMatchers.isEmail(email)) {
+            return "Неправильный формат email адреса";
         }
+        return null;
     }
 
     /**
-     * Валидирует пароль пользователя.
+     * Проверяет пароль пользователя.
      *
      * @param password пароль пользователя
+     * @return сообщение об ошибке или null, если пароль корректен
      */
-    public static void passwordValidate(String password) {
+    public static String passwordError(String password) {
         if (password == null || password.trim().isEmpty()) {
-            throw new ValidateException("Пароль не может быть пустым");
+            return "Пароль не может быть пустым";
         }
         if (password.length() < 6) {
-            throw new ValidateException("Пароль должен содержать не менее 6 символов");
+            return "Пароль должен содержать не менее 6 символов";
         }
         if (password.length() > 100) {
-            throw new ValidateException("Пароль не может превышать 100 символов");
+            return "Пароль не может превышать 100 символов";
         }
+        return null;
     }
 
     /**
-     * Валидирует телефон пользователя.
-     * Разрешает null и пустые строки, так как поле необязательное.
+     * Проверяет телефон пользователя.
+     * Длина и префикс считаются по значащим символам без пробелов, дефисов и скобок.
      *
      * @param phone телефон пользователя
+     * @return сообщение об ошибке или null, если телефон корректен или не указан
      */
-    public static void phoneValidate(String phone) {
+    public static String phoneError(String phone) {
         if (phone == null || phone.trim().isEmpty()) {
-            return;
+            return null;
         }
 
-        if (!phone.matches(PHONE_REGEX)) {
-            throw new ValidateException("Неправильный формат номера телефона. Допустимы цифры, пробелы, дефисы и скобки");
+        if (!FieldMatchers.isPhone(phone)) {
+            return "Неправильный формат номера телефона. Допустимы цифры, пробелы, дефисы и скобки";
         }
 
-        String cleanPhone = phone.replaceAll("[\\s\\-()]", "");
-        if (cleanPhone.startsWith("+7")) {
-            if (cleanPhone.length() != 12) {
-                throw new ValidateException("Российский номер телефона должен содержать 11 цифр после +7");
+        int length = FieldMatchers.significantPhoneLength(phone);
+        char first = FieldMatchers.significantPhoneChar(phone, 0);
+        if (first == '+' && FieldMatchers.significantPhoneChar(phone, 1) == '7') {
+            if (length != 12) {
+                return "Российский номер телефона должен содержать 11 цифр после +7";
             }
-        } else if (cleanPhone.startsWith("7") || cleanPhone.startsWith("8")) {
-            if (cleanPhone.length() != 11) {
-                throw new ValidateException("Российский номер телефона должен содержать 11 цифр");
+        } else if (first == '7' || first == '8') {
+            if (length != 11) {
+                return "Российский номер телефона должен содержать 11 цифр";
             }
-        } else if (cleanPhone.startsWith("9") && cleanPhone.length() == 10) {
+        } else if (first == '9' && length == 10) {
+            return null;
         } else {
-            if (cleanPhone.length() < 7) {
-                throw new ValidateException("Номер телефона слишком короткий");
+            if (length < 7) {
+                return "Номер телефона слишком короткий";
             }
-            if (cleanPhone.length() > 15) {
-                throw new ValidateException("Номер телефона слишком длинный");
+            if (length > 15) {
+                return "Номер телефона слишком длинный";
             }
         }
+        return null;
     }
 
     /**
      * Валидирует все параметры пользователя из UserCreateDTO.
+     * Проверяет все поля за один проход и сообщает обо всех найденных ошибках.
      *
      * @param userCreateDTO DTO с данными для создания пользователя
      */
     public static void userParamsValidate(UserCreateDTO userCreateDTO) {
-        usernameValidate(userCreateDTO.getUsername());
-        emailValidate(userCreateDTO.getEmail());
-        passwordValidate(userCreateDTO.getPassword());
-        if (userCreateDTO.getPhone() != null && !userCreateDTO.getPhone().trim().isEmpty()) {
-            phoneValidate(userCreateDTO.getPhone());
-        }
+        new ValidationErrors()
+                .add(usernameError(userCreateDTO.getUsername()))
+                .add(emailError(userCreateDTO.getEmail()))
+                .add(passwordError(userCreateDTO.getPassword()))
+                .add(phoneError(userCreateDTO.getPhone()))
+                .throwIfInvalid();
     }
 
     /**
      * Валидирует все параметры пользователя из UserEditDTO.
+     * Проверяет только заполненные поля и сообщает обо всех найденных ошибках.
      *
      * @param userEditDTO DTO с данными для редактирования пользователя
      */
     public static void userEditParamsValidate(com.carportal.dto.request.UserEditDTO userEditDTO) {
+        ValidationErrors errors = new ValidationErrors();
         if (userEditDTO.getUsername() != null && !userEditDTO.getUsername().isEmpty()) {
-            usernameValidate(userEditDTO.getUsername());
+            errors.add(usernameError(userEditDTO.getUsername()));
         }
         if (userEditDTO.getEmail() != null && !userEditDTO.getEmail().isEmpty()) {
-            emailValidate(userEditDTO.getEmail());
+            errors.add(emailError(userEditDTO.getEmail()));
         }
         if (userEditDTO.getPassword() != null && !userEditDTO.getPassword().isEmpty()) {
-            passwordValidate(userEditDTO.getPassword());
+            errors.add(passwordError(userEditDTO.getPassword()));
         }
-        if (userEditDTO.getPhone() != null && !userEditDTO.getPhone().trim().isEmpty()) {
-            phoneValidate(userEditDTO.getPhone());
+        errors.add(phoneError(userEditDTO.getPhone()));
+        errors.throwIfInvalid();
+    }
+
+    /**
+     * Выбрасывает исключение валидации, если сообщение об ошибке задано.
+     *
+     * @param message сообщение об ошибке или null
+     */
+    private static void throwIfPresent(String message) {
+        if (message != null) {
+            throw new ValidateException(message);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,61 @@
+package com.carportal.utils.validation;
+
+import com.carportal.exception.ValidateException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Накопитель ошибок валидации.
+ * Позволяет проверить все поля за один проход и сформировать одно исключение
+ * со всеми найденными ошибками. Список ошибок создается только при первой ошибке,
+ * поэтому проверка корректных данных не выделяет память.
+ */
+public class ValidationErrors {
+
+    private List<String> messages;
+
+    /**
+     * Добавляет сообщение об ошибке, если оно задано.
+     *
+     * @param message сообщение об ошибке или null, если поле корректно
+     * @return текущий накопитель
+     */
+    public ValidationErrors add(String message) {
+        if (message != null) {
+            if (messages == null) {
+                messages = new ArrayList<>(4);
+            }
+            messages.add(message);
+        }
+        return this;
+    }
+
+    /**
+     * Проверяет, были ли найдены ошибки.
+     *
+     * @return true, если ошибок нет
+     */
+    public boolean isEmpty() {
+        return messages == null;
+    }
+
+    /**
+     * Получает список сообщений об ошибках.
+     *
+     * @return неизменяемый список сообщений
+     */
+    public List<String> getMessages() {
+        return messages == null ? Collections.emptyList() : Collections.unmodifiableList(messages);
+    }
+
+    /**
+     * Выбрасывает исключение со всеми найденными ошибками, разделенными точкой с запятой.
+     */
+    public void throwIfInvalid() {
+        if (messages != null) {
+            throw new ValidateException(String.join("; ", messages));
+        }
+    }
+}
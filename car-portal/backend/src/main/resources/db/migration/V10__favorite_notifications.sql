@@ -0,0 +1,22 @@
+-- Уведомления пользователей об изменениях избранных автомобилей (снижение цены, продажа).
+-- Заполняются обработчиком исходящих событий; уникальность (user_id, event_id) делает повторную
+-- доставку события идемпотентной.
+CREATE TABLE favorite_notifications (
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id    BIGINT           NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    car_id     BIGINT           NOT NULL REFERENCES cars (id) ON DELETE CASCADE,
+    event_id   BIGINT           NOT NULL,
+    type       VARCHAR(32)      NOT NULL,
+    old_price  DOUBLE PRECISION,
+    new_price  DOUBLE PRECISION,
+    created_at TIMESTAMP(6)     NOT NULL,
+    UNIQUE (user_id, event_id)
+);
+
+-- Удаление уведомлений вместе с автомобилем
+CREATE INDEX idx_favorite_notifications_car_id ON favorite_notifications (car_id);
+
+-- Время перевода события в «мертвые» после исчерпания попыток доставки (миллисекунды эпохи).
+-- Такие события больше не доставляются и остаются в таблице для разбора; повторная доставка:
+-- UPDATE outbox_events SET dead_at = NULL, attempts = 0, available_at = 0 WHERE id = ...
+ALTER TABLE outbox_events ADD COLUMN dead_at BIGINT;
@@ -0,0 +1,18 @@
+-- Второй этап перехода на справочники марок и моделей (сжатие): удаление столбцов brand и model.
+-- Применяется в следующем выпуске, когда экземпляров версии без справочников не осталось:
+-- до этого миграция исключена настройкой spring.flyway.target. Вместе с повышением target
+-- из сущности Car удаляются поля legacyBrand и legacyModel, а из приложения - CarDictionaryBackfill.
+-- Установка NOT NULL завершится ошибкой, если фоновое заполнение не определило идентификаторы всех
+-- автомобилей: в этом случае миграция откатывается целиком.
+-- Освобожденное столбцами место переиспользуется новыми версиями строк, а вернуть его системе можно
+-- только перезаписью таблицы (VACUUM FULL).
+DROP TRIGGER cars_sync_dictionary_names ON cars;
+DROP FUNCTION cars_sync_dictionary_names();
+DROP INDEX idx_cars_dictionary_pending;
+
+-- Индекс idx_cars_brand удаляется вместе со столбцом brand и заменен индексом V9
+ALTER TABLE cars
+    ALTER COLUMN brand_id SET NOT NULL,
+    ALTER COLUMN model_id SET NOT NULL,
+    DROP COLUMN brand,
+    DROP COLUMN model;
@@ -0,0 +1,41 @@
+-- Исходная схема базы данных, ранее создававшаяся Hibernate (ddl-auto=update).
+-- На существующих базах эта миграция пропускается: Flyway фиксирует ее как базовую версию.
+
+CREATE TABLE users (
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    username      VARCHAR(255) NOT NULL UNIQUE,
+    password      VARCHAR(255) NOT NULL,
+    email         VARCHAR(255) NOT NULL,
+    role          VARCHAR(255) NOT NULL CHECK (role IN ('USER', 'MODERATOR', 'ADMIN')),
+    avatar        VARCHAR(255),
+    phone         VARCHAR(255),
+    created_at    TIMESTAMP(6) NOT NULL,
+    last_login_at TIMESTAMP(6),
+    visit_count   INTEGER NOT NULL DEFAULT 0
+);
+
+CREATE TABLE cars (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    brand       VARCHAR(255) NOT NULL,
+    model       VARCHAR(255) NOT NULL,
+    year        INTEGER NOT NULL,
+    price       DOUBLE PRECISION NOT NULL,
+    description TEXT,
+    image_url   VARCHAR(255),
+    status      VARCHAR(255) NOT NULL CHECK (status IN ('AVAILABLE', 'SOLD')),
+    seller_id   BIGINT REFERENCES users (id)
+);
+
+CREATE TABLE favorites (
+    id      BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users (id),
+    car_id  BIGINT NOT NULL REFERENCES cars (id)
+);
+
+CREATE TABLE news (
+    id      BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users (id),
+    title   VARCHAR(255) NOT NULL,
+    content TEXT NOT NULL,
+    date    DATE NOT NULL
+);
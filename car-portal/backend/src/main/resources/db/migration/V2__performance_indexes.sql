@@ -0,0 +1,38 @@
+-- Индексы для основных выборок приложения.
+-- Создаются без блокировки записи (CONCURRENTLY), поэтому миграция выполняется вне транзакции
+-- (см. V2__performance_indexes.sql.conf). Прерванное построение оставляет недействительный индекс,
+-- поэтому перед созданием он удаляется: так миграцию можно безопасно повторить после сбоя.
+
+-- Выборка автомобилей по марке
+DROP INDEX CONCURRENTLY IF EXISTS idx_cars_brand;
+CREATE INDEX CONCURRENTLY idx_cars_brand ON cars (brand);
+
+-- Выборка автомобилей по диапазону цен
+DROP INDEX CONCURRENTLY IF EXISTS idx_cars_price;
+CREATE INDEX CONCURRENTLY idx_cars_price ON cars (price);
+
+-- Автомобили продавца и удаление пользователя
+DROP INDEX CONCURRENTLY IF EXISTS idx_cars_seller_id;
+CREATE INDEX CONCURRENTLY idx_cars_seller_id ON cars (seller_id);
+
+-- Избранное пользователя и проверка наличия автомобиля в избранном
+DROP INDEX CONCURRENTLY IF EXISTS idx_favorites_user_id_car_id;
+CREATE INDEX CONCURRENTLY idx_favorites_user_id_car_id ON favorites (user_id, car_id);
+
+-- Удаление избранного при удалении автомобиля
+DROP INDEX CONCURRENTLY IF EXISTS idx_favorites_car_id;
+CREATE INDEX CONCURRENTLY idx_favorites_car_id ON favorites (car_id);
+
+-- Лента новостей, упорядоченная по дате
+DROP INDEX CONCURRENTLY IF EXISTS idx_news_date;
+CREATE INDEX CONCURRENTLY idx_news_date ON news (date DESC, id DESC);
+
+-- Новости автора и удаление пользователя
+DROP INDEX CONCURRENTLY IF EXISTS idx_news_user_id;
+CREATE INDEX CONCURRENTLY idx_news_user_id ON news (user_id);
+
+-- Проверка занятости email и телефона при регистрации и редактировании
+DROP INDEX CONCURRENTLY IF EXISTS idx_users_email;
+CREATE INDEX CONCURRENTLY idx_users_email ON users (email);
+DROP INDEX CONCURRENTLY IF EXISTS idx_users_phone;
+CREATE INDEX CONCURRENTLY idx_users_phone ON users (phone);
@@ -0,0 +1,15 @@
+-- Хранилище HTTP-сессий, общее для всех экземпляров приложения.
+-- Время хранится в миллисекундах эпохи; атрибуты сессии хранятся в компактном двоичном виде.
+
+CREATE TABLE http_sessions (
+    id                    VARCHAR(64) PRIMARY KEY,
+    principal_name        VARCHAR(255),
+    creation_time         BIGINT  NOT NULL,
+    last_access_time      BIGINT  NOT NULL,
+    max_inactive_interval INTEGER NOT NULL,
+    expiry_time           BIGINT  NOT NULL,
+    attributes            BYTEA   NOT NULL
+);
+
+-- Периодическое удаление истекших сессий
+CREATE INDEX idx_http_sessions_expiry_time ON http_sessions (expiry_time);
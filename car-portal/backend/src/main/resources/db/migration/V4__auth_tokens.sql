@@ -0,0 +1,20 @@
+-- Токены для входа без сессии.
+-- Время хранится в миллисекундах эпохи.
+
+-- Токены обновления; хранится только хеш SHA-256 токена, сам токен известен лишь клиенту
+CREATE TABLE refresh_tokens (
+    token_hash BYTEA  PRIMARY KEY,
+    user_id    BIGINT NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    expires_at BIGINT NOT NULL
+);
+
+-- Отзыв всех токенов пользователя и периодическое удаление истекших токенов
+CREATE INDEX idx_refresh_tokens_user_id ON refresh_tokens (user_id);
+CREATE INDEX idx_refresh_tokens_expires_at ON refresh_tokens (expires_at);
+
+-- Отозванные токены доступа: токены пользователя, выпущенные не позже revoked_before, недействительны.
+-- Строка нужна только до истечения последнего из отозванных токенов, после чего удаляется
+CREATE TABLE token_revocations (
+    user_id        BIGINT PRIMARY KEY,
+    revoked_before BIGINT NOT NULL
+);
@@ -0,0 +1,14 @@
+-- Исходящие события (transactional outbox): записываются в одной транзакции с изменением данных
+-- и доставляются обработчикам в приложении фоновым ретранслятором, после чего удаляются.
+-- Время хранится в миллисекундах эпохи.
+CREATE TABLE outbox_events (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    event_type   VARCHAR(32) NOT NULL,
+    aggregate_id BIGINT,
+    -- Данные события в формате JSON
+    payload      TEXT        NOT NULL,
+    created_at   BIGINT      NOT NULL,
+    -- Время, до которого доставка отложена после ошибки обработчика
+    available_at BIGINT      NOT NULL,
+    attempts     INTEGER     NOT NULL DEFAULT 0
+);
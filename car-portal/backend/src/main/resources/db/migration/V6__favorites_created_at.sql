@@ -0,0 +1,10 @@
+-- Время добавления автомобиля в избранное для статистики избранного по дням.
+-- Существующим записям назначается время миграции: значение по умолчанию now() вычисляется один раз,
+-- поэтому столбец добавляется без перезаписи таблицы.
+-- Индекс создается без блокировки записи, поэтому миграция выполняется вне транзакции
+-- (см. V6__favorites_created_at.sql.conf) и может быть безопасно повторена после сбоя.
+ALTER TABLE favorites ADD COLUMN IF NOT EXISTS created_at TIMESTAMP(6) NOT NULL DEFAULT now();
+
+-- Сверка статистики избранного за последние дни
+DROP INDEX CONCURRENTLY IF EXISTS idx_favorites_created_at;
+CREATE INDEX CONCURRENTLY idx_favorites_created_at ON favorites (created_at);
@@ -0,0 +1,29 @@
+-- История цен автомобилей: одна строка на автомобиль.
+-- Первая точка хранится в отдельных столбцах, последующие упакованы в столбец deltas приращениями
+-- (время в секундах — беззнаковый varint, цена в копейках — zigzag varint), поэтому изменение цены
+-- обычно занимает 3-6 байт. Последняя точка продублирована в столбцах last_*: добавление точки
+-- не требует распаковки истории.
+-- Индекс создается без блокировки записи, поэтому миграция выполняется вне транзакции
+-- (см. V7__car_price_history.sql.conf) и может быть безопасно повторена после сбоя.
+CREATE TABLE IF NOT EXISTS car_price_history (
+    car_id      BIGINT PRIMARY KEY REFERENCES cars (id) ON DELETE CASCADE,
+    first_at    BIGINT NOT NULL,
+    first_price BIGINT NOT NULL,
+    last_at     BIGINT NOT NULL,
+    last_price  BIGINT NOT NULL,
+    points      INTEGER NOT NULL,
+    deltas      BYTEA NOT NULL
+);
+
+-- История существующих автомобилей начинается с текущей цены
+INSERT INTO car_price_history (car_id, first_at, first_price, last_at, last_price, points, deltas)
+SELECT id, EXTRACT(EPOCH FROM now())::BIGINT, ROUND(price * 100)::BIGINT,
+       EXTRACT(EPOCH FROM now())::BIGINT, ROUND(price * 100)::BIGINT, 1, ''::BYTEA
+FROM cars
+ON CONFLICT (car_id) DO NOTHING;
+
+-- Время последнего снижения цены: фильтр каталога «цена снижена за последние N дней» без соединения с историей
+ALTER TABLE cars ADD COLUMN IF NOT EXISTS price_dropped_at TIMESTAMP(6);
+
+DROP INDEX CONCURRENTLY IF EXISTS idx_cars_price_dropped_at;
+CREATE INDEX CONCURRENTLY idx_cars_price_dropped_at ON cars (price_dropped_at) WHERE price_dropped_at IS NOT NULL;
@@ -0,0 +1,54 @@
+-- Справочники марок и моделей автомобилей: автомобили ссылаются на них целочисленными идентификаторами
+-- вместо повторения строк марки и модели в каждой строке.
+-- Первый этап перехода (расширение): столбцы brand и model остаются, чтобы экземпляры предыдущей версии
+-- продолжали работать во время поэтапного обновления. Справочники и идентификаторы существующих
+-- автомобилей заполняет миграция 8.1 (CarDictionaryMigration): названия нормализуются только в Java
+-- (CarDictionary.normalize), так как lower() в базе с локалью C не меняет регистр кириллицы.
+-- Удаление столбцов brand и model - второй этап (V11__car_dictionary_contract.sql).
+CREATE TABLE car_brands (
+    id              INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name            VARCHAR(255) NOT NULL,
+    normalized_name VARCHAR(255) NOT NULL UNIQUE
+);
+
+CREATE TABLE car_models (
+    id              INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    brand_id        INTEGER NOT NULL REFERENCES car_brands (id),
+    name            VARCHAR(255) NOT NULL,
+    normalized_name VARCHAR(255) NOT NULL,
+    UNIQUE (brand_id, normalized_name)
+);
+
+-- Добавление столбцов без значения по умолчанию не перезаписывает таблицу
+ALTER TABLE cars
+    ADD COLUMN brand_id INTEGER REFERENCES car_brands (id),
+    ADD COLUMN model_id INTEGER REFERENCES car_models (id);
+
+-- Совместимость с предыдущей версией на время обновления:
+-- - новая версия записывает только идентификаторы, а названия для предыдущей версии берутся из справочника;
+-- - предыдущая версия записывает только названия: если она изменила их, не меняя идентификаторов,
+--   идентификаторы сбрасываются и заново определяются фоновым заполнением (CarDictionaryBackfill).
+CREATE FUNCTION cars_sync_dictionary_names() RETURNS TRIGGER AS
+$$
+BEGIN
+    IF TG_OP = 'UPDATE' THEN
+        IF NEW.brand_id IS NOT DISTINCT FROM OLD.brand_id AND NEW.model_id IS NOT DISTINCT FROM OLD.model_id THEN
+            IF NEW.brand IS DISTINCT FROM OLD.brand OR NEW.model IS DISTINCT FROM OLD.model THEN
+                NEW.brand_id := NULL;
+                NEW.model_id := NULL;
+            END IF;
+            RETURN NEW;
+        END IF;
+    END IF;
+    IF NEW.brand_id IS NOT NULL AND NEW.model_id IS NOT NULL THEN
+        SELECT name INTO NEW.brand FROM car_brands WHERE id = NEW.brand_id;
+        SELECT name INTO NEW.model FROM car_models WHERE id = NEW.model_id;
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER cars_sync_dictionary_names
+    BEFORE INSERT OR UPDATE ON cars
+    FOR EACH ROW
+EXECUTE FUNCTION cars_sync_dictionary_names();
@@ -0,0 +1,10 @@
+-- Выборка автомобилей по марке: сравнение целочисленного идентификатора вместо строки.
+-- Индексы создаются без блокировки записи, поэтому миграция выполняется вне транзакции
+-- (см. V9__car_dictionary_indexes.sql.conf) и может быть безопасно повторена после сбоя.
+DROP INDEX CONCURRENTLY IF EXISTS idx_cars_brand_id;
+CREATE INDEX CONCURRENTLY idx_cars_brand_id ON cars (brand_id);
+
+-- Автомобили без идентификаторов справочника, записанные предыдущей версией во время обновления.
+-- После миграции 8.1 таких строк нет, поэтому индекс мал, а фоновое заполнение не просматривает таблицу
+DROP INDEX CONCURRENTLY IF EXISTS idx_cars_dictionary_pending;
+CREATE INDEX CONCURRENTLY idx_cars_dictionary_pending ON cars (id) WHERE brand_id IS NULL OR model_id IS NULL;
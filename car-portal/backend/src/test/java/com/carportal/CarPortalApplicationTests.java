@@ -1,16 +1,258 @@
 package com.carportal;
 
+import com.carportal.cache.CacheInvalidationBus;
+import com.carportal.cache.CacheRegion;
+import com.carportal.datasource.DataSourceRouting;
+import com.carportal.datasource.ReadYourWritesTracker;
+import com.carportal.datasource.ReplicaRouter;
+import com.carportal.dictionary.CarDictionary;
+import com.carportal.dictionary.CarDictionaryBackfill;
+import com.carportal.dictionary.CarDictionaryMigration;
+import com.carportal.dto.request.CarRequestDTO;
+import com.carportal.dto.request.NewsRequestDTO;
+import com.carportal.dto.response.AdminStatsDTO;
+import com.carportal.dto.response.CarResponseDTO;
+import com.carportal.dto.response.SlowQueryDTO;
+import com.carportal.dto.response.SuggestionDTO;
+import com.carportal.events.CarChangedEvent;
+import com.carportal.events.ChangeType;
+import com.carportal.events.NewsChangedEvent;
+import com.carportal.metrics.RequestQueryContext;
+import com.carportal.metrics.SlowQueryLog;
+import com.carportal.models.Car;
+import com.carportal.models.Favorite;
+import com.carportal.models.User;
+import com.carportal.models.enums.CarStatus;
+import com.carportal.models.enums.UserRole;
+import com.carportal.outbox.OutboxConsumer;
+import com.carportal.outbox.OutboxEvent;
+import com.carportal.outbox.OutboxEventType;
+import com.carportal.outbox.OutboxRelay;
+import com.carportal.repository.CarRepository;
+import com.carportal.repository.FavoriteRepository;
+import com.carportal.repository.NewsRepository;
+import com.carportal.repository.UserRepository;
+import com.carportal.security.ClientAddressResolver;
+import com.carportal.security.TokenService;
+import com.carportal.security.TtlUserCache;
+import com.carportal.services.AdminService;
+import com.carportal.services.AdminStatsService;
+import com.carportal.services.AutocompleteService;
+import com.carportal.services.CarService;
+import com.carportal.services.CatalogEventBroadcaster;
+import com.carportal.services.CatalogVersionService;
+import com.carportal.services.IdBloomFilterService;
+import com.carportal.services.LoginActivityService;
+import com.carportal.services.SimilarCarsService;
+import com.carportal.session.JdbcSessionRepository;
+import com.carportal.session.StoredSession;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.core.api.migration.Context;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
  * Тестовый класс для проверки корректной загрузки контекста приложения CarPortal.
  * Этот тест гарантирует, что все компоненты Spring Boot приложения
  * могут быть успешно инициализированы и загружены в память.
+ * Тесты эндпоинтов выполняются в строгом режиме контроля SQL-запросов: превышение
+ * бюджета эндпоинта или повторяющиеся одинаковые запросы (N+1) завершают запрос исключением.
+ * Реплику для чтения заменяет та же тестовая база, подключаемая отдельным пулом.
+ * Исходящие события записываются в обработчик тестов, который можно переключить в режим ошибки.
+ * Фоновое связывание автомобилей со справочником марок и моделей тесты запускают явно.
  */
-@SpringBootTest
+@SpringBootTest(properties = {
+        "carportal.sql.fail-on-violation=true",
+        "carportal.sql.n-plus-one-threshold=3",
+        "carportal.security.bcrypt.strength=5",
+        "carportal.datasource.replicas=jdbc:postgresql://localhost:5432/car_portal_db",
+        "carportal.outbox.retry-delay=10ms",
+        "carportal.outbox.max-attempts=8",
+        "carportal.dictionary.backfill-interval-ms=3600000"
+})
+@AutoConfigureMockMvc
 class CarPortalApplicationTests {
 
+    /** Префикс данных, создаваемых тестами */
+    private static final String PREFIX = "budget_test_";
+
+    /** Количество продавцов в тестовых данных: больше порога обнаружения N+1 */
+    private static final int SELLERS = 5;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private FavoriteRepository favoriteRepository;
+
+    @Autowired
+    private NewsRepository newsRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SlowQueryLog slowQueryLog;
+
+    @Autowired
+    private LoginActivityService loginActivityService;
+
+    @Autowired
+    private JdbcSessionRepository sessionRepository;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private ReplicaRouter replicaRouter;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CacheInvalidationBus invalidationBus;
+
+    @Autowired
+    private TtlUserCache userCache;
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private AdminService adminService;
+
+    @Autowired
+    private RecordingOutboxConsumer outboxConsumer;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private AdminStatsService adminStatsService;
+
+    @Autowired
+    private SimilarCarsService similarCarsService;
+
+    @Autowired
+    private AutocompleteService autocompleteService;
+
+    @Autowired
+    private CarService carService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CarDictionary carDictionary;
+
+    @Autowired
+    private CarDictionaryBackfill carDictionaryBackfill;
+
+    @Autowired
+    private ClientAddressResolver clientAddressResolver;
+
+    @Autowired
+    private IdBloomFilterService idBloomFilterService;
+
+    @Autowired
+    private CatalogEventBroadcaster catalogEventBroadcaster;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    private final List<Long> createdUserIds = new ArrayList<>();
+
     /**
      * Базовый тест, проверяющий успешную загрузку Spring контекста.
      * Если контекст загружается без ошибок, тест считается пройденным.
@@ -21,4 +263,1325 @@ class CarPortalApplicationTests {
         // Тест автоматически проходит, если Spring контекст загружается без исключений
     }
 
-}
\ No newline at end of file
+    /**
+     * Проверяет, что выборка автомобилей с разными продавцами укладывается в бюджет
+     * и не загружает продавцов отдельными запросами.
+     */
+    @Test
+    void carListingsStayWithinQueryBudget() throws Exception {
+        createSellersWithCars();
+
+        mockMvc.perform(get("/cars/price-range")
+                        .param("minPrice", "1")
+                        .param("maxPrice", "1000000000"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/cars/catalog"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/news"))
+                .andExpect(status().isOk());
+    }
+
+    /**
+     * Проверяет, что список избранного загружает автомобили и продавцов одним запросом.
+     */
+    @Test
+    void favoritesStayWithinQueryBudget() throws Exception {
+        List<Car> cars = createSellersWithCars();
+        User buyer = createUser(PREFIX + "buyer");
+        for (Car car : cars) {
+            Favorite favorite = new Favorite();
+            favorite.setUser(buyer);
+            favorite.setCar(car);
+            favoriteRepository.save(favorite);
+        }
+
+        mockMvc.perform(get("/favorites").with(user(buyer.getUsername()).roles("USER")))
+                .andExpect(status().isOk());
+    }
+
+    /**
+     * Проверяет, что повторяющийся запрос распознается как N+1 вместе с местом вызова.
+     */
+    @Test
+    void repeatedStatementIsReportedWithCallSite() {
+        RequestQueryContext context = RequestQueryContext.begin(3);
+        try {
+            for (int i = 0; i < 3; i++) {
+                context.record("select u1_0.id from users u1_0 where u1_0.id=?");
+            }
+            context.record("select c1_0.id from cars c1_0");
+        } finally {
+            RequestQueryContext.end();
+        }
+
+        assertEquals(4, context.getStatementCount());
+        List<RequestQueryContext.Shape> repeated = context.getRepeatedShapes();
+        assertEquals(1, repeated.size());
+        assertEquals(3, repeated.get(0).getCount());
+        assertNotNull(repeated.get(0).getCallSite());
+        assertTrue(repeated.get(0).getCallSite().contains("CarPortalApplicationTests"));
+    }
+
+    /**
+     * Проверяет, что запрос дольше порога попадает в журнал медленных запросов вместе с местом вызова.
+     */
+    @Test
+    void slowStatementIsCapturedInSlowQueryLog() {
+        slowQueryLog.clear();
+
+        jdbcTemplate.queryForList("SELECT pg_sleep(?)", 0.3);
+
+        List<SlowQueryDTO> entries = slowQueryLog.getEntries();
+        assertEquals(1, entries.size());
+        assertTrue(entries.get(0).getSql().contains("pg_sleep"));
+        assertTrue(entries.get(0).getElapsedMs() >= 200);
+        assertTrue(entries.get(0).getCallSite().contains("CarPortalApplicationTests"));
+    }
+
+    /**
+     * Проверяет, что запросы, которые строят репозитории, выполняются по индексам из миграций
+     * при обычных настройках планировщика. Таблицы заполняются в откатываемой транзакции
+     * так, чтобы выбранные значения встречались редко, после чего собирается статистика.
+     */
+    @Test
+    void repositoryQueriesUseIndexScans() {
+        String brand = "План " + System.nanoTime();
+        Long rareCarId = adminService.addCar(new CarRequestDTO(brand, "Test", 2020, 1_000_000, null, null, true)).getId();
+        User reader = createUser(PREFIX + "plan_reader");
+        User collector = createUser(PREFIX + "plan_collector");
+        try {
+            Integer brandId = jdbcTemplate.queryForObject("SELECT brand_id FROM cars WHERE id = ?", Integer.class, rareCarId);
+            Integer otherBrandId = jdbcTemplate.queryForObject("SELECT min(id) FROM car_brands WHERE id <> ?", Integer.class, brandId);
+            String byBrand = generatedSql(() -> carRepository.findByBrandId(brandId));
+            String byPrice = generatedSql(() -> carRepository.findByPriceBetween(1_000_000, 1_000_100));
+            String byUser = generatedSql(() -> favoriteRepository.findByUser(reader));
+
+            String columns = String.join(", ", jdbcTemplate.queryForList("SELECT column_name FROM information_schema.columns "
+                    + "WHERE table_name = 'cars' AND column_name NOT IN ('id', 'brand_id', 'price') ORDER BY ordinal_position", String.class));
+            TransactionTemplate seeding = new TransactionTemplate(transactionManager);
+            seeding.executeWithoutResult(status -> {
+                status.setRollbackOnly();
+                jdbcTemplate.update("INSERT INTO cars (brand_id, price, " + columns + ") SELECT ?, 2000000 + g * 10, " + columns
+                        + " FROM cars, generate_series(1, 20000) g WHERE id = ?", otherBrandId, rareCarId);
+                jdbcTemplate.update("INSERT INTO favorites (user_id, car_id) SELECT ?, id FROM cars WHERE brand_id = ?",
+                        collector.getId(), otherBrandId);
+                jdbcTemplate.execute("ANALYZE cars, favorites");
+
+                assertIndexScan(byBrand, "cars", "idx_cars_brand_id", brandId);
+                assertIndexScan(byPrice, "cars", "idx_cars_price", 1_000_000.0, 1_000_100.0);
+                assertIndexScan(byUser, "favorites", "idx_favorites_user_id_car_id", reader.getId());
+            });
+        } finally {
+            jdbcTemplate.execute("ANALYZE cars, favorites");
+            adminService.deleteCar(rareCarId);
+            deleteDictionaryBrand(brand);
+        }
+    }
+
+    /**
+     * Проверяет, что накопленные входы объединяются и записываются одним обновлением.
+     */
+    @Test
+    void loginActivityIsCoalescedAndFlushed() {
+        User created = createUser(PREFIX + "login");
+        LocalDateTime firstLogin = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        LocalDateTime secondLogin = firstLogin.plusMinutes(1);
+
+        assertEquals(1, loginActivityService.recordLogin(created.getId(), secondLogin));
+        assertEquals(2, loginActivityService.recordLogin(created.getId(), firstLogin));
+        loginActivityService.flush();
+
+        User reloaded = userRepository.findById(created.getId()).orElseThrow();
+        assertEquals(2, reloaded.getVisitCount());
+        assertEquals(secondLogin, reloaded.getLastLoginAt());
+    }
+
+    /**
+     * Проверяет, что попытки входа сверх лимита для имени пользователя отклоняются до проверки пароля.
+     */
+    @Test
+    void loginAttemptsAreThrottledPerUsername() throws Exception {
+        String body = "{\"username\":\"" + PREFIX + "throttled_" + System.nanoTime() + "\",\"password\":\"wrong\"}";
+        for (int i = 0; i < 5; i++) {
+            mockMvc.perform(post("/user/login").contentType(MediaType.APPLICATION_JSON).content(body))
+                    .andExpect(status().isUnauthorized());
+        }
+
+        mockMvc.perform(post("/user/login").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists(HttpHeaders.RETRY_AFTER));
+    }
+
+    /**
+     * Проверяет, что хеш пароля с устаревшей стоимостью BCrypt заменяется при успешном входе.
+     */
+    @Test
+    void outdatedPasswordHashIsUpgradedOnLogin() throws Exception {
+        User created = createUser(PREFIX + "rehash");
+        created.setPassword(BCrypt.hashpw("secret-password", BCrypt.gensalt(4)));
+        userRepository.save(created);
+
+        String body = "{\"username\":\"" + created.getUsername() + "\",\"password\":\"secret-password\"}";
+        mockMvc.perform(post("/user/login").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk());
+
+        String upgraded = userRepository.findById(created.getId()).orElseThrow().getPassword();
+        assertTrue(upgraded.startsWith("$2a$05$"), upgraded);
+
+        mockMvc.perform(post("/user/login").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk());
+        assertEquals(upgraded, userRepository.findById(created.getId()).orElseThrow().getPassword());
+    }
+
+    /**
+     * Проверяет, что после смены имени пользователя сессия в хранилище содержит новое имя
+     * и следующий запрос с той же сессией остается авторизованным.
+     */
+    @Test
+    void renamedUserKeepsSession() throws Exception {
+        User created = createUser(PREFIX + "r");
+        created.setPassword(BCrypt.hashpw("secret-password", BCrypt.gensalt(5)));
+        userRepository.save(created);
+
+        String body = "{\"username\":\"" + created.getUsername() + "\",\"password\":\"secret-password\"}";
+        Cookie session = mockMvc.perform(post("/user/login").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getCookie("SESSION");
+        assertNotNull(session);
+
+        String renamed = "renamed_" + System.nanoTime() % 1_000_000;
+        mockMvc.perform(post("/user/edit").cookie(session)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\":" + created.getId() + ",\"username\":\"" + renamed + "\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.username").value(renamed));
+
+        mockMvc.perform(get("/user/checklogin").cookie(session))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.username").value(renamed));
+    }
+
+    /**
+     * Проверяет, что контекст безопасности восстанавливается из хранилища сессий,
+     * а обновление времени обращения без изменения атрибутов откладывается до пакетной записи.
+     */
+    @Test
+    void sessionIsStoredCompactlyAndTouchesAreDeferred() {
+        StoredSession session = sessionRepository.createSession();
+        UserDetails principal = org.springframework.security.core.userdetails.User.withUsername(PREFIX + "session")
+                .password("password")
+                .authorities(new SimpleGrantedAuthority("ROLE_USER"))
+                .build();
+        session.setAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY,
+                new SecurityContextImpl(UsernamePasswordAuthenticationToken.authenticated(principal, null,
+                        principal.getAuthorities())));
+        sessionRepository.save(session);
+
+        try {
+            StoredSession loaded = sessionRepository.findById(session.getId());
+            assertNotNull(loaded);
+            SecurityContext context = loaded.getAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY);
+            assertEquals(PREFIX + "session", context.getAuthentication().getName());
+            assertTrue(context.getAuthentication().isAuthenticated());
+            assertEquals(PREFIX + "session", jdbcTemplate.queryForObject(
+                    "SELECT principal_name FROM http_sessions WHERE id = ?", String.class, session.getId()));
+
+            long touchedAt = loaded.getLastAccessedTime().toEpochMilli() + 60_000;
+            loaded.setLastAccessedTime(Instant.ofEpochMilli(touchedAt));
+            sessionRepository.save(loaded);
+            String lastAccessSql = "SELECT last_access_time FROM http_sessions WHERE id = ?";
+            assertTrue(jdbcTemplate.queryForObject(lastAccessSql, Long.class, session.getId()) < touchedAt);
+            assertEquals(touchedAt, sessionRepository.findById(session.getId()).getLastAccessedTime().toEpochMilli());
+
+            sessionRepository.flushTouches();
+            assertEquals(touchedAt, jdbcTemplate.queryForObject(lastAccessSql, Long.class, session.getId()));
+        } finally {
+            sessionRepository.deleteById(session.getId());
+        }
+    }
+
+    /**
+     * Проверяет, что за доверенным балансировщиком попытки входа ограничиваются по адресу клиента
+     * из X-Forwarded-For, а клиент, подключившийся напрямую, не может подменить адрес заголовком.
+     */
+    @Test
+    void loginThrottlingUsesForwardedClientAddress() throws Exception {
+        for (int attempt = 0; attempt <= 20; attempt++) {
+            int expected = attempt < 20 ? HttpStatus.UNAUTHORIZED.value() : HttpStatus.TOO_MANY_REQUESTS.value();
+            mockMvc.perform(forwardedLogin("10.0.0.1", "198.51.100.7", PREFIX + "spray_" + attempt))
+                    .andExpect(status().is(expected));
+        }
+        mockMvc.perform(forwardedLogin("10.0.0.1", "198.51.100.8", PREFIX + "spray_other"))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(forwardedLogin("10.0.0.1", "198.51.100.7, 10.0.0.2", PREFIX + "spray_chain"))
+                .andExpect(status().isTooManyRequests());
+
+        MockHttpServletRequest direct = new MockHttpServletRequest();
+        direct.setRemoteAddr("203.0.113.5");
+        direct.addHeader("X-Forwarded-For", "198.51.100.8");
+        assertEquals("203.0.113.5", clientAddressResolver.resolve(direct));
+    }
+
+    private static MockHttpServletRequestBuilder forwardedLogin(String proxy, String forwardedFor, String username) {
+        return post("/user/login")
+                .with(request -> {
+                    request.setRemoteAddr(proxy);
+                    return request;
+                })
+                .header("X-Forwarded-For", forwardedFor)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"" + username + "\",\"password\":\"wrong-password\"}");
+    }
+
+    /**
+     * Проверяет вход по токенам: токен доступа аутентифицирует запросы без создания сессии,
+     * токен обновления одноразовый, а отзыв токенов пользователя действует сразу.
+     */
+    @Test
+    void tokenLoginAuthenticatesWithoutSession() throws Exception {
+        User created = createUser(PREFIX + "token");
+        created.setPassword(BCrypt.hashpw("secret-password", BCrypt.gensalt(5)));
+        userRepository.save(created);
+
+        String body = "{\"username\":\"" + created.getUsername() + "\",\"password\":\"secret-password\"}";
+        String tokens = mockMvc.perform(post("/auth/token").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String accessToken = JsonPath.read(tokens, "$.accessToken");
+        String refreshToken = JsonPath.read(tokens, "$.refreshToken");
+
+        mockMvc.perform(get("/favorites").header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.SET_COOKIE));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM http_sessions WHERE principal_name = ?",
+                Integer.class, created.getUsername()));
+
+        String refreshBody = "{\"refreshToken\":\"" + refreshToken + "\"}";
+        mockMvc.perform(post("/auth/token/refresh").contentType(MediaType.APPLICATION_JSON).content(refreshBody))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/auth/token/refresh").contentType(MediaType.APPLICATION_JSON).content(refreshBody))
+                .andExpect(status().isUnauthorized());
+
+        tokenService.revokeAllTokens(created.getId());
+        mockMvc.perform(get("/favorites").header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/favorites").header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken.substring(1) + "A"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    /**
+     * Проверяет, что вход не повторяет поиск пользователя после проверки пароля: без записи в кеше
+     * пользователь читается один раз при проверке пароля, с записью — один раз по идентификатору.
+     * Второй запрос входа — запись токена обновления.
+     */
+    @Test
+    void loginLoadsUserOnce() throws Exception {
+        User created = createUser(PREFIX + "once");
+        created.setPassword(BCrypt.hashpw("secret-password", BCrypt.gensalt(5)));
+        userRepository.save(created);
+        userCache.evict(created.getUsername());
+
+        String body = "{\"username\":\"" + created.getUsername() + "\",\"password\":\"secret-password\"}";
+        for (int i = 0; i < 2; i++) {
+            DistributionSummary summary = meterRegistry.find("carportal.http.server.queries")
+                    .tags("method", "POST", "uri", "/auth/token").summary();
+            double total = summary != null ? summary.totalAmount() : 0;
+
+            mockMvc.perform(post("/auth/token").contentType(MediaType.APPLICATION_JSON).content(body))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.user.id").value(created.getId()));
+            assertEquals(total + 2, meterRegistry.get("carportal.http.server.queries")
+                    .tags("method", "POST", "uri", "/auth/token").summary().totalAmount(), "Вход " + (i + 1));
+        }
+        tokenService.revokeAllTokens(created.getId());
+    }
+
+    /**
+     * Проверяет, что транзакции только для чтения выполняются на реплике, а после записи
+     * и при явном выборе основной базы — на основной базе.
+     */
+    @Test
+    void readOnlyTransactionsAreRoutedToReplica() {
+        replicaRouter.checkReplicaLag();
+        TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        String applicationNameSql = "SELECT current_setting('application_name')";
+        String replica = "carportal-replica-0";
+
+        assertEquals(replica, readOnly.execute(status -> jdbcTemplate.queryForObject(applicationNameSql, String.class)));
+        assertNotEquals(replica, readWrite.execute(status -> jdbcTemplate.queryForObject(applicationNameSql, String.class)));
+        assertNotEquals(replica, DataSourceRouting.onPrimary(() ->
+                readOnly.execute(status -> jdbcTemplate.queryForObject(applicationNameSql, String.class))));
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest(), response));
+        try {
+            readWrite.executeWithoutResult(status -> jdbcTemplate.queryForObject("SELECT 1", Integer.class));
+            assertNotNull(response.getCookie(ReadYourWritesTracker.COOKIE_NAME));
+            assertNotEquals(replica, readOnly.execute(status -> jdbcTemplate.queryForObject(applicationNameSql, String.class)));
+
+            MockHttpServletRequest nextRequest = new MockHttpServletRequest();
+            nextRequest.setCookies(response.getCookie(ReadYourWritesTracker.COOKIE_NAME));
+            RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(nextRequest, new MockHttpServletResponse()));
+            assertNotEquals(replica, readOnly.execute(status -> jdbcTemplate.queryForObject(applicationNameSql, String.class)));
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+
+    /**
+     * Проверяет, что сброс в транзакции только для чтения отправляется через основную базу, сбросы в транзакции
+     * объединяются в одно сообщение, отправляемое только при фиксации, а сообщения другого экземпляра
+     * приложения сбрасывают локальные кеши.
+     */
+    @Test
+    void cacheInvalidationsAreCoalescedAndDeliveredAcrossNodes() throws Exception {
+        String channel = "carportal_cache_invalidation";
+        try (Connection listener = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword());
+             Statement statement = listener.createStatement()) {
+            statement.execute("LISTEN " + channel);
+            PGConnection pgListener = listener.unwrap(PGConnection.class);
+
+            replicaRouter.checkReplicaLag();
+            TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+            readOnly.setReadOnly(true);
+            readOnly.executeWithoutResult(status -> {
+                assertEquals("carportal-replica-0",
+                        jdbcTemplate.queryForObject("SELECT current_setting('application_name')", String.class));
+                invalidationBus.publish(CacheRegion.NEWS, 8L);
+            });
+            PGNotification[] afterCommit = pgListener.getNotifications(2000);
+            assertEquals(1, afterCommit.length);
+            assertNotEquals("carportal-replica-0", jdbcTemplate.queryForObject(
+                    "SELECT application_name FROM pg_stat_activity WHERE pid = ?", String.class, afterCommit[0].getPID()));
+            assertTrue(afterCommit[0].getParameter().endsWith("\nNEWS 8"));
+
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            transaction.executeWithoutResult(status -> {
+                invalidationBus.publish(CacheRegion.CARS, 1L);
+                invalidationBus.publish(CacheRegion.USERS, "someone");
+                invalidationBus.publish(CacheRegion.CARS, 1L);
+                invalidationBus.publish(CacheRegion.NEWS, 7L);
+                invalidationBus.publish(CacheRegion.NEWS, null);
+            });
+            transaction.executeWithoutResult(status -> {
+                invalidationBus.publish(CacheRegion.CARS, 2L);
+                status.setRollbackOnly();
+            });
+
+            PGNotification[] notifications = pgListener.getNotifications(2000);
+            assertEquals(1, notifications.length);
+            String payload = notifications[0].getParameter();
+            assertEquals("CARS 1\nNEWS\nUSERS someone", payload.substring(payload.indexOf('\n') + 1));
+            PGNotification[] rolledBack = pgListener.getNotifications(200);
+            assertTrue(rolledBack == null || rolledBack.length == 0);
+        }
+
+        awaitCondition(() -> meterRegistry.get("carportal.cache.invalidation.connected").gauge().value() == 1);
+        String username = PREFIX + "remote";
+        userCache.putUserInCache(org.springframework.security.core.userdetails.User.withUsername(username)
+                .password("password").authorities("ROLE_USER").build());
+        long carsCounter = catalogVersionService.getCarsVersion().getCounter();
+        jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", channel,
+                "othernode " + System.currentTimeMillis() + "\nUSERS " + username + "\nCARS 42");
+
+        awaitCondition(() -> catalogVersionService.getCarsVersion().getCounter() > carsCounter);
+        awaitCondition(() -> userCache.getUserFromCache(username) == null);
+    }
+
+    /**
+     * Проверяет, что исходящие события записываются вместе с изменением автомобиля, доставляются после фиксации
+     * в порядке записи, а после ошибки обработчика остаются в таблице и доставляются повторно.
+     */
+    @Test
+    void outboxEventsAreDeliveredAfterCommitAndRetriedOnFailure() throws Exception {
+        CarResponseDTO car = adminService.addCar(new CarRequestDTO("Outbox", "Test", 2020, 1_000_000, null, null, true));
+        Long carId = car.getId();
+        String pendingSql = "SELECT count(*) FROM outbox_events WHERE aggregate_id = ? AND event_type LIKE 'CAR_%'";
+        try {
+            adminService.editCar(carId, new CarRequestDTO(null, null, 0, 900_000, null, null, false));
+            awaitCondition(() -> outboxConsumer.typesOf(carId).size() == 3);
+            assertEquals(List.of(OutboxEventType.CAR_ADDED, OutboxEventType.CAR_PRICE_CHANGED, OutboxEventType.CAR_SOLD),
+                    outboxConsumer.typesOf(carId));
+            awaitCondition(() -> jdbcTemplate.queryForObject(pendingSql, Integer.class, carId) == 0);
+
+            outboxConsumer.failing.set(true);
+            adminService.editCar(carId, new CarRequestDTO(null, null, 0, 800_000, null, null, null));
+            awaitCondition(() -> jdbcTemplate.queryForObject(pendingSql + " AND attempts > 0", Integer.class, carId) == 1);
+            assertEquals(3, outboxConsumer.typesOf(carId).size());
+
+            outboxConsumer.failing.set(false);
+            awaitCondition(() -> outboxConsumer.typesOf(carId).size() == 4);
+            assertEquals(OutboxEventType.CAR_PRICE_CHANGED, outboxConsumer.typesOf(carId).get(3));
+            awaitCondition(() -> jdbcTemplate.queryForObject(pendingSql, Integer.class, carId) == 0);
+        } finally {
+            outboxConsumer.failing.set(false);
+            adminService.deleteCar(carId);
+        }
+    }
+
+    /**
+     * Проверяет, что событие, не доставленное за допустимое количество попыток, помечается «мертвым»
+     * и не доставляется повторно после восстановления обработчика.
+     */
+    @Test
+    void outboxEventsAreDeadLetteredAfterMaxAttempts() throws Exception {
+        CarResponseDTO car = adminService.addCar(new CarRequestDTO("Outbox", "Dead", 2020, 1_000_000, null, null, true));
+        Long carId = car.getId();
+        String deadSql = "SELECT count(*) FROM outbox_events WHERE aggregate_id = ? AND dead_at IS NOT NULL AND attempts = 8";
+        try {
+            awaitCondition(() -> outboxConsumer.typesOf(carId).size() == 1);
+            double dead = meterRegistry.counter("carportal.outbox.dead").count();
+
+            outboxConsumer.failing.set(true);
+            adminService.editCar(carId, new CarRequestDTO(null, null, 0, 900_000, null, null, null));
+            awaitCondition(() -> {
+                outboxRelay.drain();
+                return jdbcTemplate.queryForObject(deadSql, Integer.class, carId) == 1;
+            });
+            assertEquals(dead + 1, meterRegistry.counter("carportal.outbox.dead").count());
+
+            outboxConsumer.failing.set(false);
+            outboxRelay.drain();
+            assertEquals(List.of(OutboxEventType.CAR_ADDED), outboxConsumer.typesOf(carId));
+        } finally {
+            outboxConsumer.failing.set(false);
+            jdbcTemplate.update("DELETE FROM outbox_events WHERE aggregate_id = ? AND event_type LIKE 'CAR_%'", carId);
+            adminService.deleteCar(carId);
+        }
+    }
+
+    /**
+     * Проверяет, что снижение цены и продажа автомобиля доставляются из таблицы исходящих событий
+     * в уведомления пользователей, добавивших автомобиль в избранное.
+     */
+    @Test
+    void favoriteNotificationsAreBuiltFromOutboxEvents() throws Exception {
+        User buyer = createUser(PREFIX + "notified");
+        CarResponseDTO car = adminService.addCar(new CarRequestDTO("Outbox", "Notify", 2020, 1_000_000, null, null, true));
+        Long carId = car.getId();
+        try {
+            Favorite favorite = new Favorite();
+            favorite.setUser(buyer);
+            favorite.setCar(carRepository.findById(carId).orElseThrow());
+            favoriteRepository.save(favorite);
+
+            adminService.editCar(carId, new CarRequestDTO(null, null, 0, 1_100_000, null, null, null));
+            adminService.editCar(carId, new CarRequestDTO(null, null, 0, 900_000, null, null, null));
+            adminService.editCar(carId, new CarRequestDTO(null, null, 0, 0, null, null, false));
+            awaitCondition(() -> outboxConsumer.typesOf(carId).size() == 4);
+
+            mockMvc.perform(get("/favorites/notifications").with(user(buyer.getUsername()).roles("USER")))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(2))
+                    .andExpect(jsonPath("$[0].type").value("SOLD"))
+                    .andExpect(jsonPath("$[1].type").value("PRICE_DROPPED"))
+                    .andExpect(jsonPath("$[1].oldPrice").value(1_100_000.0))
+                    .andExpect(jsonPath("$[1].newPrice").value(900_000.0));
+        } finally {
+            favoriteRepository.findByUser(buyer).forEach(favoriteRepository::delete);
+            adminService.deleteCar(carId);
+        }
+    }
+
+    /**
+     * Проверяет, что статистика обновляется приращениями без обращения к базе данных
+     * и совпадает с агрегатами SQL при сверке.
+     */
+    @Test
+    void adminStatsAreMaintainedIncrementally() throws Exception {
+        adminStatsService.reconcile();
+        double corrections = meterRegistry.counter("carportal.stats.corrections").count();
+        AdminStatsDTO before = adminStatsService.getStats();
+
+        CarResponseDTO car = adminService.addCar(new CarRequestDTO("Stats", "Test", 2020, 1_000_000, null, null, true));
+        try {
+            adminService.editCar(car.getId(), new CarRequestDTO(null, null, 0, 900_000, null, null, false));
+            AdminStatsDTO after = adminStatsService.getStats();
+            assertEquals(before.getTotalCars() + 1, after.getTotalCars());
+            assertEquals(before.getCarsByStatus().get(CarStatus.SOLD.name()) + 1,
+                    after.getCarsByStatus().get(CarStatus.SOLD.name()));
+            assertEquals(1L, after.getCarsByBrand().get("Stats"));
+
+            mockMvc.perform(get("/admin/stats").with(user("admin").roles("ADMIN")))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.totalCars").value(after.getTotalCars()));
+
+            adminStatsService.reconcile();
+            assertEquals(corrections, meterRegistry.counter("carportal.stats.corrections").count());
+            assertEquals(after.getTotalCars(), adminStatsService.getStats().getTotalCars());
+        } finally {
+            adminService.deleteCar(car.getId());
+        }
+        assertEquals(before.getTotalCars(), adminStatsService.getStats().getTotalCars());
+        assertNull(adminStatsService.getStats().getCarsByBrand().get("Stats"));
+    }
+
+    /**
+     * Проверяет, что запросы через JdbcTemplate учитываются в распределении SQL-запросов
+     * эндпоинта наравне с запросами Hibernate.
+     */
+    @Test
+    void jdbcTemplateQueriesAreCounted() throws Exception {
+        CarResponseDTO car = adminService.addCar(new CarRequestDTO("Counted", "Test", 2020, 1_000_000, null, null, true));
+        try {
+            mockMvc.perform(get("/cars/" + car.getId() + "/price-history")).andExpect(status().isOk());
+            DistributionSummary summary = meterRegistry.get("carportal.http.server.queries")
+                    .tags("method", "GET", "uri", "/cars/{id}/price-history").summary();
+            long count = summary.count();
+            double total = summary.totalAmount();
+
+            mockMvc.perform(get("/cars/" + car.getId() + "/price-history")).andExpect(status().isOk());
+            assertEquals(count + 1, summary.count());
+            assertEquals(total + 1, summary.totalAmount());
+        } finally {
+            adminService.deleteCar(car.getId());
+        }
+    }
+
+    /**
+     * Проверяет, что изменения цены упаковываются в историю, доступны по периоду,
+     * а снижение цены попадает в фильтр каталога.
+     */
+    @Test
+    void priceHistoryIsPackedAndDropsAreFlagged() throws Exception {
+        CarResponseDTO car = adminService.addCar(new CarRequestDTO("History", "Test", 2020, 1_000_000, null, null, true));
+        Long carId = car.getId();
+        try {
+            adminService.editCar(carId, new CarRequestDTO(null, null, 0, 899_999.99, null, null, null));
+            adminService.editCar(carId, new CarRequestDTO(null, null, 0, 950_000, null, null, null));
+            adminService.editCar(carId, new CarRequestDTO("History", null, 0, 0, null, null, null));
+
+            mockMvc.perform(get("/cars/" + carId + "/price-history"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(3))
+                    .andExpect(jsonPath("$[0].price").value(1_000_000.0))
+                    .andExpect(jsonPath("$[1].price").value(899_999.99))
+                    .andExpect(jsonPath("$[2].price").value(950_000.0));
+            mockMvc.perform(get("/cars/" + carId + "/price-history")
+                            .param("from", LocalDateTime.now().plusMinutes(1).toString()))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(1))
+                    .andExpect(jsonPath("$[0].price").value(950_000.0));
+            assertTrue(jdbcTemplate.queryForObject("SELECT octet_length(deltas) FROM car_price_history WHERE car_id = ?",
+                    Integer.class, carId) <= 12);
+
+            mockMvc.perform(get("/cars/price-drops").param("days", "1"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$[?(@.id == " + carId + ")].priceDroppedAt").isNotEmpty());
+        } finally {
+            adminService.deleteCar(carId);
+        }
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM car_price_history WHERE car_id = ?",
+                Integer.class, carId));
+    }
+
+    /**
+     * Проверяет, что похожие автомобили отдаются без обращения к базе данных
+     * и пересчитываются после изменений каталога.
+     */
+    @Test
+    void similarCarsAreUpdatedIncrementally() throws Exception {
+        Long carId = adminService.addCar(new CarRequestDTO("Similar", "Alpha", 2020, 1_000_000, null, null, true)).getId();
+        Long twinId = adminService.addCar(new CarRequestDTO("Similar", "Alpha", 2021, 1_050_000, null, null, true)).getId();
+        try {
+            awaitCondition(() -> !similarCarsService.getSimilarCars(carId).isEmpty()
+                    && similarCarsService.getSimilarCars(carId).get(0).getId().equals(twinId));
+            assertEquals(carId, similarCarsService.getSimilarCars(twinId).get(0).getId());
+            mockMvc.perform(get("/cars/" + carId + "/similar"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$[0].id").value(twinId));
+
+            adminService.editCar(twinId, new CarRequestDTO(null, null, 0, 0, null, null, false));
+            awaitCondition(() -> similarCarsService.getSimilarCars(carId).stream()
+                    .noneMatch(car -> car.getId().equals(twinId)));
+        } finally {
+            adminService.deleteCar(twinId);
+            adminService.deleteCar(carId);
+        }
+        awaitCondition(() -> similarCarsService.getSimilarCars(carId).isEmpty());
+    }
+
+    /**
+     * Проверяет, что снимок каталога обновляется изменениями автомобилей без полной перезагрузки
+     * и совпадает с каталогом в базе данных, а выборки сохраняются только для марок справочника.
+     */
+    @Test
+    void catalogSnapshotIsUpdatedFromCarChanges() throws Exception {
+        String brand = "Снимок" + System.nanoTime();
+        mockMvc.perform(get("/cars/catalog")).andExpect(status().isOk());
+        double deltas = meterRegistry.counter("carportal.cache.requests", "cache", "catalog-snapshot-delta", "result", "hit").count();
+
+        Long carId = adminService.addCar(new CarRequestDTO(brand, "Тест", 2020, 1_000_000, null, null, true)).getId();
+        try {
+            mockMvc.perform(get("/cars/brand/{brand}", brand.toUpperCase()))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$[0].price").value(1_000_000.0));
+            adminService.editCar(carId, new CarRequestDTO(null, null, 0, 900_000, null, null, null));
+
+            String catalog = mockMvc.perform(get("/cars/catalog"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$[?(@.id == " + carId + ")].price").value(900_000.0))
+                    .andReturn().getResponse().getContentAsString();
+            List<CarResponseDTO> cars = new ArrayList<>(carService.getAllCars());
+            cars.sort(Comparator.comparing(CarResponseDTO::getId));
+            assertEquals(objectMapper.readTree(objectMapper.writeValueAsBytes(cars)), objectMapper.readTree(catalog));
+            mockMvc.perform(get("/cars/brand/{brand}", " " + brand.toLowerCase()))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$[0].price").value(900_000.0));
+
+            adminService.deleteCar(carId);
+            mockMvc.perform(get("/cars/catalog"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$[?(@.id == " + carId + ")]").isEmpty());
+            assertTrue(meterRegistry.counter("carportal.cache.requests", "cache", "catalog-snapshot-delta", "result", "hit")
+                    .count() >= deltas + 2);
+        } finally {
+            if (carRepository.existsById(carId)) {
+                adminService.deleteCar(carId);
+            }
+            deleteDictionaryBrand(brand);
+        }
+
+        double misses = meterRegistry.counter("carportal.cache.requests", "cache", "brand-snapshot", "result", "miss").count();
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(get("/cars/brand/{brand}", "Нет такой марки " + brand))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(0));
+        }
+        assertEquals(misses + 2, meterRegistry.counter("carportal.cache.requests", "cache", "brand-snapshot", "result", "miss").count());
+    }
+
+    /**
+     * Проверяет, что условные запросы каталога, автомобиля и новостей с актуальными
+     * If-None-Match и If-Modified-Since получают 304 без тела.
+     */
+    @Test
+    void conditionalGetsAreAnsweredWithNotModified() throws Exception {
+        Long carId = adminService.addCar(new CarRequestDTO("Conditional", "Test", 2020, 1_000_000, null, null, true)).getId();
+        try {
+            for (String path : List.of("/cars/catalog", "/cars/" + carId, "/news")) {
+                MockHttpServletResponse response = mockMvc.perform(get(path))
+                        .andExpect(status().isOk())
+                        .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                        .andReturn().getResponse();
+                String eTag = response.getHeader(HttpHeaders.ETAG);
+                assertNotNull(eTag, path);
+
+                mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                        .andExpect(status().isNotModified())
+                        .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                        .andExpect(content().bytes(new byte[0]));
+                mockMvc.perform(get(path).header(HttpHeaders.IF_MODIFIED_SINCE, response.getHeader(HttpHeaders.LAST_MODIFIED)))
+                        .andExpect(status().isNotModified());
+                mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, "\"stale\""))
+                        .andExpect(status().isOk());
+            }
+        } finally {
+            adminService.deleteCar(carId);
+        }
+    }
+
+    /**
+     * Проверяет, что запись автомобиля или новости меняет ETag своего ресурса,
+     * и прежний ETag больше не дает ответ 304.
+     */
+    @Test
+    void eTagChangesAfterWrite() throws Exception {
+        String catalogETag = mockMvc.perform(get("/cars/catalog")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String newsETag = mockMvc.perform(get("/news")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        Long carId = adminService.addCar(new CarRequestDTO("Conditional", "Test", 2020, 1_000_000, null, null, true)).getId();
+        try {
+            String addedETag = mockMvc.perform(get("/cars/catalog").header(HttpHeaders.IF_NONE_MATCH, catalogETag))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$[?(@.id == " + carId + ")]").isNotEmpty())
+                    .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+            assertNotEquals(catalogETag, addedETag);
+            assertEquals(newsETag, mockMvc.perform(get("/news").header(HttpHeaders.IF_NONE_MATCH, newsETag))
+                    .andExpect(status().isNotModified())
+                    .andReturn().getResponse().getHeader(HttpHeaders.ETAG));
+
+            adminService.editCar(carId, new CarRequestDTO(null, null, 0, 900_000, null, null, null));
+            String editedETag = mockMvc.perform(get("/cars/" + carId).header(HttpHeaders.IF_NONE_MATCH, addedETag))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.price").value(900_000.0))
+                    .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+            assertNotEquals(addedETag, editedETag);
+        } finally {
+            adminService.deleteCar(carId);
+        }
+
+        User admin = createUser(PREFIX + "admin");
+        String added = mockMvc.perform(post("/admin/news/add")
+                        .with(user(admin.getUsername()).roles("ADMIN"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new NewsRequestDTO("Условный запрос", "Проверка ETag"))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        Long newsId = ((Number) JsonPath.read(added, "$.id")).longValue();
+        try {
+            mockMvc.perform(get("/news").header(HttpHeaders.IF_NONE_MATCH, newsETag))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG, not(newsETag)));
+        } finally {
+            adminService.deleteNews(newsId);
+        }
+    }
+
+    /**
+     * Проверяет, что сжатое и несжатое тела снимка каталога имеют разные ETag,
+     * а ответ 304 подтверждает только ETag своей кодировки и содержит Vary.
+     */
+    @Test
+    void snapshotETagDependsOnContentEncoding() throws Exception {
+        String gzipETag = mockMvc.perform(get("/cars/catalog").header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT_ENCODING)))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String identityETag = mockMvc.perform(get("/cars/catalog"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(gzipETag);
+        assertNotEquals(gzipETag, identityETag);
+
+        mockMvc.perform(get("/cars/catalog")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                        .header(HttpHeaders.IF_NONE_MATCH, gzipETag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, gzipETag))
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT_ENCODING)));
+        mockMvc.perform(get("/cars/catalog").header(HttpHeaders.IF_NONE_MATCH, gzipETag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, identityETag));
+    }
+
+    /**
+     * Проверяет, что после перестроения фильтры идентификаторов содержат все существующие автомобили и новости,
+     * а автомобиль, записанный другим экземпляром без уведомления, находится по базе данных.
+     */
+    @Test
+    void idFiltersHaveNoFalseNegativesAfterRebuild() throws Exception {
+        idBloomFilterService.rebuild();
+        carRepository.findAll().forEach(car -> assertTrue(idBloomFilterService.mightContainCar(car.getId())));
+        newsRepository.findAll().forEach(news -> assertTrue(idBloomFilterService.mightContainNews(news.getId())));
+
+        Long remoteCarId = createSellersWithCars().get(0).getId();
+        assertTrue(idBloomFilterService.mightContainCar(remoteCarId));
+        mockMvc.perform(get("/cars/" + remoteCarId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(remoteCarId));
+        mockMvc.perform(get("/cars/" + (remoteCarId + 1_000_000)))
+                .andExpect(status().isNotFound());
+    }
+
+    /**
+     * Проверяет, что идентификаторы, добавленные после начала перестроения, переносятся в следующий фильтр,
+     * а удаленные идентификаторы исключаются перестроением, как только перестают переноситься.
+     */
+    @Test
+    void idFilterCarriesRecentIdsAcrossRebuild() throws Exception {
+        List<Long> deletedIds = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            deletedIds.add(adminService.addCar(new CarRequestDTO("Bloom", "Test", 2020, 1_000_000, null, null, true)).getId());
+        }
+        Long keptId = adminService.addCar(new CarRequestDTO("Bloom", "Test", 2020, 1_000_000, null, null, true)).getId();
+        try {
+            deletedIds.forEach(adminService::deleteCar);
+            idBloomFilterService.rebuild();
+            deletedIds.forEach(id -> assertTrue(idBloomFilterService.mightContainCar(id)));
+
+            idBloomFilterService.rebuild();
+            assertTrue(idBloomFilterService.mightContainCar(keptId));
+            Long absentId = deletedIds.stream()
+                    .filter(id -> !idBloomFilterService.mightContainCar(id))
+                    .findFirst()
+                    .orElse(null);
+            assertNotNull(absentId);
+            double filtered = meterRegistry.counter("carportal.cache.requests", "cache", "car-id-filter", "result", "hit").count();
+            mockMvc.perform(get("/cars/" + absentId)).andExpect(status().isNotFound());
+            assertEquals(filtered + 1, meterRegistry.counter("carportal.cache.requests", "cache", "car-id-filter", "result", "hit").count());
+
+            idBloomFilterService.onCarChanged(new CarChangedEvent(ChangeType.ADDED, absentId, null, null));
+            assertTrue(idBloomFilterService.mightContainCar(absentId));
+            idBloomFilterService.rebuild();
+            assertTrue(idBloomFilterService.mightContainCar(absentId));
+            idBloomFilterService.rebuild();
+            assertFalse(idBloomFilterService.mightContainCar(absentId));
+        } finally {
+            adminService.deleteCar(keptId);
+        }
+    }
+
+    /**
+     * Проверяет, что клиент, переподключившийся с Last-Event-ID, получает только пропущенные события
+     * своей марки в исходном порядке, а клиент с утерянной историей - событие RESYNC.
+     */
+    @Test
+    void catalogEventStreamResumesFromLastEventId() throws Exception {
+        String brand = "Resume" + System.nanoTime();
+        MvcResult live = subscribeToCatalogEvents(mockMvc, brand, null);
+
+        Long carId = adminService.addCar(new CarRequestDTO(brand, "Test", 2020, 1_000_000, null, null, true)).getId();
+        try {
+            awaitCondition(() -> streamContent(live).contains("event:CAR_ADDED"));
+            Matcher added = Pattern.compile("id:(\\S+)\nevent:CAR_ADDED").matcher(streamContent(live));
+            assertTrue(added.find());
+            String lastEventId = added.group(1);
+
+            adminService.editCar(carId, new CarRequestDTO(null, null, 0, 900_000, null, null, false));
+            adminService.deleteCar(carId);
+
+            MvcResult resumed = subscribeToCatalogEvents(mockMvc, brand, lastEventId);
+            awaitCondition(() -> streamContent(resumed).contains("event:CAR_DELETED"));
+            String replay = streamContent(resumed);
+            assertFalse(replay.contains("event:CAR_ADDED"));
+            assertTrue(replay.indexOf("event:PRICE_CHANGED") >= 0
+                    && replay.indexOf("event:PRICE_CHANGED") < replay.indexOf("event:STATUS_CHANGED")
+                    && replay.indexOf("event:STATUS_CHANGED") < replay.indexOf("event:CAR_DELETED"), replay);
+        } finally {
+            if (carRepository.existsById(carId)) {
+                adminService.deleteCar(carId);
+            }
+            deleteDictionaryBrand(brand);
+        }
+
+        MvcResult stale = subscribeToCatalogEvents(mockMvc, brand, "1");
+        awaitCondition(() -> streamContent(stale).contains("event:RESYNC"));
+        MvcResult foreign = subscribeToCatalogEvents(mockMvc, brand, "othernode-1");
+        awaitCondition(() -> streamContent(foreign).contains("event:RESYNC"));
+    }
+
+    /**
+     * Проверяет, что изменение каталога на другом экземпляре приложения доставляется подписчикам
+     * одним событием RESYNC на сообщение шины сброса кешей.
+     */
+    @Test
+    void remoteCatalogChangesResyncSubscribers() throws Exception {
+        awaitCondition(() -> meterRegistry.get("carportal.cache.invalidation.connected").gauge().value() == 1);
+        MvcResult live = subscribeToCatalogEvents(mockMvc, "Remote" + System.nanoTime(), null);
+
+        jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", "carportal_cache_invalidation",
+                "othernode " + System.currentTimeMillis() + "\nCARS 42\nCARS 43");
+        awaitCondition(() -> streamContent(live).contains("event:RESYNC"));
+        Thread.sleep(200);
+        assertEquals(1, streamContent(live).split("event:RESYNC", -1).length - 1, streamContent(live));
+    }
+
+    /**
+     * Проверяет, что клиент, переставший читать поток, отключается после переполнения своей очереди,
+     * не задерживая рассылку событий и других клиентов.
+     */
+    @Test
+    void slowCatalogEventSubscriberIsDisconnected() throws Exception {
+        String slowBrand = "Slow" + System.nanoTime();
+        String fastBrand = "Fast" + System.nanoTime();
+        CountDownLatch released = new CountDownLatch(1);
+        MockMvc stalledMockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext)
+                .addFilters((request, response, chain) ->
+                        chain.doFilter(request, new StalledResponse((HttpServletResponse) response, released)))
+                .build();
+
+        int subscribers = catalogEventBroadcaster.getSubscriberCount();
+        subscribeToCatalogEvents(stalledMockMvc, slowBrand, null);
+        MvcResult fast = subscribeToCatalogEvents(mockMvc, fastBrand, null);
+        assertEquals(subscribers + 2, catalogEventBroadcaster.getSubscriberCount());
+        try {
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+                for (long i = 1; i <= 1_000; i++) {
+                    catalogEventBroadcaster.onCarChanged(syntheticCarAdded(-i, slowBrand));
+                }
+                catalogEventBroadcaster.onCarChanged(syntheticCarAdded(-1_001L, fastBrand));
+            });
+            awaitCondition(() -> catalogEventBroadcaster.getSubscriberCount() == subscribers + 1);
+            awaitCondition(() -> streamContent(fast).contains("\"brand\":\"" + fastBrand + "\""));
+        } finally {
+            released.countDown();
+        }
+    }
+
+    /**
+     * Проверяет, что подсказки не зависят от регистра, упорядочены по количеству
+     * и обновляются после изменений автомобилей и новостей.
+     */
+    @Test
+    void autocompleteIsCaseInsensitiveAndUpdatedOnWrites() throws Exception {
+        Long firstId = adminService.addCar(new CarRequestDTO("Автоподсказка", "Тест Один", 2020, 1_000_000, null, null, true)).getId();
+        Long secondId = adminService.addCar(new CarRequestDTO("Автоподсказка", "Тест Два", 2020, 1_000_000, null, null, true)).getId();
+        User author = createUser(PREFIX + "author");
+        Long newsId = jdbcTemplate.queryForObject("INSERT INTO news (user_id, title, content, date) "
+                + "VALUES (?, 'Обзор: ёмкий автоподсказчик', 'Текст', CURRENT_DATE) RETURNING id", Long.class, author.getId());
+        autocompleteService.onNewsChanged(new NewsChangedEvent(ChangeType.ADDED, newsId));
+        try {
+            awaitCondition(() -> autocompleteService.suggest("АВТОПОДСКАЗ", 10).size() == 4);
+            List<SuggestionDTO> suggestions = autocompleteService.suggest("АВТОПОДСКАЗКА", 10);
+            assertEquals(3, suggestions.size());
+            assertEquals(new SuggestionDTO("Автоподсказка", "BRAND", 2), suggestions.get(0));
+            assertEquals(List.of(new SuggestionDTO("Обзор: ёмкий автоподсказчик", "NEWS", 1)),
+                    autocompleteService.suggest("автоподсказч", 10));
+            assertEquals(List.of(new SuggestionDTO("Автоподсказка Тест Один", "MODEL", 1)),
+                    autocompleteService.suggest("автоподсказка  тест о", 10));
+            assertEquals("NEWS", autocompleteService.suggest("емкий", 10).get(0).getType());
+
+            mockMvc.perform(get("/search/autocomplete").param("q", "тест два"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$[0].text").value("Автоподсказка Тест Два"));
+
+            adminService.deleteCar(secondId);
+            awaitCondition(() -> autocompleteService.suggest("автоподсказка", 1).get(0).getCount() == 1);
+        } finally {
+            adminService.deleteCar(firstId);
+            if (carRepository.existsById(secondId)) {
+                adminService.deleteCar(secondId);
+            }
+            jdbcTemplate.update("DELETE FROM news WHERE id = ?", newsId);
+            autocompleteService.onNewsChanged(new NewsChangedEvent(ChangeType.DELETED, newsId));
+        }
+        awaitCondition(() -> autocompleteService.suggest("автоподсказ", 10).isEmpty());
+    }
+
+    /**
+     * Проверяет, что написания марки и модели, различающиеся регистром и пробелами, получают одни
+     * идентификаторы справочника, а выборка по марке не зависит от написания.
+     */
+    @Test
+    void brandsAndModelsAreDeduplicatedInDictionary() throws Exception {
+        String suffix = String.valueOf(System.nanoTime());
+        String brand = "Справочник Тест" + suffix;
+        Long firstId = adminService.addCar(new CarRequestDTO(brand, "Модель Один", 2020, 1_000_000, null, null, true)).getId();
+        Car second = new Car();
+        second.setBrand("  справочник   ТЕСТ" + suffix + " ");
+        second.setModel("МОДЕЛЬ  один");
+        second.setYear(2021);
+        second.setPrice(1_100_000);
+        second.setStatus(CarStatus.AVAILABLE);
+        Long secondId = carRepository.save(second).getId();
+        try {
+            Car first = carRepository.findById(firstId).orElseThrow();
+            Car reloaded = carRepository.findById(secondId).orElseThrow();
+            assertEquals(first.getBrandId(), reloaded.getBrandId());
+            assertEquals(first.getModelId(), reloaded.getModelId());
+            assertEquals(brand, reloaded.getBrand());
+            assertEquals("Модель Один", reloaded.getModel());
+            assertEquals(first.getBrandId(), carDictionary.findBrandId("СПРАВОЧНИК тест" + suffix));
+            assertNull(carDictionary.findBrandId("Справочник Нет" + suffix));
+
+            mockMvc.perform(get("/cars/brand/{brand}", "справочник  тест" + suffix))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(2))
+                    .andExpect(jsonPath("$[1].brand").value(brand));
+        } finally {
+            adminService.deleteCar(firstId);
+            adminService.deleteCar(secondId);
+            deleteDictionaryBrand(brand);
+        }
+    }
+
+    /**
+     * Проверяет совместимость с предыдущей версией во время обновления: автомобиль, записанный только
+     * названиями, читается по ним и связывается со справочником фоновым заполнением, изменение названий
+     * без идентификаторов сбрасывает связь, а автомобиль новой версии получает названия в старых столбцах.
+     */
+    @Test
+    void legacyCarsAreLinkedToDictionaryInBackground() {
+        String brand = "Обновление " + System.nanoTime();
+        String legacyInsert = "INSERT INTO cars (brand, model, year, price, status) VALUES (?, ?, 2020, 1000, 'AVAILABLE') RETURNING id";
+        Long legacyId = jdbcTemplate.queryForObject(legacyInsert, Long.class, " " + brand.toUpperCase() + " ", "Модель");
+        Long currentId = null;
+        try {
+            Car legacy = carRepository.findById(legacyId).orElseThrow();
+            assertNull(legacy.getBrandId());
+            assertEquals(brand.toUpperCase(), legacy.getBrand().trim());
+
+            assertTrue(carDictionaryBackfill.backfill() >= 1);
+            Map<String, Object> linked = jdbcTemplate.queryForMap("SELECT brand, brand_id, model_id FROM cars WHERE id = ?", legacyId);
+            assertNotNull(linked.get("brand_id"));
+            assertNotNull(linked.get("model_id"));
+            assertEquals(linked.get("brand_id"), carDictionary.findBrandId(brand));
+            assertEquals(carDictionary.brandName((Integer) linked.get("brand_id")), linked.get("brand"));
+
+            jdbcTemplate.update("UPDATE cars SET model = 'Другая' WHERE id = ?", legacyId);
+            assertNull(jdbcTemplate.queryForObject("SELECT model_id FROM cars WHERE id = ?", Integer.class, legacyId));
+            carDictionaryBackfill.backfill();
+            Integer otherModelId = jdbcTemplate.queryForObject("SELECT model_id FROM cars WHERE id = ?", Integer.class, legacyId);
+            assertEquals("Другая", carDictionary.modelName(otherModelId));
+
+            currentId = adminService.addCar(new CarRequestDTO(brand, "Новая", 2021, 1_000_000, null, null, true)).getId();
+            assertEquals(List.of(Map.of("brand", carDictionary.brandName((Integer) linked.get("brand_id")), "model", "Новая")),
+                    jdbcTemplate.queryForList("SELECT brand, model FROM cars WHERE id = ?", currentId));
+        } finally {
+            jdbcTemplate.update("DELETE FROM cars WHERE id = ?", legacyId);
+            if (currentId != null) {
+                adminService.deleteCar(currentId);
+            }
+            deleteDictionaryBrand(brand);
+        }
+    }
+
+    /**
+     * Проверяет, что миграция справочника объединяет написания кириллических марок без учета регистра
+     * (нормализация выполняется в Java) и выбирает самое частое написание. Изменения откатываются.
+     */
+    @Test
+    void dictionaryMigrationNormalizesCyrillicSpellings() throws Exception {
+        String suffix = String.valueOf(System.nanoTime());
+        String brand = "Миграция " + suffix;
+        try (Connection connection = DriverManager.getConnection(dataSourceProperties.getUrl(),
+                dataSourceProperties.getUsername(), dataSourceProperties.getPassword())) {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                for (String spelling : List.of(brand, brand, "  " + brand.toUpperCase(), brand.toLowerCase())) {
+                    statement.execute("INSERT INTO cars (brand, model, year, price, status) VALUES ('"
+                            + spelling + "', 'Ёлка', 2020, 1000, 'AVAILABLE')");
+                }
+                statement.execute("INSERT INTO cars (brand, model, year, price, status) VALUES ('"
+                        + brand + "', 'ёлка ', 2020, 1000, 'AVAILABLE')");
+
+                new CarDictionaryMigration().migrate(new Context() {
+                    @Override
+                    public Configuration getConfiguration() {
+                        return null;
+                    }
+
+                    @Override
+                    public Connection getConnection() {
+                        return connection;
+                    }
+                });
+
+                try (ResultSet resultSet = statement.executeQuery("SELECT count(DISTINCT brand_id), count(DISTINCT model_id), "
+                        + "min(brand), max(brand), min(model), count(*) FILTER (WHERE brand_id IS NULL) "
+                        + "FROM cars WHERE brand LIKE '%" + suffix + "'")) {
+                    resultSet.next();
+                    assertEquals(1, resultSet.getInt(1));
+                    assertEquals(1, resultSet.getInt(2));
+                    assertEquals(brand, resultSet.getString(3));
+                    assertEquals(brand, resultSet.getString(4));
+                    assertEquals("Ёлка", resultSet.getString(5));
+                    assertEquals(0, resultSet.getInt(6));
+                }
+            } finally {
+                connection.rollback();
+            }
+        }
+    }
+
+    /**
+     * Удаляет данные, созданные тестом.
+     */
+    @AfterEach
+    void cleanUp() {
+        for (Long userId : createdUserIds) {
+            userRepository.findById(userId).ifPresent(createdUser ->
+                    favoriteRepository.findByUser(createdUser).forEach(favoriteRepository::delete));
+        }
+        createdUserIds.forEach(userRepository::deleteById);
+        createdUserIds.clear();
+    }
+
+    /**
+     * Удаляет марку и ее модели из справочника. Название марки в тестах уникально:
+     * справочник в памяти продолжает хранить удаленную запись.
+     */
+    private void deleteDictionaryBrand(String brand) {
+        String normalized = CarDictionary.normalize(brand);
+        jdbcTemplate.update("DELETE FROM car_models WHERE brand_id IN (SELECT id FROM car_brands WHERE normalized_name = ?)", normalized);
+        jdbcTemplate.update("DELETE FROM car_brands WHERE normalized_name = ?", normalized);
+    }
+
+    /**
+     * Получает SQL, который выполняет запрос репозитория.
+     */
+    private static String generatedSql(Runnable query) {
+        RequestQueryContext context = RequestQueryContext.begin(1);
+        try {
+            query.run();
+        } finally {
+            RequestQueryContext.end();
+        }
+        List<RequestQueryContext.Shape> shapes = context.getRepeatedShapes();
+        assertEquals(1, shapes.size());
+        return shapes.get(0).getSql();
+    }
+
+    /**
+     * Проверяет, что план запроса с параметрами-заполнителями для указанных значений читает таблицу по индексу.
+     */
+    private void assertIndexScan(String sql, String table, String index, Object... parameters) {
+        StringBuilder prepared = new StringBuilder();
+        int parameter = 0;
+        for (char c : sql.toCharArray()) {
+            if (c == '?') {
+                prepared.append('$').append(++parameter);
+            } else {
+                prepared.append(c);
+            }
+        }
+        String values = Arrays.stream(parameters).map(String::valueOf).collect(Collectors.joining(", "));
+        jdbcTemplate.execute("PREPARE plan_check AS " + prepared);
+        try {
+            String plan = String.join("\n", jdbcTemplate.queryForList("EXPLAIN EXECUTE plan_check(" + values + ")", String.class));
+            assertTrue(plan.contains(index) && !plan.contains("Seq Scan on " + table + " "),
+                    "Запрос " + sql + " не использует индекс " + index + ":\n" + plan);
+        } finally {
+            jdbcTemplate.execute("DEALLOCATE plan_check");
+        }
+    }
+
+    private static MvcResult subscribeToCatalogEvents(MockMvc client, String brand, String lastEventId) throws Exception {
+        MockHttpServletRequestBuilder subscription = get("/cars/events").param("brand", brand);
+        if (lastEventId != null) {
+            subscription.header("Last-Event-ID", lastEventId);
+        }
+        return client.perform(subscription)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    private static String streamContent(MvcResult result) {
+        try {
+            return result.getResponse().getContentAsString();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static CarChangedEvent syntheticCarAdded(long carId, String brand) {
+        CarResponseDTO car = new CarResponseDTO();
+        car.setId(carId);
+        car.setBrand(brand);
+        car.setPrice(1_000_000);
+        car.setAvailable(true);
+        return new CarChangedEvent(ChangeType.ADDED, carId, null, car);
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Условие не выполнено за 5 секунд");
+            Thread.sleep(10);
+        }
+    }
+
+    private List<Car> createSellersWithCars() {
+        List<Car> cars = new ArrayList<>();
+        for (int i = 0; i < SELLERS; i++) {
+            User seller = createUser(PREFIX + "seller_" + i);
+            Car car = new Car();
+            car.setBrand("Budget");
+            car.setModel("Test " + i);
+            car.setYear(2020);
+            car.setPrice(1_000_000 + i);
+            car.setStatus(CarStatus.AVAILABLE);
+            car.setSeller(seller);
+            cars.add(carRepository.save(car));
+        }
+        return cars;
+    }
+
+    private User createUser(String username) {
+        User user = new User();
+        user.setUsername(username + System.nanoTime() % 100_000);
+        user.setPassword("password");
+        user.setEmail(user.getUsername() + "@carportal.ru");
+        user.setRole(UserRole.USER);
+        User saved = userRepository.save(user);
+        createdUserIds.add(saved.getId());
+        return saved;
+    }
+
+    /**
+     * Конфигурация тестов: обработчик исходящих событий.
+     */
+    @TestConfiguration
+    static class OutboxTestConfiguration {
+
+        @Bean
+        RecordingOutboxConsumer recordingOutboxConsumer() {
+            return new RecordingOutboxConsumer();
+        }
+    }
+
+    /**
+     * Ответ клиента, который не читает поток: запись тела ждет разрешения теста.
+     */
+    private static class StalledResponse extends HttpServletResponseWrapper {
+
+        private final CountDownLatch released;
+
+        StalledResponse(HttpServletResponse response, CountDownLatch released) {
+            super(response);
+            this.released = released;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            ServletOutputStream delegate = super.getOutputStream();
+            return new ServletOutputStream() {
+                @Override
+                public boolean isReady() {
+                    return released.getCount() == 0;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {
+                    delegate.setWriteListener(writeListener);
+                }
+
+                @Override
+                public void write(int b) throws IOException {
+                    awaitRelease();
+                    delegate.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    awaitRelease();
+                    delegate.write(b, off, len);
+                }
+            };
+        }
+
+        private void awaitRelease() throws IOException {
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+        }
+    }
+
+    /**
+     * Обработчик исходящих событий, запоминающий доставленные события.
+     */
+    static class RecordingOutboxConsumer implements OutboxConsumer {
+
+        private final List<OutboxEvent> events = new CopyOnWriteArrayList<>();
+        private final AtomicBoolean failing = new AtomicBoolean();
+
+        @Override
+        public String getName() {
+            return "test";
+        }
+
+        @Override
+        public void consume(List<OutboxEvent> batch) {
+            if (failing.get()) {
+                throw new IllegalStateException("обработчик недоступен");
+            }
+            events.addAll(batch);
+        }
+
+        List<OutboxEventType> typesOf(Long aggregateId) {
+            return events.stream()
+                    .filter(event -> aggregateId.equals(event.getAggregateId()))
+                    .map(OutboxEvent::getType)
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.carportal.exception;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Тесты прикладных исключений без контекста Spring.
+ */
+class AppExceptionTests {
+
+    /** Переиспользуемые исключения с постоянным сообщением */
+    private static final List<AppException> SHARED = List.of(
+            EntityNotFoundException.USER_NOT_FOUND,
+            EntityNotFoundException.CAR_NOT_FOUND,
+            EntityNotFoundException.NEWS_NOT_FOUND,
+            EntityNotFoundException.CAR_NOT_IN_FAVORITES,
+            EntityAlreadyExistsException.USERNAME_TAKEN,
+            EntityAlreadyExistsException.EMAIL_TAKEN,
+            EntityAlreadyExistsException.PHONE_TAKEN,
+            EntityAlreadyExistsException.CAR_ALREADY_IN_FAVORITES,
+            InvalidTokenException.INVALID_REFRESH_TOKEN,
+            ValidateException.SOLD_CAR_FAVORITE,
+            ValidateException.UNKNOWN_ROLE
+    );
+
+    /**
+     * Проверяет, что переиспользуемые исключения не хранят стек вызовов и подавленные исключения,
+     * поэтому повторный выброс одного экземпляра из разных мест не накапливает состояние.
+     */
+    @Test
+    void sharedExceptionsHaveNoStackTrace() {
+        for (AppException shared : SHARED) {
+            assertTrue(shared.isShared(), shared.getMessage());
+            assertEquals(0, shared.getStackTrace().length, shared.getMessage());
+
+            assertSame(shared, assertThrows(AppException.class, () -> {
+                throw shared;
+            }));
+            shared.fillInStackTrace();
+            shared.addSuppressed(new IllegalStateException());
+            assertEquals(0, shared.getStackTrace().length, shared.getMessage());
+            assertEquals(0, shared.getSuppressed().length, shared.getMessage());
+        }
+    }
+
+    /**
+     * Проверяет, что исключения с сообщением для конкретной ошибки создаются заново, не кешируются
+     * и тоже не заполняют стек вызовов.
+     */
+    @Test
+    void perErrorExceptionsAreNotShared() {
+        List<AppException> created = List.of(
+                new EntityNotFoundException("Автомобиль", 5L),
+                new EntityAlreadyExistsException("Пользователь", "email", "user@carportal.ru"),
+                new ValidateException("Некорректная цена"),
+                new InvalidTokenException("Токен истек"),
+                new TooManyRequestsException("Слишком много попыток входа", 30));
+        for (AppException exception : created) {
+            assertFalse(exception.isShared(), exception.getMessage());
+            assertEquals(0, exception.getStackTrace().length, exception.getMessage());
+        }
+        assertEquals("Автомобиль с ID 5 не найден", created.get(0).getMessage());
+    }
+}
@@ -0,0 +1,91 @@
+package com.carportal.exception;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.carportal.dto.response.ErrorResponse;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Тесты обработчика исключений без контекста Spring.
+ */
+class GlobalExceptionHandlerTests {
+
+    /**
+     * Проверяет, что ответ для переиспользуемого исключения создается один раз и отдается всем запросам,
+     * а его заголовки нельзя изменить.
+     */
+    @Test
+    void sharedExceptionResponseIsCached() {
+        GlobalExceptionHandler handler = new GlobalExceptionHandler();
+
+        ResponseEntity<ErrorResponse> first = handler.handleEntityNotFoundException(EntityNotFoundException.CAR_NOT_FOUND);
+        ResponseEntity<ErrorResponse> second = handler.handleEntityNotFoundException(EntityNotFoundException.CAR_NOT_FOUND);
+        assertSame(first, second);
+        assertEquals(HttpStatus.NOT_FOUND, first.getStatusCode());
+        assertEquals(new ErrorResponse("NOT_FOUND", "Автомобиль не найден!"), first.getBody());
+        assertThrows(UnsupportedOperationException.class, () -> first.getHeaders().add(HttpHeaders.RETRY_AFTER, "1"));
+
+        ResponseEntity<ErrorResponse> other = handler.handleEntityNotFoundException(EntityNotFoundException.USER_NOT_FOUND);
+        assertNotSame(first, other);
+        assertEquals("Пользователь не найден!", other.getBody().getMessage());
+        assertSame(other, handler.handleEntityNotFoundException(EntityNotFoundException.USER_NOT_FOUND));
+    }
+
+    /**
+     * Проверяет, что ответ для исключения с сообщением конкретной ошибки создается для каждого запроса.
+     */
+    @Test
+    void perErrorExceptionResponseIsNotCached() {
+        GlobalExceptionHandler handler = new GlobalExceptionHandler();
+
+        ResponseEntity<ErrorResponse> first = handler.handleValidateException(new ValidateException("Некорректная цена"));
+        ResponseEntity<ErrorResponse> second = handler.handleValidateException(new ValidateException("Некорректный год"));
+        assertEquals(HttpStatus.BAD_REQUEST, first.getStatusCode());
+        assertEquals(new ErrorResponse("VALIDATION_ERROR", "Некорректная цена"), first.getBody());
+        assertEquals(new ErrorResponse("VALIDATION_ERROR", "Некорректный год"), second.getBody());
+    }
+
+    /**
+     * Проверяет, что непредвиденная ошибка журналируется с полным стеком вызовов,
+     * а клиенту возвращается ответ без подробностей.
+     */
+    @Test
+    void unexpectedErrorIsLoggedWithStackTrace() {
+        Logger logger = (Logger) LoggerFactory.getLogger(GlobalExceptionHandler.class);
+        ListAppender<ILoggingEvent> appender = new ListAppender<>();
+        appender.start();
+        logger.addAppender(appender);
+        try {
+            IllegalStateException failure = new IllegalStateException("Подробности сбоя");
+            ResponseEntity<ErrorResponse> response = new GlobalExceptionHandler().handleGeneralException(failure);
+
+            assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+            assertEquals(new ErrorResponse("INTERNAL_SERVER_ERROR", "Произошла внутренняя ошибка сервера"), response.getBody());
+
+            List<ILoggingEvent> events = appender.list;
+            assertEquals(1, events.size());
+            assertEquals(Level.ERROR, events.get(0).getLevel());
+            assertNotNull(events.get(0).getThrowableProxy());
+            assertEquals("Подробности сбоя", events.get(0).getThrowableProxy().getMessage());
+            assertTrue(failure.getStackTrace().length > 0);
+            assertEquals(failure.getStackTrace().length, events.get(0).getThrowableProxy().getStackTraceElementProxyArray().length);
+        } finally {
+            logger.detachAppender(appender);
+        }
+    }
+}
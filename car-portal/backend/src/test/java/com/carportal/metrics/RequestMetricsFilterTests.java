@@ -0,0 +1,103 @@
+package com.carportal.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Тесты фильтра учета SQL-запросов без контекста Spring.
+ */
+class RequestMetricsFilterTests {
+
+    private static final String SQL = "select * from cars where id=?";
+
+    /**
+     * Проверяет, что в строгом режиме ответ с нарушением не отправляется клиенту,
+     * даже если обработчик уже записал и сбросил тело.
+     */
+    @Test
+    void violationFailsRequestBeforeResponseIsCommitted() throws Exception {
+        RequestMetricsFilter filter = new RequestMetricsFilter(new SimpleMeterRegistry(), 3, true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertThrows(QueryBudgetExceededException.class, () ->
+                filter.doFilter(new MockHttpServletRequest("GET", "/cars"), response, writingChain(3)));
+        assertFalse(response.isCommitted());
+        assertEquals(0, response.getContentLength());
+        assertEquals("", response.getContentAsString());
+    }
+
+    /**
+     * Проверяет, что в строгом режиме ответ без нарушений передается клиенту целиком.
+     */
+    @Test
+    void responseWithoutViolationsIsCopiedToClient() throws Exception {
+        RequestMetricsFilter filter = new RequestMetricsFilter(new SimpleMeterRegistry(), 3, true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/cars"), response, writingChain(2));
+        assertTrue(response.isCommitted());
+        assertEquals("[]", response.getContentAsString());
+    }
+
+    /**
+     * Проверяет, что поток событий пишется клиенту сразу, а нарушения в нем только журналируются.
+     */
+    @Test
+    void eventStreamIsNotBuffered() throws Exception {
+        RequestMetricsFilter filter = new RequestMetricsFilter(new SimpleMeterRegistry(), 3, true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = (request, servletResponse) -> {
+            servletResponse.setContentType(MediaType.TEXT_EVENT_STREAM_VALUE);
+            servletResponse.getOutputStream().write("data: 1\n\n".getBytes(StandardCharsets.UTF_8));
+            servletResponse.flushBuffer();
+            assertTrue(response.isCommitted());
+            for (int i = 0; i < 3; i++) {
+                RequestQueryContext.current().record(SQL);
+            }
+        };
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/cars/stream"), response, chain);
+        assertEquals("data: 1\n\n", response.getContentAsString());
+    }
+
+    /**
+     * Проверяет, что запросы одного эндпоинта учитываются в одном распределении.
+     */
+    @Test
+    void queriesAreRecordedPerMethodAndUri() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RequestMetricsFilter filter = new RequestMetricsFilter(registry, 3, false);
+        for (int i = 0; i < 3; i++) {
+            filter.doFilter(new MockHttpServletRequest("GET", "/cars"), new MockHttpServletResponse(), writingChain(2));
+        }
+        filter.doFilter(new MockHttpServletRequest("POST", "/cars"), new MockHttpServletResponse(), writingChain(1));
+
+        DistributionSummary summary = registry.get("carportal.http.server.queries").tag("method", "GET").summary();
+        assertEquals(3, summary.count());
+        assertEquals(6.0, summary.totalAmount());
+        assertEquals(2, registry.get("carportal.http.server.queries").summaries().size());
+    }
+
+    private static FilterChain writingChain(int statements) {
+        return (request, response) -> {
+            for (int i = 0; i < statements; i++) {
+                RequestQueryContext.current().record(SQL);
+            }
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getOutputStream().write("[]".getBytes(StandardCharsets.UTF_8));
+            response.flushBuffer();
+        };
+    }
+}
@@ -0,0 +1,57 @@
+package com.carportal.metrics;
+
+import com.carportal.dto.response.SlowQueryDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Тесты журнала медленных запросов без контекста Spring.
+ */
+class SlowQueryLogTests {
+
+    private static final String[] SECRET_TABLES = {"users", "http_sessions", "refresh_tokens", "token_revocations"};
+
+    /**
+     * Проверяет, что параметры запросов любого вида к таблицам с секретами не сохраняются,
+     * а параметры остальных запросов сохраняются.
+     */
+    @Test
+    void parametersOfSecretStatementsAreDropped() {
+        SlowQueryLog slowQueryLog = new SlowQueryLog(200, 1.0, 0.0, SECRET_TABLES);
+        List<String> secret = List.of(
+                "select s1_0.id,s1_0.attributes from http_sessions s1_0 where s1_0.id=?",
+                "SELECT user_id FROM refresh_tokens WHERE token_hash = ?",
+                "update users set email=? where id=?",
+                "DELETE FROM HTTP_SESSIONS WHERE expires_at < ?",
+                "INSERT INTO token_revocations (jti, expires_at) VALUES (?, ?)",
+                "update accounts set password_hash=? where id=?");
+        for (String sql : secret) {
+            slowQueryLog.record(sql, List.of("secret-value", 1L), 300, "test", null);
+            assertNull(slowQueryLog.getEntries().get(0).getParameters(), sql);
+        }
+
+        slowQueryLog.record("select * from favorites where user_id=?", List.of(7L), 300, "test", null);
+        slowQueryLog.record("update cars set price=? where id=?", List.of(1.5, 7L), 300, "test", null);
+        List<SlowQueryDTO> entries = slowQueryLog.getEntries();
+        assertEquals(List.of("1.5", "7"), entries.get(0).getParameters());
+        assertEquals(List.of("7"), entries.get(1).getParameters());
+    }
+
+    /**
+     * Проверяет, что пустой список таблиц оставляет фильтр паролей и токенов.
+     */
+    @Test
+    void passwordsAreDroppedWithoutSecretTables() {
+        SlowQueryLog slowQueryLog = new SlowQueryLog(200, 1.0, 0.0, new String[0]);
+        slowQueryLog.record("select id from accounts where password=?", List.of("secret"), 300, "test", null);
+        slowQueryLog.record("select id from users where id=?", List.of(1L), 300, "test", null);
+
+        List<SlowQueryDTO> entries = slowQueryLog.getEntries();
+        assertEquals(List.of("1"), entries.get(0).getParameters());
+        assertNull(entries.get(1).getParameters());
+    }
+}
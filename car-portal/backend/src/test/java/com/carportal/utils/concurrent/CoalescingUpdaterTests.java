@@ -0,0 +1,130 @@
+package com.carportal.utils.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Тесты объединяющего фонового обновления без контекста Spring.
+ */
+class CoalescingUpdaterTests {
+
+    /**
+     * Проверяет, что запрос, поступивший после того как обновление забрало изменения, применяется
+     * повторным проходом сразу после него без периодического вызова, а обновления не выполняются параллельно.
+     */
+    @Test
+    void requestDuringUpdateIsAppliedWithoutScheduledRun() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch applied = new CountDownLatch(1);
+        Set<Integer> pending = ConcurrentHashMap.newKeySet();
+        List<Set<Integer>> batches = new CopyOnWriteArrayList<>();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        try (CoalescingUpdater updater = new CoalescingUpdater("Ошибка", rebuild -> {
+            if (running.incrementAndGet() > 1) {
+                overlaps.incrementAndGet();
+            }
+            try {
+                Set<Integer> batch = CoalescingUpdater.drain(pending, Integer.MAX_VALUE);
+                if (rebuild) {
+                    started.countDown();
+                    await(release);
+                }
+                if (!batch.isEmpty()) {
+                    batches.add(batch);
+                    applied.countDown();
+                }
+            } finally {
+                running.decrementAndGet();
+            }
+        })) {
+            updater.request();
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            for (int i = 0; i < 100; i++) {
+                pending.add(i);
+                updater.request();
+            }
+            release.countDown();
+
+            assertTrue(applied.await(10, TimeUnit.SECONDS));
+            assertEquals(1, batches.size());
+            assertEquals(100, batches.get(0).size());
+            assertEquals(0, overlaps.get());
+        }
+    }
+
+    /**
+     * Проверяет, что первое обновление и обновление после запроса выполняются с полной перестройкой,
+     * а неудачная перестройка повторяется при следующем вызове.
+     */
+    @Test
+    void failedRebuildIsRetried() throws InterruptedException {
+        List<Boolean> calls = new CopyOnWriteArrayList<>();
+        AtomicInteger failures = new AtomicInteger(1);
+        try (CoalescingUpdater updater = new CoalescingUpdater("Ошибка", rebuild -> {
+            calls.add(rebuild);
+            if (failures.getAndDecrement() > 0) {
+                throw new IllegalStateException("База данных недоступна");
+            }
+        })) {
+            updater.run();
+            updater.run();
+            updater.run();
+            assertEquals(List.of(true, true, false), calls);
+
+            failures.set(1);
+            calls.clear();
+            updater.requestRebuild();
+            runUntil(updater, calls, 3);
+            assertEquals(List.of(true, true, false), calls);
+        }
+    }
+
+    /**
+     * Проверяет, что ключи забираются не больше ограничения, а остальные остаются в наборе.
+     */
+    @Test
+    void drainTakesAtMostLimit() {
+        Set<Integer> pending = ConcurrentHashMap.newKeySet();
+        for (int i = 0; i < 10; i++) {
+            pending.add(i);
+        }
+        Set<Integer> drained = CoalescingUpdater.drain(pending, 4);
+        assertEquals(4, drained.size());
+        assertEquals(6, pending.size());
+        drained.forEach(key -> assertTrue(!pending.contains(key)));
+        assertEquals(6, CoalescingUpdater.drain(pending, Integer.MAX_VALUE).size());
+        assertTrue(pending.isEmpty());
+    }
+
+    /**
+     * Вызывает обновление в текущем потоке, пока не наберется указанное количество вызовов задачи.
+     * Вызов пропускается, пока задача выполняется в фоне, поэтому вызовы повторяются.
+     */
+    private static void runUntil(CoalescingUpdater updater, List<Boolean> calls, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (calls.size() < count && System.nanoTime() < deadline) {
+            updater.run();
+            Thread.sleep(1);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
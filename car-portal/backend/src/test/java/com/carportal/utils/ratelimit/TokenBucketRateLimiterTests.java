@@ -0,0 +1,52 @@
+package com.carportal.utils.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Тесты ограничителя частоты запросов без контекста Spring.
+ */
+class TokenBucketRateLimiterTests {
+
+    private static final long REFILL = 1_000_000_000L;
+
+    /**
+     * Проверяет, что поток уникальных ключей сверх лимита таблицы не ограничивает другие новые ключи,
+     * а каждый ключ сверх лимита по-прежнему ограничивается своей емкостью.
+     */
+    @Test
+    void keysBeyondLimitKeepSeparateBuckets() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(3, REFILL, 100);
+        long now = System.nanoTime();
+        for (int i = 0; i < 600; i++) {
+            assertEquals(0, limiter.tryAcquire("spray_" + i, now));
+        }
+        assertEquals(100, limiter.size());
+
+        int granted = 0;
+        while (limiter.tryAcquire("victim", now) == 0) {
+            granted++;
+            assertTrue(granted <= 3, "Ключ сверх лимита получил больше попыток, чем емкость ведра");
+        }
+        assertTrue(granted >= 1, "Новый ключ ограничен чужими попытками");
+        assertEquals(0, limiter.tryAcquire("victim", now + 3 * REFILL));
+    }
+
+    /**
+     * Проверяет, что ведро отслеживаемого ключа восстанавливается и удаляется после простоя.
+     */
+    @Test
+    void idleBucketsAreEvicted() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(2, REFILL, 100);
+        long now = System.nanoTime();
+        limiter.tryAcquire("user", now);
+        limiter.tryAcquire("user", now);
+        assertTrue(limiter.tryAcquire("user", now) > 0);
+
+        assertEquals(0, limiter.evictIdle(now));
+        assertEquals(1, limiter.evictIdle(now + 2 * REFILL));
+        assertEquals(0, limiter.size());
+    }
+}
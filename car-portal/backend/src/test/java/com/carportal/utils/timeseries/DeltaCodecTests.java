@@ -0,0 +1,86 @@
+package com.carportal.utils.timeseries;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Тесты упаковки временного ряда приращениями без базы данных.
+ */
+class DeltaCodecTests {
+
+    /** Ряды из пар (время, значение), упорядоченные по времени */
+    private static final long[][] SERIES = {
+            {1_700_000_000, 100_000_000},
+            {1_700_000_000, 100_000_000, 1_700_000_060, 99_999_999, 1_700_000_060, 95_000_000},
+            {0, 0, 1, 63, 2, -64, 3, 64, 4, -65, 131, 0, 16_515, 0},
+            {1_700_000_000, 0, 1_800_000_000, Long.MAX_VALUE, 1_800_000_001, Long.MIN_VALUE, 1_800_000_002, 0},
+            {0, -1, Long.MAX_VALUE, 1},
+    };
+
+    /**
+     * Проверяет, что распакованный ряд совпадает с упакованным по всем точкам, включая
+     * совпадающее время, отрицательные приращения и переполнение разности значений.
+     */
+    @Test
+    void seriesSurvivesRoundTrip() {
+        for (long[] series : SERIES) {
+            byte[] deltas = encode(series);
+
+            List<Long> decoded = new ArrayList<>();
+            DeltaCodec.decode(series[0], series[1], deltas, (time, value) -> {
+                decoded.add(time);
+                decoded.add(value);
+            });
+            assertArrayEquals(series, decoded.stream().mapToLong(Long::longValue).toArray());
+        }
+    }
+
+    /**
+     * Проверяет размер упакованных точек на границах однобайтовых чисел.
+     */
+    @Test
+    void smallDeltasTakeFewBytes() {
+        assertEquals(2, DeltaCodec.encode(0, 0, 0, 0).length);
+        assertEquals(2, DeltaCodec.encode(0, 0, 127, 63).length);
+        assertEquals(2, DeltaCodec.encode(0, 0, 127, -64).length);
+        assertEquals(3, DeltaCodec.encode(0, 0, 128, 0).length);
+        assertEquals(3, DeltaCodec.encode(0, 0, 0, 64).length);
+        assertEquals(3, DeltaCodec.encode(0, 0, 0, -65).length);
+        assertEquals(4, DeltaCodec.encode(1_700_000_000, 100_000_000, 1_700_003_600, 99_999_000).length);
+    }
+
+    /**
+     * Проверяет, что точка раньше предыдущей и поврежденный ряд отклоняются.
+     */
+    @Test
+    void invalidInputIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> DeltaCodec.encode(10, 0, 9, 0));
+
+        byte[] deltas = DeltaCodec.encode(0, 0, 1_000_000, 0);
+        byte[] truncated = new byte[deltas.length - 2];
+        System.arraycopy(deltas, 0, truncated, 0, truncated.length);
+        assertThrows(IllegalArgumentException.class, () -> DeltaCodec.decode(0, 0, truncated, (time, value) -> {
+        }));
+
+        byte[] tooLong = new byte[11];
+        Arrays.fill(tooLong, (byte) 0x80);
+        assertThrows(IllegalArgumentException.class, () -> DeltaCodec.decode(0, 0, tooLong, (time, value) -> {
+        }));
+    }
+
+    private static byte[] encode(long[] series) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 2; i < series.length; i += 2) {
+            out.writeBytes(DeltaCodec.encode(series[i - 2], series[i - 1], series[i], series[i + 1]));
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,148 @@
+package com.carportal.utils.trie;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Тесты префиксного дерева без базы данных: подсказки сравниваются с полным перебором строк.
+ */
+class RadixTrieTests {
+
+    /** Строки с различными весами: вложенные ключи, общие префиксы разной длины, кириллица */
+    private static final String[] KEYS = {
+            "a", "ab", "abc", "abd", "abcdef", "b", "bmw", "bmw x5", "bmw x6", "audi", "audi a4",
+            "лада", "лада гранта", "лада веста", "ладога", "ёж", "е", "ежик"
+    };
+
+    /**
+     * Проверяет подсказки для всех префиксов ключей и отсутствующих префиксов при разных ограничениях.
+     */
+    @Test
+    void completionsMatchFullScan() {
+        RadixTrie trie = new RadixTrie();
+        Map<String, Long> weights = new HashMap<>();
+        for (int i = 0; i < KEYS.length; i++) {
+            long weight = (i * 7L) % KEYS.length + 1;
+            trie.add(KEYS[i], display(KEYS[i]), weight);
+            weights.put(KEYS[i], weight);
+        }
+        assertEquals(KEYS.length, trie.size());
+
+        Set<String> prefixes = new TreeSet<>(List.of("", "x", "abz", "abcdefg", "bmw x7", "лада ", "ё", "Лада"));
+        for (String key : KEYS) {
+            for (int length = 0; length <= key.length(); length++) {
+                prefixes.add(key.substring(0, length));
+            }
+        }
+        for (String prefix : prefixes) {
+            for (int limit : new int[]{0, 1, 3, 100}) {
+                assertEquals(expected(weights, prefix, limit), actual(trie, prefix, limit), "Префикс '" + prefix + "'");
+            }
+        }
+    }
+
+    /**
+     * Проверяет, что изменения веса, удаление строк и склейка опустевших узлов сохраняют подсказки
+     * совпадающими с полным перебором. Порядок строк с равным весом не определен, поэтому
+     * порядок проверяется по весам.
+     */
+    @Test
+    void weightChangesAndRemovalsKeepCompletionsConsistent() {
+        RadixTrie trie = new RadixTrie();
+        Map<String, Long> weights = new HashMap<>();
+        Random random = new Random(42);
+        String alphabet = "abя";
+        for (int step = 0; step < 5_000; step++) {
+            StringBuilder key = new StringBuilder();
+            for (int length = 1 + random.nextInt(4); length > 0; length--) {
+                key.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            long delta = random.nextInt(5) - 2;
+            trie.add(key.toString(), display(key.toString()), delta);
+            long weight = Math.max(0, weights.getOrDefault(key.toString(), 0L) + delta);
+            if (weight == 0) {
+                weights.remove(key.toString());
+            } else {
+                weights.put(key.toString(), weight);
+            }
+
+            assertEquals(weights.size(), trie.size());
+            for (String prefix : List.of("", key.substring(0, 1), key.toString())) {
+                String message = "Шаг " + step + ", префикс '" + prefix + "'";
+                assertEquals(new HashSet<>(expected(weights, prefix, 1_000)), new HashSet<>(actual(trie, prefix, 1_000)), message);
+                assertEquals(expectedWeights(weights, prefix, 1_000), actualWeights(trie, prefix, 1_000), message);
+                assertEquals(expectedWeights(weights, prefix, 3), actualWeights(trie, prefix, 3), message);
+            }
+        }
+    }
+
+    /**
+     * Проверяет, что строка для показа берется из первого добавления ключа и заменяется только
+     * после удаления ключа, а уменьшение веса отсутствующего ключа ничего не меняет.
+     */
+    @Test
+    void displayIsKeptFromFirstAddition() {
+        RadixTrie trie = new RadixTrie();
+        trie.add("лада", "Лада", 1);
+        trie.add("лада", "ЛАДА", 1);
+        assertEquals("Лада", trie.complete("ла", 1).get(0).getDisplay());
+        assertEquals(2, trie.complete("ла", 1).get(0).getWeight());
+
+        trie.add("лада", "ЛАДА", -5);
+        assertEquals(0, trie.size());
+        assertTrue(trie.complete("", 10).isEmpty());
+        trie.add("лада", "ЛАДА", 1);
+        assertEquals("ЛАДА", trie.complete("лада", 1).get(0).getDisplay());
+
+        trie.add("ладога", "Ладога", -1);
+        trie.add("л", "Л", -1);
+        assertEquals(1, trie.size());
+        assertEquals(List.of("ЛАДА=1"), actual(trie, "л", 10));
+    }
+
+    private static String display(String key) {
+        return key.toUpperCase();
+    }
+
+    /**
+     * Подсказки полным перебором: строки с префиксом по убыванию веса.
+     */
+    private static List<String> expected(Map<String, Long> weights, String prefix, int limit) {
+        return weights.entrySet().stream()
+                .filter(entry -> entry.getKey().startsWith(prefix))
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(limit)
+                .map(entry -> display(entry.getKey()) + "=" + entry.getValue())
+                .toList();
+    }
+
+    private static List<String> actual(RadixTrie trie, String prefix, int limit) {
+        return trie.complete(prefix, limit).stream()
+                .map(completion -> completion.getDisplay() + "=" + completion.getWeight())
+                .toList();
+    }
+
+    private static List<Long> expectedWeights(Map<String, Long> weights, String prefix, int limit) {
+        return weights.entrySet().stream()
+                .filter(entry -> entry.getKey().startsWith(prefix))
+                .map(Map.Entry::getValue)
+                .sorted(Comparator.reverseOrder())
+                .limit(limit)
+                .toList();
+    }
+
+    private static List<Long> actualWeights(RadixTrie trie, String prefix, int limit) {
+        return trie.complete(prefix, limit).stream().map(RadixTrie.Completion::getWeight).toList();
+    }
+}
@@ -0,0 +1,136 @@
+package com.carportal.utils.validation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Тесты посимвольных проверок формата: каждая проверка сравнивается с регулярным выражением,
+ * которое она заменила, на общей таблице входных строк с граничными случаями.
+ */
+class FieldMatchersTests {
+
+    /** Строки, на которых проверки должны совпадать с регулярными выражениями */
+    private static final List<String> INPUTS = inputs();
+
+    /**
+     * Проверяет совпадение имени пользователя с {@link UserParamsValidator#USERNAME_REGEX}.
+     */
+    @Test
+    void usernameMatchesRegex() {
+        assertSameAsRegex(UserParamsValidator.USERNAME_REGEX, FieldMatchers::isUsername);
+    }
+
+    /**
+     * Проверяет совпадение email с {@link UserParamsValidator#EMAIL_REGEX}.
+     */
+    @Test
+    void emailMatchesRegex() {
+        assertSameAsRegex(UserParamsValidator.EMAIL_REGEX, FieldMatchers::isEmail);
+    }
+
+    /**
+     * Проверяет совпадение телефона с {@link UserParamsValidator#PHONE_REGEX}, а подсчета значащих
+     * символов - с удалением пробелов, дефисов и скобок прежней реализацией.
+     */
+    @Test
+    void phoneMatchesRegex() {
+        assertSameAsRegex(UserParamsValidator.PHONE_REGEX, FieldMatchers::isPhone);
+        for (String input : INPUTS) {
+            String clean = input.replaceAll("[\\s\\-()]", "");
+            assertEquals(clean.length(), FieldMatchers.significantPhoneLength(input), describe(input));
+            for (int skip = 0; skip <= Math.min(clean.length(), 25); skip++) {
+                char expected = skip < clean.length() ? clean.charAt(skip) : 0;
+                assertEquals(expected, FieldMatchers.significantPhoneChar(input, skip), describe(input));
+            }
+        }
+    }
+
+    /**
+     * Проверяет совпадение марки с {@link CarParamsValidator#BRAND_REGEX}.
+     */
+    @Test
+    void brandMatchesRegex() {
+        assertSameAsRegex(CarParamsValidator.BRAND_REGEX, FieldMatchers::isBrand);
+    }
+
+    /**
+     * Проверяет совпадение модели с {@link CarParamsValidator#MODEL_REGEX}.
+     */
+    @Test
+    void modelMatchesRegex() {
+        assertSameAsRegex(CarParamsValidator.MODEL_REGEX, FieldMatchers::isModel);
+    }
+
+    /**
+     * Проверяет границы кириллического диапазона и пробельных символов на всех символах BMP.
+     */
+    @Test
+    void characterClassesMatchRegex() {
+        Pattern cyrillic = Pattern.compile("[а-яА-Я]");
+        Pattern whitespace = Pattern.compile("\\s");
+        for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; c++) {
+            String value = String.valueOf((char) c);
+            assertEquals(cyrillic.matcher(value).matches(), FieldMatchers.isBasicCyrillic((char) c), describe(value));
+            assertEquals(whitespace.matcher(value).matches(), FieldMatchers.isRegexWhitespace((char) c), describe(value));
+        }
+        assertTrue(FieldMatchers.isBrand("Лада Приора"));
+        assertFalse(FieldMatchers.isBrand("Ёлка"));
+        assertFalse(FieldMatchers.isModel("Ё-мобиль"));
+        assertFalse(FieldMatchers.isBrand("Lada\u00A0Granta"));
+    }
+
+    private static void assertSameAsRegex(String regex, Predicate<String> matcher) {
+        Pattern pattern = Pattern.compile(regex);
+        for (String input : INPUTS) {
+            assertEquals(pattern.matcher(input).matches(), matcher.test(input), describe(input));
+        }
+    }
+
+    private static String describe(String input) {
+        StringBuilder codes = new StringBuilder();
+        input.codePoints().limit(40).forEach(c -> codes.append(String.format("U+%04X ", c)));
+        return "Вход длиной " + input.length() + ": " + codes;
+    }
+
+    private static List<String> inputs() {
+        List<String> inputs = new ArrayList<>(List.of(
+                "", " ", "\t", "_", "-", "+", "()", "@", ".",
+                // Имена пользователей
+                "ab", "abc", "user_01", "User Name", "пользователь", "user-name", "user.name",
+                // Email
+                "user@mail.ru", "first.last+tag@sub.example.com", "a&b*c-d_e@x-y.org", "user@mail.r",
+                "user@mail.abcdefg", "user@mail.abcdefgh", "user@mail.ru1", "user@mail", "@mail.ru", "user@.ru",
+                "user@mail..ru", ".user@mail.ru", "user.@mail.ru", "us..er@mail.ru", "user@@mail.ru",
+                "user@mail.ru.", "user@-.ru", "user@mail.р", "пользователь@почта.рф", "user@sub.mail.c0m",
+                // Телефоны
+                "+7 (999) 123-45-67", "+79991234567", "8 999 123 45 67", "1234567", "123456", "+123456",
+                "+1234567", "++1234567", "(((((((", "-------", "+7\t999\n123\u000B45\f67\r", "+7 999 123 45 6x",
+                "+7\u00A0999\u00A01234567", "+7\u2003999\u20031234567", "+7\u2028999\u20291234567",
+                // Марки и модели
+                "Lada", "Лада", "Лада Гранта", "BMW X5", "Mercedes-Benz", "Audi A4 2.0", "Ёлка", "ёжик",
+                "Škoda", "Citroën", "Lada\u00A0Granta", "Lada\u3000Granta", "Lada\u2003Granta", "Lada\u0085Granta", "Lada\u001CGranta",
+                "ЏАЯаяѐ", "Ая", "Џ", "ѐ", "Ё", "ё",
+                "Toyota🚗", "\uD800", "Lada\u0000"));
+
+        for (String part : List.of("a", "1", "_", "Я", " ", "-", "(", "é")) {
+            for (int length : new int[]{2, 3, 6, 7, 19, 20, 21, 22, 10_000}) {
+                inputs.add(part.repeat(length));
+                inputs.add("+" + part.repeat(length));
+            }
+        }
+        for (int length : new int[]{1, 2, 7, 8}) {
+            inputs.add("user@mail." + "a".repeat(length));
+            inputs.add("user@" + "b.".repeat(length) + "ru");
+        }
+        inputs.add("a".repeat(10_000) + "@" + "b".repeat(10_000) + ".com");
+        return inputs;
+    }
+}
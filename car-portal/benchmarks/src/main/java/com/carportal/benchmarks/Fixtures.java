@@ -0,0 +1,115 @@
+package com.carportal.benchmarks;
+
+import com.carportal.dto.request.CarRequestDTO;
+import com.carportal.dto.response.CarResponseDTO;
+import com.carportal.models.Car;
+import com.carportal.models.News;
+import com.carportal.models.User;
+import com.carportal.models.enums.CarStatus;
+import com.carportal.models.enums.UserRole;
+import com.carportal.utils.mapper.CarMapper;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Генератор тестовых данных для бенчмарков.
+ * Создает сущности и DTO с размерами полей, близкими к данным портала.
+ */
+final class Fixtures {
+
+    private static final String[] BRANDS = {"Toyota", "BMW", "Audi", "Lada", "Kia", "Mercedes Benz", "Hyundai"};
+    private static final String[] MODELS = {"Camry", "X5", "A4", "Vesta", "Rio", "E-Class", "Solaris"};
+
+    private Fixtures() {
+    }
+
+    /**
+     * Создает продавца с заполненными полями профиля.
+     *
+     * @param id идентификатор пользователя
+     * @return пользователь
+     */
+    static User user(long id) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername("seller_" + id);
+        user.setPassword("$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z3mCnN0kpw8bHZ1FlKcLKnpK");
+        user.setEmail("seller" + id + "@carportal.ru");
+        user.setRole(UserRole.USER);
+        user.setAvatar("http://localhost:8080/images/userImages/defaultUserImage.jpg");
+        user.setPhone("+7 (495) 111-11-11");
+        user.setCreatedAt(LocalDateTime.of(2024, 1, 15, 10, 30));
+        user.setLastLoginAt(LocalDateTime.of(2025, 3, 2, 8, 5));
+        user.setVisitCount(42);
+        return user;
+    }
+
+    /**
+     * Создает список автомобилей с описанием и продавцом.
+     *
+     * @param size количество автомобилей
+     * @return список автомобилей
+     */
+    static List<Car> cars(int size) {
+        Random random = new Random(42);
+        User seller = user(1);
+        List<Car> cars = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int kind = random.nextInt(BRANDS.length);
+            Car car = new Car();
+            car.setId((long) i + 1);
+            car.setBrand(BRANDS[kind]);
+            car.setModel(MODELS[kind]);
+            car.setYear(2005 + random.nextInt(20));
+            car.setPrice(500_000 + random.nextInt(9_500_000));
+            car.setDescription("Автомобиль в отличном состоянии, один владелец, полная сервисная история. "
+                    + "Комплектация: климат-контроль, подогрев сидений, камера заднего вида, светодиодная оптика.");
+            car.setImageUrl("http://localhost:8080/images/carImages/" + BRANDS[kind].toLowerCase() + "_" + i + ".jpg");
+            car.setStatus(random.nextInt(10) == 0 ? CarStatus.SOLD : CarStatus.AVAILABLE);
+            car.setSeller(seller);
+            cars.add(car);
+        }
+        return cars;
+    }
+
+    /**
+     * Создает список DTO автомобилей для сериализации.
+     *
+     * @param size количество автомобилей
+     * @return список DTO
+     */
+    static List<CarResponseDTO> carResponses(int size) {
+        return cars(size).stream().map(CarMapper::carToCarResponseDTO).toList();
+    }
+
+    /**
+     * Создает список новостей со статьей средней длины.
+     *
+     * @param size количество новостей
+     * @return список новостей
+     */
+    static List<News> news(int size) {
+        User author = user(2);
+        String content = "Автопроизводители представили новые модели. ".repeat(40);
+        List<News> news = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            news.add(new News((long) i + 1, author, "Новости рынка автомобилей №" + i, content,
+                    LocalDate.of(2025, 1, 1).plusDays(i % 365)));
+        }
+        return news;
+    }
+
+    /**
+     * Создает корректный запрос на добавление автомобиля.
+     *
+     * @return DTO запроса
+     */
+    static CarRequestDTO carRequest() {
+        return new CarRequestDTO("Mercedes Benz", "E-Class", 2021, 4_500_000,
+                "Полная комплектация", "http://localhost:8080/images/carImages/e_class.jpg", true);
+    }
+}
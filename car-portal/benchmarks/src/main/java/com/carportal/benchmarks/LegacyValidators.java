@@ -0,0 +1,61 @@
+package com.carportal.benchmarks;
+
+import com.carportal.dto.request.CarRequestDTO;
+import com.carportal.dto.request.UserCreateDTO;
+import com.carportal.exception.ValidateException;
+import com.carportal.utils.validation.CarParamsValidator;
+import com.carportal.utils.validation.UserParamsValidator;
+
+/**
+ * Прежняя реализация валидации через {@link String#matches(String)} для сравнения в бенчмарках.
+ * Компилирует шаблон при каждом вызове и прерывается на первой ошибке.
+ */
+final class LegacyValidators {
+
+    private LegacyValidators() {
+    }
+
+    static void userParamsValidate(UserCreateDTO dto) {
+        String username = dto.getUsername();
+        if (username == null || username.trim().isEmpty() || !username.matches(UserParamsValidator.USERNAME_REGEX)) {
+            throw new ValidateException("username");
+        }
+        String email = dto.getEmail();
+        if (email == null || email.trim().isEmpty() || !email.matches(UserParamsValidator.EMAIL_REGEX)) {
+            throw new ValidateException("email");
+        }
+        String password = dto.getPassword();
+        if (password == null || password.trim().isEmpty() || password.length() < 6 || password.length() > 100) {
+            throw new ValidateException("password");
+        }
+        if (dto.getPhone() != null && !dto.getPhone().trim().isEmpty()) {
+            phoneValidate(dto.getPhone());
+        }
+    }
+
+    static void phoneValidate(String phone) {
+        if (!phone.matches(UserParamsValidator.PHONE_REGEX)) {
+            throw new ValidateException("phone");
+        }
+        String cleanPhone = phone.replaceAll("[\\s\\-()]", "");
+        if (cleanPhone.startsWith("+7") && cleanPhone.length() != 12) {
+            throw new ValidateException("phone");
+        }
+    }
+
+    static void validateCarParams(CarRequestDTO dto) {
+        if (dto.getBrand() == null || !dto.getBrand().matches(CarParamsValidator.BRAND_REGEX)) {
+            throw new ValidateException("brand");
+        }
+        if (dto.getModel() == null || !dto.getModel().matches(CarParamsValidator.MODEL_REGEX)) {
+            throw new ValidateException("model");
+        }
+        int currentYear = java.time.Year.now().getValue();
+        if (dto.getYear() < 1886 || dto.getYear() > currentYear + 1) {
+            throw new ValidateException("year");
+        }
+        if (dto.getPrice() < 0 || dto.getPrice() > 1_000_000_000) {
+            throw new ValidateException("price");
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.carportal.benchmarks;
+
+import com.carportal.dto.response.CarResponseDTO;
+import com.carportal.dto.response.NewsResponseDTO;
+import com.carportal.dto.response.UserResponseDTO;
+import com.carportal.models.Car;
+import com.carportal.models.News;
+import com.carportal.models.User;
+import com.carportal.utils.mapper.CarMapper;
+import com.carportal.utils.mapper.NewsMapper;
+import com.carportal.utils.mapper.UserMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарки преобразования сущностей в DTO.
+ * Измеряет CarMapper, UserMapper и NewsMapper на списках размером с типичные ответы API.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+
+    /** Количество элементов в ответе */
+    @Param({"20", "200"})
+    public int size;
+
+    private List<Car> cars;
+    private List<News> news;
+    private List<User> users;
+
+    @Setup
+    public void setup() {
+        cars = Fixtures.cars(size);
+        news = Fixtures.news(size);
+        users = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            users.add(Fixtures.user(i));
+        }
+    }
+
+    @Benchmark
+    public List<CarResponseDTO> carToCarResponseDTO() {
+        List<CarResponseDTO> result = new ArrayList<>(cars.size());
+        for (Car car : cars) {
+            result.add(CarMapper.carToCarResponseDTO(car));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<UserResponseDTO> userToUserResponseDTO() {
+        return UserMapper.usersToUserResponseDTOs(users);
+    }
+
+    @Benchmark
+    public List<NewsResponseDTO> newsToNewsResponseDTO() {
+        return NewsMapper.newsListToNewsResponseDTOList(news);
+    }
+}
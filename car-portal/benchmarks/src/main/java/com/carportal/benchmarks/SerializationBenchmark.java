@@ -0,0 +1,38 @@
+package com.carportal.benchmarks;
+
+import com.carportal.dto.response.CarResponseDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарки сериализации ответов каталога.
+ * Измеряет сериализацию списков CarResponseDTO в JSON средствами Jackson.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    /** Количество автомобилей в ответе */
+    @Param({"20", "200", "1000"})
+    public int size;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private List<CarResponseDTO> cars;
+
+    @Setup
+    public void setup() {
+        cars = Fixtures.carResponses(size);
+    }
+
+    @Benchmark
+    public byte[] serializeCarList() throws Exception {
+        return objectMapper.writeValueAsBytes(cars);
+    }
+}
@@ -0,0 +1,334 @@
+package com.carportal.benchmarks;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Нагрузочная проверка backend медленными клиентами.
+ * Медленные клиенты открывают соединения и передают тело запроса по одному байту с паузой,
+ * удерживая поток обработки запроса, пока тело не прочитано. По умолчанию это обмен пустого токена
+ * обновления ({@code /auth/token/refresh}): тело JSON читается целиком, а ответ 401 формируется без обращения
+ * к базе данных, поэтому замер не упирается в пул соединений (вход по паролю обращается к базе при каждой попытке). Одновременно быстрые клиенты-пробы
+ * запрашивают каталог, и для них измеряются пропускная способность и задержки: при пуле потоков
+ * Tomcat медленные клиенты занимают все потоки, а на виртуальных потоках пробы не должны их замечать.
+ * Каждый клиент работает в своем виртуальном потоке и использует соединение повторно (keep-alive).
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.carportal.benchmarks.SlowClientLoad \
+ *     --url=http://localhost:8080 --slow-clients=10000 --label=virtual --out=results/load-virtual.json
+ * </pre>
+ */
+public final class SlowClientLoad {
+
+    private static final String PROBE_PATH = "/cars/catalog";
+    private static final byte[] SLOW_BODY = "{\"refreshToken\":                     \"\"}"
+            .getBytes(StandardCharsets.US_ASCII);
+
+    private final String host;
+    private final int port;
+    private final String slowPath;
+    private final int slowClients;
+    private final Duration byteDelay;
+    private final int probes;
+    private final Duration ramp;
+    private final Duration duration;
+    private final Duration timeout;
+
+    private final AtomicLong slowCompleted = new AtomicLong();
+    private final AtomicLong slowErrors = new AtomicLong();
+    private final AtomicLong slowConnected = new AtomicLong();
+    private final AtomicLong probeErrors = new AtomicLong();
+    private final ConcurrentLinkedQueue<Long> probeLatencies = new ConcurrentLinkedQueue<>();
+    private final Map<Integer, AtomicLong> probeStatuses = new HashMap<>();
+
+    private volatile long measureFrom;
+    private volatile long stopAt;
+
+    private SlowClientLoad(Map<String, String> options) {
+        URI url = URI.create(options.getOrDefault("url", "http://localhost:8080"));
+        this.host = url.getHost();
+        this.port = url.getPort() > 0 ? url.getPort() : 80;
+        this.slowPath = options.getOrDefault("slow-path", "/auth/token/refresh");
+        this.slowClients = Integer.parseInt(options.getOrDefault("slow-clients", "10000"));
+        this.byteDelay = Duration.ofMillis(Long.parseLong(options.getOrDefault("byte-delay-ms", "1000")));
+        this.probes = Integer.parseInt(options.getOrDefault("probes", "16"));
+        this.ramp = Duration.ofSeconds(Long.parseLong(options.getOrDefault("ramp-s", "20")));
+        this.duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration-s", "60")));
+        this.timeout = Duration.ofSeconds(Long.parseLong(options.getOrDefault("timeout-s", "10")));
+        for (int status : new int[]{200, 304, 429, 503}) {
+            probeStatuses.put(status, new AtomicLong());
+        }
+    }
+
+    /**
+     * Запускает проверку.
+     *
+     * @param args параметры вида --имя=значение: url, slow-path, slow-clients, byte-delay-ms, probes, ramp-s,
+     *             duration-s, timeout-s, label (метка режима сервера в отчете), out (файл отчета JSON)
+     * @throws Exception при ошибке записи отчета или прерывании
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] pair = arg.replaceFirst("^--", "").split("=", 2);
+            options.put(pair[0], pair.length > 1 ? pair[1] : "true");
+        }
+        String report = new SlowClientLoad(options).run(options.getOrDefault("label", "unknown"));
+        System.out.println(report);
+        if (options.containsKey("out")) {
+            Files.writeString(Path.of(options.get("out")), report);
+        }
+    }
+
+    private String run(String label) throws InterruptedException {
+        long start = System.nanoTime();
+        measureFrom = start + ramp.toNanos();
+        stopAt = measureFrom + duration.toNanos();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < slowClients; i++) {
+                long startDelay = ramp.toNanos() * i / Math.max(slowClients, 1);
+                executor.execute(() -> slowClient(start + startDelay));
+            }
+            for (int i = 0; i < probes; i++) {
+                executor.execute(this::probe);
+            }
+            while (System.nanoTime() < stopAt) {
+                TimeUnit.SECONDS.sleep(5);
+                System.err.printf(Locale.ROOT, "connected=%d slowCompleted=%d slowErrors=%d probes=%d probeErrors=%d%n",
+                        slowConnected.get(), slowCompleted.get(), slowErrors.get(), probeLatencies.size(), probeErrors.get());
+            }
+            executor.shutdownNow();
+        }
+        return report(label);
+    }
+
+    /**
+     * Медленный клиент: запросы входа с телом, передаваемым по одному байту.
+     */
+    private void slowClient(long startAt) {
+        sleepUntil(startAt);
+        while (System.nanoTime() < stopAt) {
+            try (Socket socket = connect()) {
+                slowConnected.incrementAndGet();
+                try {
+                    OutputStream out = socket.getOutputStream();
+                    InputStream in = new BufferedInputStream(socket.getInputStream());
+                    while (System.nanoTime() < stopAt) {
+                        out.write(("POST " + slowPath + " HTTP/1.1\r\nHost: " + host + "\r\n"
+                                + "Content-Type: application/json\r\nContent-Length: " + SLOW_BODY.length + "\r\n\r\n")
+                                .getBytes(StandardCharsets.US_ASCII));
+                        out.flush();
+                        for (byte b : SLOW_BODY) {
+                            Thread.sleep(jitter(byteDelay));
+                            out.write(b);
+                            out.flush();
+                        }
+                        if (readResponse(in) < 0) {
+                            break;
+                        }
+                        slowCompleted.incrementAndGet();
+                    }
+                } finally {
+                    slowConnected.decrementAndGet();
+                }
+            } catch (IOException e) {
+                slowErrors.incrementAndGet();
+                pause();
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Клиент-проба: запросы каталога подряд с измерением задержки.
+     */
+    private void probe() {
+        while (System.nanoTime() < stopAt) {
+            try (Socket socket = connect()) {
+                OutputStream out = socket.getOutputStream();
+                InputStream in = new BufferedInputStream(socket.getInputStream());
+                while (System.nanoTime() < stopAt) {
+                    long sent = System.nanoTime();
+                    out.write(("GET " + PROBE_PATH + " HTTP/1.1\r\nHost: " + host + "\r\n\r\n")
+                            .getBytes(StandardCharsets.US_ASCII));
+                    out.flush();
+                    int status = readResponse(in);
+                    if (status < 0) {
+                        break;
+                    }
+                    if (sent >= measureFrom) {
+                        probeLatencies.add(System.nanoTime() - sent);
+                        probeStatuses.computeIfAbsent(status, key -> new AtomicLong()).incrementAndGet();
+                    }
+                }
+            } catch (IOException e) {
+                if (System.nanoTime() >= measureFrom) {
+                    probeErrors.incrementAndGet();
+                }
+                pause();
+            }
+        }
+    }
+
+    private Socket connect() throws IOException {
+        Socket socket = new Socket();
+        socket.connect(new InetSocketAddress(host, port), (int) timeout.toMillis());
+        socket.setSoTimeout((int) timeout.toMillis());
+        socket.setTcpNoDelay(true);
+        return socket;
+    }
+
+    /**
+     * Читает ответ HTTP/1.1 с телом фиксированной длины или в блоках.
+     *
+     * @return код ответа или -1, если сервер закрыл соединение
+     */
+    private static int readResponse(InputStream in) throws IOException {
+        String statusLine = readLine(in);
+        if (statusLine == null) {
+            return -1;
+        }
+        int status = Integer.parseInt(statusLine.split(" ", 3)[1]);
+        long contentLength = -1;
+        boolean chunked = false;
+        boolean close = false;
+        String line;
+        while ((line = readLine(in)) != null && !line.isEmpty()) {
+            String lower = line.toLowerCase(Locale.ROOT);
+            if (lower.startsWith("content-length:")) {
+                contentLength = Long.parseLong(lower.substring(15).trim());
+            } else if (lower.startsWith("transfer-encoding:") && lower.contains("chunked")) {
+                chunked = true;
+            } else if (lower.startsWith("connection:") && lower.contains("close")) {
+                close = true;
+            }
+        }
+        if (chunked) {
+            long size;
+            while ((size = Long.parseLong(readLine(in).split(";", 2)[0].trim(), 16)) > 0) {
+                skip(in, size);
+                readLine(in);
+            }
+            readLine(in);
+        } else if (contentLength > 0) {
+            skip(in, contentLength);
+        }
+        return close ? -1 : status;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                int length = line.size();
+                byte[] bytes = line.toByteArray();
+                return new String(bytes, 0, length > 0 && bytes[length - 1] == '\r' ? length - 1 : length,
+                        StandardCharsets.US_ASCII);
+            }
+            line.write(b);
+        }
+        return line.size() == 0 ? null : line.toString(StandardCharsets.US_ASCII);
+    }
+
+    private static void skip(InputStream in, long bytes) throws IOException {
+        long remaining = bytes;
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+            if (skipped <= 0) {
+                if (in.read() == -1) {
+                    throw new IOException("Соединение закрыто до конца тела ответа");
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+
+    private static Duration jitter(Duration delay) {
+        long millis = delay.toMillis();
+        return Duration.ofMillis(millis / 2 + ThreadLocalRandom.current().nextLong(millis + 1));
+    }
+
+    private static void sleepUntil(long nanoTime) {
+        long remaining = nanoTime - System.nanoTime();
+        if (remaining > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static void pause() {
+        try {
+            Thread.sleep(100);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String report(String label) {
+        long[] latencies = probeLatencies.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(latencies);
+        List<String> statuses = new ArrayList<>();
+        probeStatuses.forEach((status, count) -> statuses.add("\"" + status + "\": " + count.get()));
+        return String.format(Locale.ROOT, """
+                {
+                  "label": "%s",
+                  "recordedAt": "%s",
+                  "processors": %d,
+                  "slowPath": "%s",
+                  "slowClients": %d,
+                  "byteDelayMs": %d,
+                  "probes": %d,
+                  "durationSeconds": %d,
+                  "slowRequestsCompleted": %d,
+                  "slowConnectionErrors": %d,
+                  "probeRequests": %d,
+                  "probeRequestsPerSecond": %.1f,
+                  "probeErrors": %d,
+                  "probeStatuses": {%s},
+                  "probeLatencyMs": {"p50": %.1f, "p90": %.1f, "p99": %.1f, "max": %.1f}
+                }""",
+                label, Instant.now(), Runtime.getRuntime().availableProcessors(), slowPath, slowClients, byteDelay.toMillis(),
+                probes, duration.toSeconds(), slowCompleted.get(), slowErrors.get(), latencies.length,
+                latencies.length / (double) duration.toSeconds(), probeErrors.get(), String.join(", ", statuses),
+                percentile(latencies, 0.50), percentile(latencies, 0.90), percentile(latencies, 0.99),
+                percentile(latencies, 1.0));
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1);
+        return sorted[Math.max(index, 0)] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,90 @@
+package com.carportal.benchmarks;
+
+import com.carportal.dto.request.CarRequestDTO;
+import com.carportal.dto.request.UserCreateDTO;
+import com.carportal.exception.ValidateException;
+import com.carportal.utils.validation.CarParamsValidator;
+import com.carportal.utils.validation.UserParamsValidator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарки валидации параметров пользователя и автомобиля.
+ * Измеряет проверки корректных данных и путь с ошибкой валидации,
+ * а также сравнивает их с прежней реализацией на {@link String#matches(String)}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidatorBenchmark {
+
+    private final UserCreateDTO validUser = new UserCreateDTO(
+            "ivan_petrov", "ivan.petrov@carportal.ru", "secret123", "+7 (495) 123-45-67");
+    private final UserCreateDTO invalidUser = new UserCreateDTO(
+            "ivan_petrov", "ivan.petrov@carportal", "secret123", "+7 (495) 123-45-67");
+    private final UserCreateDTO invalidEverything = new UserCreateDTO(
+            "iv", "ivan.petrov@carportal", "123", "+7 (495) 123");
+    private final CarRequestDTO validCar = Fixtures.carRequest();
+
+    @Benchmark
+    public void userParamsValid() {
+        UserParamsValidator.userParamsValidate(validUser);
+    }
+
+    @Benchmark
+    public void userParamsInvalidEmail(Blackhole blackhole) {
+        try {
+            UserParamsValidator.userParamsValidate(invalidUser);
+        } catch (ValidateException e) {
+            blackhole.consume(e);
+        }
+    }
+
+    @Benchmark
+    public void phoneValid() {
+        UserParamsValidator.phoneValidate("+7 (495) 123-45-67");
+    }
+
+    @Benchmark
+    public void carParamsValid() {
+        CarParamsValidator.validateCarParams(validCar);
+    }
+
+    @Benchmark
+    public void userParamsInvalidAllFields(Blackhole blackhole) {
+        try {
+            UserParamsValidator.userParamsValidate(invalidEverything);
+        } catch (ValidateException e) {
+            blackhole.consume(e);
+        }
+    }
+
+    @Benchmark
+    public void legacyUserParamsValid() {
+        LegacyValidators.userParamsValidate(validUser);
+    }
+
+    @Benchmark
+    public void legacyUserParamsInvalidEmail(Blackhole blackhole) {
+        try {
+            LegacyValidators.userParamsValidate(invalidUser);
+        } catch (ValidateException e) {
+            blackhole.consume(e);
+        }
+    }
+
+    @Benchmark
+    public void legacyPhoneValid() {
+        LegacyValidators.phoneValidate("+7 (495) 123-45-67");
+    }
+
+    @Benchmark
+    public void legacyCarParamsValid() {
+        LegacyValidators.validateCarParams(validCar);
+    }
+}